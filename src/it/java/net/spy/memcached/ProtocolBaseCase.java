@@ -49,10 +49,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.categories.StandardTests;
 import net.spy.memcached.compat.SyncThread;
@@ -67,6 +69,7 @@ import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.ops.ConfigurationType;
 import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StatusCode;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 import net.spy.memcached.transcoders.Transcoder;
@@ -471,6 +474,28 @@ public abstract class ProtocolBaseCase extends ClientBaseCase {
     assertEquals("val2", vals.get("test2"));
   }
 
+  @Test
+  public void testStreamingGetBulk() throws Exception {
+    Collection<String> keys = Arrays.asList("test1", "test2", "test3");
+    client.set("test1", 5, "val1");
+    client.set("test2", 5, "val2");
+    final Map<String, Object> vals = new ConcurrentHashMap<String, Object>();
+    final AtomicInteger nodes = new AtomicInteger();
+    assertTrue(client.asyncGetBulk(keys, new BulkGetCallback<Object>() {
+      public void gotValue(String key, Object value) {
+        vals.put(key, value);
+      }
+
+      public void nodeComplete(MemcachedNode node, OperationStatus status) {
+        nodes.incrementAndGet();
+      }
+    }).get());
+    assertEquals(2, vals.size());
+    assertEquals("val1", vals.get("test1"));
+    assertEquals("val2", vals.get("test2"));
+    assertTrue(nodes.get() > 0);
+  }
+
   @Test
   public void testGetBulkVararg() throws Exception {
     assertEquals(0, client.getBulk("test1", "test2", "test3").size());
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Receives the results of a streaming bulk get as they arrive.
+ *
+ * <p>
+ * Both methods are called from the I/O thread of the connection, and should
+ * hand off any slow work instead of blocking it.
+ * </p>
+ *
+ * @see MemcachedClient#asyncGetBulk(java.util.Collection,
+ *      net.spy.memcached.transcoders.Transcoder, BulkGetCallback)
+ */
+public interface BulkGetCallback<T> {
+
+  /**
+   * Called for each key found, as soon as its value is decoded.
+   *
+   * @param key the key that was retrieved
+   * @param value the decoded value
+   */
+  void gotValue(String key, T value);
+
+  /**
+   * Called once all of the keys sent to a node have been processed, even
+   * when they were split into several get commands.
+   *
+   * @param node the node
+   * @param status a success status, also when every key missed, or the
+   *          status of the first get command on that node that failed
+   */
+  void nodeComplete(MemcachedNode node, OperationStatus status);
+}
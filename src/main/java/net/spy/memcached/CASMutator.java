@@ -22,6 +22,8 @@
 
 package net.spy.memcached;
 
+import java.util.concurrent.TimeUnit;
+
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.transcoders.Transcoder;
 
@@ -56,6 +58,8 @@ import net.spy.memcached.transcoders.Transcoder;
 public class CASMutator<T> extends SpyObject {
 
   private static final int MAX_TRIES = 8192;
+  // Time to wait for another client recomputing a missing value, in ms.
+  private static final long RETRY_DELAY = 10;
 
   private final MemcachedClientIF client;
   private final Transcoder<T> transcoder;
@@ -147,4 +151,78 @@ public class CASMutator<T> extends SpyObject {
 
     return rv;
   }
+
+  /**
+   * Get the value of a key, recomputing it when it's missing or stale.
+   *
+   * <p>
+   * Only one client at a time recomputes the value of a key, the others get
+   * the stale value meanwhile, or wait for the new one when there is none.
+   * Values are made stale with {@link MemcachedClientIF#invalidate}. This
+   * requires the meta protocol.
+   * </p>
+   *
+   * <p>
+   * A client failing to recompute a missing value holds the others back
+   * until its right to recompute expires, after which the next client
+   * getting the key recomputes it. Waiting clients give up once the token
+   * expiration has passed.
+   * </p>
+   *
+   * @param key the key to get
+   * @param exp the expiration of the recomputed value
+   * @param tokenExp the time in seconds given to a client to recompute a
+   *          missing value
+   * @param recacheThreshold the remaining time to live under which the value
+   *          is recomputed ahead of its expiration, 0 to disable
+   * @param m the mutation computing the new value from the stale one, or
+   *          from null when there is none; a null new value isn't stored
+   * @return the current or recomputed value
+   * @throws OperationTimeoutException if no value came up within the token
+   *           expiration
+   */
+  public T getOrRecompute(final String key, int exp, int tokenExp,
+      int recacheThreshold, final CASMutation<T> m) throws Exception {
+    // The server clock ticks in seconds, give it one more to expire the
+    // placeholder of a client that failed.
+    long deadline = System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(tokenExp + 1);
+    while (true) {
+      RecacheCASValue<T> casval = client.getsForRecache(key, tokenExp,
+          recacheThreshold, transcoder);
+      if (casval != null && casval.isWon()) {
+        T rv = m.getNewValue(casval.getValue());
+        // A failed CAS means the value was invalidated or set again
+        // meanwhile, which doesn't make the recomputed value wrong.
+        if (rv != null && client.cas(key, casval.getCas(), exp, rv,
+            transcoder) != CASResponse.OK) {
+          getLogger().debug("Recomputed value of %s was not stored", key);
+        }
+        return rv;
+      } else if (casval != null && casval.getValue() != null) {
+        return casval.getValue();
+      } else if (System.nanoTime() - deadline >= 0) {
+        throw new OperationTimeoutException("Timed out waiting for the value"
+            + " of " + key + " to be recomputed");
+      }
+      // Another client is recomputing a missing value.
+      Thread.sleep(RETRY_DELAY);
+    }
+  }
+
+  /**
+   * Get the value of a key, recomputing it when it's missing or stale.
+   *
+   * @param key the key to get
+   * @param exp the expiration of the recomputed value
+   * @param tokenExp the time in seconds given to a client to recompute a
+   *          missing value
+   * @param m the mutation computing the new value
+   * @return the current or recomputed value
+   * @see #getOrRecompute(String, int, int, int, CASMutation)
+   */
+  public T getOrRecompute(String key, int exp, int tokenExp,
+      CASMutation<T> m) throws Exception {
+    return getOrRecompute(key, exp, tokenExp, 0, m);
+  }
 }
@@ -40,8 +40,10 @@ import java.util.concurrent.ExecutorService;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.metrics.MetricCollector;
 import net.spy.memcached.metrics.MetricType;
+import net.spy.memcached.nearcache.NearCache;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.ByteBufferPool;
 
 import javax.net.ssl.SSLContext;
 
@@ -90,6 +92,32 @@ public interface ConnectionFactory {
    */
   long getOpQueueMaxBlockTime();
 
+  /**
+   * Get the number of operations which may wait in the input queue of a node
+   * before new operations for that node are rejected right away, instead of
+   * blocking the caller until there is room.
+   *
+   * Rejected operations are cancelled, so their futures fail immediately.
+   *
+   * @return the high-water mark, or -1 to block instead of rejecting.
+   */
+  int getOpQueueHighWaterMark();
+
+  /**
+   * Get the number of I/O event loops the nodes of a connection are spread
+   * across. Every loop runs in its own thread with its own selector.
+   */
+  int getIOLoopCount();
+
+  /**
+   * Get the number of TCP connections opened to every memcached node.
+   *
+   * Operations for a node are sent on the connection with the fewest
+   * outstanding operations, so a large value does not hold up every other
+   * request to the same node.
+   */
+  int getConnectionsPerNode();
+
   /**
    * Get the ExecutorService which is used to asynchronously execute listeners
    * on futures.
@@ -143,6 +171,40 @@ public interface ConnectionFactory {
    */
   boolean useNagleAlgorithm();
 
+  /**
+   * If true, nodes hand the buffers of pending operations straight to a
+   * gathering {@link java.nio.channels.SocketChannel#write(java.nio.ByteBuffer[])}
+   * instead of copying them into the node's write buffer first.
+   *
+   * <p>
+   * This has no effect on TLS connections, which always encrypt into the
+   * write buffer.
+   * </p>
+   */
+  boolean useGatheringWrites();
+
+  /**
+   * Get the time in microseconds a node may hold back writing its pending
+   * operations, so more operations get packed into a single write.
+   *
+   * <p>
+   * A node writes as soon as this time elapsed since the first pending
+   * operation was put into its write buffer, or once the buffer is
+   * {@link #getWriteCorkThreshold()} percent full. The selector waits in
+   * whole milliseconds, so the time is rounded up to the next millisecond.
+   * 0 disables corking, which also has no effect on TLS connections.
+   * </p>
+   */
+  long getWriteCorkTime();
+
+  /**
+   * Get the percentage of the write buffer which has to be filled for a
+   * corked node to write right away.
+   *
+   * @see #getWriteCorkTime()
+   */
+  int getWriteCorkThreshold();
+
   /**
    * If true, keep alive will be used on connected sockets.
    *
@@ -181,6 +243,22 @@ public interface ConnectionFactory {
    */
   int getReadBufSize();
 
+  /**
+   * Get the size the read and write buffers of a node may shrink to.
+   *
+   * Nodes start out with {@link #getReadBufSize()} and adapt their buffers
+   * to the observed traffic within the minimum and maximum size. If both are
+   * equal to the read buffer size, the buffers keep their size.
+   */
+  int getMinBufSize();
+
+  /**
+   * Get the size the read and write buffers of a node may grow to.
+   *
+   * @see #getMinBufSize()
+   */
+  int getMaxBufSize();
+
   /**
    * Get the hash algorithm to be used.
    */
@@ -191,6 +269,15 @@ public interface ConnectionFactory {
    */
   long getMaxReconnectDelay();
 
+  /**
+   * Get the maximum number of reconnects an I/O loop keeps in progress at
+   * the same time. Further due reconnects wait until one of them finished.
+   *
+   * @return the maximum number of pending reconnects per loop, or -1 for no
+   *         limit.
+   */
+  int getMaxConcurrentReconnects();
+
   /**
    * Authenticate connections using the given auth descriptor.
    *
@@ -203,6 +290,82 @@ public interface ConnectionFactory {
    */
   int getTimeoutExceptionThreshold();
 
+  /**
+   * Get how many times slower than the median node a node has to respond to
+   * be ejected as an outlier.
+   *
+   * Ejected nodes get no new operations for the outlier ejection time and
+   * are then ramped back in over the same time. Their keys are redistributed
+   * to other nodes meanwhile, so ejection only takes place with
+   * {@link FailureMode#Redistribute}.
+   *
+   * @return the latency factor, or 0 to never eject nodes.
+   */
+  double getOutlierEjectionFactor();
+
+  /**
+   * Get the time (in milliseconds) an outlier is ejected for.
+   */
+  long getOutlierEjectionTime();
+
+  /**
+   * Get the time (in milliseconds) over which a node ramps up after it
+   * reconnected.
+   *
+   * While ramping up, the number of operations written to the node ahead of
+   * their responses grows from a few to the capacity of its read queue, and
+   * the node only takes a growing share of the operations redistributed from
+   * other nodes.
+   *
+   * @return the ramp up time, or 0 to give nodes their full load right away.
+   */
+  long getSlowStartTime();
+
+  /**
+   * Get the interval (in milliseconds) at which idle connections are probed.
+   *
+   * Connections without outstanding operations which did not read anything
+   * for the interval are sent a noop (or version with the ascii protocol). A
+   * connection whose probe is not answered within the next interval is
+   * considered dead and reconnected.
+   *
+   * @return the interval, or 0 to never probe connections.
+   */
+  long getHealthCheckInterval();
+
+  /**
+   * Get the number of noreply operations after which a connection is sent a
+   * barrier.
+   *
+   * Noreply operations are never answered, so a dead connection would not be
+   * noticed while only they are sent on it. The barrier is a noop (or version
+   * with the ascii protocol) which is answered once everything before it has
+   * been processed. A connection whose barrier times out is reconnected.
+   *
+   * @return the interval, or 0 to never send barriers.
+   */
+  int getNoReplyBarrierInterval();
+
+  /**
+   * Get the maximum number of keys fetched by a single get command.
+   *
+   * Bigger multi-gets are split into several gets pipelined on the node, so
+   * neither the server nor the client has to buffer one huge request or
+   * response before anything completes.
+   *
+   * @return the maximum number of keys, or 0 for no limit.
+   */
+  int getMaxGetKeys();
+
+  /**
+   * Get the maximum total length of the keys fetched by a single get
+   * command, in bytes.
+   *
+   * @return the maximum length, or 0 for no limit.
+   * @see #getMaxGetKeys()
+   */
+  int getMaxGetBytes();
+
   /**
    * If true, metric collections are enabled.
    */
@@ -213,6 +376,43 @@ public interface ConnectionFactory {
    */
   MetricCollector getMetricCollector();
 
+  /**
+   * The pool the read and write buffers of the nodes are leased from.
+   */
+  ByteBufferPool getBufferPool();
+
+  /**
+   * Get the maximum size (in bytes) of the near cache.
+   *
+   * @return the size, or 0 if gets always go to memcached.
+   */
+  long getNearCacheMaxSize();
+
+  /**
+   * Get the time (in milliseconds) values are kept in the near cache.
+   *
+   * Changes made by other clients only become visible once the value cached
+   * by this client expired, so this bounds how stale a value may get.
+   */
+  long getNearCacheTtl();
+
+  /**
+   * The near cache gets are served from, or null if there is none.
+   */
+  NearCache getNearCache();
+
+  /**
+   * If true, a get of a key which is already being fetched by this client
+   * does not send another request, but completes with the value of the get
+   * in flight.
+   *
+   * <p>
+   * The callers of collapsed gets share the decoded value, so it must not be
+   * modified. Cancelling any of them cancels the shared get.
+   * </p>
+   */
+  boolean shouldCollapseGets();
+
   /**
    * The time to wait until authentication completes when an operation is
    * inserted.
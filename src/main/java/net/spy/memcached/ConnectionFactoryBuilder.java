@@ -37,11 +37,14 @@ import java.util.concurrent.ExecutorService;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.metrics.MetricCollector;
 import net.spy.memcached.metrics.MetricType;
+import net.spy.memcached.nearcache.NearCache;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.meta.MetaOperationFactory;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.ByteBufferPool;
 
 import javax.net.ssl.SSLContext;
 
@@ -70,21 +73,43 @@ public class ConnectionFactoryBuilder {
   protected boolean isDaemon = false;
   protected boolean shouldOptimize = false;
   protected boolean useNagle = false;
+  protected boolean gatheringWrites = false;
+  protected boolean collapseGets = false;
   protected boolean keepAlive = false;
   protected long maxReconnectDelay =
       DefaultConnectionFactory.DEFAULT_MAX_RECONNECT_DELAY;
 
+  protected int maxConcurrentReconnects = -1;
+
   protected int readBufSize = -1;
+  protected int minBufSize = -1;
+  protected int maxBufSize = -1;
   protected HashAlgorithm hashAlg;
   protected AuthDescriptor authDescriptor = null;
   protected long opQueueMaxBlockTime = -1;
+  protected int opQueueHighWaterMark = -1;
+  protected int ioLoopCount = -1;
+  protected int connectionsPerNode = -1;
+  protected long writeCorkTime = -1;
+  protected int writeCorkThreshold = -1;
 
   protected int timeoutExceptionThreshold =
       DefaultConnectionFactory.DEFAULT_MAX_TIMEOUTEXCEPTION_THRESHOLD;
+  protected double outlierEjectionFactor = -1;
+  protected long outlierEjectionTime = -1;
+  protected long slowStartTime = -1;
+  protected long healthCheckInterval = -1;
+  protected int noReplyBarrierInterval = -1;
+  protected int maxGetKeys = -1;
+  protected int maxGetBytes = -1;
 
   protected MetricType metricType = null;
   protected MetricCollector collector = null;
   protected ExecutorService executorService = null;
+  protected ByteBufferPool bufferPool = null;
+  protected long nearCacheMaxSize = -1;
+  protected long nearCacheTtl = -1;
+  protected NearCache nearCache = null;
   protected long authWaitTime = DefaultConnectionFactory.DEFAULT_AUTH_WAIT_TIME;
 
   protected SSLContext sslContext;
@@ -107,16 +132,37 @@ public class ConnectionFactoryBuilder {
     setHashAlg(cf.getHashAlg());
     setInitialObservers(cf.getInitialObservers());
     setMaxReconnectDelay(cf.getMaxReconnectDelay());
+    setMaxConcurrentReconnects(cf.getMaxConcurrentReconnects());
     setOpQueueMaxBlockTime(cf.getOpQueueMaxBlockTime());
+    setOpQueueHighWaterMark(cf.getOpQueueHighWaterMark());
+    setIOLoopCount(cf.getIOLoopCount());
+    setConnectionsPerNode(cf.getConnectionsPerNode());
     setOpTimeout(cf.getOperationTimeout());
     setReadBufferSize(cf.getReadBufSize());
+    setMinBufferSize(cf.getMinBufSize());
+    setMaxBufferSize(cf.getMaxBufSize());
     setShouldOptimize(cf.shouldOptimize());
     setTimeoutExceptionThreshold(cf.getTimeoutExceptionThreshold());
+    setOutlierEjectionFactor(cf.getOutlierEjectionFactor());
+    setOutlierEjectionTime(cf.getOutlierEjectionTime());
+    setSlowStartTime(cf.getSlowStartTime());
+    setHealthCheckInterval(cf.getHealthCheckInterval());
+    setNoReplyBarrierInterval(cf.getNoReplyBarrierInterval());
+    setMaxGetKeys(cf.getMaxGetKeys());
+    setMaxGetBytes(cf.getMaxGetBytes());
     setTranscoder(cf.getDefaultTranscoder());
     setUseNagleAlgorithm(cf.useNagleAlgorithm());
+    setUseGatheringWrites(cf.useGatheringWrites());
+    setWriteCorkTime(cf.getWriteCorkTime());
+    setWriteCorkThreshold(cf.getWriteCorkThreshold());
     setKeepAlive(cf.getKeepAlive());
     setEnableMetrics(cf.enableMetrics());
     setListenerExecutorService(cf.getListenerExecutorService());
+    setBufferPool(cf.getBufferPool());
+    setNearCacheMaxSize(cf.getNearCacheMaxSize());
+    setNearCacheTtl(cf.getNearCacheTtl());
+    setNearCache(cf.getNearCache());
+    setCollapseGets(cf.shouldCollapseGets());
     setAuthWaitTime(cf.getAuthWaitTime());
     setSSLContext(cf.getSSLContext());
     setHostnameForTlsVerification(cf.getHostnameForTlsVerification());
@@ -165,6 +211,43 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the number of operations which may wait in the input queue of a node
+   * before new operations for it are rejected without blocking.
+   *
+   * Rejected operations are cancelled, so their futures fail immediately.
+   * The default of -1 blocks for up to the op queue max block time instead.
+   */
+  public ConnectionFactoryBuilder setOpQueueHighWaterMark(int mark) {
+    assert mark > 0 || mark == -1 : "High-water mark must be positive or -1";
+    opQueueHighWaterMark = mark;
+    return this;
+  }
+
+  /**
+   * Set the number of I/O event loops the nodes are spread across.
+   *
+   * Every loop runs in its own thread and owns its own selector, so
+   * throughput can scale with the number of loops up to the number of nodes.
+   */
+  public ConnectionFactoryBuilder setIOLoopCount(int count) {
+    assert count > 0 : "At least one I/O loop is required";
+    ioLoopCount = count;
+    return this;
+  }
+
+  /**
+   * Set the number of TCP connections opened to every memcached node.
+   *
+   * Every connection is authenticated and reconnected on its own, operations
+   * are sent on the connection with the fewest outstanding operations.
+   */
+  public ConnectionFactoryBuilder setConnectionsPerNode(int count) {
+    assert count > 0 : "Connections per node must be positive";
+    connectionsPerNode = count;
+    return this;
+  }
+
   /**
    * Set the default transcoder.
    */
@@ -235,6 +318,29 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the size the read and write buffers of a node may shrink to.
+   *
+   * Together with {@link #setMaxBufferSize(int)} this lets every node adapt
+   * its buffers to its own traffic, starting out from the read buffer size.
+   */
+  public ConnectionFactoryBuilder setMinBufferSize(int to) {
+    assert to > 0 : "Buffer size must be positive";
+    minBufSize = to;
+    return this;
+  }
+
+  /**
+   * Set the size the read and write buffers of a node may grow to.
+   *
+   * @see #setMinBufferSize(int)
+   */
+  public ConnectionFactoryBuilder setMaxBufferSize(int to) {
+    assert to > 0 : "Buffer size must be positive";
+    maxBufSize = to;
+    return this;
+  }
+
   /**
    * Set the hash algorithm.
    */
@@ -251,6 +357,45 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set to true to write pending operations with a single gathering write
+   * instead of copying them into the node's write buffer first.
+   *
+   * <p>
+   * Ignored for TLS connections.
+   * </p>
+   */
+  public ConnectionFactoryBuilder setUseGatheringWrites(boolean to) {
+    gatheringWrites = to;
+    return this;
+  }
+
+  /**
+   * Set the time in microseconds a node may hold back writing its pending
+   * operations to pack more of them into a single write, 0 to disable.
+   *
+   * <p>
+   * Rounded up to whole milliseconds, and ignored for TLS connections.
+   * </p>
+   */
+  public ConnectionFactoryBuilder setWriteCorkTime(long micros) {
+    assert micros >= 0 : "Cork time must not be negative";
+    writeCorkTime = micros;
+    return this;
+  }
+
+  /**
+   * Set the percentage of the write buffer which has to be filled for held
+   * back writes to go out before the cork time elapsed.
+   *
+   * @see #setWriteCorkTime(long)
+   */
+  public ConnectionFactoryBuilder setWriteCorkThreshold(int percent) {
+    assert percent > 0 && percent <= 100 : "Threshold must be in (0, 100]";
+    writeCorkThreshold = percent;
+    return this;
+  }
+
   public ConnectionFactoryBuilder setKeepAlive(boolean on) {
     keepAlive = on;
     return this;
@@ -267,6 +412,9 @@ public class ConnectionFactoryBuilder {
     case BINARY:
       opFact = new BinaryOperationFactory();
       break;
+    case META:
+      opFact = new MetaOperationFactory();
+      break;
     default:
       assert false : "Unhandled protocol: " + prot;
     }
@@ -290,6 +438,20 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the maximum number of reconnects each I/O loop keeps in progress at
+   * the same time, or -1 (the default) for no limit.
+   *
+   * Limiting them keeps a client from opening connections to all nodes at
+   * once after a network partition healed.
+   */
+  public ConnectionFactoryBuilder setMaxConcurrentReconnects(int max) {
+    assert max > 0 || max == -1 : "Max concurrent reconnects must be positive"
+      + " or -1";
+    maxConcurrentReconnects = max;
+    return this;
+  }
+
   /**
    * Set the auth descriptor to enable authentication on new connections.
    */
@@ -333,6 +495,95 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Eject nodes responding the given number of times slower than the median
+   * node, or never eject nodes if 0 (the default).
+   *
+   * Ejected nodes get no new operations for a while and are then ramped back
+   * in. This only takes effect with {@link FailureMode#Redistribute}.
+   */
+  public ConnectionFactoryBuilder setOutlierEjectionFactor(double factor) {
+    assert factor == 0 || factor > 1 : "Outlier ejection factor must be 0 or"
+      + " greater than 1";
+    outlierEjectionFactor = factor;
+    return this;
+  }
+
+  /**
+   * Set the time (in milliseconds) an outlier is ejected for, which is also
+   * the time it is ramped back in over.
+   */
+  public ConnectionFactoryBuilder setOutlierEjectionTime(long t) {
+    assert t > 0 : "Outlier ejection time must be positive";
+    outlierEjectionTime = t;
+    return this;
+  }
+
+  /**
+   * Set the time (in milliseconds) over which a node ramps up to its full
+   * load after it reconnected, or 0 (the default) to skip the ramp.
+   *
+   * While ramping up, fewer operations are written to the node ahead of
+   * their responses and it takes a smaller share of the operations
+   * redistributed from other nodes.
+   */
+  public ConnectionFactoryBuilder setSlowStartTime(long t) {
+    assert t >= 0 : "Slow start time must not be negative";
+    slowStartTime = t;
+    return this;
+  }
+
+  /**
+   * Set the interval (in milliseconds) at which idle connections are probed
+   * with a noop, or 0 (the default) to never probe them.
+   *
+   * A connection whose probe is not answered within the next interval is
+   * reconnected, so connections silently dropped by a firewall or NAT are
+   * detected before requests are sent to them.
+   */
+  public ConnectionFactoryBuilder setHealthCheckInterval(long interval) {
+    assert interval >= 0 : "Health check interval must not be negative";
+    healthCheckInterval = interval;
+    return this;
+  }
+
+  /**
+   * Set the number of noreply operations after which a connection is sent a
+   * barrier, 1000 by default, or 0 to never send barriers.
+   *
+   * A connection whose barrier times out is reconnected, so a dead
+   * connection is noticed even while only noreply operations are sent on it.
+   */
+  public ConnectionFactoryBuilder setNoReplyBarrierInterval(int interval) {
+    assert interval >= 0 : "Noreply barrier interval must not be negative";
+    noReplyBarrierInterval = interval;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of keys fetched by a single get command, or 0 for
+   * no limit, which is the default.
+   *
+   * Bigger multi-gets are split into several gets pipelined on the node.
+   * The binary protocol folds at most 4096 queued gets together whatever
+   * the limit.
+   */
+  public ConnectionFactoryBuilder setMaxGetKeys(int keys) {
+    assert keys >= 0 : "Max get keys must not be negative";
+    maxGetKeys = keys;
+    return this;
+  }
+
+  /**
+   * Set the maximum total length of the keys fetched by a single get
+   * command, or 0 for no limit, which is the default.
+   */
+  public ConnectionFactoryBuilder setMaxGetBytes(int bytes) {
+    assert bytes >= 0 : "Max get bytes must not be negative";
+    maxGetBytes = bytes;
+    return this;
+  }
+
   /**
    * Enable or disable metric collection.
    *
@@ -368,6 +619,70 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the pool the read and write buffers of the nodes are leased from.
+   *
+   * A pool may be shared between several clients, by default every factory
+   * creates its own.
+   *
+   * @param pool the pool to use.
+   */
+  public ConnectionFactoryBuilder setBufferPool(ByteBufferPool pool) {
+    bufferPool = pool;
+    return this;
+  }
+
+  /**
+   * Set the maximum size (in bytes) of the near cache, or 0 (the default)
+   * for no near cache.
+   *
+   * Gets of keys found in the near cache are served without a round trip to
+   * memcached, writes made through the client invalidate them.
+   */
+  public ConnectionFactoryBuilder setNearCacheMaxSize(long size) {
+    assert size >= 0 : "Near cache size must not be negative";
+    nearCacheMaxSize = size;
+    return this;
+  }
+
+  /**
+   * Set the time (in milliseconds) values are kept in the near cache, which
+   * bounds how long changes made by other clients may go unnoticed.
+   */
+  public ConnectionFactoryBuilder setNearCacheTtl(long ttl) {
+    assert ttl > 0 : "Near cache time to live must be positive";
+    nearCacheTtl = ttl;
+    return this;
+  }
+
+  /**
+   * Set the near cache to serve gets from, instead of one created from the
+   * near cache size and time to live, like a
+   * {@link net.spy.memcached.nearcache.OffHeapNearCache} for values too large
+   * to be cached on the heap.
+   *
+   * A near cache must not be shared between clients of different clusters.
+   *
+   * @param cache the near cache to use.
+   */
+  public ConnectionFactoryBuilder setNearCache(NearCache cache) {
+    nearCache = cache;
+    return this;
+  }
+
+  /**
+   * Set to true to have concurrent gets of the same key share a single
+   * request.
+   *
+   * <p>
+   * The decoded value is shared by all callers, so it must not be modified.
+   * </p>
+   */
+  public ConnectionFactoryBuilder setCollapseGets(boolean collapse) {
+    collapseGets = collapse;
+    return this;
+  }
+
   /**
    * Set a custom wait time for the authentication on connect/reconnect.
    *
@@ -453,6 +768,16 @@ public class ConnectionFactoryBuilder {
         return readBufSize == -1 ? super.getReadBufSize() : readBufSize;
       }
 
+      @Override
+      public int getMinBufSize() {
+        return minBufSize == -1 ? super.getMinBufSize() : minBufSize;
+      }
+
+      @Override
+      public int getMaxBufSize() {
+        return maxBufSize == -1 ? super.getMaxBufSize() : maxBufSize;
+      }
+
       @Override
       public boolean isDaemon() {
         return isDaemon;
@@ -468,6 +793,23 @@ public class ConnectionFactoryBuilder {
         return useNagle;
       }
 
+      @Override
+      public boolean useGatheringWrites() {
+        return gatheringWrites;
+      }
+
+      @Override
+      public long getWriteCorkTime() {
+        return writeCorkTime == -1 ? super.getWriteCorkTime()
+          : writeCorkTime;
+      }
+
+      @Override
+      public int getWriteCorkThreshold() {
+        return writeCorkThreshold == -1 ? super.getWriteCorkThreshold()
+          : writeCorkThreshold;
+      }
+
       @Override
       public boolean getKeepAlive() {
         return keepAlive;
@@ -478,6 +820,12 @@ public class ConnectionFactoryBuilder {
         return maxReconnectDelay;
       }
 
+      @Override
+      public int getMaxConcurrentReconnects() {
+        return maxConcurrentReconnects > -1 ? maxConcurrentReconnects
+            : super.getMaxConcurrentReconnects();
+      }
+
       @Override
       public AuthDescriptor getAuthDescriptor() {
         return authDescriptor;
@@ -504,11 +852,67 @@ public class ConnectionFactoryBuilder {
             : super.getOpQueueMaxBlockTime();
       }
 
+      @Override
+      public int getOpQueueHighWaterMark() {
+        return opQueueHighWaterMark > -1 ? opQueueHighWaterMark
+            : super.getOpQueueHighWaterMark();
+      }
+
+      @Override
+      public int getIOLoopCount() {
+        return ioLoopCount > 0 ? ioLoopCount : super.getIOLoopCount();
+      }
+
+      @Override
+      public int getConnectionsPerNode() {
+        return connectionsPerNode > 0 ? connectionsPerNode
+          : super.getConnectionsPerNode();
+      }
+
       @Override
       public int getTimeoutExceptionThreshold() {
         return timeoutExceptionThreshold;
       }
 
+      @Override
+      public double getOutlierEjectionFactor() {
+        return outlierEjectionFactor > -1 ? outlierEjectionFactor
+            : super.getOutlierEjectionFactor();
+      }
+
+      @Override
+      public long getOutlierEjectionTime() {
+        return outlierEjectionTime > -1 ? outlierEjectionTime
+            : super.getOutlierEjectionTime();
+      }
+
+      @Override
+      public long getSlowStartTime() {
+        return slowStartTime > -1 ? slowStartTime : super.getSlowStartTime();
+      }
+
+      @Override
+      public long getHealthCheckInterval() {
+        return healthCheckInterval > -1 ? healthCheckInterval
+            : super.getHealthCheckInterval();
+      }
+
+      @Override
+      public int getNoReplyBarrierInterval() {
+        return noReplyBarrierInterval > -1 ? noReplyBarrierInterval
+            : super.getNoReplyBarrierInterval();
+      }
+
+      @Override
+      public int getMaxGetKeys() {
+        return maxGetKeys > -1 ? maxGetKeys : super.getMaxGetKeys();
+      }
+
+      @Override
+      public int getMaxGetBytes() {
+        return maxGetBytes > -1 ? maxGetBytes : super.getMaxGetBytes();
+      }
+
       @Override
       public MetricType enableMetrics() {
         return metricType == null ? super.enableMetrics() : metricType;
@@ -524,6 +928,32 @@ public class ConnectionFactoryBuilder {
         return executorService == null ? super.getListenerExecutorService() : executorService;
       }
 
+      @Override
+      public ByteBufferPool getBufferPool() {
+        return bufferPool == null ? super.getBufferPool() : bufferPool;
+      }
+
+      @Override
+      public long getNearCacheMaxSize() {
+        return nearCacheMaxSize > -1 ? nearCacheMaxSize
+            : super.getNearCacheMaxSize();
+      }
+
+      @Override
+      public long getNearCacheTtl() {
+        return nearCacheTtl > -1 ? nearCacheTtl : super.getNearCacheTtl();
+      }
+
+      @Override
+      public NearCache getNearCache() {
+        return nearCache == null ? super.getNearCache() : nearCache;
+      }
+
+      @Override
+      public boolean shouldCollapseGets() {
+        return collapseGets;
+      }
+
       @Override
       public boolean isDefaultExecutorService() {
         return executorService == null;
@@ -548,7 +978,11 @@ public class ConnectionFactoryBuilder {
     /**
      * Use the binary protocol.
      */
-    BINARY
+    BINARY,
+    /**
+     * Use the meta protocol of memcached 1.6 and later.
+     */
+    META
   }
 
   /**
@@ -45,14 +45,19 @@ import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.metrics.DefaultMetricCollector;
 import net.spy.memcached.metrics.MetricCollector;
 import net.spy.memcached.metrics.MetricType;
+import net.spy.memcached.nearcache.NearCache;
+import net.spy.memcached.nearcache.TinyLfuNearCache;
 import net.spy.memcached.metrics.NoopMetricCollector;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryMemcachedNodeImpl;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.meta.MetaMemcachedNodeImpl;
+import net.spy.memcached.protocol.meta.MetaOperationFactory;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.ByteBufferPool;
 
 import javax.net.ssl.SSLContext;
 
@@ -101,11 +106,42 @@ public class DefaultConnectionFactory extends SpyObject implements
   public static final long DEFAULT_OP_QUEUE_MAX_BLOCK_TIME =
       TimeUnit.SECONDS.toMillis(10);
 
+  /**
+   * By default operations are not rejected at a high-water mark, adding them
+   * blocks for up to the maximum block time instead.
+   */
+  public static final int DEFAULT_OP_QUEUE_HIGH_WATER_MARK = -1;
+
+  /**
+   * The number of I/O event loops (and threads) driving the connection.
+   */
+  public static final int DEFAULT_IO_LOOP_COUNT = 1;
+
+  /**
+   * The number of TCP connections opened to every memcached node.
+   */
+  public static final int DEFAULT_CONNECTIONS_PER_NODE = 1;
+
+  /**
+   * The time in microseconds writes are held back, disabled by default.
+   */
+  public static final long DEFAULT_WRITE_CORK_TIME = 0;
+
+  /**
+   * The write buffer fill percentage at which held back writes go out.
+   */
+  public static final int DEFAULT_WRITE_CORK_THRESHOLD = 50;
+
   /**
    * The read buffer size for each server connection from this factory.
    */
   public static final int DEFAULT_READ_BUFFER_SIZE = 16384;
 
+  /**
+   * The maximum number of idle buffers kept in the buffer pool.
+   */
+  public static final int DEFAULT_BUFFER_POOL_SIZE = 64;
+
   /**
    * Default operation timeout in milliseconds.
    */
@@ -116,11 +152,64 @@ public class DefaultConnectionFactory extends SpyObject implements
    */
   public static final long DEFAULT_MAX_RECONNECT_DELAY = 30;
 
+  /**
+   * By default the number of reconnects in progress is not limited.
+   */
+  public static final int DEFAULT_MAX_CONCURRENT_RECONNECTS = -1;
+
   /**
    * Maximum number + 2 of timeout exception for shutdown connection.
    */
   public static final int DEFAULT_MAX_TIMEOUTEXCEPTION_THRESHOLD = 998;
 
+  /**
+   * Slow nodes are not ejected by default.
+   */
+  public static final double DEFAULT_OUTLIER_EJECTION_FACTOR = 0;
+
+  /**
+   * Eject outliers for 30 seconds, and ramp them back in over another 30.
+   */
+  public static final long DEFAULT_OUTLIER_EJECTION_TIME =
+      TimeUnit.SECONDS.toMillis(30);
+
+  /**
+   * Reconnected nodes get their full load right away by default.
+   */
+  public static final long DEFAULT_SLOW_START_TIME = 0;
+
+  /**
+   * Idle connections are not probed by default.
+   */
+  public static final long DEFAULT_HEALTH_CHECK_INTERVAL = 0;
+
+  /**
+   * Send a barrier after every 1000 noreply operations on a connection.
+   */
+  public static final int DEFAULT_NO_REPLY_BARRIER_INTERVAL = 1000;
+
+  /**
+   * Don't limit the keys per get command by default, so multi-gets are
+   * sent whole as before.
+   */
+  public static final int DEFAULT_MAX_GET_KEYS = 0;
+
+  /**
+   * Don't limit the key bytes per get command by default.
+   */
+  public static final int DEFAULT_MAX_GET_BYTES = 0;
+
+  /**
+   * There is no near cache by default.
+   */
+  public static final long DEFAULT_NEAR_CACHE_MAX_SIZE = 0;
+
+  /**
+   * Keep values in the near cache for 10 seconds.
+   */
+  public static final long DEFAULT_NEAR_CACHE_TTL =
+      TimeUnit.SECONDS.toMillis(10);
+
   /**
    * Turn off metric collection by default.
    */
@@ -139,6 +228,16 @@ public class DefaultConnectionFactory extends SpyObject implements
 
   private MetricCollector metrics;
 
+  /**
+   * The pool the buffers of the nodes created by this factory are leased from.
+   */
+  private ByteBufferPool bufferPool;
+
+  /**
+   * The near cache of the clients created with this factory.
+   */
+  private NearCache nearCache;
+
   /**
    * The ExecutorService in which the listener callbacks will be executed.
    */
@@ -214,7 +313,17 @@ public class DefaultConnectionFactory extends SpyObject implements
       int bufSize) {
 
     OperationFactory of = getOperationFactory();
-    if (of instanceof AsciiOperationFactory) {
+    // The meta factory is an ascii factory as well, so check it first.
+    if (of instanceof MetaOperationFactory) {
+      return new MetaMemcachedNodeImpl(sa, c, bufSize,
+          createReadOperationQueue(),
+          createWriteOperationQueue(),
+          createOperationQueue(),
+          getOpQueueMaxBlockTime(),
+          getOperationTimeout(),
+          getAuthWaitTime(),
+          this);
+    } else if (of instanceof AsciiOperationFactory) {
       return new AsciiMemcachedNodeImpl(sa, c, bufSize,
           createReadOperationQueue(),
           createWriteOperationQueue(),
@@ -313,6 +422,33 @@ public class DefaultConnectionFactory extends SpyObject implements
     return DEFAULT_OP_QUEUE_MAX_BLOCK_TIME;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getOpQueueHighWaterMark()
+   */
+  public int getOpQueueHighWaterMark() {
+    return DEFAULT_OP_QUEUE_HIGH_WATER_MARK;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getIOLoopCount()
+   */
+  public int getIOLoopCount() {
+    return DEFAULT_IO_LOOP_COUNT;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getConnectionsPerNode()
+   */
+  public int getConnectionsPerNode() {
+    return DEFAULT_CONNECTIONS_PER_NODE;
+  }
+
   /**
    * @return the time to wait for the authentication to complete when a
    * operation is written in milliseconds.
@@ -369,6 +505,24 @@ public class DefaultConnectionFactory extends SpyObject implements
     return readBufSize;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getMinBufSize()
+   */
+  public int getMinBufSize() {
+    return getReadBufSize();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getMaxBufSize()
+   */
+  public int getMaxBufSize() {
+    return getReadBufSize();
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -432,6 +586,33 @@ public class DefaultConnectionFactory extends SpyObject implements
     return false;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#useGatheringWrites()
+   */
+  public boolean useGatheringWrites() {
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getWriteCorkTime()
+   */
+  public long getWriteCorkTime() {
+    return DEFAULT_WRITE_CORK_TIME;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getWriteCorkThreshold()
+   */
+  public int getWriteCorkThreshold() {
+    return DEFAULT_WRITE_CORK_THRESHOLD;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -459,6 +640,15 @@ public class DefaultConnectionFactory extends SpyObject implements
     return DEFAULT_MAX_RECONNECT_DELAY;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getMaxConcurrentReconnects()
+   */
+  public int getMaxConcurrentReconnects() {
+    return DEFAULT_MAX_CONCURRENT_RECONNECTS;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -477,6 +667,69 @@ public class DefaultConnectionFactory extends SpyObject implements
     return DEFAULT_MAX_TIMEOUTEXCEPTION_THRESHOLD;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getOutlierEjectionFactor()
+   */
+  public double getOutlierEjectionFactor() {
+    return DEFAULT_OUTLIER_EJECTION_FACTOR;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getOutlierEjectionTime()
+   */
+  public long getOutlierEjectionTime() {
+    return DEFAULT_OUTLIER_EJECTION_TIME;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getSlowStartTime()
+   */
+  public long getSlowStartTime() {
+    return DEFAULT_SLOW_START_TIME;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getHealthCheckInterval()
+   */
+  public long getHealthCheckInterval() {
+    return DEFAULT_HEALTH_CHECK_INTERVAL;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getNoReplyBarrierInterval()
+   */
+  public int getNoReplyBarrierInterval() {
+    return DEFAULT_NO_REPLY_BARRIER_INTERVAL;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getMaxGetKeys()
+   */
+  public int getMaxGetKeys() {
+    return DEFAULT_MAX_GET_KEYS;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getMaxGetBytes()
+   */
+  public int getMaxGetBytes() {
+    return DEFAULT_MAX_GET_BYTES;
+  }
+
   /**
    * Get SSLContext for TLS connections usage.
    */
@@ -523,6 +776,59 @@ public class DefaultConnectionFactory extends SpyObject implements
     return metrics;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getBufferPool()
+   */
+  public synchronized ByteBufferPool getBufferPool() {
+    if (bufferPool == null) {
+      bufferPool = new ByteBufferPool(DEFAULT_BUFFER_POOL_SIZE,
+        getMetricCollector());
+    }
+    return bufferPool;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getNearCacheMaxSize()
+   */
+  public long getNearCacheMaxSize() {
+    return DEFAULT_NEAR_CACHE_MAX_SIZE;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getNearCacheTtl()
+   */
+  public long getNearCacheTtl() {
+    return DEFAULT_NEAR_CACHE_TTL;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#getNearCache()
+   */
+  public synchronized NearCache getNearCache() {
+    if (nearCache == null && getNearCacheMaxSize() > 0) {
+      nearCache = new TinyLfuNearCache(getNearCacheMaxSize(),
+        getNearCacheTtl(), TimeUnit.MILLISECONDS, getMetricCollector());
+    }
+    return nearCache;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ConnectionFactory#shouldCollapseGets()
+   */
+  public boolean shouldCollapseGets() {
+    return false;
+  }
+
   protected String getName() {
     return "DefaultConnectionFactory";
   }
@@ -531,13 +837,30 @@ public class DefaultConnectionFactory extends SpyObject implements
   public String toString() {
     return "Failure Mode: " + getFailureMode().name() + ", Hash Algorithm: "
       + ((DefaultHashAlgorithm)getHashAlg()).name() + " Max Reconnect Delay: "
-      + getMaxReconnectDelay() + ", Max Op Timeout: " + getOperationTimeout()
+      + getMaxReconnectDelay() + ", Max Concurrent Reconnects: "
+      + getMaxConcurrentReconnects() + ", Max Op Timeout: " + getOperationTimeout()
       + ", Op Queue Length: " + getOpQueueLen() + ", Op Max Queue Block Time"
-      + getOpQueueMaxBlockTime() + ", Max Timeout Exception Threshold: "
-      + getTimeoutExceptionThreshold() + ", Read Buffer Size: "
-      + getReadBufSize() + ", Transcoder: " + getDefaultTranscoder()
+      + getOpQueueMaxBlockTime() + ", Op Queue High-Water Mark: "
+      + getOpQueueHighWaterMark() + ", I/O Loops: " + getIOLoopCount()
+      + ", Connections per Node: " + getConnectionsPerNode()
+      + ", Max Timeout Exception Threshold: "
+      + getTimeoutExceptionThreshold() + ", Outlier Ejection: "
+      + getOutlierEjectionFactor() + "x/" + getOutlierEjectionTime()
+      + "ms, Slow Start: " + getSlowStartTime()
+      + "ms, Health Check Interval: " + getHealthCheckInterval()
+      + "ms, Noreply Barrier Interval: " + getNoReplyBarrierInterval()
+      + ", Max Get Size: " + getMaxGetKeys() + " keys/" + getMaxGetBytes()
+      + " bytes"
+      + ", Read Buffer Size: "
+      + getReadBufSize() + ", Buffer Size Bounds: " + getMinBufSize() + "-"
+      + getMaxBufSize() + ", Transcoder: " + getDefaultTranscoder()
       + ", Operation Factory: " + getOperationFactory() + " isDaemon: "
       + isDaemon() + ", Optimized: " + shouldOptimize() + ", Using Nagle: "
-      + useNagleAlgorithm() + ", KeepAlive: " + getKeepAlive() + ", SSLContext: " + getSSLContext() + ", ConnectionFactory: " + getName();
+      + useNagleAlgorithm() + ", Gathering Writes: " + useGatheringWrites()
+      + ", Write Cork: " + getWriteCorkTime() + "us/"
+      + getWriteCorkThreshold() + "%, Near Cache: " + getNearCacheMaxSize()
+      + " bytes/" + getNearCacheTtl() + "ms, Collapse Gets: "
+      + shouldCollapseGets()
+      + ", KeepAlive: " + getKeepAlive() + ", SSLContext: " + getSSLContext() + ", ConnectionFactory: " + getName();
   }
 }
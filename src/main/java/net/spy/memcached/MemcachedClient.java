@@ -38,8 +38,12 @@ import net.spy.memcached.internal.BulkFuture;
 import net.spy.memcached.internal.BulkGetFuture;
 import net.spy.memcached.internal.GetConfigFuture;
 import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.ImmediateFuture;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.internal.SingleElementInfiniteIterator;
+import net.spy.memcached.metrics.MetricCollector;
+import net.spy.memcached.nearcache.NearCache;
+import net.spy.memcached.ops.BulkOperationCallback;
 import net.spy.memcached.ops.CASOperationStatus;
 import net.spy.memcached.ops.CancelledOperationStatus;
 import net.spy.memcached.ops.ConcatenationType;
@@ -57,12 +61,14 @@ import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.RecacheGetOperation;
 import net.spy.memcached.ops.StatsOperation;
 import net.spy.memcached.ops.StatusCode;
 import net.spy.memcached.ops.StoreOperation;
 import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.ops.TimedOutOperationStatus;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.meta.MetaOperationFactory;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 import net.spy.memcached.transcoders.TranscodeService;
 import net.spy.memcached.transcoders.Transcoder;
@@ -78,6 +84,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -187,6 +194,31 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
   protected final ConnectionFactory connFactory;
 
+  protected final NearCache nearCache;
+
+  /**
+   * The gets in flight by key, if gets are collapsed.
+   */
+  private final ConcurrentMap<String, InFlightGet<?>> inFlightGets;
+
+  private final MetricCollector metrics;
+
+  private static final String SENT_GETS_METRIC =
+      "[MEM] Collapsible Gets: Sent";
+  private static final String COLLAPSED_GETS_METRIC =
+      "[MEM] Collapsible Gets: Collapsed";
+  private static final String GET_CHUNKS_METRIC =
+      "[MEM] Bulk Get Chunks: Sent";
+  private static final String GET_CHUNK_KEYS_METRIC =
+      "[MEM] Bulk Get Chunks: Keys per chunk";
+  private static final String GET_CHUNK_BYTES_METRIC =
+      "[MEM] Bulk Get Chunks: Key bytes per chunk";
+
+  private static final OperationStatus NEAR_CACHE_HIT =
+      new OperationStatus(true, "END", StatusCode.SUCCESS);
+  private static final OperationStatus BULK_GET_DONE =
+      new OperationStatus(true, "Done", StatusCode.SUCCESS);
+
   protected final AuthThreadMonitor authMonitor = new AuthThreadMonitor();
 
   protected final ExecutorService executorService;
@@ -278,6 +310,18 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     
     
     connFactory = cf;
+    nearCache = cf.getNearCache();
+    metrics = cf.getMetricCollector();
+    if (cf.shouldCollapseGets()) {
+      inFlightGets = new ConcurrentHashMap<String, InFlightGet<?>>();
+      metrics.addMeter(SENT_GETS_METRIC);
+      metrics.addMeter(COLLAPSED_GETS_METRIC);
+    } else {
+      inFlightGets = null;
+    }
+    metrics.addMeter(GET_CHUNKS_METRIC);
+    metrics.addHistogram(GET_CHUNK_KEYS_METRIC);
+    metrics.addHistogram(GET_CHUNK_BYTES_METRIC);
     clientMode = cf.getClientMode();
     tcService = new TranscodeService(cf.isDaemon());
     transcoder = cf.getDefaultTranscoder();
@@ -370,7 +414,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
   public Collection<SocketAddress> getAvailableServers() {
     ArrayList<SocketAddress> rv = new ArrayList<SocketAddress>();
     for (MemcachedNode node : mconn.getLocator().getAll()) {
-      if (node.isActive()) {
+      if (mconn.isNodeActive(node)) {
         rv.add(node.getSocketAddress());
       }
     }
@@ -393,7 +437,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
   public Collection<NodeEndPoint> getAvailableNodeEndPoints() {
     ArrayList<NodeEndPoint> rv = new ArrayList<NodeEndPoint>();
     for (MemcachedNode node : mconn.getLocator().getAll()) {
-      if (node.isActive()) {
+      if (mconn.isNodeActive(node)) {
         rv.add(node.getNodeEndPoint());
       }
     }
@@ -429,7 +473,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
   public Collection<SocketAddress> getUnavailableServers() {
     ArrayList<SocketAddress> rv = new ArrayList<SocketAddress>();
     for (MemcachedNode node : mconn.getLocator().getAll()) {
-      if (!node.isActive()) {
+      if (!mconn.isNodeActive(node)) {
         rv.add(node.getSocketAddress());
       }
     }
@@ -477,12 +521,13 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
   }
 
   private <T> OperationFuture<Boolean> asyncStore(StoreType storeType,
-      String key, int exp, T value, Transcoder<T> tc) {
+      final String key, int exp, T value, Transcoder<T> tc) {
     CachedData co = tc.encode(value);
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Boolean> rv =
       new OperationFuture<Boolean>(key, latch, operationTimeout,
       executorService);
+    invalidateLocal(key);
     Operation op = opFact.store(storeType, key, co.getFlags(), exp,
         co.getData(), new StoreOperation.Callback() {
             @Override
@@ -496,6 +541,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
             @Override
             public void complete() {
+              invalidateLocal(key);
               latch.countDown();
               rv.signalComplete();
             }
@@ -511,11 +557,12 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
   }
 
   private <T> OperationFuture<Boolean> asyncCat(ConcatenationType catType,
-      long cas, String key, T value, Transcoder<T> tc) {
+      long cas, final String key, T value, Transcoder<T> tc) {
     CachedData co = tc.encode(value);
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key,
         latch, operationTimeout, executorService);
+    invalidateLocal(key);
     Operation op = opFact.cat(catType, cas, key, co.getData(),
         new OperationCallback() {
           @Override
@@ -525,6 +572,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
           @Override
           public void complete() {
+            invalidateLocal(key);
             latch.countDown();
             rv.signalComplete();
           }
@@ -569,6 +617,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       new OperationFuture<Boolean>(key, latch, operationTimeout,
       executorService);
 
+    invalidateLocal(key);
     Operation op = opFact.touch(key, exp, new OperationCallback() {
       @Override
       public void receivedStatus(OperationStatus status) {
@@ -577,6 +626,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
       @Override
       public void complete() {
+        invalidateLocal(key);
         latch.countDown();
         rv.signalComplete();
       }
@@ -796,12 +846,14 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
    */
   @Override
   public <T> OperationFuture<CASResponse>
-  asyncCAS(String key, long casId, int exp, T value, Transcoder<T> tc) {
+  asyncCAS(final String key, long casId, int exp, T value,
+      Transcoder<T> tc) {
     CachedData co = tc.encode(value);
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<CASResponse> rv =
       new OperationFuture<CASResponse>(key, latch, operationTimeout,
       executorService);
+    invalidateLocal(key);
     Operation op = opFact.cas(StoreType.set, key, casId, co.getFlags(), exp,
         co.getData(), new StoreOperation.Callback() {
             @Override
@@ -822,6 +874,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
             }
             @Override
             public void complete() {
+              invalidateLocal(key);
               latch.countDown();
               rv.signalComplete();
             }
@@ -1180,6 +1233,503 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     return asyncStore(StoreType.replace, key, exp, o, transcoder);
   }
 
+  /**
+   * Get the callback of an operation the server does not answer, which
+   * completes the given future once the operation has been written.
+   */
+  private OperationCallback noReplyCallback(final String key,
+      final OperationFuture<Boolean> rv, final CountDownLatch latch) {
+    return new OperationCallback() {
+      @Override
+      public void receivedStatus(OperationStatus val) {
+        rv.set(val.isSuccess(), val);
+      }
+
+      @Override
+      public void complete() {
+        invalidateLocal(key);
+        latch.countDown();
+        rv.signalComplete();
+      }
+    };
+  }
+
+  private <T> OperationFuture<Boolean> asyncStoreNoReply(StoreType storeType,
+      String key, int exp, T value, Transcoder<T> tc) {
+    CachedData co = tc.encode(value);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<Boolean> rv =
+      new OperationFuture<Boolean>(key, latch, operationTimeout,
+      executorService);
+    invalidateLocal(key);
+    Operation op = opFact.storeNoReply(storeType, key, co.getFlags(), exp,
+        co.getData(), noReplyCallback(key, rv, latch));
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
+  /**
+   * Set an object in the cache without waiting for the server to answer.
+   *
+   * <p>
+   * The command is sent with <code>noreply</code>, so the server never
+   * answers it and the operation takes no place in the read queue of its
+   * connection. The returned future completes as soon as the command has
+   * been written, it does not tell whether the object has been stored.
+   * Only supported by the ascii protocol.
+   * </p>
+   *
+   * @param <T>
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @param tc the transcoder to serialize and unserialize the value
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   */
+  @Override
+  public <T> OperationFuture<Boolean> setNoReply(String key, int exp, T o,
+      Transcoder<T> tc) {
+    return asyncStoreNoReply(StoreType.set, key, exp, o, tc);
+  }
+
+  /**
+   * Set an object in the cache without waiting for the server to answer,
+   * using the default transcoder.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> setNoReply(String key, int exp, Object o) {
+    return asyncStoreNoReply(StoreType.set, key, exp, o, transcoder);
+  }
+
+  /**
+   * Add an object to the cache without waiting for the server to answer.
+   *
+   * @param <T>
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @param tc the transcoder to serialize and unserialize the value
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public <T> OperationFuture<Boolean> addNoReply(String key, int exp, T o,
+      Transcoder<T> tc) {
+    return asyncStoreNoReply(StoreType.add, key, exp, o, tc);
+  }
+
+  /**
+   * Add an object to the cache without waiting for the server to answer,
+   * using the default transcoder.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> addNoReply(String key, int exp, Object o) {
+    return asyncStoreNoReply(StoreType.add, key, exp, o, transcoder);
+  }
+
+  /**
+   * Replace an object in the cache without waiting for the server to answer.
+   *
+   * @param <T>
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @param tc the transcoder to serialize and unserialize the value
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public <T> OperationFuture<Boolean> replaceNoReply(String key, int exp, T o,
+      Transcoder<T> tc) {
+    return asyncStoreNoReply(StoreType.replace, key, exp, o, tc);
+  }
+
+  /**
+   * Replace an object in the cache without waiting for the server to answer,
+   * using the default transcoder.
+   *
+   * @param key the key under which this object should be added.
+   * @param exp the expiration of this object
+   * @param o the object to store
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> replaceNoReply(String key, int exp,
+      Object o) {
+    return asyncStoreNoReply(StoreType.replace, key, exp, o, transcoder);
+  }
+
+  /**
+   * Delete the given key from the cache without waiting for the server to
+   * answer.
+   *
+   * @param key the key to delete
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> deleteNoReply(String key) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key,
+        latch, operationTimeout, executorService);
+    invalidateLocal(key);
+    Operation op = opFact.deleteNoReply(key, noReplyCallback(key, rv, latch));
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
+  private OperationFuture<Boolean> mutateNoReply(Mutator m, String key,
+      long by) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key,
+        latch, operationTimeout, executorService);
+    invalidateLocal(key);
+    Operation op = opFact.mutateNoReply(m, key, by,
+        noReplyCallback(key, rv, latch));
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
+  /**
+   * Increment the given key by the given amount without waiting for the
+   * server to answer. A missing key stays missing.
+   *
+   * @param key the key
+   * @param by the amount to increment
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> incrNoReply(String key, long by) {
+    return mutateNoReply(Mutator.incr, key, by);
+  }
+
+  /**
+   * Decrement the given key by the given amount without waiting for the
+   * server to answer. A missing key stays missing.
+   *
+   * @param key the key
+   * @param by the amount to decrement
+   * @return a future completing once the command has been written
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @throws UnsupportedOperationException with the binary protocol
+   * @see #setNoReply(String, int, Object, Transcoder)
+   */
+  @Override
+  public OperationFuture<Boolean> decrNoReply(String key, long by) {
+    return mutateNoReply(Mutator.decr, key, by);
+  }
+
+  /**
+   * Creates the operation of a bulk request for one node.
+   */
+  private interface BulkOpFactory {
+    Operation newOp(MemcachedNode node, Collection<String> keys,
+        BulkOperationCallback cb);
+  }
+
+  /**
+   * Group the given keys by node like the keys of
+   * {@link #asyncGetBulk(Collection)}.
+   */
+  private Map<MemcachedNode, Collection<String>> groupByNode(
+      Collection<String> keys) {
+    final Map<MemcachedNode, Collection<String>> chunks =
+        new HashMap<MemcachedNode, Collection<String>>();
+    final NodeLocator locator = mconn.getLocator();
+    for (String key : keys) {
+      StringUtils.validateKey(key, opFact instanceof BinaryOperationFactory);
+      MemcachedNode node = activeNodeFor(locator, key);
+      Collection<String> ks = chunks.get(node);
+      if (ks == null) {
+        ks = new ArrayList<String>();
+        chunks.put(node, ks);
+      }
+      ks.add(key);
+    }
+    return chunks;
+  }
+
+  /**
+   * Send one operation per node on the given keys and aggregate their
+   * results. The returned map only holds the keys the operations failed on,
+   * mapped to false.
+   */
+  private BulkFuture<Map<String, Boolean>> asyncBulk(
+      Map<MemcachedNode, Collection<String>> chunks, BulkOpFactory of) {
+    final Map<String, Future<Boolean>> failures =
+        new ConcurrentHashMap<String, Future<Boolean>>();
+    final AtomicInteger pendingChunks = new AtomicInteger(chunks.size());
+    final CountDownLatch latch = new CountDownLatch(chunks.isEmpty() ? 0 : 1);
+    final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
+    final BulkGetFuture<Boolean> rv = new BulkGetFuture<Boolean>(failures, ops,
+        latch, executorService);
+
+    final Map<MemcachedNode, Operation> mops =
+        new HashMap<MemcachedNode, Operation>();
+    for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
+      final Collection<String> keys = me.getValue();
+      for (String key : keys) {
+        invalidateLocal(key);
+      }
+      Operation op = of.newOp(me.getKey(), keys, new BulkOperationCallback() {
+        @Override
+        public void receivedStatus(OperationStatus status) {
+          rv.setStatus(status);
+        }
+
+        @Override
+        public void gotFailure(String key, OperationStatus status) {
+          failures.put(key, new ImmediateFuture(false));
+        }
+
+        @Override
+        public void complete() {
+          for (String key : keys) {
+            invalidateLocal(key);
+          }
+          if (pendingChunks.decrementAndGet() <= 0) {
+            latch.countDown();
+            rv.signalComplete();
+          }
+        }
+      });
+      mops.put(me.getKey(), op);
+      ops.add(op);
+    }
+    mconn.checkState();
+    mconn.addOperations(mops);
+    return rv;
+  }
+
+  /**
+   * Store many values with one operation per node.
+   */
+  private <T> BulkFuture<Map<String, Boolean>> asyncStoreBulk(
+      final StoreType storeType, Map<String, ? extends T> values,
+      final int exp, Transcoder<T> tc) {
+    final Map<MemcachedNode, Map<String, CachedData>> data =
+        new HashMap<MemcachedNode, Map<String, CachedData>>();
+    Map<MemcachedNode, Collection<String>> chunks =
+        groupByNode(values.keySet());
+    for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
+      Map<String, CachedData> chunk = new LinkedHashMap<String, CachedData>();
+      for (String key : me.getValue()) {
+        chunk.put(key, tc.encode(values.get(key)));
+      }
+      data.put(me.getKey(), chunk);
+    }
+    return asyncBulk(chunks, new BulkOpFactory() {
+      @Override
+      public Operation newOp(MemcachedNode node, Collection<String> keys,
+          BulkOperationCallback cb) {
+        return opFact.bulkStore(storeType, data.get(node), exp, cb);
+      }
+    });
+  }
+
+  /**
+   * Set many values in the cache at once.
+   *
+   * <p>
+   * The values are sent with one operation per node. The binary protocol
+   * uses quiet commands, so the server only answers the ones which failed.
+   * </p>
+   *
+   * @param <T>
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @param tc the transcoder to serialize the values
+   * @return a future holding the keys which could not be stored, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public <T> BulkFuture<Map<String, Boolean>> asyncSetBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc) {
+    return asyncStoreBulk(StoreType.set, values, exp, tc);
+  }
+
+  /**
+   * Set many values in the cache at once with the default transcoder.
+   *
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @return a future holding the keys which could not be stored, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public BulkFuture<Map<String, Boolean>> asyncSetBulk(Map<String, ?> values,
+      int exp) {
+    return asyncStoreBulk(StoreType.set, values, exp, transcoder);
+  }
+
+  /**
+   * Add many values to the cache at once, keeping the values of the keys
+   * which already exist.
+   *
+   * @param <T>
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @param tc the transcoder to serialize the values
+   * @return a future holding the keys which could not be added, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public <T> BulkFuture<Map<String, Boolean>> asyncAddBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc) {
+    return asyncStoreBulk(StoreType.add, values, exp, tc);
+  }
+
+  /**
+   * Add many values to the cache at once with the default transcoder.
+   *
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @return a future holding the keys which could not be added, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public BulkFuture<Map<String, Boolean>> asyncAddBulk(Map<String, ?> values,
+      int exp) {
+    return asyncStoreBulk(StoreType.add, values, exp, transcoder);
+  }
+
+  /**
+   * Replace many values in the cache at once, skipping the keys which do not
+   * exist.
+   *
+   * @param <T>
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @param tc the transcoder to serialize the values
+   * @return a future holding the keys which could not be replaced, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public <T> BulkFuture<Map<String, Boolean>> asyncReplaceBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc) {
+    return asyncStoreBulk(StoreType.replace, values, exp, tc);
+  }
+
+  /**
+   * Replace many values in the cache at once with the default transcoder.
+   *
+   * @param values the values to store by key
+   * @param exp the expiration of the values
+   * @return a future holding the keys which could not be replaced, mapped to
+   *         false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public BulkFuture<Map<String, Boolean>> asyncReplaceBulk(
+      Map<String, ?> values, int exp) {
+    return asyncStoreBulk(StoreType.replace, values, exp, transcoder);
+  }
+
+  /**
+   * Delete many keys from the cache at once.
+   *
+   * <p>
+   * The keys are sent with one operation per node. The binary protocol uses
+   * quiet deletes, so the server only answers the ones which failed.
+   * </p>
+   *
+   * @param keys the keys to delete
+   * @return a future holding the keys which could not be deleted, like the
+   *         ones which did not exist, mapped to false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public BulkFuture<Map<String, Boolean>> asyncDeleteBulk(
+      Collection<String> keys) {
+    return asyncBulk(groupByNode(keys), new BulkOpFactory() {
+      @Override
+      public Operation newOp(MemcachedNode node, Collection<String> ks,
+          BulkOperationCallback cb) {
+        return opFact.bulkDelete(ks, cb);
+      }
+    });
+  }
+
+  /**
+   * Reset the expiration of many keys at once.
+   *
+   * <p>
+   * The keys are sent with one operation per node.
+   * </p>
+   *
+   * @param keys the keys to touch
+   * @param exp the new expiration of the keys
+   * @return a future holding the keys which could not be touched, like the
+   *         ones which did not exist, mapped to false
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public BulkFuture<Map<String, Boolean>> asyncTouchBulk(
+      Collection<String> keys, final int exp) {
+    return asyncBulk(groupByNode(keys), new BulkOpFactory() {
+      @Override
+      public Operation newOp(MemcachedNode node, Collection<String> ks,
+          BulkOperationCallback cb) {
+        return opFact.bulkTouch(ks, exp, cb);
+      }
+    });
+  }
+
   /**
    * Get the given key asynchronously.
    *
@@ -1192,6 +1742,33 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
    */
   @Override
   public <T> GetFuture<T> asyncGet(final String key, final Transcoder<T> tc) {
+    final long stamp;
+    if (nearCache != null) {
+      CachedData cached = nearCache.get(key);
+      if (cached != null) {
+        return nearCacheHit(key, cached, tc);
+      }
+      stamp = nearCache.beginLoad(key);
+    } else {
+      stamp = 0;
+    }
+
+    if (inFlightGets != null) {
+      InFlightGet<?> existing = inFlightGets.get(key);
+      if (existing != null) {
+        GetFuture<T> rv = existing.join(tc);
+        if (rv != null) {
+          metrics.markMeter(COLLAPSED_GETS_METRIC);
+          return rv;
+        }
+      }
+      InFlightGet<T> flight = new InFlightGet<T>(key, tc);
+      // Only the first get takes the lead, the others go on unshared.
+      if (inFlightGets.putIfAbsent(key, flight) == null) {
+        metrics.markMeter(SENT_GETS_METRIC);
+        return flight.send(stamp);
+      }
+    }
 
     final CountDownLatch latch = new CountDownLatch(1);
     final GetFuture<T> rv = new GetFuture<T>(latch, operationTimeout, key,
@@ -1207,8 +1784,11 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       @Override
       public void gotData(String k, int flags, byte[] data) {
         assert key.equals(k) : "Wrong key returned";
-        val =
-            tcService.decode(tc, new CachedData(flags, data, tc.getMaxSize()));
+        CachedData d = new CachedData(flags, data, tc.getMaxSize());
+        if (nearCache != null) {
+          nearCache.put(k, d, 0, stamp);
+        }
+        val = tcService.decode(tc, d);
       }
 
       @Override
@@ -1221,6 +1801,218 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     enqueueOperation(key, op);
     return rv;
   }
+
+  /**
+   * A get sent by {@link #asyncGet(String, Transcoder)}, which later gets of
+   * the same key with the same transcoder can join until it completed.
+   *
+   * <p>
+   * Every caller, the one sending the get included, gets a future of its own
+   * backed by an operation which is never sent. Cancelling that future, or
+   * timing out on it, only detaches its caller, while the others keep
+   * waiting. The shared get is cancelled once every caller detached. When it
+   * completes, its cancellation or timeout is passed on to the futures still
+   * waiting, any other outcome is passed on through the status.
+   * </p>
+   */
+  private final class InFlightGet<T> {
+    private final String key;
+    private final Transcoder<T> tc;
+    private final List<Waiter> waiting = new ArrayList<Waiter>();
+    private Operation op;
+    private Future<T> val;
+    private OperationStatus status;
+    private boolean done;
+
+    InFlightGet(String key, Transcoder<T> tc) {
+      this.key = key;
+      this.tc = tc;
+    }
+
+    /**
+     * Send the shared get.
+     *
+     * @param stamp the near cache stamp to put the value with.
+     * @return the future of the caller sending it.
+     */
+    GetFuture<T> send(final long stamp) {
+      GetFuture<T> rv = attach();
+      Operation o = opFact.get(key, new GetOperation.Callback() {
+        private Future<T> v;
+
+        @Override
+        public void receivedStatus(OperationStatus s) {
+          set(v, s);
+        }
+
+        @Override
+        public void gotData(String k, int flags, byte[] data) {
+          assert key.equals(k) : "Wrong key returned";
+          CachedData d = new CachedData(flags, data, tc.getMaxSize());
+          if (nearCache != null) {
+            nearCache.put(k, d, 0, stamp);
+          }
+          v = tcService.decode(tc, d);
+        }
+
+        @Override
+        public void complete() {
+          inFlightGets.remove(key, InFlightGet.this);
+          InFlightGet.this.complete();
+        }
+      });
+      synchronized (this) {
+        op = o;
+      }
+      try {
+        enqueueOperation(key, o);
+      } catch (RuntimeException e) {
+        o.cancel();
+        throw e;
+      }
+      return rv;
+    }
+
+    /**
+     * Get a future completing along with this get.
+     *
+     * @return the future, or null if the get already completed or decodes
+     *         with a different transcoder.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <U> GetFuture<U> join(Transcoder<U> transcoder) {
+      if (done || transcoder != tc) {
+        return null;
+      }
+      return (GetFuture<U>) attach();
+    }
+
+    private synchronized GetFuture<T> attach() {
+      final Waiter w = new Waiter();
+      w.future = new GetFuture<T>(w.latch, operationTimeout, key,
+          executorService);
+      w.standIn = opFact.get(key, new GetOperation.Callback() {
+        @Override
+        public void receivedStatus(OperationStatus s) {
+          synchronized (InFlightGet.this) {
+            if (!w.detached) {
+              w.future.set(null, s);
+            }
+          }
+        }
+
+        @Override
+        public void gotData(String k, int flags, byte[] data) {
+          // not sent
+        }
+
+        @Override
+        public void complete() {
+          detach(w);
+        }
+      });
+      w.future.setOperation(w.standIn);
+      waiting.add(w);
+      return w.future;
+    }
+
+    /**
+     * Detach a caller which cancelled or timed out on its future.
+     */
+    private void detach(Waiter w) {
+      Operation abandoned = null;
+      synchronized (this) {
+        if (w.detached) {
+          return;
+        }
+        w.detached = true;
+        waiting.remove(w);
+        if (waiting.isEmpty() && !done) {
+          done = true;
+          abandoned = op;
+        }
+      }
+      w.latch.countDown();
+      w.future.signalComplete();
+      if (abandoned != null) {
+        inFlightGets.remove(key, this);
+        abandoned.cancel();
+      }
+    }
+
+    synchronized void set(Future<T> v, OperationStatus s) {
+      val = v;
+      status = s;
+    }
+
+    void complete() {
+      List<Waiter> rv;
+      Future<T> v;
+      OperationStatus s;
+      Operation o;
+      synchronized (this) {
+        done = true;
+        rv = new ArrayList<Waiter>(waiting);
+        waiting.clear();
+        v = val;
+        s = status;
+        o = op;
+      }
+      for (Waiter w : rv) {
+        if (o != null && o.isCancelled()) {
+          w.standIn.cancel();
+        } else if (o != null && o.isTimedOut()) {
+          w.standIn.timeOut();
+        } else {
+          synchronized (this) {
+            w.detached = true;
+          }
+          w.future.set(v, s);
+          w.latch.countDown();
+          w.future.signalComplete();
+        }
+      }
+    }
+
+    private final class Waiter {
+      private final CountDownLatch latch = new CountDownLatch(1);
+      private GetFuture<T> future;
+      private Operation standIn;
+      private boolean detached;
+    }
+  }
+
+  /**
+   * Complete a get with a value found in the near cache.
+   *
+   * <p>
+   * The returned future carries no operation, as nothing is sent, and is
+   * done before it is returned.
+   * </p>
+   */
+  private <T> GetFuture<T> nearCacheHit(String key, CachedData cached,
+      Transcoder<T> tc) {
+    GetFuture<T> rv = new GetFuture<T>(new CountDownLatch(0),
+      operationTimeout, key, executorService);
+    rv.set(tcService.decode(tc, cached), NEAR_CACHE_HIT);
+    rv.signalComplete();
+    return rv;
+  }
+
+  /**
+   * Drop the given key from the near cache, if any, once before a write is
+   * sent and once more when it completed, so gets overlapping the write
+   * cannot cache the old value. Later gets no longer join a get of the key
+   * in flight either, as it may return the old value.
+   */
+  private void invalidateLocal(String key) {
+    if (nearCache != null) {
+      nearCache.invalidate(key);
+    }
+    if (inFlightGets != null) {
+      inFlightGets.remove(key);
+    }
+  }
   
   /**
    * Get with a single key from the specified node.
@@ -1384,6 +2176,104 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     }
   }
 
+  /**
+   * Gets (with CAS support) the given key asynchronously, handing out the
+   * right to recompute its value.
+   *
+   * <p>
+   * A missing key is created as a placeholder, and the first client getting
+   * a missing, invalidated or soon expiring value wins the right to recompute
+   * it. The others get the stale value meanwhile. The winner stores the new
+   * value with a CAS on the returned CAS identifier. This requires the meta
+   * protocol.
+   * </p>
+   *
+   * @param <T>
+   * @param key the key to fetch
+   * @param tokenExp the expiration of the placeholder created for a missing
+   *          key, which bounds the time given to the winner
+   * @param recacheThreshold the remaining time to live under which the value
+   *          gets recomputed ahead of its expiration, 0 to disable
+   * @param tc the transcoder to serialize and unserialize value
+   * @return a future that will hold the return value of the fetch
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public <T> OperationFuture<RecacheCASValue<T>> asyncGetsForRecache(
+      final String key, int tokenExp, int recacheThreshold,
+      final Transcoder<T> tc) {
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<RecacheCASValue<T>> rv =
+      new OperationFuture<RecacheCASValue<T>>(key, latch, operationTimeout,
+      executorService);
+
+    Operation op = opFact.recacheGet(key, tokenExp, recacheThreshold,
+        new RecacheGetOperation.Callback() {
+      private RecacheCASValue<T> val;
+
+      @Override
+      public void receivedStatus(OperationStatus status) {
+        rv.set(val, status);
+      }
+
+      @Override
+      public void gotData(String k, int flags, long cas, byte[] data,
+          boolean won, boolean stale, boolean pending) {
+        assert key.equals(k) : "Wrong key returned";
+        T value = data == null ? null
+            : tc.decode(new CachedData(flags, data, tc.getMaxSize()));
+        val = new RecacheCASValue<T>(cas, value, won, stale, pending);
+      }
+
+      @Override
+      public void complete() {
+        latch.countDown();
+        rv.signalComplete();
+      }
+    });
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
+  /**
+   * Gets (with CAS support) the given key, handing out the right to
+   * recompute its value.
+   *
+   * @param <T>
+   * @param key the key to get
+   * @param tokenExp the expiration of the placeholder created for a missing
+   *          key
+   * @param recacheThreshold the remaining time to live under which the value
+   *          gets recomputed ahead of its expiration, 0 to disable
+   * @param tc the transcoder to serialize and unserialize value
+   * @return the result from the cache
+   * @throws OperationTimeoutException if global operation timeout is exceeded
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @see #asyncGetsForRecache(String, int, int, Transcoder)
+   */
+  @Override
+  public <T> RecacheCASValue<T> getsForRecache(String key, int tokenExp,
+      int recacheThreshold, Transcoder<T> tc) {
+    try {
+      return asyncGetsForRecache(key, tokenExp, recacheThreshold, tc).get(
+          operationTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      throw new RuntimeException("Interrupted waiting for value", e);
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof CancellationException) {
+        throw (CancellationException) e.getCause();
+      } else {
+        throw new RuntimeException("Exception waiting for value", e);
+      }
+    } catch (TimeoutException e) {
+      throw new OperationTimeoutException("Timeout waiting for value", e);
+    }
+  }
+
   /**
    * Get with a single key and reset its expiration.
    *
@@ -1519,6 +2409,10 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     final Map<String, Transcoder<T>> tcMap =
         new HashMap<String, Transcoder<T>>();
 
+    // Likewise fully populated before any value is received.
+    final Map<String, Long> stamps = nearCache == null ? null
+        : new HashMap<String, Long>();
+
     // Break the gets down into groups by key
     final Map<MemcachedNode, Collection<String>> chunks =
         new HashMap<MemcachedNode, Collection<String>>();
@@ -1528,23 +2422,15 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       String key = keyIter.next();
       tcMap.put(key, tcIter.next());
       StringUtils.validateKey(key, opFact instanceof BinaryOperationFactory);
-      final MemcachedNode primaryNode = locator.getPrimary(key);
-      MemcachedNode node = null;
-      if (primaryNode.isActive()) {
-        node = primaryNode;
-      } else {
-        for (Iterator<MemcachedNode> i = locator.getSequence(key); node == null
-            && i.hasNext();) {
-          MemcachedNode n = i.next();
-          if (n.isActive()) {
-            node = n;
-          }
-        }
-        if (node == null) {
-          node = primaryNode;
+      if (nearCache != null) {
+        CachedData cached = nearCache.get(key);
+        if (cached != null) {
+          m.put(key, tcService.decode(tcMap.get(key), cached));
+          continue;
         }
+        stamps.put(key, nearCache.beginLoad(key));
       }
-      assert node != null : "Didn't find a node for " + key;
+      MemcachedNode node = activeNodeFor(locator, key);
       Collection<String> ks = chunks.get(node);
       if (ks == null) {
         ks = new ArrayList<String>();
@@ -1553,11 +2439,26 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       ks.add(key);
     }
 
-    final AtomicInteger pendingChunks = new AtomicInteger(chunks.size());
+    // Nodes with more keys than a get command may carry get several.
+    final Map<MemcachedNode, List<Collection<String>>> nodeChunks =
+        new HashMap<MemcachedNode, List<Collection<String>>>();
+    int chunkCount = 0;
+    for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
+      List<Collection<String>> parts = splitGetKeys(me.getValue());
+      nodeChunks.put(me.getKey(), parts);
+      chunkCount += parts.size();
+    }
+
+    final AtomicInteger pendingChunks = new AtomicInteger(chunkCount);
     int initialLatchCount = chunks.isEmpty() ? 0 : 1;
     final CountDownLatch latch = new CountDownLatch(initialLatchCount);
-    final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
+    final Collection<Operation> ops = new ArrayList<Operation>(chunkCount);
     final BulkGetFuture<T> rv = new BulkGetFuture<T>(m, ops, latch, executorService);
+    if (chunks.isEmpty() && !m.isEmpty()) {
+      // Every key was found in the near cache, there is nothing to send.
+      rv.setStatus(NEAR_CACHE_HIT);
+      return rv;
+    }
 
     GetOperation.Callback cb = new GetOperation.Callback() {
       @Override
@@ -1572,8 +2473,14 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       @Override
       public void gotData(String k, int flags, byte[] data) {
         Transcoder<T> tc = tcMap.get(k);
-        m.put(k,
-            tcService.decode(tc, new CachedData(flags, data, tc.getMaxSize())));
+        CachedData d = new CachedData(flags, data, tc.getMaxSize());
+        if (stamps != null) {
+          Long stamp = stamps.get(k);
+          if (stamp != null) {
+            nearCache.put(k, d, 0, stamp);
+          }
+        }
+        m.put(k, tcService.decode(tc, d));
       }
 
       @Override
@@ -1587,20 +2494,287 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
     // Now that we know how many servers it breaks down into, and the latch
     // is all set up, convert all of these strings collections to operations
-    final Map<MemcachedNode, Operation> mops =
-        new HashMap<MemcachedNode, Operation>();
+    final List<Map<MemcachedNode, Operation>> rounds =
+        new ArrayList<Map<MemcachedNode, Operation>>();
+
+    for (Map.Entry<MemcachedNode, List<Collection<String>>> me
+        : nodeChunks.entrySet()) {
+      List<Collection<String>> parts = me.getValue();
+      for (int i = 0; i < parts.size(); i++) {
+        Operation op = opFact.get(parts.get(i), cb);
+        addToRound(rounds, i, me.getKey(), op);
+        ops.add(op);
+      }
+    }
+    assert ops.size() == chunkCount;
+    mconn.checkState();
+    for (Map<MemcachedNode, Operation> mops : rounds) {
+      mconn.addOperations(mops);
+    }
+    return rv;
+  }
+
+  /**
+   * Asynchronously get a bunch of objects from the cache, handing each value
+   * to the given callback as soon as it arrives.
+   *
+   * <p>
+   * Unlike the other bulk gets, no future and no map entry is created for
+   * each key, and the first values are available before the slowest node
+   * answers. Values found in the near cache are handed to the callback
+   * before this method returns.
+   * </p>
+   *
+   * @param <T>
+   * @param keys the keys to request
+   * @param tc the transcoder to serialize and unserialize values
+   * @param cb the callback receiving the values and the completion of each
+   *          node
+   * @return a future telling whether the gets succeeded on every node once
+   *         they all completed
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public <T> OperationFuture<Boolean> asyncGetBulk(Collection<String> keys,
+      final Transcoder<T> tc, final BulkGetCallback<T> cb) {
+    // Only populated when the near cache is on, before any value arrives.
+    final Map<String, Long> stamps = nearCache == null ? null
+        : new HashMap<String, Long>();
+
+    final Map<MemcachedNode, Collection<String>> chunks =
+        new HashMap<MemcachedNode, Collection<String>>();
+    final NodeLocator locator = mconn.getLocator();
+    for (String key : keys) {
+      StringUtils.validateKey(key, opFact instanceof BinaryOperationFactory);
+      if (nearCache != null) {
+        CachedData cached = nearCache.get(key);
+        if (cached != null) {
+          cb.gotValue(key, tc.decode(cached));
+          continue;
+        }
+        stamps.put(key, nearCache.beginLoad(key));
+      }
+      MemcachedNode node = activeNodeFor(locator, key);
+      Collection<String> ks = chunks.get(node);
+      if (ks == null) {
+        ks = new ArrayList<String>();
+        chunks.put(node, ks);
+      }
+      ks.add(key);
+    }
+
+    final CountDownLatch latch = new CountDownLatch(chunks.size());
+    final AtomicInteger pendingNodes = new AtomicInteger(chunks.size());
+    final AtomicReference<OperationStatus> failure =
+        new AtomicReference<OperationStatus>(null);
+    final Collection<Operation> ops = new ArrayList<Operation>(chunks.size());
+    final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(null,
+        latch, operationTimeout, executorService) {
+      @Override
+      public boolean cancel() {
+        boolean cancelled = false;
+        for (Operation op : ops) {
+          op.cancel();
+          cancelled |= op.getState() == OperationState.WRITE_QUEUED;
+        }
+        notifyListeners();
+        return cancelled;
+      }
+
+      @Override
+      public boolean isCancelled() {
+        boolean cancelled = false;
+        for (Operation op : ops) {
+          cancelled |= op.isCancelled();
+        }
+        return cancelled;
+      }
+
+      @Override
+      public boolean isDone() {
+        return latch.getCount() == 0 || isCancelled();
+      }
+    };
+    if (chunks.isEmpty()) {
+      rv.set(true, BULK_GET_DONE);
+    }
 
+    final List<Map<MemcachedNode, Operation>> rounds =
+        new ArrayList<Map<MemcachedNode, Operation>>();
     for (Map.Entry<MemcachedNode, Collection<String>> me : chunks.entrySet()) {
-      Operation op = opFact.get(me.getValue(), cb);
-      mops.put(me.getKey(), op);
-      ops.add(op);
+      final MemcachedNode node = me.getKey();
+      final List<Collection<String>> parts = splitGetKeys(me.getValue());
+      // The node completes once every one of its chunks did.
+      final AtomicInteger nodePending = new AtomicInteger(parts.size());
+      final AtomicReference<OperationStatus> nodeFailure =
+          new AtomicReference<OperationStatus>(null);
+      for (int i = 0; i < parts.size(); i++) {
+        Operation op = opFact.get(parts.get(i), new GetOperation.Callback() {
+          // Gets redistributed on a vbucket change complete more than once.
+          private final AtomicInteger pending = new AtomicInteger(1);
+          private volatile OperationStatus status;
+
+          @Override
+          public void receivedStatus(OperationStatus s) {
+            if (s.getStatusCode() == StatusCode.ERR_NOT_MY_VBUCKET) {
+              pending.addAndGet(Integer.parseInt(s.getMessage()));
+            }
+            status = s;
+          }
+
+          @Override
+          public void gotData(String k, int flags, byte[] data) {
+            CachedData d = new CachedData(flags, data, tc.getMaxSize());
+            if (stamps != null) {
+              Long stamp = stamps.get(k);
+              if (stamp != null) {
+                nearCache.put(k, d, 0, stamp);
+              }
+            }
+            try {
+              cb.gotValue(k, tc.decode(d));
+            } catch (RuntimeException e) {
+              getLogger().warn("Failed to handle the value of " + k, e);
+            }
+          }
+
+          @Override
+          public void complete() {
+            if (pending.decrementAndGet() > 0) {
+              return;
+            }
+            // A miss on every key of the chunk is not a failure.
+            if (status == null || !(status.isSuccess()
+                || status.getStatusCode() == StatusCode.ERR_NOT_FOUND)) {
+              failure.set(status);
+              nodeFailure.compareAndSet(null, status);
+            }
+            if (nodePending.decrementAndGet() > 0) {
+              return;
+            }
+            OperationStatus nf = nodeFailure.get();
+            try {
+              cb.nodeComplete(node, nf == null ? BULK_GET_DONE : nf);
+            } finally {
+              if (pendingNodes.decrementAndGet() == 0) {
+                OperationStatus f = failure.get();
+                rv.set(f == null, f == null ? BULK_GET_DONE : f);
+              }
+              latch.countDown();
+              if (latch.getCount() == 0) {
+                rv.signalComplete();
+              }
+            }
+          }
+        });
+        addToRound(rounds, i, node, op);
+        ops.add(op);
+      }
     }
-    assert mops.size() == chunks.size();
     mconn.checkState();
-    mconn.addOperations(mops);
+    for (Map<MemcachedNode, Operation> mops : rounds) {
+      mconn.addOperations(mops);
+    }
+    return rv;
+  }
+
+  /**
+   * Asynchronously get a bunch of objects from the cache, handing each value
+   * to the given callback as soon as it arrives, decoded with the default
+   * transcoder.
+   *
+   * @param keys the keys to request
+   * @param cb the callback receiving the values and the completion of each
+   *          node
+   * @return a future telling whether the gets succeeded on every node once
+   *         they all completed
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   * @see #asyncGetBulk(Collection, Transcoder, BulkGetCallback)
+   */
+  @Override
+  public OperationFuture<Boolean> asyncGetBulk(Collection<String> keys,
+      BulkGetCallback<Object> cb) {
+    return asyncGetBulk(keys, transcoder, cb);
+  }
+
+  /**
+   * Get the node to send an operation on the given key to when grouping
+   * keys by node: the primary node if it is active, otherwise the first
+   * active node of its sequence.
+   */
+  private MemcachedNode activeNodeFor(NodeLocator locator, String key) {
+    final MemcachedNode primaryNode = locator.getPrimary(key);
+    MemcachedNode node = null;
+    if (mconn.isNodeActive(primaryNode)) {
+      node = primaryNode;
+    } else {
+      for (Iterator<MemcachedNode> i = locator.getSequence(key); node == null
+          && i.hasNext();) {
+        MemcachedNode n = i.next();
+        if (mconn.isNodeActive(n)) {
+          node = n;
+        }
+      }
+      if (node == null) {
+        node = primaryNode;
+      }
+    }
+    assert node != null : "Didn't find a node for " + key;
+    return node;
+  }
+
+  /**
+   * Split the keys sent to a node into chunks holding no more keys and key
+   * bytes than a single get command may carry.
+   *
+   * @see ConnectionFactory#getMaxGetKeys()
+   * @see ConnectionFactory#getMaxGetBytes()
+   */
+  private List<Collection<String>> splitGetKeys(Collection<String> keys) {
+    final int maxKeys = connFactory.getMaxGetKeys();
+    final int maxBytes = connFactory.getMaxGetBytes();
+    List<Collection<String>> rv = new ArrayList<Collection<String>>();
+    Collection<String> chunk = new ArrayList<String>();
+    int bytes = 0;
+    for (String key : keys) {
+      int len = KeyUtil.getKeyBytes(key).length;
+      if (!chunk.isEmpty() && ((maxKeys > 0 && chunk.size() >= maxKeys)
+          || (maxBytes > 0 && bytes + len > maxBytes))) {
+        addGetChunk(rv, chunk, bytes);
+        chunk = new ArrayList<String>();
+        bytes = 0;
+      }
+      chunk.add(key);
+      bytes += len;
+    }
+    if (!chunk.isEmpty()) {
+      addGetChunk(rv, chunk, bytes);
+    }
     return rv;
   }
 
+  private void addGetChunk(List<Collection<String>> chunks,
+      Collection<String> chunk, int bytes) {
+    chunks.add(chunk);
+    metrics.markMeter(GET_CHUNKS_METRIC);
+    metrics.updateHistogram(GET_CHUNK_KEYS_METRIC, chunk.size());
+    metrics.updateHistogram(GET_CHUNK_BYTES_METRIC, bytes);
+  }
+
+  /**
+   * Add the operation on the given chunk of a node to the round of chunks
+   * of the same rank, so the chunks of every node get pipelined together.
+   */
+  private static void addToRound(List<Map<MemcachedNode, Operation>> rounds,
+      int rank, MemcachedNode node, Operation op) {
+    while (rounds.size() <= rank) {
+      rounds.add(new HashMap<MemcachedNode, Operation>());
+    }
+    rounds.get(rank).put(node, op);
+  }
+
   /**
    * Asynchronously get a bunch of objects from the cache.
    *
@@ -1744,6 +2918,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<CASValue<T>> rv = new OperationFuture<CASValue<T>>(
         key, latch, operationTimeout, executorService);
+    final long stamp = nearCache == null ? 0 : nearCache.beginLoad(key);
 
     Operation op = opFact.getAndTouch(key, exp,
         new GetAndTouchOperation.Callback() {
@@ -1763,9 +2938,11 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
           @Override
           public void gotData(String k, int flags, long cas, byte[] data) {
             assert k.equals(key) : "Wrong key returned";
-            val =
-                new CASValue<T>(cas, tc.decode(new CachedData(flags, data,
-                    tc.getMaxSize())));
+            CachedData d = new CachedData(flags, data, tc.getMaxSize());
+            if (nearCache != null) {
+              nearCache.put(k, d, exp, stamp);
+            }
+            val = new CASValue<T>(cas, tc.decode(d));
           }
         });
     rv.setOperation(op);
@@ -2156,9 +3333,10 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     return rv;
   }
 
-  private long mutate(Mutator m, String key, long by, long def, int exp) {
+  private long mutate(Mutator m, final String key, long by, long def, int exp) {
     final AtomicLong rv = new AtomicLong();
     final CountDownLatch latch = new CountDownLatch(1);
+    invalidateLocal(key);
     enqueueOperation(key, opFact.mutate(m, key, by, def, exp,
         new OperationCallback() {
         @Override
@@ -2171,6 +3349,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
         @Override
         public void complete() {
+          invalidateLocal(key);
           latch.countDown();
         }
       }));
@@ -2386,17 +3565,19 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     return rv;
   }
 
-  private OperationFuture<Long> asyncMutate(Mutator m, String key, long by,
+  private OperationFuture<Long> asyncMutate(Mutator m, final String key, long by,
       long def, int exp) {
-    if (!(opFact instanceof BinaryOperationFactory) && (def != 0 || exp != -1)) {
+    if (!(opFact instanceof BinaryOperationFactory
+        || opFact instanceof MetaOperationFactory) && (def != 0 || exp != -1)) {
       throw new UnsupportedOperationException("Default value or expiration "
         + "time are not supported on the async mutate methods. Use either the "
-        + "binary protocol or the sync variant.");
+        + "binary or meta protocol or the sync variant.");
     }
 
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Long> rv =
         new OperationFuture<Long>(key, latch, operationTimeout, executorService);
+    invalidateLocal(key);
     Operation op = opFact.mutate(m, key, by, def, exp,
         new OperationCallback() {
           @Override
@@ -2406,6 +3587,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
           @Override
           public void complete() {
+            invalidateLocal(key);
             latch.countDown();
             rv.signalComplete();
           }
@@ -2714,7 +3896,7 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
    *           full to accept any more requests
    */
   @Override
-  public OperationFuture<Boolean> delete(String key, long cas) {
+  public OperationFuture<Boolean> delete(final String key, long cas) {
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key,
         latch, operationTimeout, executorService);
@@ -2732,11 +3914,13 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
       @Override
       public void complete() {
+        invalidateLocal(key);
         latch.countDown();
         rv.signalComplete();
       }
     };
 
+    invalidateLocal(key);
     DeleteOperation op;
     if(cas == 0) {
       op = opFact.delete(key, callback);
@@ -2749,6 +3933,54 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
     return rv;
   }
 
+  /**
+   * Mark the given key as stale instead of deleting it.
+   *
+   * <p>
+   * The stale value is still served until the given expiration, while the
+   * first client getting it with
+   * {@link #asyncGetsForRecache(String, int, int, Transcoder)} recomputes it.
+   * This requires the meta protocol.
+   * </p>
+   *
+   * @param key the key to invalidate
+   * @param exp the expiration of the stale value
+   * @return whether or not the operation was performed
+   * @throws IllegalStateException in the rare circumstance where queue is too
+   *           full to accept any more requests
+   */
+  @Override
+  public OperationFuture<Boolean> invalidate(final String key, int exp) {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<Boolean> rv = new OperationFuture<Boolean>(key,
+        latch, operationTimeout, executorService);
+
+    invalidateLocal(key);
+    DeleteOperation op = opFact.invalidate(key, exp,
+        new DeleteOperation.Callback() {
+          @Override
+          public void receivedStatus(OperationStatus s) {
+            rv.set(s.isSuccess(), s);
+          }
+
+          @Override
+          public void gotData(long cas) {
+            rv.setCas(cas);
+          }
+
+          @Override
+          public void complete() {
+            invalidateLocal(key);
+            latch.countDown();
+            rv.signalComplete();
+          }
+        });
+
+    rv.setOperation(op);
+    enqueueOperation(key, op);
+    return rv;
+  }
+
   /**
    * Flush all caches from all servers with a delay of application.
    *
@@ -2763,6 +3995,12 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
         new AtomicReference<Boolean>(null);
     final ConcurrentLinkedQueue<Operation> ops =
         new ConcurrentLinkedQueue<Operation>();
+    if (nearCache != null) {
+      nearCache.invalidateAll();
+    }
+    if (inFlightGets != null) {
+      inFlightGets.clear();
+    }
     CountDownLatch blatch = broadcastOp(new BroadcastOpFactory() {
       @Override
       public Operation newOp(final MemcachedNode n,
@@ -2775,6 +4013,12 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
 
           @Override
           public void complete() {
+            if (nearCache != null) {
+              nearCache.invalidateAll();
+            }
+            if (inFlightGets != null) {
+              inFlightGets.clear();
+            }
             latch.countDown();
           }
         });
@@ -3048,7 +4292,13 @@ public class MemcachedClient extends SpyObject implements MemcachedClientIF,
       if (authDescriptor.authThresholdReached()) {
         shutdown();
       }
-      authMonitor.authConnection(mconn, opFact, authDescriptor, findNode(sa));
+      // Every connection to the node is authenticated on its own, once per
+      // channel.
+      for (MemcachedNode node : mconn.getConnections(findNode(sa))) {
+        if (node.isActive() && !authMonitor.isAuthStarted(node)) {
+          authMonitor.authConnection(mconn, opFact, authDescriptor, node);
+        }
+      }
     }
   }
 
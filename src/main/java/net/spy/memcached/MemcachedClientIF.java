@@ -101,6 +101,48 @@ public interface MemcachedClientIF {
 
   Future<Boolean> replace(String key, int exp, Object o);
 
+  <T> Future<Boolean> setNoReply(String key, int exp, T o, Transcoder<T> tc);
+
+  Future<Boolean> setNoReply(String key, int exp, Object o);
+
+  <T> Future<Boolean> addNoReply(String key, int exp, T o, Transcoder<T> tc);
+
+  Future<Boolean> addNoReply(String key, int exp, Object o);
+
+  <T> Future<Boolean> replaceNoReply(String key, int exp, T o,
+      Transcoder<T> tc);
+
+  Future<Boolean> replaceNoReply(String key, int exp, Object o);
+
+  Future<Boolean> deleteNoReply(String key);
+
+  Future<Boolean> incrNoReply(String key, long by);
+
+  Future<Boolean> decrNoReply(String key, long by);
+
+  <T> BulkFuture<Map<String, Boolean>> asyncSetBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc);
+
+  BulkFuture<Map<String, Boolean>> asyncSetBulk(Map<String, ?> values,
+      int exp);
+
+  <T> BulkFuture<Map<String, Boolean>> asyncAddBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc);
+
+  BulkFuture<Map<String, Boolean>> asyncAddBulk(Map<String, ?> values,
+      int exp);
+
+  <T> BulkFuture<Map<String, Boolean>> asyncReplaceBulk(
+      Map<String, ? extends T> values, int exp, Transcoder<T> tc);
+
+  BulkFuture<Map<String, Boolean>> asyncReplaceBulk(Map<String, ?> values,
+      int exp);
+
+  BulkFuture<Map<String, Boolean>> asyncDeleteBulk(Collection<String> keys);
+
+  BulkFuture<Map<String, Boolean>> asyncTouchBulk(Collection<String> keys,
+      int exp);
+
   <T> Future<T> asyncGet(String key, Transcoder<T> tc);
 
   Future<Object> asyncGet(String key);
@@ -120,6 +162,12 @@ public interface MemcachedClientIF {
 
   <T> CASValue<T> gets(String key, Transcoder<T> tc);
 
+  <T> Future<RecacheCASValue<T>> asyncGetsForRecache(String key, int tokenExp,
+      int recacheThreshold, Transcoder<T> tc);
+
+  <T> RecacheCASValue<T> getsForRecache(String key, int tokenExp,
+      int recacheThreshold, Transcoder<T> tc);
+
   CASValue<Object> gets(String key);
 
   <T> T get(String key, Transcoder<T> tc);
@@ -143,6 +191,12 @@ public interface MemcachedClientIF {
 
   BulkFuture<Map<String, Object>> asyncGetBulk(String... keys);
 
+  <T> Future<Boolean> asyncGetBulk(Collection<String> keys, Transcoder<T> tc,
+      BulkGetCallback<T> cb);
+
+  Future<Boolean> asyncGetBulk(Collection<String> keys,
+      BulkGetCallback<Object> cb);
+
   <T> Map<String, T> getBulk(Iterator<String> keys, Transcoder<T> tc);
   <T> Map<String, T> getBulk(Collection<String> keys, Transcoder<T> tc);
 
@@ -216,6 +270,8 @@ public interface MemcachedClientIF {
 
   Future<Boolean> delete(String key, long cas);
 
+  Future<Boolean> invalidate(String key, int exp);
+
   Future<Boolean> flush(int delay);
 
   Future<Boolean> flush();
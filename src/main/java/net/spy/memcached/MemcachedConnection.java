@@ -43,10 +43,14 @@ import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.TapOperation;
+import net.spy.memcached.ops.TimedOutOperationStatus;
 import net.spy.memcached.ops.VBucketAware;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.protocol.binary.MultiGetOperationImpl;
 import net.spy.memcached.protocol.binary.TapAckOperationImpl;
+import net.spy.memcached.util.ByteBufferPool;
+import net.spy.memcached.util.HashedWheelTimer;
+import net.spy.memcached.util.ReconnectScheduler;
 import net.spy.memcached.util.StringUtils;
 
 import java.io.IOException;
@@ -66,6 +70,7 @@ import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
@@ -74,12 +79,13 @@ import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -129,6 +135,17 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private static final int DEFAULT_WAKEUP_DELAY = 1000;
 
+  /**
+   * The default tick of the operation timeout timer if not overridden by a
+   * system property.
+   */
+  private static final int DEFAULT_TIMEOUT_TICK = 10;
+
+  /**
+   * The number of buckets of the operation timeout timer.
+   */
+  private static final int TIMEOUT_WHEEL_SIZE = 512;
+
   /**
    * By default, do not bound the retry queue.
    */
@@ -142,12 +159,16 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
 
   private static final String RECON_QUEUE_METRIC =
     "[MEM] Reconnecting Nodes (ReconnectQueue)";
+  private static final String RECON_DELAY_METRIC_PREFIX =
+    "[MEM] Reconnect Delay (ms): ";
   private static final String SHUTD_QUEUE_METRIC =
     "[MEM] Shutting Down Nodes (NodesToShutdown)";
   private static final String OVERALL_REQUEST_METRIC =
     "[MEM] Request Rate: All";
   private static final String OVERALL_AVG_BYTES_WRITE_METRIC =
     "[MEM] Average Bytes written to OS per write";
+  private static final String OVERALL_AVG_OPS_WRITE_METRIC =
+    "[MEM] Average Operations per write";
   private static final String OVERALL_AVG_BYTES_READ_METRIC =
     "[MEM] Average Bytes read from OS per read";
   private static final String OVERALL_AVG_TIME_ON_WIRE_METRIC =
@@ -160,6 +181,22 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     "[MEM] Response Rate: Failure";
   private static final String OVERALL_RESPONSE_SUCC_METRIC =
     "[MEM] Response Rate: Success";
+  private static final String SELECTOR_WAKEUP_METRIC =
+    "[MEM] Selector Wakeups";
+  private static final String SELECTOR_WAKEUP_SKIPPED_METRIC =
+    "[MEM] Selector Wakeups Skipped";
+  private static final String OVERALL_EXPIRED_METRIC =
+    "[MEM] Operations Expired";
+  private static final String OVERALL_REJECTED_METRIC =
+    "[MEM] Operations Rejected";
+  private static final String OVERALL_EJECTED_METRIC =
+    "[MEM] Nodes Ejected";
+  private static final String HEALTH_CHECK_RTT_METRIC =
+    "[MEM] Average Health Check Round Trip Time (µs)";
+  private static final String HEALTH_CHECK_MISSED_METRIC =
+    "[MEM] Health Checks Missed";
+  private static final String BARRIER_MISSED_METRIC =
+    "[MEM] Noreply Barriers Missed";
 
   /**
    * If the connection is alread shut down or shutting down.
@@ -172,10 +209,61 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   private final boolean shouldOptimize;
 
   /**
-   * Holds the current {@link Selector} to use.
+   * If true, nodes hold freshly filled writes back for a short while to
+   * pack more operations into them.
+   */
+  private final boolean corkWrites;
+
+  /**
+   * Holds the {@link Selector} of the primary I/O loop.
    */
   protected Selector selector = null;
 
+  /**
+   * All I/O loops driving the nodes of this connection. The first loop is
+   * the primary loop which is run by this thread and also takes care of
+   * the cluster-wide housekeeping tasks.
+   */
+  private final IOLoop[] loops;
+
+  /**
+   * Maps every node to the {@link IOLoop} that owns its channel.
+   */
+  private final Map<MemcachedNode, IOLoop> nodeLoops;
+
+  /**
+   * Used to assign newly created nodes to the I/O loops in round-robin order.
+   */
+  private int nextLoop = 0;
+
+  /**
+   * The number of TCP connections opened to every node.
+   */
+  private final int connectionsPerNode;
+
+  /**
+   * Maps every node known to the locator to all of its connections (itself
+   * included). Only populated if more than one connection per node is used.
+   */
+  private final Map<MemcachedNode, List<MemcachedNode>> connectionGroups;
+
+  /**
+   * Maps the additional connections of a node to the node known to the
+   * locator.
+   */
+  private final Map<MemcachedNode, MemcachedNode> primaryNodes;
+
+  /**
+   * The nodes known to the locator, for identity lookups from the I/O loops.
+   * Replaced whenever the locator is updated.
+   */
+  private volatile Set<MemcachedNode> currentNodes;
+
+  /**
+   * Set when a new cluster configuration is waiting to be applied.
+   */
+  private volatile boolean nodeListDirty = false;
+
   /**
    * The {@link NodeLocator} to use for this connection.
    */
@@ -192,10 +280,70 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   private final long maxDelay;
 
   /**
-   * Contains the current number of empty select() calls, which could indicate
-   * bugs.
+   * Minimum amount of time to wait between reconnect attempts, in
+   * milliseconds.
+   */
+  private static final long MIN_RECONNECT_DELAY = 1000;
+
+  /**
+   * Maximum number of reconnects in progress per loop, -1 for no limit.
+   */
+  private final int maxConcurrentReconnects;
+
+  /**
+   * How often the primary loop looks for outliers, in nanoseconds.
+   */
+  private static final long OUTLIER_CHECK_INTERVAL =
+    TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The minimum number of responses a node needs before it is compared to
+   * its peers.
    */
-  private int emptySelects = 0;
+  private static final long OUTLIER_MIN_SAMPLES = 20;
+
+  /**
+   * The minimum number of comparable nodes for a meaningful median.
+   */
+  private static final int OUTLIER_MIN_NODES = 3;
+
+  /**
+   * Nodes failing more than this share of operations are ejected as well.
+   */
+  private static final double OUTLIER_MAX_ERROR_RATE = 0.5;
+
+  /**
+   * Nodes slower than this factor times the median latency are ejected, 0
+   * to never eject nodes.
+   */
+  private final double outlierEjectionFactor;
+
+  /**
+   * The time (in milliseconds) outliers are ejected for.
+   */
+  private final long outlierEjectionTime;
+
+  /**
+   * The last time the primary loop looked for outliers.
+   */
+  private long lastOutlierCheck = System.nanoTime();
+
+  /**
+   * The time (in milliseconds) over which reconnected nodes ramp up.
+   */
+  private final long slowStartTime;
+
+  /**
+   * The interval (in nanoseconds) at which idle connections are probed, 0 to
+   * never probe them.
+   */
+  private final long healthCheckInterval;
+
+  /**
+   * The number of noreply operations after which a connection is sent a
+   * barrier, 0 to never send barriers.
+   */
+  private final int noReplyBarrierInterval;
 
   /**
    * The buffer size that will be used when reading from the server.
@@ -208,17 +356,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   private final ConnectionFactory connectionFactory;
 
   /**
-   * AddedQueue is used to track the QueueAttachments for which operations
-   * have recently been queued.
+   * AddedQueue of the primary I/O loop. It is used to track the
+   * QueueAttachments for which operations have recently been queued.
    */
   protected final ConcurrentLinkedQueue<MemcachedNode> addedQueue;
 
-  /**
-   * reconnectQueue contains the attachments that need to be reconnected.
-   * The key is the time at which they are eligible for reconnect.
-   */
-  private final SortedMap<Long, MemcachedNode> reconnectQueue;
-
   /**
    * True if not shutting down or shut down.
    */
@@ -296,6 +438,16 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private final int wakeupDelay;
 
+  /**
+   * The tick of the operation timeout timers, defaults to 10ms.
+   */
+  private final int timeoutTick;
+
+  /**
+   * The time after which queued operations are expired.
+   */
+  private final long operationTimeout;
+
   /**
    * For determining if this connection is TLS enabled or disabled.
    */
@@ -321,14 +473,34 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       final List<InetSocketAddress> socketAddressList, final Collection<ConnectionObserver> obs,
       final FailureMode fm, final OperationFactory opfactory) throws IOException {
     connObservers.addAll(obs);
-    reconnectQueue = new TreeMap<Long, MemcachedNode>();
-    addedQueue = new ConcurrentLinkedQueue<MemcachedNode>();
     failureMode = fm;
     shouldOptimize = f.shouldOptimize();
+    corkWrites = f.getWriteCorkTime() > 0 && f.getSSLContext() == null;
     maxDelay = TimeUnit.SECONDS.toMillis(f.getMaxReconnectDelay());
+    maxConcurrentReconnects = f.getMaxConcurrentReconnects();
+    outlierEjectionFactor = fm == FailureMode.Redistribute
+      ? f.getOutlierEjectionFactor() : 0;
+    outlierEjectionTime = f.getOutlierEjectionTime();
+    slowStartTime = f.getSlowStartTime();
+    healthCheckInterval =
+      TimeUnit.MILLISECONDS.toNanos(f.getHealthCheckInterval());
+    noReplyBarrierInterval = f.getNoReplyBarrierInterval();
     opFact = opfactory;
     timeoutExceptionThreshold = f.getTimeoutExceptionThreshold();
-    selector = Selector.open();
+    operationTimeout = f.getOperationTimeout();
+    timeoutTick = Integer.parseInt(System.getProperty("net.spy.timeoutTick",
+      Integer.toString(DEFAULT_TIMEOUT_TICK)));
+    loops = new IOLoop[Math.max(1, f.getIOLoopCount())];
+    for (int i = 0; i < loops.length; i++) {
+      loops[i] = new IOLoop(i);
+    }
+    selector = loops[0].selector;
+    addedQueue = loops[0].addedQueue;
+    nodeLoops = new ConcurrentHashMap<MemcachedNode, IOLoop>();
+    connectionsPerNode = Math.max(1, f.getConnectionsPerNode());
+    connectionGroups =
+      new ConcurrentHashMap<MemcachedNode, List<MemcachedNode>>();
+    primaryNodes = new ConcurrentHashMap<MemcachedNode, MemcachedNode>();
     retryOps = Collections.synchronizedList(new ArrayList<Operation>());
     lockForNodeUpdates = new ReentrantLock();
     conditionLock = new ReentrantLock();
@@ -373,9 +545,17 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     
     List<MemcachedNode> connections = createConnections(endPoints);
     locator = f.createLocator(connections);
+    refreshCurrentNodes();
 
     setName("Memcached IO over " + this);
     setDaemon(f.isDaemon());
+    for (int i = 1; i < loops.length; i++) {
+      SpyThread t = new IOLoopThread(loops[i]);
+      t.setName(getName() + " (loop " + i + ")");
+      t.setDaemon(f.isDaemon());
+      loops[i].thread = t;
+      t.start();
+    }
     start();
   }
 
@@ -418,13 +598,12 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       for(NodeEndPoint endPoint : clusterConfiguration.getCacheNodeEndPoints()){
         newEndPoints.add(endPoint);
       }
-      
+      nodeListDirty = true;
     }finally{
       lockForNodeUpdates.unlock();
     }
     
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    loops[0].wakeup();
   }
 
   /**
@@ -439,9 +618,20 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       || metricType.equals(MetricType.PERFORMANCE)) {
       metrics.addHistogram(OVERALL_AVG_BYTES_READ_METRIC);
       metrics.addHistogram(OVERALL_AVG_BYTES_WRITE_METRIC);
+      metrics.addHistogram(OVERALL_AVG_OPS_WRITE_METRIC);
       metrics.addHistogram(OVERALL_AVG_TIME_ON_WIRE_METRIC);
       metrics.addMeter(OVERALL_RESPONSE_METRIC);
       metrics.addMeter(OVERALL_REQUEST_METRIC);
+      metrics.addMeter(SELECTOR_WAKEUP_METRIC);
+      metrics.addMeter(SELECTOR_WAKEUP_SKIPPED_METRIC);
+      metrics.addMeter(OVERALL_EXPIRED_METRIC);
+      metrics.addMeter(OVERALL_REJECTED_METRIC);
+      metrics.addMeter(OVERALL_EJECTED_METRIC);
+      metrics.addHistogram(HEALTH_CHECK_RTT_METRIC);
+      metrics.addMeter(HEALTH_CHECK_MISSED_METRIC);
+      metrics.addMeter(BARRIER_MISSED_METRIC);
+      metrics.addCounter(ByteBufferPool.LEASED_BUFFERS_METRIC);
+      metrics.addCounter(ByteBufferPool.IDLE_BUFFERS_METRIC);
 
       if (metricType.equals(MetricType.DEBUG)) {
         metrics.addCounter(RECON_QUEUE_METRIC);
@@ -462,53 +652,253 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     List<MemcachedNode> connections = new ArrayList<MemcachedNode>(endPoints.size());
     
     for (NodeEndPoint endPoint : endPoints) {
-      SocketAddress sa = endPoint.getInetSocketAddress();
-      SocketChannel ch = SocketChannel.open();
-      ch.configureBlocking(false);
-      MemcachedNode qa =
-          this.connectionFactory.createMemcachedNode(sa, ch, bufSize);
-
-      qa.setNodeEndPoint(endPoint);
-      int ops = 0;
+      MemcachedNode qa = openConnection(endPoint);
+      if (connectionsPerNode > 1) {
+        List<MemcachedNode> group =
+          new ArrayList<MemcachedNode>(connectionsPerNode);
+        group.add(qa);
+        for (int i = 1; i < connectionsPerNode; i++) {
+          MemcachedNode additional = openConnection(endPoint);
+          primaryNodes.put(additional, qa);
+          group.add(additional);
+        }
+        connectionGroups.put(qa, Collections.unmodifiableList(group));
+      }
+      connections.add(qa);
+    }
 
-      Socket socket = ch.socket();
-      socket.setTcpNoDelay(!connectionFactory.useNagleAlgorithm());
-      socket.setKeepAlive(connectionFactory.getKeepAlive());
+    return connections;
+  }
 
-      try {
-        if (ch.connect(sa)) {
-          getLogger().info("Connected to %s immediately", qa);
-          connected(qa);
-        } else {
-          getLogger().info("Added %s to connect queue", qa);
-          ops = SelectionKey.OP_CONNECT;
+  /**
+   * Create a node for the given endpoint and start connecting it.
+   *
+   * @param endPoint the endpoint to connect to.
+   * @return the new node.
+   * @throws IOException if the channel could not be opened.
+   */
+  private MemcachedNode openConnection(final NodeEndPoint endPoint)
+    throws IOException {
+    final SocketAddress sa = endPoint.getInetSocketAddress();
+    final SocketChannel ch = SocketChannel.open();
+    ch.configureBlocking(false);
+    final MemcachedNode qa =
+        this.connectionFactory.createMemcachedNode(sa, ch, bufSize);
+
+    qa.setNodeEndPoint(endPoint);
+    qa.setConnection(this);
+
+    Socket socket = ch.socket();
+    socket.setTcpNoDelay(!connectionFactory.useNagleAlgorithm());
+    socket.setKeepAlive(connectionFactory.getKeepAlive());
+
+    final IOLoop loop = assignLoop(qa);
+    if (loop.inLoop()) {
+      connect(loop, qa, ch, sa);
+    } else {
+      loop.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            connect(loop, qa, ch, sa);
+          } catch (IOException e) {
+            getLogger().warn("Error on initial connect", e);
+            queueReconnect(qa);
+          }
         }
+      });
+    }
+    return qa;
+  }
 
-        selector.wakeup();
-        qa.setSk(ch.register(selector, ops, qa));
-        assert ch.isConnected()
-            || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
-            : "Not connected, and not wanting to connect";
-      } catch (SocketException e) {
-        getLogger().warn("Socket error on initial connect", e);
-        queueReconnect(qa);
-      } catch (UnresolvedAddressException e) {
-        getLogger().warn("Unresolved Address error on initial connect", e);
-        queueReconnect(qa);
+  /**
+   * Initiate the connect of a freshly created node and register its channel
+   * with the selector of the owning {@link IOLoop}.
+   *
+   * @param loop the loop owning the node.
+   * @param qa the node to connect.
+   * @param ch the channel of the node.
+   * @param sa the address to connect to.
+   * @throws IOException if the channel could not be registered.
+   */
+  private void connect(final IOLoop loop, final MemcachedNode qa,
+    final SocketChannel ch, final SocketAddress sa) throws IOException {
+    int ops = 0;
+    try {
+      if (ch.connect(sa)) {
+        getLogger().info("Connected to %s immediately", qa);
+        connected(qa);
+      } else {
+        getLogger().info("Added %s to connect queue", qa);
+        ops = SelectionKey.OP_CONNECT;
       }
-      connections.add(qa);
+
+      loop.selector.wakeup();
+      qa.setSk(ch.register(loop.selector, ops, qa));
+      assert ch.isConnected()
+          || qa.getSk().interestOps() == SelectionKey.OP_CONNECT
+          : "Not connected, and not wanting to connect";
+    } catch (SocketException e) {
+      getLogger().warn("Socket error on initial connect", e);
+      queueReconnect(qa);
+    } catch (UnresolvedAddressException e) {
+      getLogger().warn("Unresolved Address error on initial connect", e);
+      queueReconnect(qa);
     }
+  }
 
-    return connections;
+  /**
+   * Assign the given node to the next {@link IOLoop} in round-robin order.
+   *
+   * @param node the node to assign.
+   * @return the loop which now owns the node.
+   */
+  private synchronized IOLoop assignLoop(final MemcachedNode node) {
+    IOLoop loop = loops[nextLoop];
+    nextLoop = (nextLoop + 1) % loops.length;
+    nodeLoops.put(node, loop);
+    return loop;
+  }
+
+  /**
+   * Returns the {@link IOLoop} owning the given node.
+   *
+   * Nodes which have not been created through this connection are handled
+   * by the primary loop.
+   *
+   * @param node the node to look up.
+   * @return the owning loop.
+   */
+  private IOLoop loopFor(final MemcachedNode node) {
+    if (loops.length == 1) {
+      return loops[0];
+    }
+    IOLoop loop = nodeLoops.get(node);
+    return loop == null ? loops[0] : loop;
+  }
+
+  /**
+   * Returns the number of I/O loops driving the nodes of this connection.
+   *
+   * @return the number of I/O loops.
+   */
+  public int getIOLoopCount() {
+    return loops.length;
+  }
+
+  /**
+   * Returns all connections opened to the given node, the node itself
+   * included.
+   *
+   * @param node a node known to the locator.
+   * @return the connections of the node.
+   */
+  public List<MemcachedNode> getConnections(final MemcachedNode node) {
+    List<MemcachedNode> group = connectionGroups.get(node);
+    return group == null ? Collections.singletonList(node) : group;
+  }
+
+  /**
+   * Check whether the given node can take operations, that is whether any of
+   * its connections is active. The node itself is only its first connection,
+   * which may be reconnecting while the others are still up.
+   *
+   * @param node a node known to the locator.
+   * @return true if one of the connections of the node is active.
+   */
+  public boolean isNodeActive(final MemcachedNode node) {
+    List<MemcachedNode> group = connectionGroups.get(node);
+    if (group == null) {
+      return node.isActive();
+    }
+    for (MemcachedNode conn : group) {
+      if (conn.isActive()) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
-   * Make sure that the current selectors make sense.
+   * Returns the connections of all nodes known to the locator.
    *
+   * @return all connections.
+   */
+  private Collection<MemcachedNode> getAllConnections() {
+    Collection<MemcachedNode> nodes = locator.getAll();
+    if (connectionGroups.isEmpty()) {
+      return nodes;
+    }
+    List<MemcachedNode> rv =
+      new ArrayList<MemcachedNode>(nodes.size() * connectionsPerNode);
+    for (MemcachedNode node : nodes) {
+      rv.addAll(getConnections(node));
+    }
+    return rv;
+  }
+
+  /**
+   * Check whether the given connection belongs to one of the nodes known to
+   * the locator.
+   *
+   * @param node the connection to check.
+   * @return true if the connection belongs to the current cluster.
+   */
+  private boolean isCurrentNode(final MemcachedNode node) {
+    MemcachedNode primary = primaryNodes.get(node);
+    return currentNodes.contains(primary == null ? node : primary);
+  }
+
+  /**
+   * Take a snapshot of the nodes known to the locator. Needs to be called
+   * whenever the locator is updated.
+   */
+  private void refreshCurrentNodes() {
+    Set<MemcachedNode> nodes = Collections.newSetFromMap(
+      new IdentityHashMap<MemcachedNode, Boolean>());
+    nodes.addAll(locator.getAll());
+    currentNodes = nodes;
+  }
+
+  /**
+   * Pick the connection of the given node to send the next operation on.
+   *
+   * This is the active and authenticated connection with the fewest
+   * outstanding operations, or the node itself if there is none.
+   *
+   * @param node a node known to the locator.
+   * @return the connection to use.
+   */
+  private MemcachedNode selectConnection(final MemcachedNode node) {
+    List<MemcachedNode> group = connectionGroups.get(node);
+    if (group == null) {
+      return node;
+    }
+    MemcachedNode rv = null;
+    int least = Integer.MAX_VALUE;
+    for (MemcachedNode conn : group) {
+      if (conn.isActive() && conn.isAuthenticated()) {
+        int outstanding = conn.getOutstandingOpCount();
+        if (outstanding < least) {
+          least = outstanding;
+          rv = conn;
+        }
+      }
+    }
+    return rv == null ? node : rv;
+  }
+
+  /**
+   * Make sure that the current selectors of the given loop make sense.
+   *
+   * @param loop the loop to check.
    * @return true if they do.
    */
-  private boolean selectorsMakeSense() {
-    for (MemcachedNode qa : locator.getAll()) {
+  private boolean selectorsMakeSense(final IOLoop loop) {
+    for (MemcachedNode qa : getAllConnections()) {
+      if (loopFor(qa) != loop) {
+        continue;
+      }
       if (qa.getSk() != null && qa.getSk().isValid()) {
         if (qa.getChannel().isConnected()) {
           int sops = qa.getSk().interestOps();
@@ -522,6 +912,13 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           if (qa.getBytesRemainingToWrite() > 0) {
             expected |= SelectionKey.OP_WRITE;
           }
+          if (loop.corked.contains(qa)
+            || qa.getInFlightLimit() != Integer.MAX_VALUE) {
+            // Corked nodes only wait for write readiness once flushed, and
+            // ramping ones once responses to their writes arrived.
+            sops &= ~SelectionKey.OP_WRITE;
+            expected &= ~SelectionKey.OP_WRITE;
+          }
           assert sops == expected : "Invalid ops:  " + qa + ", expected "
             + expected + ", got " + sops;
         } else {
@@ -536,42 +933,85 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   }
 
   /**
-   * Handle all IO that flows through the connection.
+   * Handle all IO that flows through the primary loop of the connection.
    *
    * This method is called in an endless loop, listens on NIO selectors and
-   * dispatches the underlying read/write calls if needed.
+   * dispatches the underlying read/write calls if needed. Besides the IO of
+   * its own nodes, the primary loop also applies cluster configuration
+   * changes and redistributes operations which need to be retried.
    */
   public void handleIO() throws IOException {
+    handleIO(loops[0]);
+  }
+
+  /**
+   * Handle all IO that flows through the given loop.
+   *
+   * @param loop the loop to drive.
+   * @throws IOException if an error happens during selecting or shutdown
+   *         queue handling.
+   */
+  private void handleIO(final IOLoop loop) throws IOException {
     if (shutDown) {
       getLogger().debug("No IO while shut down.");
       return;
     }
 
-    handleInputQueue();
+    loop.runTasks();
+    handleInputQueue(loop);
     getLogger().debug("Done dealing with queue.");
+    long corkDelay = handleCorkedWrites(loop);
 
     long delay = wakeupDelay;
-    if (!reconnectQueue.isEmpty()) {
-      long now = System.currentTimeMillis();
-      long then = reconnectQueue.firstKey();
-      delay = Math.max(then - now, 1);
+    if (!loop.reconnectQueue.isEmpty() && !isReconnectLimitReached(loop)) {
+      long next = loop.reconnectQueue.nanosUntilNext(System.nanoTime());
+      delay = Math.max(TimeUnit.NANOSECONDS.toMillis(next), 1);
+    }
+    if (!loop.timer.isEmpty()) {
+      long nextTick = loop.timer.nanosUntilNextTick(System.nanoTime());
+      delay = Math.min(delay,
+        Math.max(TimeUnit.NANOSECONDS.toMillis(nextTick + 999999), 1));
+    }
+    if (healthCheckInterval > 0) {
+      long next = healthCheckInterval
+        - (System.nanoTime() - loop.lastHealthCheck);
+      delay = Math.min(delay,
+        Math.max(TimeUnit.NANOSECONDS.toMillis(next), 1));
+    }
+    // Cork windows are whole milliseconds, round up rather than poll for
+    // the rest of one.
+    if (corkDelay > 0) {
+      delay = Math.min(delay,
+        Math.max(TimeUnit.NANOSECONDS.toMillis(corkDelay + 999999), 1));
     }
     getLogger().debug("Selecting with delay of %sms", delay);
-    assert selectorsMakeSense() : "Selectors don't make sense.";
-    int selected = selector.select(delay);
+    assert selectorsMakeSense(loop) : "Selectors don't make sense.";
+    // From here on enqueuing threads have to wake the selector up. Work
+    // queued before the flag was cleared did not, so don't block on it.
+    loop.awake.set(false);
+    int selected;
+    if (loop.addedQueue.isEmpty() && loop.tasks.isEmpty()) {
+      selected = loop.selector.select(delay);
+    } else {
+      selected = loop.selector.selectNow();
+    }
+    loop.awake.set(true);
 
     if (shutDown) {
       return;
-    } else if (selected == 0 && addedQueue.isEmpty()) {
-      handleWokenUpSelector();
-    } else if (selector.selectedKeys().isEmpty()) {
-      handleEmptySelects();
+    } else if (selected == 0 && loop.addedQueue.isEmpty()) {
+      if (loop.isPrimary()) {
+        handleWokenUpSelector();
+      }
+    } else if (loop.selector.selectedKeys().isEmpty()) {
+      handleEmptySelects(loop);
     } else {
       getLogger().debug("Selected %d, selected %d keys", selected,
-        selector.selectedKeys().size());
-      emptySelects = 0;
+        loop.selector.selectedKeys().size());
+      loop.emptySelects = 0;
 
-      Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+      Iterator<SelectionKey> iterator =
+        loop.selector.selectedKeys().iterator();
       while(iterator.hasNext()) {
         SelectionKey sk = iterator.next();
         handleIO(sk);
@@ -579,7 +1019,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       }
     }
 
-    handleOperationalTasks();
+    handleOperationalTasks(loop);
   }
 
   /**
@@ -596,6 +1036,10 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * that into account. Also, it needs to take into account that it may be
    * called very often under heavy workloads, so it should not perform extensive
    * tasks in the same thread.</p>
+   *
+   * <p>The method is only called from the primary I/O loop. Idle connections
+   * are probed by the connection itself if a health check interval is
+   * configured, see {@link ConnectionFactory#getHealthCheckInterval()}.</p>
    */
   protected void handleWokenUpSelector() { }
 
@@ -604,33 +1048,205 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * needs to be checked on a regular basis that has nothing to do directly
    * with reading and writing data.
    *
+   * @param loop the loop to run the tasks for.
    * @throws IOException if an error happens during shutdown queue handling.
    */
-  private void handleOperationalTasks() throws IOException {
-    checkPotentiallyTimedOutConnection();
+  private void handleOperationalTasks(final IOLoop loop) throws IOException {
+    if (loop.isPrimary()) {
+      updateNodeList();
+    }
+
+    loop.timer.expireTimeouts(System.nanoTime());
+    checkPotentiallyTimedOutConnection(loop);
 
-    if (!shutDown && !reconnectQueue.isEmpty()) {
-      attemptReconnects();
+    if (!shutDown && !loop.reconnectQueue.isEmpty()) {
+      attemptReconnects(loop);
     }
 
-    if (!retryOps.isEmpty()) {
-      ArrayList<Operation> operations = new ArrayList<Operation>(retryOps);
-      retryOps.clear();
+    if (loop.isPrimary() && !retryOps.isEmpty()) {
+      // Other loops keep adding retries, take them all in one go.
+      ArrayList<Operation> operations;
+      synchronized (retryOps) {
+        operations = new ArrayList<Operation>(retryOps);
+        retryOps.clear();
+      }
       redistributeOperations(operations);
     }
 
-    handleShutdownQueue();
+    if (healthCheckInterval > 0 && !shutDown) {
+      long now = System.nanoTime();
+      if (now - loop.lastHealthCheck >= healthCheckInterval) {
+        loop.lastHealthCheck = now;
+        checkHealth(loop, now);
+      }
+    }
+
+    if (loop.isPrimary() && outlierEjectionFactor > 0) {
+      long now = System.nanoTime();
+      if (now - lastOutlierCheck >= OUTLIER_CHECK_INTERVAL) {
+        lastOutlierCheck = now;
+        ejectOutliers(now);
+      }
+    }
+
+    handleShutdownQueue(loop);
+  }
+
+  /**
+   * Eject the nodes which respond much slower than the median node, or fail
+   * most of their operations.
+   *
+   * Only nodes with enough recent responses are compared, and at most a
+   * third of the nodes are ejected at any time, so a cluster wide slowdown
+   * does not end up ejecting everything.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   */
+  private void ejectOutliers(final long now) {
+    Collection<MemcachedNode> all = locator.getAll();
+    List<MemcachedNode> candidates = new ArrayList<MemcachedNode>(all.size());
+    int ejected = 0;
+    for (MemcachedNode node : all) {
+      NodeHealth health = node.getHealth();
+      if (health.isEjected(now)) {
+        ejected++;
+      } else if (isNodeActive(node)
+        && health.getSamples() >= OUTLIER_MIN_SAMPLES) {
+        candidates.add(node);
+      }
+    }
+    if (candidates.size() < OUTLIER_MIN_NODES) {
+      return;
+    }
+
+    long[] latencies = new long[candidates.size()];
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = candidates.get(i).getHealth().getLatency();
+    }
+    Arrays.sort(latencies);
+    long median = latencies[latencies.length / 2];
+    double limit = median * outlierEjectionFactor;
+
+    int maxEjected = all.size() / 3;
+    for (MemcachedNode node : candidates) {
+      if (ejected >= maxEjected) {
+        break;
+      }
+      NodeHealth health = node.getHealth();
+      if (health.getLatency() > limit
+        || health.getErrorRate() > OUTLIER_MAX_ERROR_RATE) {
+        getLogger().warn("Ejecting %s for %dms, %s compared to a median "
+          + "latency of %dus", node, outlierEjectionTime, health,
+          TimeUnit.NANOSECONDS.toMicros(median));
+        health.eject(now, outlierEjectionTime, outlierEjectionTime,
+          TimeUnit.MILLISECONDS);
+        metrics.markMeter(OVERALL_EJECTED_METRIC);
+        ejected++;
+      }
+    }
+  }
+
+  /**
+   * Reconnect the connections of the given loop whose health check probe
+   * has not been answered since the last check, and probe the ones which
+   * have been idle for the health check interval.
+   *
+   * @param loop the loop to check the connections for.
+   * @param now the current {@link System#nanoTime()}.
+   */
+  private void checkHealth(final IOLoop loop, final long now) {
+    List<HealthProbe> missed = null;
+    for (HealthProbe probe : loop.probes.values()) {
+      if (!probe.answered) {
+        if (missed == null) {
+          missed = new ArrayList<HealthProbe>();
+        }
+        missed.add(probe);
+      }
+    }
+    loop.probes.clear();
+    if (missed != null) {
+      for (HealthProbe probe : missed) {
+        MemcachedNode node = probe.node;
+        if (isCurrentNode(node) && node.isActive()) {
+          getLogger().warn("Health check of %s not answered within %dms, "
+            + "reconnecting", node,
+            TimeUnit.NANOSECONDS.toMillis(now - probe.sent));
+          metrics.markMeter(HEALTH_CHECK_MISSED_METRIC);
+          probe.op.cancel();
+          lostConnection(node);
+        }
+      }
+    }
+
+    long idle = TimeUnit.NANOSECONDS.toMillis(healthCheckInterval);
+    for (MemcachedNode node : getAllConnections()) {
+      if (loopFor(node) == loop && isCurrentNode(node) && node.isActive()
+        && node.isAuthenticated() && node.getOutstandingOpCount() == 0
+        && node.lastReadDelta() >= idle) {
+        sendProbe(loop, node, now);
+      }
+    }
+  }
+
+  /**
+   * Send a health check probe on the given connection.
+   *
+   * The probe bypasses the operation timeout, it is judged by the next
+   * health check instead.
+   *
+   * @param loop the loop of the connection.
+   * @param node the connection to probe.
+   * @param now the current {@link System#nanoTime()}.
+   */
+  private void sendProbe(final IOLoop loop, final MemcachedNode node,
+    final long now) {
+    final HealthProbe probe = new HealthProbe(node, now);
+    probe.op = opFact.noop(new OperationCallback() {
+      public void receivedStatus(OperationStatus status) {
+        probe.answered = status.isSuccess();
+      }
+
+      public void complete() {
+        if (probe.answered) {
+          long rtt = System.nanoTime() - probe.sent;
+          healthOf(node).recordProbe(rtt);
+          metrics.updateHistogram(HEALTH_CHECK_RTT_METRIC,
+            (int) TimeUnit.NANOSECONDS.toMicros(rtt));
+        }
+      }
+    });
+    probe.op.setHandlingNode(node);
+    probe.op.initialize();
+    if (queueOperation(node, probe.op)) {
+      loop.probes.put(node, probe);
+      loop.addedQueue.offer(node);
+      getLogger().debug("Probing %s", node);
+    }
+  }
+
+  /**
+   * Get the health of the node owning the given connection.
+   *
+   * @param node the node or one of its additional connections.
+   * @return the health of the node.
+   */
+  private NodeHealth healthOf(final MemcachedNode node) {
+    MemcachedNode primary = primaryNodes.get(node);
+    return (primary == null ? node : primary).getHealth();
   }
 
   /**
    * Helper method for {@link #handleIO()} to handle empty select calls.
+   *
+   * @param loop the loop which encountered the empty select.
    */
-  private void handleEmptySelects() {
+  private void handleEmptySelects(final IOLoop loop) {
     getLogger().debug("No selectors ready, interrupted: %b",
       Thread.interrupted());
 
-    if (++emptySelects > DOUBLE_CHECK_EMPTY) {
-      for (SelectionKey sk : selector.keys()) {
+    if (++loop.emptySelects > DOUBLE_CHECK_EMPTY) {
+      for (SelectionKey sk : loop.selector.keys()) {
         getLogger().debug("%s has %s, interested in %s", sk, sk.readyOps(),
           sk.interestOps());
         if (sk.readyOps() != 0) {
@@ -640,18 +1256,26 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           lostConnection((MemcachedNode) sk.attachment());
         }
       }
-      assert emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
+      assert loop.emptySelects < EXCESSIVE_EMPTY : "Too many empty selects";
     }
   }
 
   /**
-   * Check if nodes need to be shut down and do so if needed.
+   * Check if nodes owned by the given loop need to be shut down and do so if
+   * needed.
    *
+   * @param loop the loop to check the nodes for.
    * @throws IOException if the channel could not be closed properly.
    */
-  private void handleShutdownQueue() throws IOException {
+  private void handleShutdownQueue(final IOLoop loop) throws IOException {
+    if (nodesToShutdown.isEmpty()) {
+      return;
+    }
+    Set<MemcachedNode> added = Collections.newSetFromMap(
+      new IdentityHashMap<MemcachedNode, Boolean>());
+    added.addAll(loop.addedQueue);
     for (MemcachedNode qa : nodesToShutdown) {
-      if (!addedQueue.contains(qa)) {
+      if (loopFor(qa) == loop && !added.contains(qa)) {
         nodesToShutdown.remove(qa);
         metrics.decrementCounter(SHUTD_QUEUE_METRIC);
         Collection<Operation> notCompletedOperations = shutdownNode(qa);
@@ -661,33 +1285,44 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   }
 
   /**
-   * Check if one or more nodes exceeded the timeout Threshold.
-   */
-  private void checkPotentiallyTimedOutConnection() {
-    updateNodeList();
-    Collection<MemcachedNode> nodes = locator.getAll();
-    boolean stillCheckingTimeouts = true;
-    while (stillCheckingTimeouts) {
-      try {
-        for (SelectionKey sk : selector.keys()) {
-          MemcachedNode mn = (MemcachedNode) sk.attachment();
-          if(nodes.contains(mn)){
-            if (mn.getContinuousTimeout() > timeoutExceptionThreshold) {
-              getLogger().warn("%s exceeded continuous timeout threshold", sk);
-              lostConnection(mn);
-            }
-          }
-        }
-        stillCheckingTimeouts = false;
-      } catch(ConcurrentModificationException e) {
-        getLogger().warn("Retrying selector keys after "
-          + "ConcurrentModificationException caught", e);
-        continue;
+   * Check if one or more nodes of the given loop exceeded the timeout
+   * threshold.
+   *
+   * Only the nodes reported by {@link #timeoutCounted(MemcachedNode)} since
+   * the last check are looked at.
+   *
+   * @param loop the loop to check the nodes for.
+   */
+  private void checkPotentiallyTimedOutConnection(final IOLoop loop) {
+    MemcachedNode mn;
+    while ((mn = loop.timedOutNodes.poll()) != null) {
+      if (isCurrentNode(mn)
+        && mn.getContinuousTimeout() > timeoutExceptionThreshold) {
+        getLogger().warn("%s exceeded continuous timeout threshold", mn);
+        lostConnection(mn);
       }
     }
   }
 
+  /**
+   * Hand the given node to its loop for a timeout check once its continuous
+   * timeout count exceeds the threshold.
+   *
+   * @param node the node an operation timed out on.
+   */
+  private void timeoutCounted(final MemcachedNode node) {
+    if (node.getContinuousTimeout() > timeoutExceptionThreshold) {
+      IOLoop loop = loopFor(node);
+      loop.timedOutNodes.offer(node);
+      loop.wakeup();
+    }
+  }
+
   private void updateNodeList(){
+    if (!nodeListDirty) {
+      return;
+    }
+    nodeListDirty = false;
     List<NodeEndPoint> endPoints = new ArrayList<NodeEndPoint>();
     try{
       lockForNodeUpdates.lock();
@@ -703,6 +1338,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     try {
       List<MemcachedNode> currentNodes = new ArrayList<MemcachedNode>(locator.getAll());
       List<MemcachedNode> newNodes = new ArrayList<MemcachedNode>();
+      Set<SocketAddress> oldAddresses = new HashSet<SocketAddress>();
       
       for(NodeEndPoint newEndPoint : endPoints){
         Iterator<MemcachedNode> curentNodesIterator = currentNodes.iterator();
@@ -721,8 +1357,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
                ||
                (endPointFromCurrentNode.getIpAddress() == null  && newEndPoint.getIpAddress() != null)
               ){
-              currentNode.setNodeEndPoint(newEndPoint);
-              queueReconnect(currentNode);
+              oldAddresses.add(currentNode.getSocketAddress());
+              for (MemcachedNode conn : getConnections(currentNode)) {
+                conn.setNodeEndPoint(newEndPoint);
+                queueReconnect(conn);
+              }
             }
             
             newNodes.add(currentNode);
@@ -744,15 +1383,42 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       //currentNodes list is left with the nodes to delete after finishing the above matching process.
       if(currentNodes.size() > 0){
         Collection<Operation> opsToRequeue = new ArrayList<Operation>();
-        for(MemcachedNode qa : currentNodes){
-          Collection<Operation> pendingOps = shutdownNode(qa);
-          opsToRequeue.addAll(pendingOps);
+        List<MemcachedNode> connsToRemove = new ArrayList<MemcachedNode>();
+        for (MemcachedNode node : currentNodes) {
+          oldAddresses.add(node.getSocketAddress());
+          connsToRemove.addAll(getConnections(node));
+          connectionGroups.remove(node);
+        }
+        for(final MemcachedNode qa : connsToRemove){
+          primaryNodes.remove(qa);
+          final IOLoop loop = loopFor(qa);
+          if (loop.inLoop()) {
+            Collection<Operation> pendingOps = shutdownNode(qa);
+            opsToRequeue.addAll(pendingOps);
+            nodeLoops.remove(qa);
+          } else {
+            //Channels are only closed by the loop which owns them.
+            loop.execute(new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  redistributeOperations(shutdownNode(qa));
+                } catch (IOException e) {
+                  getLogger().warn("Error shutting down node %s", qa, e);
+                } finally {
+                  nodeLoops.remove(qa);
+                }
+              }
+            });
+          }
         }
         redistributeOperations(opsToRequeue);
         opsToRequeue.clear();
       }
       
       locator.updateLocator(newNodes);
+      refreshCurrentNodes();
+      removeNodeMetrics(oldAddresses, newNodes);
 
     }catch(Exception e){
       getLogger().error("Error encountered while updating the node list. Adding back to endpoint list for reattempt.", e);
@@ -762,6 +1428,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         lockForNodeUpdates.lock();
         if(newEndPoints.size() == 0){
           newEndPoints.addAll(endPoints);
+          nodeListDirty = true;
         }
       }finally{
         lockForNodeUpdates.unlock();
@@ -779,6 +1446,14 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   }
   
   private Collection<Operation> shutdownNode(MemcachedNode node) throws IOException{
+    IOLoop loop = nodeLoops.get(node);
+    if (loop != null) {
+      loop.connecting.remove(node);
+      long lastDelay = loop.reconnectQueue.getLastDelay(node);
+      if (loop.reconnectQueue.remove(node)) {
+        reconnectAttempted(node, lastDelay);
+      }
+    }
     Collection<Operation> notCompletedOperations = node.destroyInputQueue();
     if (node.getChannel() != null) {
       node.getChannel().close();
@@ -789,28 +1464,31 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       }
       getLogger().debug("Shut down channel %s", node.getChannel());
     }
-    
+    node.releaseBuffers();
+
     return notCompletedOperations;
   }
 
   /**
-   * Handle any requests that have been made against the client.
+   * Handle any requests that have been made against the nodes of the given
+   * loop.
+   *
+   * @param loop the loop to handle the queued requests for.
    */
-  private void handleInputQueue() {
-    if (!addedQueue.isEmpty()) {
+  private void handleInputQueue(final IOLoop loop) {
+    if (!loop.addedQueue.isEmpty()) {
       getLogger().debug("Handling queue");
       Collection<MemcachedNode> toAdd = new HashSet<MemcachedNode>();
       Collection<MemcachedNode> todo = new HashSet<MemcachedNode>();
 
       MemcachedNode qaNode;
-      while ((qaNode = addedQueue.poll()) != null) {
+      while ((qaNode = loop.addedQueue.poll()) != null) {
         todo.add(qaNode);
       }
 
-      Collection<MemcachedNode> nodeList = locator.getAll();
       // Now process the queue.
       for (MemcachedNode node : todo) {
-        if(!nodeList.contains(node)){
+        if(!isCurrentNode(node)){
           continue;
         }
         boolean readyForIO = false;
@@ -835,10 +1513,49 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         }
         node.fixupOps();
       }
-      addedQueue.addAll(toAdd);
+      loop.addedQueue.addAll(toAdd);
     }
   }
 
+  /**
+   * Flush the corked writes of the given loop whose window has passed.
+   *
+   * @param loop the loop to flush the corked writes of.
+   * @return the nanoseconds until the next corked write is due, 0 if there
+   *         are none.
+   */
+  private long handleCorkedWrites(final IOLoop loop) {
+    if (loop.corked.isEmpty()) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    long next = Long.MAX_VALUE;
+    List<MemcachedNode> due = new ArrayList<MemcachedNode>();
+    for (Iterator<MemcachedNode> i = loop.corked.iterator(); i.hasNext();) {
+      MemcachedNode node = i.next();
+      long nodeDelay = node.getCorkDelay(now);
+      if (nodeDelay > 0 && node.isActive()) {
+        next = Math.min(next, nodeDelay);
+      } else {
+        i.remove();
+        due.add(node);
+      }
+    }
+    for (MemcachedNode node : due) {
+      if (!node.isActive()) {
+        continue;
+      }
+      try {
+        handleWrites(node);
+      } catch (IOException e) {
+        getLogger().warn("Exception handling corked write", e);
+        lostConnection(node);
+      }
+      node.fixupOps();
+    }
+    return loop.corked.isEmpty() ? 0 : next;
+  }
+
   /**
    * Add a connection observer.
    *
@@ -860,12 +1577,23 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   /**
    * Indicate a successful connect to the given node.
    *
+   * <p>Nodes connected by a reconnect, rather than on startup, are ramped
+   * up over the slow start time.</p>
+   *
    * @param node the node which was successfully connected.
    */
   private void connected(final MemcachedNode node) {
     assert node.getChannel().isConnected() : "Not connected.";
     int rt = node.getReconnectCount();
     node.connected();
+    IOLoop loop = loopFor(node);
+    boolean reconnected = loop.connecting.remove(node);
+    loop.reconnectQueue.reset(node);
+    if (reconnected && slowStartTime > 0) {
+      getLogger().info("Ramping up %s over %dms", node, slowStartTime);
+      node.getHealth().startRamp(System.nanoTime(), slowStartTime,
+        TimeUnit.MILLISECONDS);
+    }
 
     for (ConnectionObserver observer : connObservers) {
       observer.connectionEstablished(node.getSocketAddress(), rt);
@@ -913,8 +1641,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    */
   private void handleIO(final SelectionKey sk) {
     MemcachedNode node = (MemcachedNode) sk.attachment();
-    Collection<MemcachedNode> nodeList = locator.getAll();
-    if(!nodeList.contains(node)){
+    if(!isCurrentNode(node)){
       return; 
     }
     
@@ -1035,7 +1762,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
 
     connected(node);
-    addedQueue.offer(node);
+    loopFor(node).addedQueue.offer(node);
     if (node.getWbuf().hasRemaining()) {
       handleWrites(node);
     }
@@ -1051,8 +1778,14 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     node.fillWriteBuffer(shouldOptimize);
     boolean canWriteMore = node.getBytesRemainingToWrite() > 0;
     while (canWriteMore) {
+      if (corkWrites && node.getCorkDelay(System.nanoTime()) > 0) {
+        loopFor(node).corked.add(node);
+        return;
+      }
       int wrote = node.writeSome();
       metrics.updateHistogram(OVERALL_AVG_BYTES_WRITE_METRIC, wrote);
+      metrics.updateHistogram(OVERALL_AVG_OPS_WRITE_METRIC,
+        node.takeFilledOpCount());
       node.fillWriteBuffer(shouldOptimize);
       canWriteMore = wrote > 0 && node.getBytesRemainingToWrite() > 0;
     }
@@ -1116,6 +1849,8 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         rbuf.compact();
       } else {
         rbuf.clear();
+        node.adaptRbuf(read);
+        rbuf = node.getRbuf();
       }
       read = channel.read(rbuf);
       node.completedRead();
@@ -1139,6 +1874,16 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       Operation op = node.removeCurrentReadOp();
       assert op == currentOp : "Expected to pop " + currentOp + " got "
         + op;
+      cancelExpiry(op);
+
+      if (outlierEjectionFactor > 0) {
+        long latency = System.nanoTime() - op.getWriteCompleteTimestamp();
+        if (op.hasErrored()) {
+          healthOf(node).recordFailure(latency);
+        } else {
+          healthOf(node).recordSuccess(latency);
+        }
+      }
 
       if (op.hasErrored()) {
         metrics.markMeter(OVERALL_RESPONSE_FAIL_METRIC);
@@ -1230,6 +1975,16 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     if (shutDown) {
       return;
     }
+    final IOLoop loop = loopFor(node);
+    if (!loop.inLoop()) {
+      loop.execute(new Runnable() {
+        @Override
+        public void run() {
+          queueReconnect(node);
+        }
+      });
+      return;
+    }
     getLogger().warn("Closing, and reopening %s, attempt %d.", node,
       node.getReconnectCount());
 
@@ -1250,16 +2005,17 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
     node.setChannel(null);
 
-    long delay = (long) Math.min(maxDelay, Math.pow(2,
-        node.getReconnectCount()) * 1000);
-    long reconnectTime = System.currentTimeMillis() + delay;
-    while (reconnectQueue.containsKey(reconnectTime)) {
-      reconnectTime++;
+    loop.connecting.remove(node);
+    if (loop.reconnectQueue.schedule(node, System.nanoTime())) {
+      metrics.incrementCounter(RECON_QUEUE_METRIC);
+      if (metricType.equals(MetricType.DEBUG)) {
+        String name = RECON_DELAY_METRIC_PREFIX + node.getSocketAddress();
+        metrics.addCounter(name);
+        metrics.incrementCounter(name, (int) TimeUnit.NANOSECONDS.toMillis(
+          loop.reconnectQueue.getLastDelay(node)));
+      }
     }
 
-    reconnectQueue.put(reconnectTime, node);
-    metrics.incrementCounter(RECON_QUEUE_METRIC);
-
     node.setupResend();
     if (failureMode == FailureMode.Redistribute) {
       redistributeOperations(node.destroyInputQueue());
@@ -1361,20 +2117,18 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    *
    * Note that if a socket error arises during reconnect, the node is scheduled
    * for re-reconnect immediately.
+   *
+   * @param loop the loop whose reconnect queue should be processed.
    */
-  private void attemptReconnects() {
-    final long now = System.currentTimeMillis();
-    final Map<MemcachedNode, Boolean> seen =
-      new IdentityHashMap<MemcachedNode, Boolean>();
+  private void attemptReconnects(final IOLoop loop) {
+    final long now = System.nanoTime();
     final List<MemcachedNode> rereQueue = new ArrayList<MemcachedNode>();
-    SocketChannel ch = null;
-
 
-    Iterator<MemcachedNode> i = reconnectQueue.headMap(now).values().iterator();
-    while(i.hasNext()) {
-      final MemcachedNode node = i.next();
-      i.remove();
-      metrics.decrementCounter(RECON_QUEUE_METRIC);
+    MemcachedNode node;
+    while (!isReconnectLimitReached(loop)
+      && (node = loop.reconnectQueue.pollDue(now)) != null) {
+      reconnectAttempted(node, loop.reconnectQueue.getLastDelay(node));
+      SocketChannel ch = null;
 
       try {
         if (!belongsToCluster(node)) {
@@ -1383,38 +2137,36 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
           continue;
         }
 
-        if (!seen.containsKey(node)) {
-          seen.put(node, Boolean.TRUE);
-          getLogger().info("Reconnecting %s", node);
+        getLogger().info("Reconnecting %s", node);
 
-          ch = SocketChannel.open();
-          ch.configureBlocking(false);
+        ch = SocketChannel.open();
+        ch.configureBlocking(false);
 
-          Socket socket = ch.socket();
+        Socket socket = ch.socket();
 
-          socket.setTcpNoDelay(!connectionFactory.useNagleAlgorithm());
-          socket.setKeepAlive(connectionFactory.getKeepAlive());
+        socket.setTcpNoDelay(!connectionFactory.useNagleAlgorithm());
+        socket.setKeepAlive(connectionFactory.getKeepAlive());
 
-          int ops = 0;
-          SocketAddress sa;
-          if(node.getNodeEndPoint() != null){
-            sa = node.getNodeEndPoint().getInetSocketAddress(true);
-          }else{
-            sa = node.getSocketAddress();
-          }
-          if (ch.connect(sa)) {
-            connected(node);
-            addedQueue.offer(node);
-            getLogger().info("Immediately reconnected to %s", node);
-            assert ch.isConnected();
-          } else {
-            ops = SelectionKey.OP_CONNECT;
-          }
-          node.registerChannel(ch, ch.register(selector, ops, node));
-          assert node.getChannel() == ch : "Channel was lost.";
-        } else {
-          getLogger().debug("Skipping duplicate reconnect request for %s",
-            node);
+        int ops = 0;
+        SocketAddress sa;
+        if(node.getNodeEndPoint() != null){
+          sa = node.getNodeEndPoint().getInetSocketAddress(true);
+        }else{
+          sa = node.getSocketAddress();
+        }
+        boolean immediate = ch.connect(sa);
+        if (!immediate) {
+          ops = SelectionKey.OP_CONNECT;
+          loop.connecting.add(node);
+        }
+        node.registerChannel(ch, ch.register(loop.selector, ops, node));
+        assert node.getChannel() == ch : "Channel was lost.";
+        if (immediate) {
+          loop.connecting.add(node);
+          connected(node);
+          loop.addedQueue.offer(node);
+          getLogger().info("Immediately reconnected to %s", node);
+          assert ch.isConnected();
         }
       } catch (SocketException e) {
         getLogger().warn("Error on reconnect", e);
@@ -1431,6 +2183,63 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     }
   }
 
+  /**
+   * Remove the metrics kept per node address for addresses no longer in
+   * use, so the number of metrics stays bounded by the size of the cluster
+   * rather than growing with every node it ever had.
+   *
+   * @param addresses the addresses nodes have been moved off.
+   * @param nodes the nodes now in use.
+   */
+  private void removeNodeMetrics(final Set<SocketAddress> addresses,
+    final Collection<MemcachedNode> nodes) {
+    if (!metricType.equals(MetricType.DEBUG)) {
+      return;
+    }
+    for (MemcachedNode node : nodes) {
+      addresses.remove(node.getSocketAddress());
+    }
+    for (SocketAddress sa : addresses) {
+      metrics.removeCounter(RECON_DELAY_METRIC_PREFIX + sa);
+    }
+  }
+
+  /**
+   * Account for a reconnect attempt of the given node leaving the reconnect
+   * queue.
+   *
+   * @param node the node whose attempt left the queue.
+   * @param delay the delay the attempt was scheduled with, in nanoseconds.
+   */
+  private void reconnectAttempted(final MemcachedNode node, final long delay) {
+    metrics.decrementCounter(RECON_QUEUE_METRIC);
+    if (metricType.equals(MetricType.DEBUG)) {
+      metrics.decrementCounter(RECON_DELAY_METRIC_PREFIX
+        + node.getSocketAddress(), (int) TimeUnit.NANOSECONDS.toMillis(delay));
+    }
+  }
+
+  /**
+   * Check whether the given loop has as many reconnects in progress as it
+   * may have at the same time.
+   *
+   * @param loop the loop to check.
+   * @return true if no further reconnect may be started right now.
+   */
+  private boolean isReconnectLimitReached(final IOLoop loop) {
+    if (maxConcurrentReconnects < 0
+      || loop.connecting.size() < maxConcurrentReconnects) {
+      return false;
+    }
+    for (Iterator<MemcachedNode> i = loop.connecting.iterator(); i.hasNext();) {
+      SocketChannel ch = i.next().getChannel();
+      if (ch == null || !ch.isConnectionPending()) {
+        i.remove();
+      }
+    }
+    return loop.connecting.size() >= maxConcurrentReconnects;
+  }
+
   /**
    * Make sure channel connections are not leaked and properly close under
    * faulty reconnect cirumstances.
@@ -1484,8 +2293,13 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * operation will be cancelled without further retry.
    *
    * For any other {@link FailureMode} mechanisms (Redistribute), another
-   * possible node is used (only if its active as well). If no other active
+   * possible node is used (only if its active as well). A node with several
+   * connections counts as active as long as one of them is. If no other active
    * node could be identified, the original primary node is used and retried.
+   * With Redistribute, nodes which have been ejected as outliers are treated
+   * like inactive ones, and are probed back in gradually afterwards. Nodes
+   * ramping up after a reconnect take a growing share of the operations
+   * redistributed from other nodes.
    *
    * @param key the key the operation is operating upon.
    * @param o the operation to add.
@@ -1493,8 +2307,12 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   protected void addOperation(final String key, final Operation o) {
     MemcachedNode placeIn = null;
     MemcachedNode primary = locator.getPrimary(key);
+    boolean ramping = outlierEjectionFactor > 0 || slowStartTime > 0;
+    long now = ramping ? System.nanoTime() : 0;
 
-    if (primary.isActive() || failureMode == FailureMode.Retry) {
+    if ((isNodeActive(primary) && (outlierEjectionFactor <= 0
+      || primary.getHealth().admit(now)))
+      || failureMode == FailureMode.Retry) {
       placeIn = primary;
     } else if (failureMode == FailureMode.Cancel) {
       o.cancel();
@@ -1502,7 +2320,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       Iterator<MemcachedNode> i = locator.getSequence(key);
       while (placeIn == null && i.hasNext()) {
         MemcachedNode n = i.next();
-        if (n.isActive()) {
+        if (isNodeActive(n) && (!ramping || n.getHealth().admit(now))) {
           placeIn = n;
         }
       }
@@ -1558,36 +2376,199 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     o.setHandlingNode(node);
     o.initialize();
     node.insertOp(o);
-    addedQueue.offer(node);
+    IOLoop loop = loopFor(node);
+    loop.addedQueue.offer(node);
     metrics.markMeter(OVERALL_REQUEST_METRIC);
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    loop.wakeup();
     getLogger().debug("Added %s to %s", o, node);
   }
 
   /**
    * Enqueue an operation on the given node.
    *
-   * @param node the node where to enqueue the {@link Operation}.
+   * @param primary the node where to enqueue the {@link Operation}.
    * @param o the operation to add.
    */
-  protected void addOperation(final MemcachedNode node, final Operation o) {
+  protected void addOperation(final MemcachedNode primary,
+    final Operation o) {
+    final MemcachedNode node = selectConnection(primary);
     if (!node.isAuthenticated()) {
       retryOperation(o);
       return;
     }
     o.setHandlingNode(node);
     o.initialize();
-    node.addOp(o);
-    addedQueue.offer(node);
+    if (!queueOperation(node, o)) {
+      return;
+    }
+    IOLoop loop = loopFor(node);
+    scheduleExpiry(loop, o);
+    if (o.isNoReply() && noReplyBarrierInterval > 0
+      && node.getHealth().recordNoReply(noReplyBarrierInterval)) {
+      queueBarrier(loop, node);
+    }
+    loop.addedQueue.offer(node);
     metrics.markMeter(OVERALL_REQUEST_METRIC);
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    loop.wakeup();
     getLogger().debug("Added %s to %s", o, node);
   }
 
+  /**
+   * Queue a barrier behind the noreply operations on the given connection.
+   *
+   * The barrier is answered once the server processed everything before it.
+   * Noreply operations complete as soon as they are written, so without it
+   * a dead connection would go unnoticed as long as only they are sent. A
+   * barrier which times out reconnects the connection.
+   *
+   * @param loop the loop of the connection.
+   * @param node the connection to send the barrier on.
+   */
+  private void queueBarrier(final IOLoop loop, final MemcachedNode node) {
+    final Operation barrier = opFact.noop(new OperationCallback() {
+      public void receivedStatus(OperationStatus status) {
+        if (status instanceof TimedOutOperationStatus && isCurrentNode(node)
+          && node.isActive()) {
+          getLogger().warn("Noreply barrier on %s timed out, reconnecting",
+            node);
+          metrics.markMeter(BARRIER_MISSED_METRIC);
+          lostConnection(node);
+        }
+      }
+
+      public void complete() {
+        // Nothing to do once the barrier has been answered.
+      }
+    });
+    barrier.setHandlingNode(node);
+    barrier.initialize();
+    if (queueOperation(node, barrier)) {
+      scheduleExpiry(loop, barrier);
+      getLogger().debug("Added noreply barrier to %s", node);
+    }
+  }
+
+  /**
+   * Add the operation to the queue of the given node.
+   *
+   * <p>If the node has a high-water mark, this does not block. Operations
+   * arriving while the queue is over the mark are cancelled right away, so
+   * overload fails fast rather than holding up the calling thread. Operations
+   * arriving while the node authenticates are retried, like operations
+   * routed to a node which is not authenticated.</p>
+   *
+   * @param node the node to add the operation to.
+   * @param o the operation to add.
+   * @return false if the operation has not been added.
+   */
+  private boolean queueOperation(final MemcachedNode node,
+    final Operation o) {
+    if (node.getOpQueueHighWaterMark() < 0) {
+      node.addOp(o);
+      return true;
+    }
+    if (node.tryAddOp(o)) {
+      return true;
+    }
+    if (!node.isAuthenticated()) {
+      retryOperation(o);
+      return false;
+    }
+    metrics.markMeter(OVERALL_REJECTED_METRIC);
+    getLogger().debug("Rejected %s, queue of %s is over its high-water mark",
+      o, node);
+    o.cancel();
+    return false;
+  }
+
+  /**
+   * Schedule the given operation to be expired once the operation timeout
+   * elapsed, unless it already is.
+   *
+   * <p>Tap operations are long running streams and never expire.</p>
+   *
+   * @param loop the loop whose timer expires the operation.
+   * @param o the operation to expire.
+   */
+  private void scheduleExpiry(final IOLoop loop, final Operation o) {
+    if (operationTimeout <= 0 || o instanceof TapOperation) {
+      return;
+    }
+    HashedWheelTimer.Timeout current = o.getExpiry();
+    if (current != null && !current.isCancelled()) {
+      return;
+    }
+    o.setExpiry(loop.timer.newTimeout(new Runnable() {
+      public void run() {
+        expireOperation(o);
+      }
+    }, operationTimeout, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Schedule the given operation, which the given node built by folding
+   * queued operations together, to be expired once the operation timeout
+   * elapsed. The folded operations no longer expire on their own.
+   *
+   * @param node the node which is about to write the operation.
+   * @param o the operation to expire.
+   */
+  public void scheduleExpiry(final MemcachedNode node, final Operation o) {
+    if (o.getHandlingNode() == null) {
+      o.setHandlingNode(node);
+    }
+    scheduleExpiry(loopFor(node), o);
+  }
+
+  /**
+   * Cancel the expiry of the given operation, if one has been scheduled.
+   *
+   * @param o the operation which completed.
+   */
+  private static void cancelExpiry(final Operation o) {
+    HashedWheelTimer.Timeout expiry = o.getExpiry();
+    if (expiry != null) {
+      expiry.cancel();
+    }
+  }
+
+  /**
+   * Time out an operation which is still outstanding at its deadline.
+   *
+   * This completes its callback, so threads waiting on its future wake up
+   * right away. An operation which is still waiting to be written is dropped
+   * once its turn comes. One which has been written, even partly, stays in
+   * the read queue of its node so its response can still be read off the
+   * connection, but is no longer reported to its callback. Only the latter
+   * counts towards the continuous timeouts and the health of its node, the
+   * same way as a timeout observed by a waiting thread does.
+   *
+   * @param o the operation to expire.
+   */
+  private void expireOperation(final Operation o) {
+    synchronized (o) {
+      if (o.isCancelled() || o.isTimedOut()
+        || o.getState() == OperationState.COMPLETE) {
+        return;
+      }
+      getLogger().debug("Expiring %s", o);
+      if (o.getState() == OperationState.WRITE_QUEUED) {
+        o.timeOutUnsent();
+      } else {
+        MemcachedNode node = o.getHandlingNode();
+        if (outlierEjectionFactor > 0 && node != null) {
+          healthOf(node).recordFailure(
+            TimeUnit.MILLISECONDS.toNanos(operationTimeout));
+        }
+        opTimedOut(o);
+        o.timeOut();
+      }
+    }
+    metrics.markMeter(OVERALL_EXPIRED_METRIC);
+  }
+
   /**
    * Enqueue the given list of operations on each handling node.
    *
@@ -1623,14 +2604,19 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       getLogger().debug("broadcast Operation: node = " + node);
       Operation op = of.newOp(node, latch);
       op.initialize();
-      node.addOp(op);
+      if (!queueOperation(node, op)) {
+        continue;
+      }
       op.setHandlingNode(node);
-      addedQueue.offer(node);
+      IOLoop loop = loopFor(node);
+      scheduleExpiry(loop, op);
+      loop.addedQueue.offer(node);
       metrics.markMeter(OVERALL_REQUEST_METRIC);
     }
 
-    Selector s = selector.wakeup();
-    assert s == selector : "Wakeup returned the wrong selector.";
+    for (IOLoop loop : loops) {
+      loop.wakeup();
+    }
     return latch;
   }
 
@@ -1640,9 +2626,11 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
   public void shutdown() throws IOException {
     shutDown = true;
     try {
-      Selector s = selector.wakeup();
-      assert s == selector : "Wakeup returned the wrong selector.";
-      for (MemcachedNode node : locator.getAll()) {
+      for (IOLoop loop : loops) {
+        Selector s = loop.selector.wakeup();
+        assert s == loop.selector : "Wakeup returned the wrong selector.";
+      }
+      for (MemcachedNode node : getAllConnections()) {
         if (node.getChannel() != null) {
           node.getChannel().close();
           node.setSk(null);
@@ -1654,8 +2642,10 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         }
       }
 
-      selector.close();
-      getLogger().debug("Shut down selector %s", selector);
+      for (IOLoop loop : loops) {
+        loop.selector.close();
+        getLogger().debug("Shut down selector %s", loop.selector);
+      }
     } finally {
       running = false;
     }
@@ -1689,7 +2679,9 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         .append(", authed: ")
         .append(node.isAuthenticated())
         .append(MessageFormat.format(", last read: {0} ms ago",
-          node.lastReadDelta()));
+          node.lastReadDelta()))
+        .append(", health: ")
+        .append(node.getHealth());
     }
     connStatus.append(" }");
     return connStatus.toString();
@@ -1717,7 +2709,8 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * Set the continuous timeout on an operation.
    *
    * Ignore operations which have no handling nodes set yet (which may happen before nodes are properly
-   * authenticated).
+   * authenticated). Timeouts of operations which have not been written yet
+   * say nothing about the connection and are not counted either.
    *
    * @param op the operation to use.
    * @param isTimeout is timed out or not.
@@ -1726,13 +2719,18 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
     Logger logger = LoggerFactory.getLogger(MemcachedConnection.class);
 
     try {
-      if (op == null || op.isTimedOutUnsent()) {
+      if (op == null || op.isTimedOutUnsent() || (isTimeout
+        && op.getState() == OperationState.WRITE_QUEUED)) {
         return;
       }
 
       MemcachedNode node = op.getHandlingNode();
       if (node != null) {
         node.setContinuousTimeout(isTimeout);
+        MemcachedConnection conn = node.getConnection();
+        if (isTimeout && conn != null) {
+          conn.timeoutCounted(node);
+        }
       }
     } catch (Exception e) {
       logger.error(e.getMessage());
@@ -1771,9 +2769,225 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
         logRunException(e);
       }
     }
+    releaseBuffers(loops[0]);
     getLogger().info("Shut down memcached client");
   }
 
+  /**
+   * Return the buffers of all nodes driven by the given loop to the pool once
+   * the loop has stopped.
+   *
+   * @param loop the loop which has been shut down.
+   */
+  private void releaseBuffers(final IOLoop loop) {
+    for (MemcachedNode node : getAllConnections()) {
+      if (loopFor(node) == loop) {
+        node.releaseBuffers();
+      }
+    }
+  }
+
+  /**
+   * An I/O event loop.
+   *
+   * Every loop owns its own {@link Selector}, added queue and reconnect queue
+   * and drives a disjoint subset of the nodes. Work which touches the
+   * channel of a node is always performed by the loop owning that node, other
+   * threads hand it over through {@link #execute(Runnable)}.
+   */
+  private final class IOLoop {
+
+    /**
+     * The selector all channels of this loop are registered with.
+     */
+    private final Selector selector;
+
+    /**
+     * Tracks the nodes of this loop for which operations have recently been
+     * queued.
+     */
+    private final ConcurrentLinkedQueue<MemcachedNode> addedQueue;
+
+    /**
+     * Schedules the reconnects of the nodes of this loop.
+     */
+    private final ReconnectScheduler<MemcachedNode> reconnectQueue;
+
+    /**
+     * The nodes of this loop with a reconnect in progress, only touched by
+     * the loop thread.
+     */
+    private final Set<MemcachedNode> connecting = Collections.newSetFromMap(
+      new IdentityHashMap<MemcachedNode, Boolean>());
+
+    /**
+     * Nodes of this loop whose continuous timeout count exceeded the
+     * threshold since the last check.
+     */
+    private final ConcurrentLinkedQueue<MemcachedNode> timedOutNodes =
+      new ConcurrentLinkedQueue<MemcachedNode>();
+
+    /**
+     * Tasks handed over from other threads.
+     */
+    private final ConcurrentLinkedQueue<Runnable> tasks;
+
+    /**
+     * The index of this loop, the primary loop has the index 0.
+     */
+    private final int index;
+
+    /**
+     * Contains the current number of empty select() calls, which could
+     * indicate bugs.
+     */
+    private int emptySelects = 0;
+
+    /**
+     * The thread running this loop.
+     */
+    private volatile Thread thread;
+
+    /**
+     * Expires the operations queued on the nodes of this loop.
+     */
+    private final HashedWheelTimer timer;
+
+    /**
+     * False while the loop is (about to be) blocked in select and has not
+     * been woken up yet.
+     */
+    private final AtomicBoolean awake = new AtomicBoolean(true);
+
+    /**
+     * The nodes of this loop holding corked writes back, only touched by
+     * the loop thread.
+     */
+    private final Set<MemcachedNode> corked = new HashSet<MemcachedNode>();
+
+    /**
+     * The outstanding health check probes of the connections of this loop,
+     * only touched by the loop thread.
+     */
+    private final Map<MemcachedNode, HealthProbe> probes =
+      new IdentityHashMap<MemcachedNode, HealthProbe>();
+
+    /**
+     * The last time the connections of this loop were health checked.
+     */
+    private long lastHealthCheck = System.nanoTime();
+
+    IOLoop(final int index) throws IOException {
+      this.index = index;
+      selector = Selector.open();
+      addedQueue = new ConcurrentLinkedQueue<MemcachedNode>();
+      reconnectQueue = new ReconnectScheduler<MemcachedNode>(
+        MIN_RECONNECT_DELAY, maxDelay, TimeUnit.MILLISECONDS);
+      tasks = new ConcurrentLinkedQueue<Runnable>();
+      timer = new HashedWheelTimer(timeoutTick, TimeUnit.MILLISECONDS,
+        TIMEOUT_WHEEL_SIZE);
+      if (index == 0) {
+        thread = MemcachedConnection.this;
+      }
+    }
+
+    boolean isPrimary() {
+      return index == 0;
+    }
+
+    /**
+     * True if the current thread may touch the nodes of this loop directly,
+     * either because it is the loop thread or because the loop thread is
+     * not running (yet).
+     */
+    boolean inLoop() {
+      Thread t = thread;
+      return t == null || t == Thread.currentThread() || !t.isAlive();
+    }
+
+    /**
+     * Run the given task on this loop.
+     */
+    void execute(final Runnable task) {
+      if (inLoop()) {
+        task.run();
+      } else {
+        tasks.offer(task);
+        wakeup();
+      }
+    }
+
+    /**
+     * Wake the selector of this loop up, unless it has already been woken
+     * up since it last started selecting.
+     */
+    void wakeup() {
+      if (awake.compareAndSet(false, true)) {
+        Selector s = selector.wakeup();
+        assert s == selector : "Wakeup returned the wrong selector.";
+        metrics.markMeter(SELECTOR_WAKEUP_METRIC);
+      } else {
+        metrics.markMeter(SELECTOR_WAKEUP_SKIPPED_METRIC);
+      }
+    }
+
+    void runTasks() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+
+  /**
+   * A health check probe sent on an idle connection.
+   */
+  private static final class HealthProbe {
+
+    private final MemcachedNode node;
+    private final long sent;
+    private Operation op;
+    private volatile boolean answered = false;
+
+    HealthProbe(final MemcachedNode node, final long sent) {
+      this.node = node;
+      this.sent = sent;
+    }
+  }
+
+  /**
+   * Drives one of the secondary I/O loops.
+   */
+  private final class IOLoopThread extends SpyThread {
+
+    private final IOLoop loop;
+
+    IOLoopThread(final IOLoop loop) {
+      this.loop = loop;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          handleIO(loop);
+        } catch (IOException e) {
+          logRunException(e);
+        } catch (CancelledKeyException e) {
+          logRunException(e);
+        } catch (ClosedSelectorException e) {
+          logRunException(e);
+        } catch (IllegalStateException e) {
+          logRunException(e);
+        } catch (ConcurrentModificationException e) {
+          logRunException(e);
+        }
+      }
+      releaseBuffers(loop);
+      getLogger().info("Shut down memcached I/O loop %d", loop.index);
+    }
+  }
+
   /**
    * Log a exception to different levels depending on the state.
    *
@@ -1806,6 +3020,9 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
    * that boundary, the operation is cancelled rather than added to the
    * retry queue.
    *
+   * The retries are redistributed by the primary loop, which is woken up
+   * rather than left to find them on its next wakeup delay.
+   *
    * @param op the operation to retry.
    */
   public void retryOperation(Operation op) {
@@ -1815,6 +3032,7 @@ public class MemcachedConnection extends SpyThread implements ClusterConfigurati
       }
     }
     retryOps.add(op);
+    loops[0].wakeup();
   }
 
 }
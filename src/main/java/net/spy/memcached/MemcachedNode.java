@@ -114,6 +114,36 @@ public interface MemcachedNode {
    */
   void addOp(Operation op);
 
+  /**
+   * Add an operation to the queue unless the queue is over its high-water
+   * mark, without blocking.
+   *
+   * Operations are not added while the node is authenticating either. The
+   * operation is left untouched if it is not added, so the caller decides
+   * what happens to it.
+   *
+   * @param op the operation to add.
+   * @return false if the operation was not added.
+   */
+  boolean tryAddOp(Operation op);
+
+  /**
+   * Get the number of operations which may wait in the input queue before
+   * further operations are rejected by {@link #tryAddOp(Operation)}.
+   *
+   * @return the high-water mark, or -1 if operations are never rejected.
+   */
+  int getOpQueueHighWaterMark();
+
+  /**
+   * Set the number of operations which may wait in the input queue before
+   * further operations are rejected by {@link #tryAddOp(Operation)}.
+   *
+   * @param mark the high-water mark, which must be positive, or -1 to never
+   *          reject operations.
+   */
+  void setOpQueueHighWaterMark(int mark);
+
   /**
    * Insert an operation to the beginning of the queue.
    *
@@ -137,6 +167,36 @@ public interface MemcachedNode {
    */
   ByteBuffer getWbuf();
 
+  /**
+   * Get the current capacity of the read buffer.
+   */
+  int getRbufSize();
+
+  /**
+   * Get the current capacity of the write buffer.
+   */
+  int getWbufSize();
+
+  /**
+   * Let the node adapt its read buffer to the number of bytes the last read
+   * returned.
+   *
+   * This must only be called while the read buffer is empty. The buffer may
+   * be replaced, so it must be fetched again through {@link #getRbuf()}.
+   *
+   * @param bytesRead the number of bytes the last read returned.
+   */
+  void adaptRbuf(int bytesRead);
+
+  /**
+   * Return the buffers of this node to the pool they were leased from.
+   *
+   * This must only be called once the node has been shut down for good.
+   * Calling it again does nothing, and the node only sees empty buffers
+   * afterwards.
+   */
+  void releaseBuffers();
+
   /**
    * Do handshake for connecting to this node when TLS enabled.
    * 
@@ -236,6 +296,12 @@ public interface MemcachedNode {
    */
   int getBytesRemainingToWrite();
 
+  /**
+   * Get the number of operations queued on this node which have not been
+   * answered yet.
+   */
+  int getOutstandingOpCount();
+
   /**
    * Write some bytes and return the number of bytes written.
    *
@@ -244,6 +310,21 @@ public interface MemcachedNode {
    */
   int writeSome() throws IOException;
 
+  /**
+   * Get the time this node wants to hold back writing its write buffer, so
+   * more operations can be packed into it.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the remaining nanoseconds to hold back, 0 to write right away.
+   */
+  long getCorkDelay(long now);
+
+  /**
+   * Get the number of operations put into the write buffer since the last
+   * call and reset the count.
+   */
+  int takeFilledOpCount();
+
   /**
    * Fix up the selection ops on the selection key.
    */
@@ -271,6 +352,22 @@ public interface MemcachedNode {
 
   int getContinuousTimeout();
 
+  /**
+   * Get the response statistics and the routing weight of this node.
+   */
+  NodeHealth getHealth();
+
+  /**
+   * Get the number of operations this node may currently have written ahead
+   * of their responses.
+   *
+   * This is limited while the node ramps up after a reconnect, or after it
+   * was ejected as an outlier.
+   *
+   * @return the limit, or {@link Integer#MAX_VALUE} if there is none.
+   */
+  int getInFlightLimit();
+
   MemcachedConnection getConnection();
 
   void setConnection(MemcachedConnection connection);
@@ -56,6 +56,18 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public boolean tryAddOp(Operation op) {
+    throw new UnsupportedOperationException();
+  }
+
+  public int getOpQueueHighWaterMark() {
+    return root.getOpQueueHighWaterMark();
+  }
+
+  public void setOpQueueHighWaterMark(int mark) {
+    throw new UnsupportedOperationException();
+  }
+
   public void insertOp(Operation op) {
     throw new UnsupportedOperationException();
   }
@@ -80,6 +92,10 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     return root.getBytesRemainingToWrite();
   }
 
+  public int getOutstandingOpCount() {
+    return root.getOutstandingOpCount();
+  }
+
   public SocketChannel getChannel() {
     throw new UnsupportedOperationException();
   }
@@ -132,6 +148,22 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public int getRbufSize() {
+    return root.getRbufSize();
+  }
+
+  public int getWbufSize() {
+    return root.getWbufSize();
+  }
+
+  public void adaptRbuf(int bytesRead) {
+    throw new UnsupportedOperationException();
+  }
+
+  public void releaseBuffers() {
+    throw new UnsupportedOperationException();
+  }
+
   public boolean hasReadOp() {
     return root.hasReadOp();
   }
@@ -180,6 +212,14 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public long getCorkDelay(long now) {
+    return root.getCorkDelay(now);
+  }
+
+  public int takeFilledOpCount() {
+    throw new UnsupportedOperationException();
+  }
+
   public Collection<Operation> destroyInputQueue() {
     throw new UnsupportedOperationException();
   }
@@ -196,6 +236,14 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
+  public NodeHealth getHealth() {
+    return root.getHealth();
+  }
+
+  public int getInFlightLimit() {
+    return root.getInFlightLimit();
+  }
+
   public void setContinuousTimeout(boolean isIncrease) {
     throw new UnsupportedOperationException();
   }
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how well a {@link MemcachedNode} responds, and whether it currently
+ * takes its full share of new operations.
+ *
+ * <p>
+ * Response latencies and errors are tracked as exponentially weighted moving
+ * averages, so recent responses count more than old ones. They are recorded
+ * by the I/O thread of the node; concurrent updates from other threads may
+ * occasionally lose a sample, which is fine for a moving average.
+ * </p>
+ *
+ * <p>
+ * A node which responds much slower than its peers can be ejected for a
+ * cool-off window, during which it gets no new operations routed to it.
+ * After the window its share of new operations ramps up linearly, so it is
+ * probed back in gradually instead of getting all of its keys at once.
+ * </p>
+ */
+public class NodeHealth {
+
+  /**
+   * The weight of a new sample in the moving averages.
+   */
+  private static final double ALPHA = 0.1;
+
+  private static final Random RANDOM = new Random();
+
+  private volatile double latency = 0;
+  private volatile double errorRate = 0;
+  private volatile long samples = 0;
+  private volatile long probeLatency = -1;
+  private final AtomicInteger noReplyCount = new AtomicInteger();
+
+  // Set once the node has been ejected or ramped up, as nanoTime values
+  // can be negative and need a starting point.
+  private volatile boolean ramping = false;
+  private volatile long rampStart = 0;
+  private volatile long rampNanos = 0;
+
+  /**
+   * Record a successful response.
+   *
+   * @param latencyNanos the time the response took, in nanoseconds.
+   */
+  public void recordSuccess(long latencyNanos) {
+    record(latencyNanos, 0);
+  }
+
+  /**
+   * Record a failed or timed out operation.
+   *
+   * @param latencyNanos the time until the failure, in nanoseconds.
+   */
+  public void recordFailure(long latencyNanos) {
+    record(latencyNanos, 1);
+  }
+
+  private void record(long latencyNanos, double error) {
+    if (samples == 0) {
+      latency = latencyNanos;
+      errorRate = error;
+    } else {
+      latency += ALPHA * (latencyNanos - latency);
+      errorRate += ALPHA * (error - errorRate);
+    }
+    samples++;
+  }
+
+  /**
+   * Record the round trip time of a health check probe.
+   *
+   * @param rttNanos the round trip time, in nanoseconds.
+   */
+  public void recordProbe(long rttNanos) {
+    probeLatency = rttNanos;
+  }
+
+  /**
+   * Record an operation written without expecting a response.
+   *
+   * @param barrierInterval the number of such operations after which the
+   *          node should be asked for a response.
+   * @return true if a barrier is due.
+   */
+  public boolean recordNoReply(int barrierInterval) {
+    return noReplyCount.incrementAndGet() % barrierInterval == 0;
+  }
+
+  /**
+   * Get the round trip time of the latest answered health check probe.
+   *
+   * @return the round trip time in nanoseconds, or -1 if no probe has been
+   *         answered yet.
+   */
+  public long getProbeLatency() {
+    return probeLatency;
+  }
+
+  /**
+   * Get the moving average of the response latency.
+   *
+   * @return the latency in nanoseconds.
+   */
+  public long getLatency() {
+    return (long) latency;
+  }
+
+  /**
+   * Get the moving average of the share of failed operations.
+   *
+   * @return the error rate between 0 and 1.
+   */
+  public double getErrorRate() {
+    return errorRate;
+  }
+
+  /**
+   * Get the number of responses recorded since the node was last ejected.
+   */
+  public long getSamples() {
+    return samples;
+  }
+
+  /**
+   * Eject the node for the given cool-off window, followed by a ramp up
+   * window. The moving averages start over, so the node is judged on the
+   * responses it gives after it is back.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @param coolOff the time the node gets no new operations.
+   * @param ramp the time over which the node gets back to its full share.
+   * @param unit the unit of the windows.
+   */
+  public void eject(long now, long coolOff, long ramp, TimeUnit unit) {
+    samples = 0;
+    startRamp(now + unit.toNanos(coolOff), ramp, unit);
+  }
+
+  /**
+   * Ramp the share of new operations of the node up from nothing, starting
+   * at the given point in time. Until then the node gets no new operations.
+   *
+   * @param start the {@link System#nanoTime()} to start ramping up at.
+   * @param ramp the time over which the node gets back to its full share.
+   * @param unit the unit of the ramp time.
+   */
+  public void startRamp(long start, long ramp, TimeUnit unit) {
+    rampStart = start;
+    rampNanos = unit.toNanos(ramp);
+    ramping = true;
+  }
+
+  /**
+   * True if the node is within its cool-off window.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   */
+  public boolean isEjected(long now) {
+    return ramping && rampStart - now > 0;
+  }
+
+  /**
+   * Get the share of new operations the node currently takes.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the share between 0 and 1.
+   */
+  public double getWeight(long now) {
+    if (!ramping) {
+      return 1;
+    }
+    long elapsed = now - rampStart;
+    if (elapsed < 0) {
+      return 0;
+    }
+    return elapsed >= rampNanos ? 1 : (double) elapsed / rampNanos;
+  }
+
+  /**
+   * Decide whether a new operation may be routed to the node, which is
+   * the case with a probability of its current weight.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return true if the operation may be routed to the node.
+   */
+  public boolean admit(long now) {
+    if (!ramping) {
+      return true;
+    }
+    double weight = getWeight(now);
+    return weight >= 1 || (weight > 0 && RANDOM.nextDouble() < weight);
+  }
+
+  @Override
+  public String toString() {
+    long now = System.nanoTime();
+    return "{NodeHealth latency="
+      + TimeUnit.NANOSECONDS.toMicros(getLatency()) + "us, errors="
+      + String.format("%.3f", errorRate) + ", weight="
+      + String.format("%.2f", getWeight(now))
+      + (probeLatency < 0 ? "" : ", probe="
+        + TimeUnit.NANOSECONDS.toMicros(probeLatency) + "us")
+      + (isEjected(now) ? ", ejected" : "") + "}";
+  }
+}
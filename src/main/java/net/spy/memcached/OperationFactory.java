@@ -28,6 +28,10 @@
 
 package net.spy.memcached;
 
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.BulkTouchOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
 import net.spy.memcached.ops.ConcatenationType;
@@ -47,6 +51,7 @@ import net.spy.memcached.ops.NoopOperation;
 import net.spy.memcached.ops.ObserveOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.RecacheGetOperation;
 import net.spy.memcached.ops.ReplicaGetOperation;
 import net.spy.memcached.ops.ReplicaGetsOperation;
 import net.spy.memcached.ops.SASLAuthOperation;
@@ -100,6 +105,36 @@ public interface OperationFactory {
   DeleteOperation delete(String key, long cas,
     DeleteOperation.Callback callback);
 
+  /**
+   * Create a deletion operation the server does not answer.
+   *
+   * @param key the key to delete
+   * @param cb the callback, told once the operation has been written
+   * @return the new DeleteOperation
+   */
+  DeleteOperation deleteNoReply(String key, OperationCallback cb);
+
+  /**
+   * Create an operation marking a value as stale instead of deleting it.
+   *
+   * @param key the key to invalidate
+   * @param exp the expiration of the stale value
+   * @param callback the status callback
+   * @return the new DeleteOperation
+   */
+  DeleteOperation invalidate(String key, int exp,
+      DeleteOperation.Callback callback);
+
+  /**
+   * Create a deletion operation for many keys.
+   *
+   * @param keys the keys to delete
+   * @param cb the callback, told about the keys which could not be deleted
+   * @return the new bulk delete operation
+   */
+  BulkDeleteOperation bulkDelete(Collection<String> keys,
+      BulkOperationCallback cb);
+
   /**
    * Create a Unlock operation.
    *
@@ -143,6 +178,20 @@ public interface OperationFactory {
   GetAndTouchOperation getAndTouch(String key, int expiration,
       GetAndTouchOperation.Callback cb);
 
+  /**
+   * Create a get operation handing out the right to recompute the value.
+   *
+   * @param key the key to get
+   * @param tokenExp the expiration of the placeholder created for a missing
+   *          key
+   * @param recacheThreshold the remaining time to live under which the value
+   *          gets recomputed, 0 to only recompute missing or stale values
+   * @param cb the callback that will contain the result
+   * @return a new RecacheGetOperation
+   */
+  RecacheGetOperation recacheGet(String key, int tokenExp,
+      int recacheThreshold, RecacheGetOperation.Callback cb);
+
   /**
    * Create a get operation.
    *
@@ -254,6 +303,19 @@ public interface OperationFactory {
   MutatorOperation mutate(Mutator m, String key, long by, long def, int exp,
       OperationCallback cb);
 
+  /**
+   * Create a mutator operation the server does not answer. It has no
+   * default, a missing key stays missing.
+   *
+   * @param m the mutator type
+   * @param key the mutatee key
+   * @param by the amount to increment or decrement
+   * @param cb the callback, told once the operation has been written
+   * @return the new mutator operation
+   */
+  MutatorOperation mutateNoReply(Mutator m, String key, long by,
+      OperationCallback cb);
+
   /**
    * Get a new StatsOperation.
    *
@@ -277,6 +339,32 @@ public interface OperationFactory {
   StoreOperation store(StoreType storeType, String key, int flags, int exp,
       byte[] data, StoreOperation.Callback cb);
 
+  /**
+   * Create a store operation the server does not answer.
+   *
+   * @param storeType the type of store operation
+   * @param key the key to store
+   * @param flags the storage flags
+   * @param exp the expiration time
+   * @param data the data
+   * @param cb the callback, told once the operation has been written
+   * @return the new store operation
+   */
+  StoreOperation storeNoReply(StoreType storeType, String key, int flags,
+      int exp, byte[] data, OperationCallback cb);
+
+  /**
+   * Create a store operation for many values.
+   *
+   * @param storeType the type of store operation
+   * @param values the values to store by key
+   * @param exp the expiration time
+   * @param cb the callback, told about the keys which could not be stored
+   * @return the new bulk store operation
+   */
+  BulkStoreOperation bulkStore(StoreType storeType,
+      Map<String, CachedData> values, int exp, BulkOperationCallback cb);
+
   /**
    * Resets a keys expiration time.
    *
@@ -287,6 +375,17 @@ public interface OperationFactory {
    */
   TouchOperation touch(String key, int expiration, OperationCallback cb);
 
+  /**
+   * Resets the expiration time of many keys.
+   *
+   * @param keys the keys whose expiration time is to be reset
+   * @param expiration the new expiration time for the keys
+   * @param cb the callback, told about the keys which could not be touched
+   * @return the new bulk touch operation
+   */
+  BulkTouchOperation bulkTouch(Collection<String> keys, int expiration,
+      BulkOperationCallback cb);
+
   /**
    * Refresh the TLS certificate
    * @param cb The status callback
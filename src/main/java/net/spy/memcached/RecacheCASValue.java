@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+/**
+ * A CASValue telling whether this client has to recompute the value.
+ *
+ * <p>
+ * The value is null for the placeholder created for a missing key, until
+ * the client that won the right to recompute it stores the new value.
+ * </p>
+ */
+public class RecacheCASValue<T> extends CASValue<T> {
+  private final boolean won;
+  private final boolean stale;
+  private final boolean pending;
+
+  /**
+   * Construct a new RecacheCASValue.
+   *
+   * @param c the CAS identifier
+   * @param v the value, or null for a placeholder
+   * @param w true if this client has to recompute the value
+   * @param s true if the value was invalidated
+   * @param p true if another client is recomputing the value
+   */
+  public RecacheCASValue(long c, T v, boolean w, boolean s, boolean p) {
+    super(c, v);
+    won = w;
+    stale = s;
+    pending = p;
+  }
+
+  /**
+   * True if this client got the right to recompute the value, and is
+   * expected to store the new one with a CAS.
+   */
+  public boolean isWon() {
+    return won;
+  }
+
+  /**
+   * True if the value was invalidated and is being recomputed.
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * True if another client got the right to recompute the value.
+   */
+  public boolean isPending() {
+    return pending;
+  }
+
+  @Override
+  public String toString() {
+    return "{RecacheCasValue " + getCas() + "/" + getValue()
+      + (won ? " won" : "") + (stale ? " stale" : "")
+      + (pending ? " pending" : "") + "}";
+  }
+}
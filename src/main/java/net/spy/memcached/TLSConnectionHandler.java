@@ -7,6 +7,7 @@ package net.spy.memcached;
 
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.util.ByteBufferPool;
 
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
@@ -55,14 +56,23 @@ public class TLSConnectionHandler {
   */
   private SSLEngineResult.HandshakeStatus handshakeStatus;
 
+  /**
+  * The pool the buffers are leased from, null if they are allocated on demand.
+  */
+  private final ByteBufferPool bufferPool;
+
   private Logger log;
     
   public TLSConnectionHandler(SocketChannel socketChannel, SSLEngine sslEngine){
+    this(socketChannel, sslEngine, null);
+  }
+
+  public TLSConnectionHandler(SocketChannel socketChannel, SSLEngine sslEngine, ByteBufferPool bufferPool){
     log = LoggerFactory.getLogger(TLSConnectionHandler.class);
 
     this.socketChannel = socketChannel;
     this.sslEngine = sslEngine;
-
+    this.bufferPool = bufferPool;
   }
 
   /** 
@@ -83,13 +93,14 @@ public class TLSConnectionHandler {
       
     // Get the current size of largest SSL/TLS packet that is expected when using this session.
     int packetBufferSize = session.getPacketBufferSize();
-    myNetData = ByteBuffer.allocate(packetBufferSize);
-    peerNetData = ByteBuffer.allocate(packetBufferSize);
+    releaseBuffers();
+    myNetData = allocateBuffer(packetBufferSize);
+    peerNetData = allocateBuffer(packetBufferSize);
     
     // Get the current size of largest SSL/TLS application that is expected when using this session.
     int appBufferSize = session.getApplicationBufferSize();
-    myAppData = ByteBuffer.allocate(appBufferSize);
-    peerAppData = ByteBuffer.allocate(appBufferSize);
+    myAppData = allocateBuffer(appBufferSize);
+    peerAppData = allocateBuffer(appBufferSize);
 
     // Prepare buffer for use
     myNetData.clear();
@@ -243,14 +254,40 @@ public class TLSConnectionHandler {
   */ 
   private ByteBuffer enlargeBuffer(ByteBuffer buffer, int requiredBufferSize) {
     if (requiredBufferSize > buffer.capacity()) {
-      ByteBuffer newBuffer = ByteBuffer.allocate(requiredBufferSize);
+      ByteBuffer newBuffer = allocateBuffer(requiredBufferSize);
       buffer.flip();
       newBuffer.put(buffer);
+      freeBuffer(buffer);
       return newBuffer;
     }
     return buffer;
   }
 
+  /** 
+  * Return the buffers of this handler to the pool they were leased from.
+  */ 
+  public void releaseBuffers() {
+    freeBuffer(myNetData);
+    freeBuffer(peerNetData);
+    freeBuffer(myAppData);
+    freeBuffer(peerAppData);
+    myNetData = null;
+    peerNetData = null;
+    myAppData = null;
+    peerAppData = null;
+  }
+
+  private ByteBuffer allocateBuffer(int size) {
+    return bufferPool == null ? ByteBuffer.allocate(size)
+      : bufferPool.acquire(size);
+  }
+
+  private void freeBuffer(ByteBuffer buf) {
+    if (bufferPool != null) {
+      bufferPool.release(buf);
+    }
+  }
+
   /** 
   * Handle end-of-stream.
   */ 
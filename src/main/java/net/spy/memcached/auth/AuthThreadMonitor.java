@@ -23,6 +23,7 @@
 
 package net.spy.memcached.auth;
 
+import java.nio.channels.SocketChannel;
 import java.util.HashMap;
 import java.util.Map;
 import net.spy.memcached.MemcachedConnection;
@@ -38,8 +39,14 @@ public class AuthThreadMonitor extends SpyObject {
 
   private final Map<Object, AuthThread> nodeMap;
 
+  /**
+   * The channel each node's last authentication was started on.
+   */
+  private final Map<Object, SocketChannel> channelMap;
+
   public AuthThreadMonitor() {
     nodeMap = new HashMap<Object, AuthThread>();
+    channelMap = new HashMap<Object, SocketChannel>();
   }
 
   /**
@@ -61,6 +68,19 @@ public class AuthThreadMonitor extends SpyObject {
     AuthThread newSASLAuthenticator =
         new AuthThread(conn, opFact, authDescriptor, node);
     nodeMap.put(node, newSASLAuthenticator);
+    channelMap.put(node, node.getChannel());
+  }
+
+  /**
+   * Check whether an authentication has already been started on the current
+   * channel of the given node.
+   *
+   * @param node the node to check.
+   * @return true if the current channel of the node is (being) authenticated.
+   */
+  public synchronized boolean isAuthStarted(MemcachedNode node) {
+    SocketChannel ch = node.getChannel();
+    return ch != null && channelMap.get(node) == ch;
   }
 
   /**
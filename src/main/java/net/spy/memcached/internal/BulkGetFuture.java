@@ -153,6 +153,15 @@ public class BulkGetFuture<T>
           MemcachedConnection.opSucceeded(op);
         }
       }
+    } else {
+      for (Operation op : ops) {
+        // expired by the connection at its deadline, which already counted
+        // the timeout.
+        if (op.isTimedOut() && !op.isTimedOutUnsent()
+            && op.getState() != OperationState.COMPLETE) {
+          timedoutOps.add(op);
+        }
+      }
     }
     for (Operation op : ops) {
       if (op.isCancelled()) {
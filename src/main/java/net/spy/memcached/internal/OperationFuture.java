@@ -107,10 +107,7 @@ public class OperationFuture<T>
    * @return true if the operation has not yet been written to the network
    */
   public boolean cancel(boolean ign) {
-    assert op != null : "No operation";
-    op.cancel();
-    notifyListeners();
-    return op.getState() == OperationState.WRITE_QUEUED;
+    return cancel();
   }
 
   /**
@@ -119,7 +116,9 @@ public class OperationFuture<T>
    * @return true if the operation has not yet been written to the network
    */
   public boolean cancel() {
-    assert op != null : "No operation";
+    if (op == null) { // completed without an operation, nothing to cancel
+      return false;
+    }
     op.cancel();
     notifyListeners();
     return op.getState() == OperationState.WRITE_QUEUED;
@@ -166,6 +165,11 @@ public class OperationFuture<T>
       }
       throw new CheckedOperationTimeoutException(
           "Timed out waiting for operation", op);
+    } else if (op != null && op.isTimedOut() && !op.isTimedOutUnsent()) {
+      // expired by the connection at its deadline, which already counted the
+      // timeout.
+      throw new CheckedOperationTimeoutException(
+          "Timed out waiting for operation", op);
     } else {
       // continuous timeout counter will be reset
       MemcachedConnection.opSucceeded(op);
@@ -290,8 +294,7 @@ public class OperationFuture<T>
    * @return true if the Operation has been canceled
    */
   public boolean isCancelled() {
-    assert op != null : "No operation";
-    return op.isCancelled();
+    return op != null && op.isCancelled();
   }
 
   /**
@@ -305,9 +308,8 @@ public class OperationFuture<T>
    * @return true if the Operation is done
    */
   public boolean isDone() {
-    assert op != null : "No operation";
-    return latch.getCount() == 0 || op.isCancelled()
-        || op.getState() == OperationState.COMPLETE;
+    return latch.getCount() == 0 || op != null && (op.isCancelled()
+        || op.getState() == OperationState.COMPLETE);
   }
 
   @Override
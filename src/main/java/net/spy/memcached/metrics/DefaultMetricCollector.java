@@ -142,9 +142,8 @@ public final class DefaultMetricCollector extends AbstractMetricCollector {
 
   @Override
   public void removeCounter(String name) {
-    if (!counters.containsKey(name)) {
+    if (counters.remove(name) != null) {
       registry.remove(name);
-      counters.remove(name);
     }
   }
 
@@ -171,8 +170,8 @@ public final class DefaultMetricCollector extends AbstractMetricCollector {
 
   @Override
   public void removeMeter(String name) {
-    if (meters.containsKey(name)) {
-      meters.remove(name);
+    if (meters.remove(name) != null) {
+      registry.remove(name);
     }
   }
 
@@ -192,8 +191,8 @@ public final class DefaultMetricCollector extends AbstractMetricCollector {
 
   @Override
   public void removeHistogram(String name) {
-    if (histograms.containsKey(name)) {
-      histograms.remove(name);
+    if (histograms.remove(name) != null) {
+      registry.remove(name);
     }
   }
 
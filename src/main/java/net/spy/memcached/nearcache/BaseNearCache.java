@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.nearcache;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.metrics.MetricCollector;
+
+/**
+ * Common base of the {@link NearCache} implementations, which takes care of
+ * the time to live of entries and of reporting metrics.
+ */
+public abstract class BaseNearCache implements NearCache {
+
+  /**
+   * Expirations up to 30 days are relative to now, larger ones are absolute
+   * unix times, just like in memcached.
+   */
+  private static final int MAX_RELATIVE_EXP = 60 * 60 * 24 * 30;
+
+  private final long ttlNanos;
+  private final MetricCollector metrics;
+
+  /**
+   * Create a new near cache.
+   *
+   * @param ttl the time to live of the entries.
+   * @param unit the unit of the time to live.
+   * @param metrics the collector to report hits, misses and evictions to, may
+   *          be null.
+   */
+  protected BaseNearCache(long ttl, TimeUnit unit, MetricCollector metrics) {
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("Invalid time to live: " + ttl);
+    }
+    ttlNanos = unit.toNanos(ttl);
+    this.metrics = metrics;
+    if (metrics != null) {
+      metrics.addMeter(HIT_METRIC);
+      metrics.addMeter(MISS_METRIC);
+      metrics.addMeter(EVICTION_METRIC);
+    }
+  }
+
+  /**
+   * Get the {@link System#nanoTime()} a new entry expires at.
+   *
+   * @param exp the memcached expiration of the value, 0 if unknown.
+   * @param now the current {@link System#nanoTime()}.
+   * @return the expiry, or now if the value already expired.
+   */
+  protected long expiresAt(int exp, long now) {
+    long ttl = ttlNanos;
+    if (exp < 0) {
+      ttl = 0;
+    } else if (exp > 0 && exp <= MAX_RELATIVE_EXP) {
+      ttl = Math.min(ttl, TimeUnit.SECONDS.toNanos(exp));
+    } else if (exp > MAX_RELATIVE_EXP) {
+      long remaining = TimeUnit.SECONDS.toMillis(exp)
+        - System.currentTimeMillis();
+      ttl = Math.min(ttl, TimeUnit.MILLISECONDS.toNanos(Math.max(0,
+        remaining)));
+    }
+    return now + ttl;
+  }
+
+  /**
+   * Get the time to live of the entries, in nanoseconds.
+   */
+  protected long getTtlNanos() {
+    return ttlNanos;
+  }
+
+  protected void recordHit() {
+    if (metrics != null) {
+      metrics.markMeter(HIT_METRIC);
+    }
+  }
+
+  protected void recordMiss() {
+    if (metrics != null) {
+      metrics.markMeter(MISS_METRIC);
+    }
+  }
+
+  protected void recordEviction() {
+    if (metrics != null) {
+      metrics.markMeter(EVICTION_METRIC);
+    }
+  }
+
+  /**
+   * Spread the hash code of a key, so keys differing in their high bits
+   * still end up in different segments and stripes.
+   */
+  protected static int hash(String key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    return h;
+  }
+}
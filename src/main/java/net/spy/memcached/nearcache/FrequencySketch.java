@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.nearcache;
+
+/**
+ * A count-min sketch estimating how often keys have been accessed recently,
+ * as used by the TinyLFU admission policy.
+ *
+ * <p>
+ * Every key is counted in four 4-bit counters, picked by different hashes of
+ * the key, and its frequency is the minimum of them. Once the number of
+ * increments reaches ten times the number of counted keys, all counters are
+ * halved, so the sketch forgets about keys which were popular a while ago.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+    0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_FREQUENCY = 15;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  /**
+   * Create a sketch for about the given number of keys.
+   *
+   * @param expectedKeys the number of keys to count.
+   */
+  FrequencySketch(int expectedKeys) {
+    ensureCapacity(expectedKeys);
+  }
+
+  /**
+   * Grow the sketch if it was created for fewer keys. Growing forgets all
+   * frequencies counted so far.
+   *
+   * @param expectedKeys the number of keys to count.
+   */
+  void ensureCapacity(int expectedKeys) {
+    int keys = Math.max(16, Math.min(expectedKeys, 1 << 26));
+    int length = Integer.highestOneBit(keys - 1) << 1;
+    if (table != null && table.length >= length) {
+      return;
+    }
+    table = new long[length];
+    tableMask = length - 1;
+    sampleSize = 10 * keys;
+    size = 0;
+  }
+
+  /**
+   * Get the estimated number of recent accesses of a key.
+   *
+   * @param hash the hash of the key.
+   * @return the frequency, between 0 and 15.
+   */
+  int frequency(int hash) {
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long h = indexHash(hash, i);
+      int offset = counterOffset(h);
+      int count = (int) ((table[(int) h & tableMask] >>> offset) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Count an access of a key.
+   *
+   * @param hash the hash of the key.
+   */
+  void increment(int hash) {
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      long h = indexHash(hash, i);
+      int index = (int) h & tableMask;
+      int offset = counterOffset(h);
+      if (((table[index] >>> offset) & 0xfL) < MAX_FREQUENCY) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size /= 2;
+  }
+
+  private static long indexHash(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    return h + (h >>> 32);
+  }
+
+  private static int counterOffset(long h) {
+    return (int) ((h >>> 40) & 15) << 2;
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.nearcache;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * A bounded in-process cache in front of memcached.
+ *
+ * <p>
+ * The client serves gets of keys found in the near cache without a round
+ * trip, and fills it with the values it fetched from memcached. Writes by the
+ * same client invalidate the affected keys, writes by other clients are only
+ * picked up once the cached entry expired, so the time to live bounds how
+ * stale a value may get.
+ * </p>
+ *
+ * <p>
+ * Values are kept in their encoded form, so every hit is decoded on its own
+ * and callers never share a value object.
+ * </p>
+ *
+ * <p>
+ * A fill may race with a write of the same key: the value fetched by a get
+ * sent before a write completed may already be outdated. To avoid caching
+ * it, a load takes a stamp with {@link #beginLoad(String)} before the get is
+ * sent and hands it back to {@link #put(String, CachedData, int, long)},
+ * which drops the value if the key has been invalidated in between.
+ * </p>
+ *
+ * <p>
+ * Implementations have to be thread-safe.
+ * </p>
+ */
+public interface NearCache {
+
+  /**
+   * Meter for the gets served from the near cache.
+   */
+  String HIT_METRIC = "[MEM] Near Cache: Hits";
+
+  /**
+   * Meter for the gets not found in the near cache.
+   */
+  String MISS_METRIC = "[MEM] Near Cache: Misses";
+
+  /**
+   * Meter for the entries evicted to make room for others.
+   */
+  String EVICTION_METRIC = "[MEM] Near Cache: Evictions";
+
+  /**
+   * Get the cached value of the given key.
+   *
+   * @param key the key to look up.
+   * @return the value, or null if the key is not cached or expired.
+   */
+  CachedData get(String key);
+
+  /**
+   * Take a stamp before loading the given key from memcached.
+   *
+   * @param key the key about to be loaded.
+   * @return the stamp to pass to {@link #put(String, CachedData, int, long)}.
+   */
+  long beginLoad(String key);
+
+  /**
+   * Cache a value loaded from memcached, unless the key has been invalidated
+   * since the load began.
+   *
+   * @param key the key of the value.
+   * @param value the encoded value.
+   * @param exp the memcached expiration of the value if known, 0 otherwise.
+   *          The entry expires at the expiration at the latest.
+   * @param stamp the stamp taken by {@link #beginLoad(String)}.
+   * @return true if the value has been cached.
+   */
+  boolean put(String key, CachedData value, int exp, long stamp);
+
+  /**
+   * Drop the given key, and any value of it still being loaded.
+   *
+   * @param key the key to drop.
+   */
+  void invalidate(String key);
+
+  /**
+   * Drop all keys, and any values still being loaded.
+   */
+  void invalidateAll();
+
+  /**
+   * Get the number of cached entries, including expired ones not yet
+   * removed.
+   */
+  long size();
+
+  /**
+   * Get the approximate number of bytes taken by the cached entries.
+   */
+  long weightedSize();
+}
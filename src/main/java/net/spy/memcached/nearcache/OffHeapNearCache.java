@@ -0,0 +1,492 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.nearcache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.metrics.MetricCollector;
+
+/**
+ * A {@link NearCache} keeping the values in direct memory, for values too
+ * large to be cached on the heap without hurting garbage collection.
+ *
+ * <p>
+ * Only the keys and a fixed size index entry per key live on the heap. The
+ * value bytes are stored in direct pages managed like the memcached slab
+ * allocator: every page is assigned to a slab class and cut into chunks of
+ * the size of that class, and a value is stored in the smallest chunk it fits
+ * into. Values larger than a page are not cached.
+ * </p>
+ *
+ * <p>
+ * Once all pages are in use, a slab class makes room by evicting one of its
+ * own entries, picked by the clock algorithm: entries read since the hand
+ * last passed them get a second chance. A class holding less than half the
+ * pages of the largest class takes a page over from that one instead, so
+ * the pages follow changes in the sizes of the values.
+ * </p>
+ *
+ * <p>
+ * Hits copy the value back to the heap to be decoded.
+ * </p>
+ */
+public class OffHeapNearCache extends BaseNearCache {
+
+  /**
+   * The default size of the direct pages, which is also the largest value
+   * which can be cached.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
+
+  private static final int MIN_CHUNK_SIZE = 64;
+
+  private static final double GROWTH_FACTOR = 1.25;
+
+  private static final int DEFAULT_SEGMENTS = 16;
+
+  /**
+   * The minimum number of pages of a segment.
+   */
+  private static final int MIN_SEGMENT_PAGES = 8;
+
+  /**
+   * The number of invalidation stamps per segment.
+   */
+  private static final int STRIPES = 64;
+
+  private final int pageSize;
+  private final int[] chunkSizes;
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  /**
+   * Create a new near cache with the default page size.
+   *
+   * @param maxSize the maximum size of the direct memory in bytes.
+   * @param ttl the time to live of the entries.
+   * @param unit the unit of the time to live.
+   * @param metrics the collector to report hits, misses and evictions to, may
+   *          be null.
+   */
+  public OffHeapNearCache(long maxSize, long ttl, TimeUnit unit,
+    MetricCollector metrics) {
+    this(maxSize, DEFAULT_PAGE_SIZE, ttl, unit, metrics, DEFAULT_SEGMENTS);
+  }
+
+  OffHeapNearCache(long maxSize, int pageSize, long ttl, TimeUnit unit,
+    MetricCollector metrics, int segmentCount) {
+    super(ttl, unit, metrics);
+    if (pageSize < MIN_CHUNK_SIZE) {
+      throw new IllegalArgumentException("Invalid page size: " + pageSize);
+    }
+    if (maxSize < pageSize) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+    }
+    this.pageSize = pageSize;
+    chunkSizes = chunkSizes(pageSize);
+    long pages = maxSize / pageSize;
+    int count = 1;
+    while (count < segmentCount
+      && pages / (count << 1) >= MIN_SEGMENT_PAGES) {
+      count <<= 1;
+    }
+    segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment((int) Math.min(Integer.MAX_VALUE,
+        pages / count));
+    }
+    segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+  }
+
+  /**
+   * Get the chunk sizes of the slab classes, growing by a fixed factor from
+   * the smallest chunk up to a whole page.
+   */
+  private static int[] chunkSizes(int pageSize) {
+    List<Integer> sizes = new ArrayList<Integer>();
+    int size = MIN_CHUNK_SIZE;
+    while (size < pageSize / 2) {
+      sizes.add(size);
+      size = Math.max(size + 8, (int) (size * GROWTH_FACTOR) + 7 & ~7);
+    }
+    sizes.add(pageSize);
+    int[] rv = new int[sizes.size()];
+    for (int i = 0; i < rv.length; i++) {
+      rv[i] = sizes.get(i);
+    }
+    return rv;
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments.length == 1 ? segments[0]
+      : segments[hash >>> segmentShift];
+  }
+
+  public CachedData get(String key) {
+    int hash = hash(key);
+    CachedData value = segmentFor(hash).get(key, System.nanoTime());
+    if (value == null) {
+      recordMiss();
+    } else {
+      recordHit();
+    }
+    return value;
+  }
+
+  public long beginLoad(String key) {
+    int hash = hash(key);
+    return segmentFor(hash).stamp(hash);
+  }
+
+  public boolean put(String key, CachedData value, int exp, long stamp) {
+    long now = System.nanoTime();
+    long expiresAt = expiresAt(exp, now);
+    if (expiresAt - now <= 0 || value.getData().length > pageSize) {
+      return false;
+    }
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value, expiresAt, stamp);
+  }
+
+  public void invalidate(String key) {
+    int hash = hash(key);
+    segmentFor(hash).invalidate(key, hash);
+  }
+
+  public void invalidateAll() {
+    for (Segment segment : segments) {
+      segment.invalidateAll();
+    }
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * Get the number of bytes taken by the chunks of the cached entries.
+   */
+  public long weightedSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.weightedSize();
+    }
+    return size;
+  }
+
+  /**
+   * Get the number of bytes of direct memory allocated so far.
+   */
+  public long allocatedSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += (long) segment.pageCount() * pageSize;
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "{OffHeapNearCache size=" + size() + ", weightedSize="
+      + weightedSize() + ", allocatedSize=" + allocatedSize() + ", ttl="
+      + TimeUnit.NANOSECONDS.toMillis(getTtlNanos()) + "ms}";
+  }
+
+  /**
+   * A part of the cache with its own lock, index and pages.
+   */
+  private final class Segment {
+
+    private final Map<String, Entry> index = new HashMap<String, Entry>();
+    private final long[] stamps = new long[STRIPES];
+    private final SlabClass[] classes = new SlabClass[chunkSizes.length];
+    private final int maxPages;
+    private int pages;
+    private long weight;
+
+    Segment(int maxPages) {
+      this.maxPages = maxPages;
+      for (int i = 0; i < classes.length; i++) {
+        classes[i] = new SlabClass(chunkSizes[i], pageSize);
+      }
+    }
+
+    synchronized CachedData get(String key, long now) {
+      Entry entry = index.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.expiresAt - now <= 0) {
+        remove(entry);
+        return null;
+      }
+      entry.referenced = true;
+      byte[] data = new byte[entry.length];
+      entry.slab.read(entry.slot, data);
+      return new CachedData(entry.flags, data, data.length);
+    }
+
+    synchronized long stamp(int hash) {
+      return stamps[hash & (STRIPES - 1)];
+    }
+
+    synchronized boolean put(String key, int hash, CachedData value,
+      long expiresAt, long stamp) {
+      if (stamps[hash & (STRIPES - 1)] != stamp) {
+        return false;
+      }
+      Entry old = index.get(key);
+      if (old != null) {
+        remove(old);
+      }
+      byte[] data = value.getData();
+      SlabClass slab = classes[classFor(data.length)];
+      int slot = allocate(slab);
+      if (slot < 0) {
+        return false;
+      }
+      Entry entry = new Entry(key, slab, slot, data.length, value.getFlags(),
+        expiresAt);
+      slab.write(slot, data);
+      slab.owners[slot] = entry;
+      index.put(key, entry);
+      weight += slab.chunkSize;
+      return true;
+    }
+
+    synchronized void invalidate(String key, int hash) {
+      stamps[hash & (STRIPES - 1)]++;
+      Entry entry = index.get(key);
+      if (entry != null) {
+        remove(entry);
+      }
+    }
+
+    synchronized void invalidateAll() {
+      for (int i = 0; i < STRIPES; i++) {
+        stamps[i]++;
+      }
+      for (Entry entry : index.values()) {
+        entry.slab.release(entry.slot);
+      }
+      index.clear();
+      weight = 0;
+    }
+
+    synchronized int size() {
+      return index.size();
+    }
+
+    synchronized long weightedSize() {
+      return weight;
+    }
+
+    synchronized int pageCount() {
+      return pages;
+    }
+
+    private int classFor(int length) {
+      int low = 0;
+      int high = chunkSizes.length - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (chunkSizes[mid] < length) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Get a free chunk of the given slab class, making room if needed.
+     *
+     * @return the slot of the chunk, or -1 if there is no room.
+     */
+    private int allocate(SlabClass slab) {
+      if (slab.free == 0) {
+        if (pages < maxPages) {
+          slab.addPage(ByteBuffer.allocateDirect(pageSize));
+          pages++;
+        } else {
+          SlabClass largest = largestClass(slab);
+          if (largest != null
+            && slab.pages.size() * 2 < largest.pages.size()) {
+            slab.addPage(removeLastPage(largest));
+          } else if (slab.pages.isEmpty()) {
+            return -1;
+          } else {
+            evict(slab);
+          }
+        }
+      }
+      return slab.take();
+    }
+
+    private SlabClass largestClass(SlabClass except) {
+      SlabClass largest = null;
+      for (SlabClass slab : classes) {
+        if (slab != except && (largest == null
+          || slab.pages.size() > largest.pages.size())) {
+          largest = slab;
+        }
+      }
+      return largest;
+    }
+
+    /**
+     * Evict the entries of the last page of the given slab class and take
+     * the page away from it.
+     */
+    private ByteBuffer removeLastPage(SlabClass slab) {
+      int first = (slab.pages.size() - 1) * slab.perPage;
+      for (int slot = first; slot < first + slab.perPage; slot++) {
+        Entry entry = slab.owners[slot];
+        if (entry != null) {
+          remove(entry);
+          recordEviction();
+        }
+      }
+      return slab.removeLastPage();
+    }
+
+    /**
+     * Evict an entry of the given full slab class, giving read entries a
+     * second chance.
+     */
+    private void evict(SlabClass slab) {
+      long now = System.nanoTime();
+      int slots = slab.pages.size() * slab.perPage;
+      while (true) {
+        if (slab.hand >= slots) {
+          slab.hand = 0;
+        }
+        Entry entry = slab.owners[slab.hand++];
+        if (entry.referenced && entry.expiresAt - now > 0) {
+          entry.referenced = false;
+        } else {
+          remove(entry);
+          recordEviction();
+          return;
+        }
+      }
+    }
+
+    private void remove(Entry entry) {
+      index.remove(entry.key);
+      entry.slab.release(entry.slot);
+      weight -= entry.slab.chunkSize;
+    }
+  }
+
+  /**
+   * The pages holding chunks of one size, and the entries stored in them.
+   */
+  private static final class SlabClass {
+
+    private final int chunkSize;
+    private final int perPage;
+    private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+    private Entry[] owners = new Entry[0];
+    private int[] freeSlots = new int[0];
+    private int free;
+    private int hand;
+
+    SlabClass(int chunkSize, int pageSize) {
+      this.chunkSize = chunkSize;
+      perPage = pageSize / chunkSize;
+    }
+
+    void addPage(ByteBuffer page) {
+      int first = pages.size() * perPage;
+      pages.add(page);
+      int slots = first + perPage;
+      if (owners.length < slots) {
+        Entry[] grown = new Entry[slots];
+        System.arraycopy(owners, 0, grown, 0, owners.length);
+        owners = grown;
+        int[] grownFree = new int[slots];
+        System.arraycopy(freeSlots, 0, grownFree, 0, free);
+        freeSlots = grownFree;
+      }
+      for (int slot = slots - 1; slot >= first; slot--) {
+        freeSlots[free++] = slot;
+      }
+    }
+
+    ByteBuffer removeLastPage() {
+      ByteBuffer page = pages.remove(pages.size() - 1);
+      int first = pages.size() * perPage;
+      int kept = 0;
+      for (int i = 0; i < free; i++) {
+        if (freeSlots[i] < first) {
+          freeSlots[kept++] = freeSlots[i];
+        }
+      }
+      free = kept;
+      if (hand >= first) {
+        hand = 0;
+      }
+      return page;
+    }
+
+    int take() {
+      return freeSlots[--free];
+    }
+
+    void release(int slot) {
+      owners[slot] = null;
+      freeSlots[free++] = slot;
+    }
+
+    void write(int slot, byte[] data) {
+      ByteBuffer page = pages.get(slot / perPage).duplicate();
+      page.position((slot % perPage) * chunkSize);
+      page.put(data);
+    }
+
+    void read(int slot, byte[] data) {
+      ByteBuffer page = pages.get(slot / perPage).duplicate();
+      page.position((slot % perPage) * chunkSize);
+      page.get(data);
+    }
+  }
+
+  /**
+   * The on-heap index entry of a cached value.
+   */
+  private static final class Entry {
+
+    private final String key;
+    private final SlabClass slab;
+    private final int slot;
+    private final int length;
+    private final int flags;
+    private final long expiresAt;
+    private boolean referenced;
+
+    Entry(String key, SlabClass slab, int slot, int length, int flags,
+      long expiresAt) {
+      this.key = key;
+      this.slab = slab;
+      this.slot = slot;
+      this.length = length;
+      this.flags = flags;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
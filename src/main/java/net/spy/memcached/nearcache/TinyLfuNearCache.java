@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.nearcache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.metrics.MetricCollector;
+
+/**
+ * An on-heap {@link NearCache} bounded by the size of its entries, with a
+ * W-TinyLFU eviction policy.
+ *
+ * <p>
+ * New entries enter a small LRU window. Entries leaving the window only make
+ * it into the main area if they have been accessed more often than the entry
+ * they would evict from it, as estimated by a {@link FrequencySketch}. This
+ * keeps a burst of keys which are read once, like a scan, from evicting the
+ * hot keys. The main area is a segmented LRU, entries accessed again while
+ * on probation are promoted to its protected part.
+ * </p>
+ *
+ * <p>
+ * The cache is split into segments by the hash of the keys, each with its own
+ * lock, policy and share of the maximum size.
+ * </p>
+ */
+public class TinyLfuNearCache extends BaseNearCache {
+
+  /**
+   * The approximate overhead of an entry in bytes, added to the size of its
+   * key and value.
+   */
+  private static final int ENTRY_OVERHEAD = 96;
+
+  /**
+   * The average entry size the frequency sketches are initially sized for.
+   */
+  private static final int EXPECTED_ENTRY_SIZE = 512;
+
+  private static final int DEFAULT_SEGMENTS = 16;
+
+  /**
+   * The number of invalidation stamps per segment.
+   */
+  private static final int STRIPES = 64;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+  private final long maxSize;
+
+  /**
+   * Create a new near cache.
+   *
+   * @param maxSize the maximum size of the entries in bytes.
+   * @param ttl the time to live of the entries.
+   * @param unit the unit of the time to live.
+   * @param metrics the collector to report hits, misses and evictions to, may
+   *          be null.
+   */
+  public TinyLfuNearCache(long maxSize, long ttl, TimeUnit unit,
+    MetricCollector metrics) {
+    this(maxSize, ttl, unit, metrics, DEFAULT_SEGMENTS);
+  }
+
+  TinyLfuNearCache(long maxSize, long ttl, TimeUnit unit,
+    MetricCollector metrics, int segmentCount) {
+    super(ttl, unit, metrics);
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+    }
+    int count = 1;
+    while (count < segmentCount && maxSize / (count << 1) >= ENTRY_OVERHEAD) {
+      count <<= 1;
+    }
+    this.maxSize = maxSize;
+    segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      segments[i] = new Segment(maxSize / count);
+    }
+    segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments.length == 1 ? segments[0]
+      : segments[hash >>> segmentShift];
+  }
+
+  public CachedData get(String key) {
+    int hash = hash(key);
+    CachedData value = segmentFor(hash).get(key, hash, System.nanoTime());
+    if (value == null) {
+      recordMiss();
+    } else {
+      recordHit();
+    }
+    return value;
+  }
+
+  public long beginLoad(String key) {
+    int hash = hash(key);
+    return segmentFor(hash).stamp(hash);
+  }
+
+  public boolean put(String key, CachedData value, int exp, long stamp) {
+    long now = System.nanoTime();
+    long expiresAt = expiresAt(exp, now);
+    if (expiresAt - now <= 0) {
+      return false;
+    }
+    int hash = hash(key);
+    int weight = ENTRY_OVERHEAD + 2 * key.length() + value.getData().length;
+    return segmentFor(hash).put(key, hash, value, weight, expiresAt, stamp);
+  }
+
+  public void invalidate(String key) {
+    int hash = hash(key);
+    segmentFor(hash).invalidate(key, hash);
+  }
+
+  public void invalidateAll() {
+    for (Segment segment : segments) {
+      segment.invalidateAll();
+    }
+  }
+
+  public long size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public long weightedSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.weightedSize();
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "{TinyLfuNearCache size=" + size() + ", weightedSize="
+      + weightedSize() + ", maxSize=" + maxSize + ", ttl="
+      + TimeUnit.NANOSECONDS.toMillis(getTtlNanos()) + "ms}";
+  }
+
+  /**
+   * A part of the cache with its own lock and eviction policy.
+   */
+  private final class Segment {
+
+    private final Map<String, Node> data = new HashMap<String, Node>();
+    private final long[] stamps = new long[STRIPES];
+    private final FrequencySketch sketch;
+    private final Queue window = new Queue();
+    private final Queue probation = new Queue();
+    private final Queue protect = new Queue();
+    private final long maxWindow;
+    private final long maxMain;
+    private final long maxProtected;
+
+    Segment(long maxWeight) {
+      maxWindow = Math.max(1, maxWeight / 100);
+      maxMain = Math.max(1, maxWeight - maxWindow);
+      maxProtected = maxMain * 8 / 10;
+      sketch = new FrequencySketch(
+        (int) Math.min(Integer.MAX_VALUE, maxWeight / EXPECTED_ENTRY_SIZE));
+    }
+
+    synchronized CachedData get(String key, int hash, long now) {
+      sketch.increment(hash);
+      Node node = data.get(key);
+      if (node == null) {
+        return null;
+      }
+      if (node.expiresAt - now <= 0) {
+        remove(node);
+        return null;
+      }
+      onAccess(node);
+      return node.value;
+    }
+
+    synchronized long stamp(int hash) {
+      return stamps[hash & (STRIPES - 1)];
+    }
+
+    synchronized boolean put(String key, int hash, CachedData value,
+      int weight, long expiresAt, long stamp) {
+      if (stamps[hash & (STRIPES - 1)] != stamp || weight > maxMain) {
+        return false;
+      }
+      Node node = data.get(key);
+      if (node != null) {
+        node.queue.weight += weight - node.weight;
+        node.value = value;
+        node.weight = weight;
+        node.expiresAt = expiresAt;
+        onAccess(node);
+      } else {
+        node = new Node(key, hash, value, weight, expiresAt);
+        data.put(key, node);
+        window.addLast(node);
+        sketch.ensureCapacity(data.size());
+      }
+      evict();
+      return true;
+    }
+
+    synchronized void invalidate(String key, int hash) {
+      stamps[hash & (STRIPES - 1)]++;
+      Node node = data.get(key);
+      if (node != null) {
+        remove(node);
+      }
+    }
+
+    synchronized void invalidateAll() {
+      for (int i = 0; i < STRIPES; i++) {
+        stamps[i]++;
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protect.clear();
+    }
+
+    synchronized int size() {
+      return data.size();
+    }
+
+    synchronized long weightedSize() {
+      return window.weight + probation.weight + protect.weight;
+    }
+
+    private void onAccess(Node node) {
+      if (node.queue == probation) {
+        probation.remove(node);
+        protect.addLast(node);
+        while (protect.weight > maxProtected) {
+          Node demoted = protect.head;
+          protect.remove(demoted);
+          probation.addLast(demoted);
+        }
+      } else {
+        node.queue.moveToLast(node);
+      }
+    }
+
+    /**
+     * Move the entries which no longer fit into the window to the main area,
+     * if they are accessed more often than the entries they would evict.
+     */
+    private void evict() {
+      long now = System.nanoTime();
+      while (window.weight > maxWindow) {
+        Node candidate = window.head;
+        window.remove(candidate);
+        if (candidate.expiresAt - now <= 0) {
+          data.remove(candidate.key);
+          continue;
+        }
+        while (candidate != null
+          && probation.weight + protect.weight + candidate.weight > maxMain) {
+          Node victim = probation.head != null ? probation.head : protect.head;
+          if (sketch.frequency(candidate.hash)
+            > sketch.frequency(victim.hash)) {
+            evict(victim);
+          } else {
+            data.remove(candidate.key);
+            recordEviction();
+            candidate = null;
+          }
+        }
+        if (candidate != null) {
+          probation.addLast(candidate);
+        }
+      }
+      // Entries replaced by larger values may push the main area over.
+      while (probation.weight + protect.weight > maxMain) {
+        evict(probation.head != null ? probation.head : protect.head);
+      }
+    }
+
+    private void evict(Node node) {
+      remove(node);
+      recordEviction();
+    }
+
+    private void remove(Node node) {
+      data.remove(node.key);
+      node.queue.remove(node);
+    }
+  }
+
+  /**
+   * An intrusive doubly linked list of entries in access order, keeping
+   * track of their total weight.
+   */
+  private static final class Queue {
+
+    private Node head;
+    private Node tail;
+    private long weight;
+
+    void addLast(Node node) {
+      node.queue = this;
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.weight;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      node.queue = null;
+      weight -= node.weight;
+    }
+
+    void moveToLast(Node node) {
+      if (node != tail) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+      weight = 0;
+    }
+  }
+
+  private static final class Node {
+
+    private final String key;
+    private final int hash;
+    private CachedData value;
+    private int weight;
+    private long expiresAt;
+    private Queue queue;
+    private Node prev;
+    private Node next;
+
+    Node(String key, int hash, CachedData value, int weight,
+      long expiresAt) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
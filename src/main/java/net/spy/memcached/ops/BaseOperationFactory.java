@@ -23,11 +23,14 @@
 
 package net.spy.memcached.ops;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.OperationFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * Base class for operation factories.
@@ -74,21 +77,61 @@ public abstract class BaseOperationFactory implements OperationFactory {
           cop.getFlags(), cop.getExpiration(), cop.getData(),
           (StoreOperation.Callback) cop.getCallback()));
     } else if(op instanceof DeleteOperation) {
-      rv.add(delete(first(op.getKeys()),
-          (DeleteOperation.Callback)op.getCallback()));
+      if (op.isNoReply()) {
+        rv.add(deleteNoReply(first(op.getKeys()), op.getCallback()));
+      } else {
+        rv.add(delete(first(op.getKeys()),
+            (DeleteOperation.Callback)op.getCallback()));
+      }
     } else if (op instanceof MutatorOperation) {
       MutatorOperation mo = (MutatorOperation) op;
-      rv.add(mutate(mo.getType(), first(op.getKeys()), mo.getBy(),
-          mo.getDefault(), mo.getExpiration(), op.getCallback()));
+      if (op.isNoReply()) {
+        rv.add(mutateNoReply(mo.getType(), first(op.getKeys()), mo.getBy(),
+            op.getCallback()));
+      } else {
+        rv.add(mutate(mo.getType(), first(op.getKeys()), mo.getBy(),
+            mo.getDefault(), mo.getExpiration(), op.getCallback()));
+      }
     } else if (op instanceof StoreOperation) {
       StoreOperation so = (StoreOperation) op;
-      rv.add(store(so.getStoreType(), first(op.getKeys()), so.getFlags(),
-          so.getExpiration(), so.getData(),
-          (StoreOperation.Callback) op.getCallback()));
+      if (op.isNoReply()) {
+        rv.add(storeNoReply(so.getStoreType(), first(op.getKeys()),
+            so.getFlags(), so.getExpiration(), so.getData(),
+            op.getCallback()));
+      } else {
+        rv.add(store(so.getStoreType(), first(op.getKeys()), so.getFlags(),
+            so.getExpiration(), so.getData(),
+            (StoreOperation.Callback) op.getCallback()));
+      }
+    } else if (op instanceof BulkStoreOperation) {
+      BulkStoreOperation bo = (BulkStoreOperation) op;
+      BulkOperationCallback callback = cloneBulkCallback(op);
+      for (Map.Entry<String, CachedData> me : bo.getValues().entrySet()) {
+        rv.add(bulkStore(bo.getStoreType(),
+            Collections.singletonMap(me.getKey(), me.getValue()),
+            bo.getExpiration(), callback));
+      }
+    } else if (op instanceof BulkDeleteOperation) {
+      BulkOperationCallback callback = cloneBulkCallback(op);
+      for (String k : op.getKeys()) {
+        rv.add(bulkDelete(Collections.singleton(k), callback));
+      }
+    } else if (op instanceof BulkTouchOperation) {
+      BulkTouchOperation bt = (BulkTouchOperation) op;
+      BulkOperationCallback callback = cloneBulkCallback(op);
+      for (String k : op.getKeys()) {
+        rv.add(bulkTouch(Collections.singleton(k), bt.getExpiration(),
+            callback));
+      }
     } else if (op instanceof ConcatenationOperation) {
       ConcatenationOperation c = (ConcatenationOperation) op;
       rv.add(cat(c.getStoreType(), c.getCasValue(), first(op.getKeys()),
           c.getData(), c.getCallback()));
+    } else if (op instanceof RecacheGetOperation) {
+      RecacheGetOperation rg = (RecacheGetOperation) op;
+      rv.add(recacheGet(first(rg.getKeys()), rg.getTokenExpiration(),
+          rg.getRecacheThreshold(),
+          (RecacheGetOperation.Callback) rg.getCallback()));
     } else if(op instanceof GetAndTouchOperation) {
       GetAndTouchOperation gt = (GetAndTouchOperation) op;
       rv.add(getAndTouch(first(gt.getKeys()), gt.getExpiration(),
@@ -122,6 +165,17 @@ public abstract class BaseOperationFactory implements OperationFactory {
     return rv;
   }
 
+  /**
+   * Get the callback for the clones of a bulk operation, one per key, which
+   * completes the original callback once all of the clones completed.
+   */
+  private BulkOperationCallback cloneBulkCallback(KeyedOperation op) {
+    BulkOperationCallback callback = (BulkOperationCallback) op.getCallback();
+    int count = op.getKeys().size();
+    return count > 1 ? new MultiBulkOperationCallback(callback, count)
+        : callback;
+  }
+
   protected abstract Collection<? extends Operation>
   cloneGet(KeyedOperation op);
 }
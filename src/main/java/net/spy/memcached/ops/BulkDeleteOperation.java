@@ -0,0 +1,13 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Operation deleting many keys at once.
+ */
+public interface BulkDeleteOperation extends KeyedOperation {
+  // Nothing
+}
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Callback of an operation on many keys, which only reports the keys it
+ * failed on.
+ */
+public interface BulkOperationCallback extends OperationCallback {
+
+  /**
+   * Called for every key the operation failed on.
+   *
+   * @param key the key
+   * @param status the reason of the failure
+   */
+  void gotFailure(String key, OperationStatus status);
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Operation storing many values at once.
+ */
+public interface BulkStoreOperation extends KeyedOperation {
+
+  /**
+   * Get the store type used by this operation.
+   */
+  StoreType getStoreType();
+
+  /**
+   * Get the expiration value to be set.
+   */
+  int getExpiration();
+
+  /**
+   * Get the values to be stored by key.
+   *
+   * <p>
+   * Note, this returns an exact reference to the values and they
+   * <em>must not</em> be modified.
+   * </p>
+   */
+  Map<String, CachedData> getValues();
+}
@@ -0,0 +1,17 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Operation touching many keys at once.
+ */
+public interface BulkTouchOperation extends KeyedOperation {
+
+  /**
+   * Get the expiration value to be set.
+   */
+  int getExpiration();
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+import java.util.concurrent.BlockingQueue;
+
+import net.spy.memcached.util.RingBufferBlockingQueue;
+
+/**
+ * OperationQueueFactory that creates bounded lock-free operation queues.
+ *
+ * <p>
+ * Application threads enqueue operations without taking a lock, while the
+ * I/O thread owning the node is the only regular consumer. Timed offers (as
+ * done when the queue is full and an op queue max block time is configured)
+ * back off and retry until the timeout elapses.
+ * </p>
+ *
+ * @see RingBufferBlockingQueue
+ */
+public class LockFreeOperationQueueFactory implements OperationQueueFactory {
+
+  private final int capacity;
+
+  /**
+   * Create a LockFreeOperationQueueFactory that creates queues with the given
+   * capacity.
+   *
+   * @param cap maximum size of a queue produced by this factory
+   */
+  public LockFreeOperationQueueFactory(int cap) {
+    super();
+    capacity = cap;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.ops.OperationQueueFactory#create()
+   */
+  public BlockingQueue<Operation> create() {
+    return new RingBufferBlockingQueue<Operation>(capacity);
+  }
+}
@@ -0,0 +1,22 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * MultiOperationCallback for bulk operations split into one operation per
+ * key.
+ */
+public class MultiBulkOperationCallback extends MultiOperationCallback
+    implements BulkOperationCallback {
+
+  public MultiBulkOperationCallback(OperationCallback original, int todo) {
+    super(original, todo);
+  }
+
+  public void gotFailure(String key, OperationStatus status) {
+    ((BulkOperationCallback) originalCallback).gotFailure(key, status);
+  }
+}
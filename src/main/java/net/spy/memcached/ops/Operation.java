@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.util.HashedWheelTimer;
 
 /**
  * Base interface for all operations.
@@ -80,6 +81,12 @@ public interface Operation {
    */
   void writeComplete();
 
+  /**
+   * True if the server does not answer this operation. Such an operation
+   * completes once it has been written and never waits for a response.
+   */
+  boolean isNoReply();
+
   /**
    * Initialize this operation. This is used to prepare output byte buffers and
    * stuff.
@@ -114,6 +121,14 @@ public interface Operation {
    */
   void timeOut();
 
+  /**
+   * Mark this operation, which has not been written to the network, as one
+   * which has exceeded its timeout value.
+   *
+   * @see #isTimedOutUnsent()
+   */
+  void timeOutUnsent();
+
   /**
    * True if the operation has timed out.
    *
@@ -152,6 +167,20 @@ public interface Operation {
    */
   boolean isTimedOutUnsent();
 
+  /**
+   * Set the timeout which expires this operation at its deadline.
+   *
+   * @param expiry the timeout scheduled for this operation.
+   */
+  void setExpiry(HashedWheelTimer.Timeout expiry);
+
+  /**
+   * Returns the timeout which expires this operation at its deadline.
+   *
+   * @return the timeout, or null if none has been scheduled.
+   */
+  HashedWheelTimer.Timeout getExpiry();
+
   /**
    * Returns the timestamp from the point where the WRITE was completed.
    *
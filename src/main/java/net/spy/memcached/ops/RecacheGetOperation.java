@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Get operation handing out the right to recompute a missing, stale or
+ * expiring value to a single client.
+ */
+public interface RecacheGetOperation extends KeyedOperation {
+
+  /**
+   * Operation callback for the recache get request.
+   */
+  interface Callback extends OperationCallback {
+    /**
+     * Callback for the result of a recache get.
+     *
+     * @param key the key that was retrieved
+     * @param flags the flags for this value
+     * @param cas the CAS value for this record
+     * @param data the data stored under this key, null for the placeholder
+     *          of a missing key
+     * @param won true if this client has to recompute the value
+     * @param stale true if the value was invalidated
+     * @param pending true if another client is recomputing the value
+     */
+    void gotData(String key, int flags, long cas, byte[] data, boolean won,
+        boolean stale, boolean pending);
+  }
+
+  /**
+   * Get the expiration of the placeholder created for a missing key.
+   */
+  int getTokenExpiration();
+
+  /**
+   * Get the remaining time to live under which a value gets recomputed.
+   */
+  int getRecacheThreshold();
+}
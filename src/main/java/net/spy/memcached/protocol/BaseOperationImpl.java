@@ -34,16 +34,35 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.ObserveResponse;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.ops.BulkOperationCallback;
 import net.spy.memcached.ops.CancelledOperationStatus;
+import net.spy.memcached.ops.ConfigurationType;
+import net.spy.memcached.ops.DeleteOperation;
+import net.spy.memcached.ops.GetAndTouchOperation;
+import net.spy.memcached.ops.GetConfigOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetlOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.ObserveOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.RecacheGetOperation;
+import net.spy.memcached.ops.ReplicaGetOperation;
+import net.spy.memcached.ops.ReplicaGetsOperation;
+import net.spy.memcached.ops.StatsOperation;
 import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.TapOperation;
 import net.spy.memcached.ops.TimedOutOperationStatus;
+import net.spy.memcached.tapmessage.ResponseMessage;
+import net.spy.memcached.tapmessage.TapOpcode;
+import net.spy.memcached.util.HashedWheelTimer;
 
 /**
  * Base class for protocol-specific operation implementations.
@@ -57,6 +76,13 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
       new CancelledOperationStatus();
   public static final OperationStatus TIMED_OUT=
       new TimedOutOperationStatus();
+  /**
+   * Status object for operations which are done once written.
+   */
+  public static final OperationStatus WRITTEN =
+      new OperationStatus(true, "WRITTEN", StatusCode.SUCCESS);
+  private static final OperationCallback LATE_RESPONSE =
+      new LateResponseCallback();
   private volatile OperationState state = OperationState.WRITE_QUEUED;
   private ByteBuffer cmd = null;
   private boolean cancelled = false;
@@ -69,6 +95,7 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   protected Collection<MemcachedNode> notMyVbucketNodes =
       new HashSet<MemcachedNode>();
   private long writeCompleteTimestamp;
+  private volatile HashedWheelTimer.Timeout expiry;
 
   /**
    * If the operation gets cloned, the reference is used to cascade cancellations
@@ -89,9 +116,16 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
 
   /**
    * Get the operation callback associated with this operation.
+   *
+   * <p>
+   * Once the operation timed out its callback has completed, and anything
+   * still read for the operation is dropped. Responses are read holding the
+   * monitor of the operation, which timing out takes as well, so a response
+   * reaches the callback either whole before the timeout or not at all.
+   * </p>
    */
   public final OperationCallback getCallback() {
-    return callback;
+    return timedout ? LATE_RESPONSE : callback;
   }
 
   /**
@@ -164,7 +198,7 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
       cmd = null;
     }
     if (state == OperationState.COMPLETE) {
-      callback.complete();
+      getCallback().complete();
     }
   }
 
@@ -174,7 +208,18 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
 
   public final void writeComplete() {
     writeCompleteTimestamp = System.nanoTime();
-    transitionState(OperationState.READING);
+    if (isNoReply()) {
+      // Nothing will ever be read for this operation.
+      cancelExpiry(this);
+      getCallback().receivedStatus(WRITTEN);
+      transitionState(OperationState.COMPLETE);
+    } else {
+      transitionState(OperationState.READING);
+    }
+  }
+
+  public boolean isNoReply() {
+    return false;
   }
 
   public abstract void initialize();
@@ -197,7 +242,7 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     default:
       assert false;
     }
-    callback.receivedStatus(new OperationStatus(false,
+    getCallback().receivedStatus(new OperationStatus(false,
         exception.getMessage(), StatusCode.ERR_INTERNAL));
     transitionState(OperationState.COMPLETE);
     throw exception;
@@ -230,6 +275,25 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     callback.complete();
   }
 
+  @Override
+  public synchronized void timeOutUnsent() {
+    timedOutUnsent = true;
+    timeOut();
+  }
+
+  /**
+   * Mark this operation as timed out without telling its callback, which
+   * gets nothing read for this operation from now on.
+   *
+   * <p>
+   * Operations folded together use this once each folded operation has been
+   * timed out on its own.
+   * </p>
+   */
+  protected final synchronized void timedOutSilently() {
+    timedout = true;
+  }
+
   @Override
   public synchronized boolean isTimedOut() {
     return timedout;
@@ -239,7 +303,7 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   public synchronized boolean isTimedOut(long ttlMillis) {
     long elapsed = System.nanoTime();
     long ttlNanos = ttlMillis * 1000 * 1000;
-    if (elapsed - creationTime > ttlNanos) {
+    if (!timedout && elapsed - creationTime > ttlNanos) {
       timedOutUnsent = true;
       timedout = true;
       callback.receivedStatus(TIMED_OUT);
@@ -256,6 +320,29 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
     return timedOutUnsent;
   }
 
+  @Override
+  public void setExpiry(HashedWheelTimer.Timeout to) {
+    expiry = to;
+  }
+
+  @Override
+  public HashedWheelTimer.Timeout getExpiry() {
+    return expiry;
+  }
+
+  /**
+   * Cancel the expiry of an operation folded into an optimized one. Only the
+   * optimized operation completes, the folded one never would.
+   *
+   * @param o the folded operation.
+   */
+  protected static void cancelExpiry(Operation o) {
+    HashedWheelTimer.Timeout timeout = o.getExpiry();
+    if (timeout != null) {
+      timeout.cancel();
+    }
+  }
+
   @Override
   public long getWriteCompleteTimestamp() {
     return writeCompleteTimestamp;
@@ -275,4 +362,59 @@ public abstract class BaseOperationImpl extends SpyObject implements Operation {
   public void setCloneCount(int count) {
     cloneCount = count;
   }
+
+  /**
+   * Callback standing in for the one of a timed out operation, dropping the
+   * response read late. It is of every callback type the operations report
+   * to.
+   */
+  private static final class LateResponseCallback implements
+      BulkOperationCallback, DeleteOperation.Callback,
+      GetAndTouchOperation.Callback, GetConfigOperation.Callback,
+      GetlOperation.Callback, GetOperation.Callback, GetsOperation.Callback,
+      ObserveOperation.Callback, RecacheGetOperation.Callback,
+      ReplicaGetOperation.Callback, ReplicaGetsOperation.Callback,
+      StatsOperation.Callback, StoreOperation.Callback, TapOperation.Callback {
+
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    public void complete() {
+    }
+
+    public void gotFailure(String key, OperationStatus status) {
+    }
+
+    public void gotData(long cas) {
+    }
+
+    public void gotData(String key, long cas) {
+    }
+
+    public void gotData(String key, int flags, byte[] data) {
+    }
+
+    public void gotData(String key, int flags, long cas, byte[] data) {
+    }
+
+    public void gotData(String key, int flags, long cas, byte[] data,
+        boolean won, boolean stale, boolean pending) {
+    }
+
+    public void gotData(ConfigurationType type, int flags, byte[] data) {
+    }
+
+    public void gotData(String key, long cas, MemcachedNode node,
+        ObserveResponse or) {
+    }
+
+    public void gotStat(String name, String val) {
+    }
+
+    public void gotData(ResponseMessage message) {
+    }
+
+    public void gotAck(MemcachedNode node, TapOpcode opcode, int opaque) {
+    }
+  }
 }
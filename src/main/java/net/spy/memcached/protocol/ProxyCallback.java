@@ -39,11 +39,35 @@ public class ProxyCallback implements GetOperation.Callback {
       new HashMap<String, Collection<GetOperation.Callback>>();
   private final Collection<GetOperation.Callback> allCallbacks =
       new ArrayList<GetOperation.Callback>();
+  private final Collection<GetOperation> operations =
+      new ArrayList<GetOperation>();
 
-  public void addCallbacks(GetOperation o) {
+  public void addCallbacks(final GetOperation o) {
+    // The callback of the folded get is looked up when it is called, under
+    // the monitor of the get, so a get which timed out on its own no longer
+    // reports to its callback.
     GetOperation.Callback c =
-        new GetCallbackWrapper(o.getKeys().size(),
-            (GetOperation.Callback) o.getCallback());
+        new GetCallbackWrapper(o.getKeys().size(), new GetOperation.Callback() {
+          public void gotData(String key, int flags, byte[] data) {
+            synchronized (o) {
+              ((GetOperation.Callback) o.getCallback()).gotData(key, flags,
+                  data);
+            }
+          }
+
+          public void receivedStatus(OperationStatus status) {
+            synchronized (o) {
+              o.getCallback().receivedStatus(status);
+            }
+          }
+
+          public void complete() {
+            synchronized (o) {
+              o.getCallback().complete();
+            }
+          }
+        });
+    operations.add(o);
     allCallbacks.add(c);
     for (String s : o.getKeys()) {
       Collection<GetOperation.Callback> cbs = callbacks.get(s);
@@ -75,6 +99,15 @@ public class ProxyCallback implements GetOperation.Callback {
     }
   }
 
+  /**
+   * Time out each of the gets dispatched to, so their futures see it.
+   */
+  public void timeOutOperations() {
+    for (GetOperation o : operations) {
+      o.timeOut();
+    }
+  }
+
   public int numKeys() {
     return callbacks.size();
   }
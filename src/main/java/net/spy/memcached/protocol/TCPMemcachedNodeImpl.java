@@ -44,13 +44,17 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.ConnectionFactory;
 import net.spy.memcached.FailureMode;
+import net.spy.memcached.KeyUtil;
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.NodeHealth;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.config.NodeEndPoint;
+import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.protocol.binary.TapAckOperationImpl;
+import net.spy.memcached.util.ByteBufferPool;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -68,12 +72,15 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
 
   private NodeEndPoint nodeEndPoint;
   private SocketAddress socketAddress;
-  private ByteBuffer rbuf;
-  private ByteBuffer wbuf;
+  private volatile ByteBuffer rbuf;
+  private volatile ByteBuffer wbuf;
+  // Set once the buffers went back to the pool, they are never leased again.
+  private volatile boolean released = false;
   protected final BlockingQueue<Operation> writeQ;
   private final BlockingQueue<Operation> readQ;
   private final BlockingQueue<Operation> inputQueue;
   private final long opQueueMaxBlockTime;
+  private volatile int opQueueHighWaterMark;
   private final long authWaitTime;
   private final ConnectionFactory connectionFactory;
   private AtomicInteger reconnectAttempt = new AtomicInteger(1);
@@ -88,11 +95,65 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
   private volatile long lastReadTimestamp = System.nanoTime();
   private MemcachedConnection connection;
   private TLSConnectionHandler tlsConnectionHandler;
+  private final ByteBufferPool bufferPool;
   private int bufSize;
 
+  /**
+   * Number of consecutive reads or fills using less than a quarter of a
+   * buffer after which the buffer is halved.
+   */
+  private static final int SHRINK_THRESHOLD = 64;
+
+  // Bounds for adapting rbuf and wbuf, equal to bufSize if disabled.
+  private final int minBufSize;
+  private final int maxBufSize;
+  private int smallReads = 0;
+  private int smallFills = 0;
+  private int lastFill = 0;
+  private boolean lastFillLeftBacklog = false;
+
+  /**
+   * Upper bound on the number of operation buffers handed to a single
+   * gathering write.
+   */
+  private static final int MAX_GATHERED_OPS = 64;
+
+  // Operations (and their buffers) handed to the current gathering write,
+  // in order. Entries before gatherIndex have been written completely.
+  private final boolean gatheringWrites;
+  private Operation[] gatherOps;
+  private ByteBuffer[] gatherBufs;
+  private int gatherIndex = 0;
+  private int gatherCount = 0;
+
+  // Corking holds a freshly filled write batch back for up to corkNanos, or
+  // until it fills corkThreshold percent of the buffer, so more operations
+  // go out with the same write. Disabled if corkNanos is 0, otherwise a
+  // whole number of milliseconds.
+  private final long corkNanos;
+  private final int corkThreshold;
+  private long corkStart = 0;
+  private boolean batchWritten = false;
+  private int filledOps = 0;
+
   // operation Future.get timeout counter
   private final AtomicInteger continuousTimeout = new AtomicInteger(0);
 
+  private final NodeHealth health = new NodeHealth();
+
+  /**
+   * The number of operations in flight a ramping node starts with. The limit
+   * grows geometrically from there to the capacity of the read queue.
+   */
+  private static final int MIN_IN_FLIGHT = 8;
+
+  private final int maxInFlight;
+  private volatile int inFlightLimit = Integer.MAX_VALUE;
+
+  // Bounds of the gets optimize() may fold into a single command, 0 for none.
+  private final int maxGetKeys;
+  private final int maxGetBytes;
+
   public TCPMemcachedNodeImpl(SocketAddress sa, SocketChannel c, int bufSize,
       BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
       BlockingQueue<Operation> iq, long opQueueMaxBlockTime,
@@ -112,17 +173,36 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     setChannel(c);
 
     this.bufSize = bufSize;
-    
-    rbuf = ByteBuffer.allocateDirect(bufSize);
-    wbuf = ByteBuffer.allocateDirect(bufSize);
+    bufferPool = fact == null ? null : fact.getBufferPool();
+    minBufSize = fact == null ? bufSize : Math.min(bufSize,
+      fact.getMinBufSize());
+    maxBufSize = fact == null ? bufSize : Math.max(bufSize,
+      fact.getMaxBufSize());
+
+    rbuf = allocateBuffer(bufSize);
+    wbuf = allocateBuffer(bufSize);
   
     getWbuf().clear();
     readQ = rq;
+    maxInFlight = Math.max(1, rq.remainingCapacity());
     writeQ = wq;
     inputQueue = iq;
     this.opQueueMaxBlockTime = opQueueMaxBlockTime;
+    opQueueHighWaterMark = fact == null ? -1 : fact.getOpQueueHighWaterMark();
     shouldAuth = waitForAuth;
     defaultOpTimeout = dt;
+    gatheringWrites = fact != null && fact.useGatheringWrites();
+    if (gatheringWrites) {
+      gatherOps = new Operation[MAX_GATHERED_OPS];
+      gatherBufs = new ByteBuffer[MAX_GATHERED_OPS];
+    }
+    // The selector waits in whole milliseconds, so a shorter cork could
+    // only be honored by polling it.
+    corkNanos = fact == null ? 0 : TimeUnit.MILLISECONDS.toNanos(
+      (fact.getWriteCorkTime() + 999) / 1000);
+    corkThreshold = fact == null ? 100 : fact.getWriteCorkThreshold();
+    maxGetKeys = fact == null ? 0 : fact.getMaxGetKeys();
+    maxGetBytes = fact == null ? 0 : fact.getMaxGetBytes();
     setupForAuth();
   }
 
@@ -189,6 +269,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     getWbuf().clear();
     getRbuf().clear();
     toWrite = 0;
+    clearGatheredOps();
   }
 
   // Prepare the pending operations. Return true if there are any pending
@@ -213,8 +294,21 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    * @see net.spy.memcached.MemcachedNode#fillWriteBuffer(boolean)
    */
   public final void fillWriteBuffer(boolean shouldOptimize) throws IOException {
-    if (toWrite == 0 && readQ.remainingCapacity() > 0) {
-      getWbuf().clear();
+    updateInFlightLimit();
+    if (isGathering()) {
+      fillGatheredOps(shouldOptimize);
+      return;
+    }
+    boolean append = canAppend();
+    if ((toWrite == 0 || append) && readQ.remainingCapacity() > 0) {
+      if (append) {
+        // Keep the corked bytes and add the next operations behind them.
+        getWbuf().position(getWbuf().limit());
+        getWbuf().limit(getWbuf().capacity());
+      } else {
+        adaptWbuf();
+        getWbuf().clear();
+      }
       Operation o=getNextWritableOp();
 
       boolean isTlsBufferOverflow = false;
@@ -246,7 +340,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
 
             preparePending();
             if (shouldOptimize) {
-              optimize();
+              optimizeWrites();
             }
 
             o=getNextWritableOp();
@@ -254,6 +348,11 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
         }
       }
       getWbuf().flip();
+      if (!append) {
+        startBatch();
+      }
+      lastFill = toWrite;
+      lastFillLeftBacklog = o != null;
       assert toWrite <= getWbuf().capacity() : "toWrite exceeded capacity: "
           + this;
       assert toWrite == getWbuf().remaining() : "Expected " + toWrite
@@ -264,9 +363,157 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
   }
 
 
+  /**
+   * Collect the buffers of the next writable operations for a gathering
+   * write.
+   *
+   * <p>
+   * Unlike the copying path, an operation leaves the write queue as soon as
+   * its buffer is handed to the gathering write, but is only marked as
+   * written once its last byte has gone out in {@link #writeSome()}.
+   * </p>
+   */
+  private void fillGatheredOps(boolean shouldOptimize) {
+    boolean append = canAppend();
+    if ((toWrite == 0 || append) && readQ.remainingCapacity() > 0) {
+      Operation o = getNextWritableOp();
+      while (o != null && gatherCount < gatherOps.length
+          && toWrite < bufSize) {
+        synchronized(o) {
+          assert o.getState() == OperationState.WRITING;
+
+          ByteBuffer obuf = o.getBuffer();
+          assert obuf != null : "Didn't get a write buffer from " + o;
+          gatherOps[gatherCount] = o;
+          gatherBufs[gatherCount] = obuf;
+          gatherCount++;
+          toWrite += obuf.remaining();
+          transitionWriteItem();
+
+          preparePending();
+          if (shouldOptimize) {
+            optimizeWrites();
+          }
+        }
+        o = getNextWritableOp();
+      }
+      if (!append) {
+        startBatch();
+      }
+    } else {
+      getLogger().debug("Gathered writes pending, skipping");
+    }
+  }
+
+  /**
+   * Derive the in flight limit from the current weight of the node, so a
+   * ramping node gets a few operations at first and more as it ramps up.
+   */
+  private void updateInFlightLimit() {
+    double weight = health.getWeight(System.nanoTime());
+    if (weight >= 1) {
+      inFlightLimit = Integer.MAX_VALUE;
+    } else if (maxInFlight <= MIN_IN_FLIGHT) {
+      inFlightLimit = maxInFlight;
+    } else {
+      double ratio = (double) maxInFlight / MIN_IN_FLIGHT;
+      inFlightLimit = (int) Math.min(maxInFlight,
+        MIN_IN_FLIGHT * Math.pow(ratio, weight));
+    }
+  }
+
+  /**
+   * True if the next operation may not be written before responses to the
+   * ones in flight arrived.
+   */
+  private boolean isThrottled() {
+    int limit = inFlightLimit;
+    if (limit == Integer.MAX_VALUE || readQ.size() < limit) {
+      return false;
+    }
+    Operation o = getCurrentWriteOp();
+    return o != null && o.getState() == OperationState.WRITE_QUEUED;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getInFlightLimit()
+   */
+  public final int getInFlightLimit() {
+    return inFlightLimit;
+  }
+
+  private boolean isCorking() {
+    return corkNanos > 0 && tlsConnectionHandler == null;
+  }
+
+  /**
+   * True if the next operations may be added behind the pending batch,
+   * because it is held back and none of it has been written yet.
+   */
+  private boolean canAppend() {
+    return isCorking() && toWrite > 0 && !batchWritten;
+  }
+
+  private void startBatch() {
+    if (toWrite > 0) {
+      corkStart = System.nanoTime();
+      batchWritten = false;
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getCorkDelay(long)
+   */
+  public final long getCorkDelay(long now) {
+    if (!isCorking() || toWrite == 0 || batchWritten) {
+      return 0;
+    }
+    int capacity = isGathering() ? bufSize : getWbuf().capacity();
+    if (toWrite * 100L >= (long) capacity * corkThreshold
+        || (isGathering() && gatherCount == gatherOps.length)) {
+      return 0;
+    }
+    return Math.max(0, corkNanos - (now - corkStart));
+  }
+
+  private boolean isCorked() {
+    return isCorking() && getCorkDelay(System.nanoTime()) > 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#takeFilledOpCount()
+   */
+  public final int takeFilledOpCount() {
+    int rv = filledOps;
+    filledOps = 0;
+    return rv;
+  }
+
+  private void clearGatheredOps() {
+    for (int i = 0; i < gatherCount; i++) {
+      gatherOps[i] = null;
+      gatherBufs[i] = null;
+    }
+    gatherIndex = 0;
+    gatherCount = 0;
+  }
+
+  private boolean isGathering() {
+    return gatheringWrites && tlsConnectionHandler == null;
+  }
+
   private Operation getNextWritableOp() {
     Operation o = getCurrentWriteOp();
     while (o != null && o.getState() == OperationState.WRITE_QUEUED) {
+      if (readQ.size() >= inFlightLimit) {
+        return null;
+      }
       synchronized(o) {
         if (o.isCancelled()) {
           getLogger().debug("Not writing cancelled op.");
@@ -278,7 +525,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
           assert o == timedOutOp;
         } else {
           o.writing();
-          if (!(o instanceof TapAckOperationImpl)) {
+          filledOps++;
+          // Neither tap acks nor noreply operations are ever answered.
+          if (!(o instanceof TapAckOperationImpl) && !o.isNoReply()) {
             readQ.add(o);
           }
           return o;
@@ -305,6 +554,40 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
    */
   protected abstract void optimize();
 
+  /**
+   * Fold the next writable operations together and have the operation built
+   * from them expire at its deadline, the folded ones no longer do.
+   */
+  private void optimizeWrites() {
+    optimize();
+    if (optimizedOp != null && connection != null) {
+      connection.scheduleExpiry(this, optimizedOp);
+    }
+  }
+
+  /**
+   * Tell whether a get on the given number of keys and of key bytes stays
+   * within what a single get command may carry.
+   *
+   * @see ConnectionFactory#getMaxGetKeys()
+   * @see ConnectionFactory#getMaxGetBytes()
+   */
+  protected final boolean fitsInGet(int keys, int keyBytes) {
+    return (maxGetKeys <= 0 || keys <= maxGetKeys)
+        && (maxGetBytes <= 0 || keyBytes <= maxGetBytes);
+  }
+
+  /**
+   * Get the length of the encoded keys of the given get.
+   */
+  protected static int getKeyBytes(GetOperation op) {
+    int rv = 0;
+    for (String k : op.getKeys()) {
+      rv += KeyUtil.getKeyBytes(k).length;
+    }
+    return rv;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -373,20 +656,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
   public final void addOp(Operation op) {
     try {
       if (!authLatch.await(authWaitTime, TimeUnit.MILLISECONDS)) {
-        FailureMode mode = connectionFactory.getFailureMode();
-        if (mode == FailureMode.Redistribute || mode == FailureMode.Retry) {
-          getLogger().debug("Redistributing Operation " + op + " because auth "
-            + "latch taken longer than " + authWaitTime + " milliseconds to "
-            + "complete on node " + getSocketAddress());
-          connection.retryOperation(op);
-        } else {
-          op.cancel();
-          getLogger().warn("Operation canceled because authentication "
-            + "or reconnection and authentication has "
-            + "taken more than " + authWaitTime + " milliseconds to "
-            + "complete on node " + this);
-          getLogger().debug("Canceled operation %s", op.toString());
-        }
+        handleAuthIncomplete(op, authWaitTime);
         return;
       }
       if (!inputQueue.offer(op, opQueueMaxBlockTime, TimeUnit.MILLISECONDS)) {
@@ -400,6 +670,59 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     }
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * net.spy.memcached.MemcachedNode#tryAddOp(net.spy.memcached.ops.Operation)
+   */
+  public final boolean tryAddOp(Operation op) {
+    if (authLatch.getCount() > 0) {
+      return false;
+    }
+    int mark = opQueueHighWaterMark;
+    if (mark > 0 && inputQueue.size() >= mark) {
+      return false;
+    }
+    return inputQueue.offer(op);
+  }
+
+  private void handleAuthIncomplete(Operation op, long waited) {
+    FailureMode mode = connectionFactory.getFailureMode();
+    if (mode == FailureMode.Redistribute || mode == FailureMode.Retry) {
+      getLogger().debug("Redistributing Operation " + op + " because auth "
+        + "latch taken longer than " + waited + " milliseconds to "
+        + "complete on node " + getSocketAddress());
+      connection.retryOperation(op);
+    } else {
+      op.cancel();
+      getLogger().warn("Operation canceled because authentication "
+        + "or reconnection and authentication has "
+        + "taken more than " + waited + " milliseconds to "
+        + "complete on node " + this);
+      getLogger().debug("Canceled operation %s", op.toString());
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getOpQueueHighWaterMark()
+   */
+  public final int getOpQueueHighWaterMark() {
+    return opQueueHighWaterMark;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#setOpQueueHighWaterMark(int)
+   */
+  public final void setOpQueueHighWaterMark(int mark) {
+    assert mark > 0 || mark == -1 : "High-water mark must be positive or -1";
+    opQueueHighWaterMark = mark;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -424,7 +747,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
       if (hasReadOp()) {
         rv |= SelectionKey.OP_READ;
       }
-      if (toWrite > 0 || hasWriteOp()) {
+      if ((toWrite > 0 || (hasWriteOp() && !isThrottled())) && !isCorked()) {
         rv |= SelectionKey.OP_WRITE;
       }
     } else {
@@ -475,19 +798,140 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
       sslEngine = sslContext.createSSLEngine();
     }
     sslEngine.setUseClientMode(true);
-    tlsConnectionHandler = new TLSConnectionHandler(channel, sslEngine);
+    if (tlsConnectionHandler != null) {
+      // Reconnecting, the handler of the previous connection is done.
+      tlsConnectionHandler.releaseBuffers();
+    }
+    tlsConnectionHandler = new TLSConnectionHandler(channel, sslEngine,
+      bufferPool);
     
     int tlsBufSize = sslEngine.getSession().getPacketBufferSize();
-    if (bufSize < tlsBufSize) {
+    if (bufSize < tlsBufSize && !released) {
       // Allocate rbuf and wbuf size for TLS connections
-      rbuf = ByteBuffer.allocateDirect(tlsBufSize);
-      wbuf = ByteBuffer.allocateDirect(tlsBufSize);
+      freeBuffer(rbuf);
+      freeBuffer(wbuf);
+      rbuf = allocateBuffer(tlsBufSize);
+      wbuf = allocateBuffer(tlsBufSize);
       bufSize = tlsBufSize;
     }
 
     return tlsConnectionHandler.doTlsHandshake(timeoutInMillis);
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getRbufSize()
+   */
+  public final int getRbufSize() {
+    return rbuf.capacity();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getWbufSize()
+   */
+  public final int getWbufSize() {
+    return wbuf.capacity();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#adaptRbuf(int)
+   */
+  public final void adaptRbuf(int bytesRead) {
+    if (!isAdaptive()) {
+      return;
+    }
+    assert rbuf.position() == 0 : "Adapting non-empty read buffer";
+    int capacity = rbuf.capacity();
+    if (bytesRead >= capacity && capacity < maxBufSize) {
+      // The read filled the buffer, more is likely waiting in the socket.
+      smallReads = 0;
+      rbuf = resizeBuffer(rbuf, Math.min(capacity * 2, maxBufSize));
+    } else if (bytesRead < capacity / 4 && capacity > minBufSize) {
+      if (++smallReads >= SHRINK_THRESHOLD) {
+        smallReads = 0;
+        rbuf = resizeBuffer(rbuf, Math.max(capacity / 2, minBufSize));
+      }
+    } else {
+      smallReads = 0;
+    }
+  }
+
+  /**
+   * Adapt the (empty) write buffer to the previous fill.
+   *
+   * The buffer grows if the previous fill used it up while more operations
+   * were waiting to be written, and shrinks if it has been mostly empty for
+   * a while.
+   */
+  private void adaptWbuf() {
+    if (!isAdaptive() || lastFill == 0) {
+      return;
+    }
+    int capacity = wbuf.capacity();
+    if (lastFill >= capacity && lastFillLeftBacklog && capacity < maxBufSize) {
+      smallFills = 0;
+      wbuf = resizeBuffer(wbuf, Math.min(capacity * 2, maxBufSize));
+    } else if (lastFill < capacity / 4 && capacity > minBufSize) {
+      if (++smallFills >= SHRINK_THRESHOLD) {
+        smallFills = 0;
+        wbuf = resizeBuffer(wbuf, Math.max(capacity / 2, minBufSize));
+      }
+    } else {
+      smallFills = 0;
+    }
+    lastFill = 0;
+  }
+
+  private boolean isAdaptive() {
+    // TLS records need buffers of at least the negotiated packet size.
+    return minBufSize < maxBufSize && tlsConnectionHandler == null
+      && !released;
+  }
+
+  private ByteBuffer resizeBuffer(ByteBuffer buf, int size) {
+    getLogger().debug("Resizing buffer of %s from %d to %d bytes",
+      getSocketAddress(), buf.capacity(), size);
+    freeBuffer(buf);
+    return allocateBuffer(size);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#releaseBuffers()
+   */
+  public final void releaseBuffers() {
+    if (released) {
+      return;
+    }
+    released = true;
+    if (tlsConnectionHandler != null) {
+      tlsConnectionHandler.releaseBuffers();
+    }
+    freeBuffer(rbuf);
+    freeBuffer(wbuf);
+    // Late readers and writers of the node see empty buffers instead of
+    // leased ones which may already be in use by another node.
+    rbuf = ByteBuffer.allocate(0);
+    wbuf = ByteBuffer.allocate(0);
+  }
+
+  private ByteBuffer allocateBuffer(int size) {
+    return bufferPool == null ? ByteBuffer.allocateDirect(size)
+      : bufferPool.acquire(size);
+  }
+
+  private void freeBuffer(ByteBuffer buf) {
+    if (bufferPool != null) {
+      bufferPool.release(buf);
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -655,21 +1099,61 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     return toWrite;
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getOutstandingOpCount()
+   */
+  public final int getOutstandingOpCount() {
+    return inputQueue.size() + writeQ.size() + readQ.size();
+  }
+
   /*
    * (non-Javadoc)
    *
    * @see net.spy.memcached.MemcachedNode#writeSome()
    */
   public final int writeSome() throws IOException {
+    if (isGathering()) {
+      return writeGatheredOps();
+    }
     int wrote = channel.write(wbuf);
     assert wrote >= 0 : "Wrote negative bytes?";
     toWrite -= wrote;
+    batchWritten |= wrote > 0;
     assert toWrite >= 0 : "toWrite went negative after writing " + wrote
         + " bytes for " + this;
     getLogger().debug("Wrote %d bytes", wrote);
     return wrote;
   }
 
+  private int writeGatheredOps() throws IOException {
+    if (gatherIndex == gatherCount) {
+      return 0;
+    }
+    int wrote = (int) channel.write(gatherBufs, gatherIndex,
+        gatherCount - gatherIndex);
+    assert wrote >= 0 : "Wrote negative bytes?";
+    toWrite -= wrote;
+    batchWritten |= wrote > 0;
+    assert toWrite >= 0 : "toWrite went negative after writing " + wrote
+        + " bytes for " + this;
+    while (gatherIndex < gatherCount
+        && !gatherBufs[gatherIndex].hasRemaining()) {
+      Operation o = gatherOps[gatherIndex];
+      synchronized(o) {
+        o.writeComplete();
+      }
+      getLogger().debug("Finished writing %s", o);
+      gatherIndex++;
+    }
+    if (gatherIndex == gatherCount) {
+      clearGatheredOps();
+    }
+    getLogger().debug("Wrote %d bytes", wrote);
+    return wrote;
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -692,6 +1176,15 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject implements
     return continuousTimeout.get();
   }
 
+  /*
+   * (non-Javadoc)
+   *
+   * @see net.spy.memcached.MemcachedNode#getHealth()
+   */
+  public final NodeHealth getHealth() {
+    return health;
+  }
+
   public final void fixupOps() {
     // As the selection key can be changed at any point due to node
     // failure, we'll grab the current volatile value and configure it.
@@ -57,10 +57,20 @@ public final class AsciiMemcachedNodeImpl extends TCPMemcachedNodeImpl {
         OptimizedGetImpl og = new OptimizedGetImpl((GetOperation) optimizedOp);
         optimizedOp = og;
 
+        // Stop folding gets in once the command would grow too large.
+        int keys = og.getKeys().size();
+        int keyBytes = getKeyBytes(og);
         while (writeQ.peek() instanceof GetOperation) {
+          GetOperation next = (GetOperation) writeQ.peek();
+          int nextBytes = getKeyBytes(next);
+          if (!fitsInGet(keys + next.getKeys().size(), keyBytes + nextBytes)) {
+            break;
+          }
           GetOperationImpl o = (GetOperationImpl) writeQ.remove();
           if (!o.isCancelled()) {
             og.addOperation(o);
+            keys += o.getKeys().size();
+            keyBytes += nextBytes;
           }
         }
 
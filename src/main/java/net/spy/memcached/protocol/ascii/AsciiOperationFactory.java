@@ -28,7 +28,12 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.BulkTouchOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
 import net.spy.memcached.ops.ConcatenationType;
@@ -49,6 +54,7 @@ import net.spy.memcached.ops.NoopOperation;
 import net.spy.memcached.ops.ObserveOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.RecacheGetOperation;
 import net.spy.memcached.ops.ReplicaGetOperation;
 import net.spy.memcached.ops.ReplicaGetsOperation;
 import net.spy.memcached.ops.SASLAuthOperation;
@@ -86,6 +92,16 @@ public class AsciiOperationFactory extends BaseOperationFactory {
         + "for ASCII protocol");
   }
 
+  public DeleteOperation deleteNoReply(String key, OperationCallback cb) {
+    return new DeleteOperationImpl(key, true, cb);
+  }
+
+  public DeleteOperation invalidate(String key, int exp,
+      DeleteOperation.Callback cb) {
+    throw new UnsupportedOperationException("Invalidation is only supported "
+        + "for meta protocol");
+  }
+
   public FlushOperation flush(int delay, OperationCallback cb) {
     return new FlushOperationImpl(delay, cb);
   }
@@ -96,6 +112,12 @@ public class AsciiOperationFactory extends BaseOperationFactory {
         + "for ASCII protocol");
   }
 
+  public RecacheGetOperation recacheGet(String key, int tokenExp,
+      int recacheThreshold, RecacheGetOperation.Callback cb) {
+    throw new UnsupportedOperationException("Recache gets are only supported "
+        + "for meta protocol");
+  }
+
   public GetOperation get(String key, GetOperation.Callback cb) {
     return new GetOperationImpl(key, cb);
   }
@@ -149,6 +171,11 @@ public class AsciiOperationFactory extends BaseOperationFactory {
     return new MutatorOperationImpl(m, key, by, cb);
   }
 
+  public MutatorOperation mutateNoReply(Mutator m, String key, long by,
+      OperationCallback cb) {
+    return new MutatorOperationImpl(m, key, by, true, cb);
+  }
+
   public StatsOperation stats(String arg, StatsOperation.Callback cb) {
     return new StatsOperationImpl(arg, cb);
   }
@@ -158,6 +185,26 @@ public class AsciiOperationFactory extends BaseOperationFactory {
     return new StoreOperationImpl(storeType, key, flags, exp, data, cb);
   }
 
+  public StoreOperation storeNoReply(StoreType storeType, String key,
+      int flags, int exp, byte[] data, OperationCallback cb) {
+    return new StoreOperationImpl(storeType, key, flags, exp, data, true, cb);
+  }
+
+  public BulkStoreOperation bulkStore(StoreType storeType,
+      Map<String, CachedData> values, int exp, BulkOperationCallback cb) {
+    return new BulkStoreOperationImpl(storeType, values, exp, cb);
+  }
+
+  public BulkDeleteOperation bulkDelete(Collection<String> keys,
+      BulkOperationCallback cb) {
+    return new BulkDeleteOperationImpl(keys, cb);
+  }
+
+  public BulkTouchOperation bulkTouch(Collection<String> keys,
+      int expiration, BulkOperationCallback cb) {
+    return new BulkTouchOperationImpl(keys, expiration, cb);
+  }
+
   public TouchOperation touch(String key, int expiration,
       OperationCallback cb) {
     return new TouchOperationImpl(key, expiration, cb);
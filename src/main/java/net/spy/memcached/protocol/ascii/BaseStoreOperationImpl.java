@@ -45,15 +45,22 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
   protected final int flags;
   protected final int exp;
   protected final byte[] data;
+  private final boolean noReply;
 
   public BaseStoreOperationImpl(String t, String k, int f, int e, byte[] d,
       OperationCallback cb) {
+    this(t, k, f, e, d, false, cb);
+  }
+
+  public BaseStoreOperationImpl(String t, String k, int f, int e, byte[] d,
+      boolean nr, OperationCallback cb) {
     super(cb);
     type = t;
     key = k;
     flags = f;
     exp = e;
     data = d;
+    noReply = nr;
   }
 
   @Override
@@ -67,8 +74,13 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
   @Override
   public void initialize() {
     ByteBuffer bb = ByteBuffer.allocate(data.length
-        + KeyUtil.getKeyBytes(key).length + OVERHEAD);
-    setArguments(bb, type, key, flags, exp, data.length);
+        + KeyUtil.getKeyBytes(key).length + OVERHEAD
+        + (noReply ? NOREPLY.length() + 1 : 0));
+    if (noReply) {
+      setArguments(bb, type, key, flags, exp, data.length, NOREPLY);
+    } else {
+      setArguments(bb, type, key, flags, exp, data.length);
+    }
     assert bb.remaining() >= data.length + 2 : "Not enough room in buffer,"
         + " need another " + (2 + data.length - bb.remaining());
     bb.put(data);
@@ -83,6 +95,11 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
     getCallback().receivedStatus(CANCELLED);
   }
 
+  @Override
+  public boolean isNoReply() {
+    return noReply;
+  }
+
   public Collection<String> getKeys() {
     return Collections.singleton(key);
   }
@@ -102,6 +119,6 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
   @Override
   public String toString() {
     return "Cmd: " + type + " Key: " + key + " Flags: " + flags + " Exp: "
-      + exp + " Data Length: " + data.length;
+      + exp + " Data Length: " + data.length + (noReply ? " noreply" : "");
   }
 }
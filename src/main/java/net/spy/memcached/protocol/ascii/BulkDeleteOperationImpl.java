@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Delete many keys by pipelining the delete commands in a single write.
+ */
+final class BulkDeleteOperationImpl extends BulkOperationImpl implements
+    BulkDeleteOperation {
+
+  private static final int OVERHEAD = 9;
+  private static final OperationStatus DELETED = new OperationStatus(true,
+      "DELETED", StatusCode.SUCCESS);
+
+  public BulkDeleteOperationImpl(Collection<String> k,
+      BulkOperationCallback cb) {
+    super(k, DELETED, cb);
+  }
+
+  @Override
+  public void initialize() {
+    int size = 0;
+    for (String key : keys) {
+      size += KeyUtil.getKeyBytes(key).length + OVERHEAD;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    for (String key : keys) {
+      setArguments(bb, "delete", key);
+    }
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: delete Keys: " + keys.size();
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.KeyedOperation;
+import net.spy.memcached.ops.OperationErrorType;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Base class for operations pipelining one command per key in a single write.
+ *
+ * <p>
+ * The commands are answered in order, so every response line is matched to
+ * the next key.
+ * </p>
+ */
+abstract class BulkOperationImpl extends OperationImpl implements
+    KeyedOperation {
+
+  protected final List<String> keys;
+  private final OperationStatus success;
+  private int responses;
+
+  protected BulkOperationImpl(Collection<String> k, OperationStatus ok,
+      BulkOperationCallback cb) {
+    super(cb);
+    keys = new ArrayList<String>(k);
+    success = ok;
+  }
+
+  @Override
+  public void handleLine(String line) {
+    assert getState() == OperationState.READING : "Read ``" + line
+        + "'' when in " + getState() + " state";
+    OperationStatus status = matchStatus(line, success);
+    if (!status.isSuccess()) {
+      ((BulkOperationCallback) getCallback()).gotFailure(keys.get(responses),
+        status);
+    }
+    if (++responses == keys.size()) {
+      getCallback().receivedStatus(success);
+      transitionState(OperationState.COMPLETE);
+    }
+  }
+
+  /**
+   * The server answers a command it cannot process, like a store of a too
+   * large value, with a server error, so only its key fails.
+   */
+  @Override
+  protected void handleError(OperationErrorType eType, String line)
+    throws IOException {
+    if (eType == OperationErrorType.SERVER) {
+      handleLine(line);
+    } else {
+      super.handleError(eType, line);
+    }
+  }
+
+  public Collection<String> getKeys() {
+    return keys;
+  }
+}
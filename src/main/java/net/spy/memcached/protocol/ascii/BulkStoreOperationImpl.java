@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Store many values by pipelining the store commands in a single write.
+ */
+final class BulkStoreOperationImpl extends BulkOperationImpl implements
+    BulkStoreOperation {
+
+  private static final int OVERHEAD = 32;
+  private static final OperationStatus STORED = new OperationStatus(true,
+      "STORED", StatusCode.SUCCESS);
+
+  private final StoreType storeType;
+  private final Map<String, CachedData> values;
+  private final int exp;
+
+  public BulkStoreOperationImpl(StoreType t, Map<String, CachedData> v,
+      int e, BulkOperationCallback cb) {
+    super(v.keySet(), STORED, cb);
+    storeType = t;
+    values = v;
+    exp = e;
+  }
+
+  @Override
+  public void initialize() {
+    int size = 0;
+    for (String key : keys) {
+      size += KeyUtil.getKeyBytes(key).length
+        + values.get(key).getData().length + OVERHEAD;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    String type = storeType.name();
+    for (String key : keys) {
+      CachedData value = values.get(key);
+      setArguments(bb, type, key, value.getFlags(), exp,
+        value.getData().length);
+      bb.put(value.getData());
+      bb.put(CRLF);
+    }
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  public StoreType getStoreType() {
+    return storeType;
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  public Map<String, CachedData> getValues() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: " + storeType + " Keys: " + keys.size() + " Exp: " + exp;
+  }
+}
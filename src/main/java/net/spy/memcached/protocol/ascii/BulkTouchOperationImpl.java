@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkTouchOperation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Touch many keys by pipelining the touch commands in a single write.
+ */
+final class BulkTouchOperationImpl extends BulkOperationImpl implements
+    BulkTouchOperation {
+
+  private static final int OVERHEAD = 9;
+  private static final OperationStatus TOUCHED = new OperationStatus(true,
+      "TOUCHED", StatusCode.SUCCESS);
+
+  private final int exp;
+
+  public BulkTouchOperationImpl(Collection<String> k, int e,
+      BulkOperationCallback cb) {
+    super(k, TOUCHED, cb);
+    exp = e;
+  }
+
+  @Override
+  public void initialize() {
+    int expLength = String.valueOf(exp).length();
+    int size = 0;
+    for (String key : keys) {
+      size += KeyUtil.getKeyBytes(key).length + expLength + OVERHEAD;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    for (String key : keys) {
+      setArguments(bb, "touch", key, exp);
+    }
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: touch Keys: " + keys.size() + " Exp: " + exp;
+  }
+}
@@ -47,10 +47,16 @@ final class DeleteOperationImpl extends OperationImpl implements
       "NOT_FOUND", StatusCode.ERR_NOT_FOUND);
 
   private final String key;
+  private final boolean noReply;
 
   public DeleteOperationImpl(String k, OperationCallback cb) {
+    this(k, false, cb);
+  }
+
+  public DeleteOperationImpl(String k, boolean nr, OperationCallback cb) {
     super(cb);
     key = k;
+    noReply = nr;
   }
 
   @Override
@@ -64,17 +70,26 @@ final class DeleteOperationImpl extends OperationImpl implements
   public void initialize() {
     ByteBuffer b = ByteBuffer.allocate(KeyUtil.getKeyBytes(key).length
         + OVERHEAD);
-    setArguments(b, "delete", key);
+    if (noReply) {
+      setArguments(b, "delete", key, NOREPLY);
+    } else {
+      setArguments(b, "delete", key);
+    }
     b.flip();
     setBuffer(b);
   }
 
+  @Override
+  public boolean isNoReply() {
+    return noReply;
+  }
+
   public Collection<String> getKeys() {
     return Collections.singleton(key);
   }
 
   @Override
   public String toString() {
-    return "Cmd: delete Key: " + key;
+    return "Cmd: delete Key: " + key + (noReply ? " noreply" : "");
   }
 }
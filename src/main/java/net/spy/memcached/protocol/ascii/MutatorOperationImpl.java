@@ -48,13 +48,20 @@ final class MutatorOperationImpl extends OperationImpl implements
   private final Mutator mutator;
   private final String key;
   private final long amount;
+  private final boolean noReply;
 
   public MutatorOperationImpl(Mutator m, String k, long amt,
       OperationCallback c) {
+    this(m, k, amt, false, c);
+  }
+
+  public MutatorOperationImpl(Mutator m, String k, long amt, boolean nr,
+      OperationCallback c) {
     super(c);
     mutator = m;
     key = k;
     amount = amt;
+    noReply = nr;
   }
 
   @Override
@@ -72,9 +79,14 @@ final class MutatorOperationImpl extends OperationImpl implements
 
   @Override
   public void initialize() {
-    int size = KeyUtil.getKeyBytes(key).length + OVERHEAD;
+    int size = KeyUtil.getKeyBytes(key).length + OVERHEAD
+      + (noReply ? NOREPLY.length() + 1 : 0);
     ByteBuffer b = ByteBuffer.allocate(size);
-    setArguments(b, mutator.name(), key, amount);
+    if (noReply) {
+      setArguments(b, mutator.name(), key, amount, NOREPLY);
+    } else {
+      setArguments(b, mutator.name(), key, amount);
+    }
     b.flip();
     setBuffer(b);
   }
@@ -85,6 +97,11 @@ final class MutatorOperationImpl extends OperationImpl implements
     getCallback().receivedStatus(CANCELLED);
   }
 
+  @Override
+  public boolean isNoReply() {
+    return noReply;
+  }
+
   public Collection<String> getKeys() {
     return Collections.singleton(key);
   }
@@ -107,6 +124,7 @@ final class MutatorOperationImpl extends OperationImpl implements
 
   @Override
   public String toString() {
-    return "Cmd: " + mutator.name() + " Key: " + key + " Amount: " + amount;
+    return "Cmd: " + mutator.name() + " Key: " + key + " Amount: " + amount
+      + (noReply ? " noreply" : "");
   }
 }
@@ -41,6 +41,10 @@ import net.spy.memcached.protocol.BaseOperationImpl;
 abstract class OperationImpl extends BaseOperationImpl implements Operation {
 
   protected static final byte[] CRLF = { '\r', '\n' };
+  /**
+   * The argument asking the server not to answer a command.
+   */
+  protected static final String NOREPLY = "noreply";
   private static final String CHARSET = "UTF-8";
 
   private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
@@ -49,5 +49,12 @@ final class OptimizedGetImpl extends GetOperationImpl {
   public void addOperation(GetOperation o) {
     getKeys().addAll(o.getKeys());
     pcb.addCallbacks(o);
+    cancelExpiry(o);
+  }
+
+  @Override
+  public synchronized void timeOut() {
+    pcb.timeOutOperations();
+    timedOutSilently();
   }
 }
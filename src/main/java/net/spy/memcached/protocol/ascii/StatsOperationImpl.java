@@ -41,11 +41,9 @@ final class StatsOperationImpl extends OperationImpl implements StatsOperation {
   private static final byte[] MSG = "stats\r\n".getBytes();
 
   private final byte[] msg;
-  private final StatsOperation.Callback cb;
 
   public StatsOperationImpl(String arg, StatsOperation.Callback c) {
     super(c);
-    cb = c;
     if (arg == null) {
       msg = MSG;
     } else {
@@ -56,12 +54,12 @@ final class StatsOperationImpl extends OperationImpl implements StatsOperation {
   @Override
   public void handleLine(String line) {
     if (line.equals("END")) {
-      cb.receivedStatus(END);
+      getCallback().receivedStatus(END);
       transitionState(OperationState.COMPLETE);
     } else {
       String[] parts = line.split(" ", 3);
       assert parts.length == 3;
-      cb.gotStat(parts[1], parts[2]);
+      ((StatsOperation.Callback) getCallback()).gotStat(parts[1], parts[2]);
     }
   }
 
@@ -72,7 +70,7 @@ final class StatsOperationImpl extends OperationImpl implements StatsOperation {
 
   @Override
   protected void wasCancelled() {
-    cb.receivedStatus(CANCELLED);
+    getCallback().receivedStatus(CANCELLED);
   }
 
   @Override
@@ -36,7 +36,12 @@ final class StoreOperationImpl extends BaseStoreOperationImpl implements
 
   public StoreOperationImpl(StoreType t, String k, int f, int e, byte[] d,
       OperationCallback cb) {
-    super(t.name(), k, f, e, d, cb);
+    this(t, k, f, e, d, false, cb);
+  }
+
+  public StoreOperationImpl(StoreType t, String k, int f, int e, byte[] d,
+      boolean noReply, OperationCallback cb) {
+    super(t.name(), k, f, e, d, noReply, cb);
     storeType = t;
   }
 
@@ -68,14 +68,24 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
     // attempting to optimize them.
     optimizedOp = writeQ.remove();
     if (writeQ.peek() instanceof GetOperation) {
-      OptimizedGetImpl og = new OptimizedGetImpl((GetOperation) optimizedOp);
+      GetOperation first = (GetOperation) optimizedOp;
+      OptimizedGetImpl og = new OptimizedGetImpl(first);
       optimizedOp = og;
 
+      // Stop folding gets in once the command would grow too large.
+      int keyBytes = getKeyBytes(first);
       while (writeQ.peek() instanceof GetOperation
           && og.size() < MAX_GET_OPTIMIZATION_COUNT) {
+        GetOperation next = (GetOperation) writeQ.peek();
+        int nextBytes = getKeyBytes(next);
+        if (!fitsInGet(og.size() + next.getKeys().size(),
+            keyBytes + nextBytes)) {
+          break;
+        }
         GetOperation o = (GetOperation) writeQ.remove();
         if (!o.isCancelled()) {
           og.addOperation(o);
+          keyBytes += nextBytes;
         }
       }
 
@@ -28,7 +28,12 @@
 
 package net.spy.memcached.protocol.binary;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.BulkTouchOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
 import net.spy.memcached.ops.ConcatenationType;
@@ -52,6 +57,7 @@ import net.spy.memcached.ops.NoopOperation;
 import net.spy.memcached.ops.ObserveOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.RecacheGetOperation;
 import net.spy.memcached.ops.ReplicaGetOperation;
 import net.spy.memcached.ops.ReplicaGetsOperation;
 import net.spy.memcached.ops.SASLAuthOperation;
@@ -88,6 +94,17 @@ public class BinaryOperationFactory extends BaseOperationFactory {
     return new DeleteOperationImpl(key, cas, operationCallback);
   }
 
+  public DeleteOperation deleteNoReply(String key, OperationCallback cb) {
+    throw new UnsupportedOperationException("Noreply operations are not "
+        + "supported for binary protocol");
+  }
+
+  public DeleteOperation invalidate(String key, int exp,
+      DeleteOperation.Callback cb) {
+    throw new UnsupportedOperationException("Invalidation is only supported "
+        + "for meta protocol");
+  }
+
   public UnlockOperation unlock(String key, long casId,
           OperationCallback cb) {
     return new UnlockOperationImpl(key, casId, cb);
@@ -105,6 +122,12 @@ public class BinaryOperationFactory extends BaseOperationFactory {
     return new GetAndTouchOperationImpl(key, expiration, cb);
   }
 
+  public RecacheGetOperation recacheGet(String key, int tokenExp,
+      int recacheThreshold, RecacheGetOperation.Callback cb) {
+    throw new UnsupportedOperationException("Recache gets are only supported "
+        + "for meta protocol");
+  }
+
   public GetOperation get(String key, Callback callback) {
     return new GetOperationImpl(key, callback);
   }
@@ -152,6 +175,12 @@ public class BinaryOperationFactory extends BaseOperationFactory {
     return new MutatorOperationImpl(m, key, by, def, exp, cb);
   }
 
+  public MutatorOperation mutateNoReply(Mutator m, String key, long by,
+      OperationCallback cb) {
+    throw new UnsupportedOperationException("Noreply operations are not "
+        + "supported for binary protocol");
+  }
+
   public StatsOperation stats(String arg,
       net.spy.memcached.ops.StatsOperation.Callback cb) {
     return new StatsOperationImpl(arg, cb);
@@ -162,6 +191,27 @@ public class BinaryOperationFactory extends BaseOperationFactory {
     return new StoreOperationImpl(storeType, key, flags, exp, data, 0, cb);
   }
 
+  public StoreOperation storeNoReply(StoreType storeType, String key,
+      int flags, int exp, byte[] data, OperationCallback cb) {
+    throw new UnsupportedOperationException("Noreply operations are not "
+        + "supported for binary protocol");
+  }
+
+  public BulkStoreOperation bulkStore(StoreType storeType,
+      Map<String, CachedData> values, int exp, BulkOperationCallback cb) {
+    return new BulkStoreOperationImpl(storeType, values, exp, cb);
+  }
+
+  public BulkDeleteOperation bulkDelete(Collection<String> keys,
+      BulkOperationCallback cb) {
+    return new BulkDeleteOperationImpl(keys, cb);
+  }
+
+  public BulkTouchOperation bulkTouch(Collection<String> keys,
+      int expiration, BulkOperationCallback cb) {
+    return new BulkTouchOperationImpl(keys, expiration, cb);
+  }
+
   public TouchOperation touch(String key, int expiration,
       OperationCallback cb) {
     return new TouchOperationImpl(key, expiration, cb);
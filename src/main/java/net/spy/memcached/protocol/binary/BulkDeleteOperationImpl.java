@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+
+/**
+ * Delete many keys with quiet deletes, followed by a noop.
+ */
+class BulkDeleteOperationImpl extends BulkOperationImpl implements
+    BulkDeleteOperation {
+
+  private static final byte DELETEQ = 0x14;
+
+  public BulkDeleteOperationImpl(Collection<String> k,
+      BulkOperationCallback cb) {
+    super(k, cb);
+  }
+
+  @Override
+  public void initialize() {
+    Map<String, byte[]> keyBytes = keyBytes();
+    int size = (1 + keyBytes.size()) * MIN_RECV_PACKET;
+    for (byte[] kb : keyBytes.values()) {
+      size += kb.length;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    for (Map.Entry<String, byte[]> me : keyBytes.entrySet()) {
+      putHeader(bb, DELETEQ, me.getKey(), me.getValue(), 0, 0);
+      bb.put(me.getValue());
+    }
+    putNoop(bb);
+
+    bb.flip();
+    setBuffer(bb);
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Base class for operations sending one command per key, followed by a noop.
+ *
+ * <p>
+ * Every command carries its own opaque to match responses to keys. Only the
+ * failed commands are reported; successful responses of commands without a
+ * quiet variant are skipped. The noop response tells when all of the
+ * commands have been processed.
+ * </p>
+ */
+abstract class BulkOperationImpl extends MultiKeyOperationImpl {
+
+  private final Map<Integer, String> keys = new HashMap<Integer, String>();
+  private final int terminalOpaque = generateOpaque();
+
+  protected BulkOperationImpl(Collection<String> k, BulkOperationCallback cb) {
+    super(DUMMY_OPCODE, -1, cb);
+    synchronized (vbmap) {
+      for (String key : k) {
+        vbmap.put(key, Short.valueOf((short) 0));
+      }
+    }
+  }
+
+  /**
+   * Get the encoded keys of this operation, in a stable order.
+   */
+  protected Map<String, byte[]> keyBytes() {
+    Map<String, byte[]> rv = new LinkedHashMap<String, byte[]>();
+    synchronized (vbmap) {
+      for (String key : vbmap.keySet()) {
+        rv.put(key, KeyUtil.getKeyBytes(key));
+      }
+    }
+    return rv;
+  }
+
+  /**
+   * Write the header of the command on the given key.
+   */
+  protected void putHeader(ByteBuffer bb, byte cmd, String key, byte[] kb,
+      int extraLen, int valueLen) {
+    int myOpaque = generateOpaque();
+    keys.put(myOpaque, key);
+
+    bb.put(REQ_MAGIC);
+    bb.put(cmd);
+    bb.putShort((short) kb.length);
+    bb.put((byte) extraLen); // extralen
+    bb.put((byte) 0); // data type
+    bb.putShort(vbmap.get(key).shortValue()); // vbucket
+    bb.putInt(kb.length + extraLen + valueLen);
+    bb.putInt(myOpaque);
+    bb.putLong(0); // cas
+  }
+
+  /**
+   * Write the noop terminating the commands.
+   */
+  protected void putNoop(ByteBuffer bb) {
+    bb.put(REQ_MAGIC);
+    bb.put(NoopOperationImpl.CMD);
+    bb.putShort((short) 0);
+    bb.put((byte) 0); // extralen
+    bb.put((byte) 0); // data type
+    bb.putShort((short) 0); // reserved
+    bb.putInt(0);
+    bb.putInt(terminalOpaque);
+    bb.putLong(0); // cas
+  }
+
+  @Override
+  protected void finishedPayload(byte[] pl) throws IOException {
+    if (responseOpaque == terminalOpaque) {
+      getCallback().receivedStatus(STATUS_OK);
+      transitionState(OperationState.COMPLETE);
+    } else if (errorCode != SUCCESS) {
+      String key = keys.get(responseOpaque);
+      ((BulkOperationCallback) getCallback()).gotFailure(key,
+        new OperationStatus(false, new String(pl),
+          StatusCode.fromBinaryCode(errorCode)));
+    }
+    resetInput();
+  }
+
+  @Override
+  protected boolean opaqueIsValid() {
+    return responseOpaque == terminalOpaque || keys.containsKey(responseOpaque);
+  }
+}
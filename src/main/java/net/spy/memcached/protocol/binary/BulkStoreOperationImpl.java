@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Store many values with quiet commands, followed by a noop.
+ */
+class BulkStoreOperationImpl extends BulkOperationImpl implements
+    BulkStoreOperation {
+
+  private final StoreType storeType;
+  private final Map<String, CachedData> values;
+  private final int exp;
+
+  public BulkStoreOperationImpl(StoreType t, Map<String, CachedData> v,
+      int e, BulkOperationCallback cb) {
+    super(v.keySet(), cb);
+    storeType = t;
+    values = v;
+    exp = e;
+  }
+
+  @Override
+  public void initialize() {
+    int size = (1 + values.size()) * MIN_RECV_PACKET;
+    Map<String, byte[]> keyBytes = new HashMap<String, byte[]>();
+    for (Map.Entry<String, CachedData> me : values.entrySet()) {
+      byte[] kb = KeyUtil.getKeyBytes(me.getKey());
+      keyBytes.put(me.getKey(), kb);
+      size += StoreOperationImpl.EXTRA_LEN + kb.length
+        + me.getValue().getData().length;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    byte cmd = cmdMap(storeType);
+    for (Map.Entry<String, CachedData> me : values.entrySet()) {
+      String key = me.getKey();
+      byte[] kb = keyBytes.get(key);
+      byte[] data = me.getValue().getData();
+      putHeader(bb, cmd, key, kb, StoreOperationImpl.EXTRA_LEN, data.length);
+      // Extras
+      bb.putInt(me.getValue().getFlags());
+      bb.putInt(exp);
+      // the actual key
+      bb.put(kb);
+      // And the value
+      bb.put(data);
+    }
+    putNoop(bb);
+
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  private static byte cmdMap(StoreType t) {
+    switch (t) {
+    case set:
+      return StoreOperationImpl.SETQ;
+    case add:
+      return StoreOperationImpl.ADDQ;
+    case replace:
+      return StoreOperationImpl.REPLACEQ;
+    default:
+      throw new IllegalArgumentException("Unhandled store type: " + t);
+    }
+  }
+
+  public StoreType getStoreType() {
+    return storeType;
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  public Map<String, CachedData> getValues() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + " Store Type: " + storeType + " Exp: " + exp;
+  }
+}
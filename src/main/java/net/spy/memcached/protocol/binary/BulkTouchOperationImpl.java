@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkTouchOperation;
+
+/**
+ * Touch many keys, followed by a noop.
+ *
+ * <p>
+ * There is no quiet touch, so the server answers every command and the
+ * successful responses are skipped.
+ * </p>
+ */
+class BulkTouchOperationImpl extends BulkOperationImpl implements
+    BulkTouchOperation {
+
+  private static final int EXTRA_LEN = 4;
+
+  private final int exp;
+
+  public BulkTouchOperationImpl(Collection<String> k, int e,
+      BulkOperationCallback cb) {
+    super(k, cb);
+    exp = e;
+  }
+
+  @Override
+  public void initialize() {
+    Map<String, byte[]> keyBytes = keyBytes();
+    int size = (1 + keyBytes.size()) * MIN_RECV_PACKET;
+    for (byte[] kb : keyBytes.values()) {
+      size += EXTRA_LEN + kb.length;
+    }
+    ByteBuffer bb = ByteBuffer.allocate(size);
+    for (Map.Entry<String, byte[]> me : keyBytes.entrySet()) {
+      putHeader(bb, TouchOperationImpl.CMD, me.getKey(), me.getValue(),
+        EXTRA_LEN, 0);
+      bb.putInt(exp);
+      bb.put(me.getValue());
+    }
+    putNoop(bb);
+
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + " Exp: " + exp;
+  }
+}
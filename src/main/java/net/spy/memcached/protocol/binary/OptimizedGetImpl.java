@@ -50,6 +50,7 @@ final class OptimizedGetImpl extends MultiGetOperationImpl {
    */
   public void addOperation(GetOperation o) {
     pcb.addCallbacks(o);
+    cancelExpiry(o);
     for (String k : o.getKeys()) {
       addKey(k);
       setVBucket(k, ((VBucketAware) o).getVBucket(k));
@@ -59,4 +60,10 @@ final class OptimizedGetImpl extends MultiGetOperationImpl {
   public int size() {
     return pcb.numKeys();
   }
+
+  @Override
+  public synchronized void timeOut() {
+    pcb.timeOutOperations();
+    timedOutSilently();
+  }
 }
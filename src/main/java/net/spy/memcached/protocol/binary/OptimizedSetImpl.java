@@ -47,8 +47,11 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
   private static final OperationCallback NOOP_CALLBACK = new NoopCallback();
 
   private final int terminalOpaque = generateOpaque();
-  private final Map<Integer, OperationCallback> callbacks =
-      new HashMap<Integer, OperationCallback>();
+  // The callbacks of the folded stores are looked up when they are called,
+  // under the monitor of the store, so a store which timed out on its own no
+  // longer reports to its callback.
+  private final Map<Integer, CASOperation> stores =
+      new HashMap<Integer, CASOperation>();
   private final List<CASOperation> ops = new ArrayList<CASOperation>();
 
   // If nothing else, this will be a NOOP.
@@ -64,6 +67,7 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
 
   public void addOperation(CASOperation op) {
     ops.add(op);
+    cancelExpiry(op);
 
     // Count the bytes required by this operation.
     Iterator<String> is = op.getKeys().iterator();
@@ -93,7 +97,7 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
       assert !is.hasNext();
 
       int myOpaque = generateOpaque();
-      callbacks.put(myOpaque, so.getCallback());
+      stores.put(myOpaque, so);
       byte[] data = so.getData();
 
       // Custom header
@@ -152,14 +156,17 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
   @Override
   protected void finishedPayload(byte[] pl) throws IOException {
     if (responseOpaque == terminalOpaque) {
-      for (OperationCallback cb : callbacks.values()) {
-        cb.receivedStatus(STATUS_OK);
-        cb.complete();
+      for (CASOperation so : stores.values()) {
+        synchronized (so) {
+          OperationCallback cb = so.getCallback();
+          cb.receivedStatus(STATUS_OK);
+          cb.complete();
+        }
       }
       transitionState(OperationState.COMPLETE);
     } else {
-      OperationCallback cb = callbacks.remove(responseOpaque);
-      assert cb != null : "No callback for " + responseOpaque;
+      CASOperation so = stores.remove(responseOpaque);
+      assert so != null : "No store for " + responseOpaque;
       assert errorCode != 0 : "Got no error on a quiet mutation.";
       super.finishedPayload(pl);
     }
@@ -169,7 +176,16 @@ public class OptimizedSetImpl extends MultiKeyOperationImpl {
   @Override
   protected boolean opaqueIsValid() {
     return responseOpaque == terminalOpaque
-        || callbacks.containsKey(responseOpaque);
+        || stores.containsKey(responseOpaque);
+  }
+
+  @Override
+  public synchronized void timeOut() {
+    // Every folded store times out on its own, so their futures see it.
+    for (CASOperation so : ops) {
+      so.timeOut();
+    }
+    timedOutSilently();
   }
 
   static class NoopCallback implements OperationCallback {
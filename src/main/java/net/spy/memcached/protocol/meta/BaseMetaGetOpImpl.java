@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.GetAndTouchOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationErrorType;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.util.StringUtils;
+
+/**
+ * Base class for meta get handlers.
+ *
+ * <p>
+ * Every key is fetched with its own quiet <code>mg</code> carrying the index
+ * of the key as opaque, and the commands are terminated by a <code>mn</code>.
+ * Misses are not answered, so the <code>MN</code> response tells when all of
+ * the keys have been processed.
+ * </p>
+ */
+abstract class BaseMetaGetOpImpl extends MetaOperationImpl {
+
+  private static final OperationStatus END = new OperationStatus(true, "END",
+      StatusCode.SUCCESS);
+  // "mg " + " O" + index + " q\r\n"
+  private static final int OVERHEAD = 24;
+  private static final String TERMINATOR = "mn\r\n";
+
+  private final Collection<String> keys;
+  private final String flags;
+  protected final int exp;
+  private List<String> keyList;
+  private String currentKey;
+  private int currentFlags;
+  private long casValue;
+  private boolean hasValue;
+  private int errors;
+  private OperationStatus error;
+
+  protected BaseMetaGetOpImpl(String f, int e, OperationCallback cb,
+      Collection<String> k) {
+    super(cb);
+    flags = f;
+    exp = e;
+    keys = k;
+  }
+
+  /**
+   * Get the keys this operation is looking for.
+   */
+  public final Collection<String> getKeys() {
+    return keys;
+  }
+
+  @Override
+  public final void initialize() {
+    keyList = new ArrayList<String>(keys);
+    Collection<byte[]> keyBytes = KeyUtil.getKeyBytes(keyList);
+    int size = TERMINATOR.length();
+    for (byte[] k : keyBytes) {
+      size += k.length + flags.length() + OVERHEAD;
+    }
+    ByteBuffer b = ByteBuffer.allocate(size);
+    int i = 0;
+    for (byte[] k : keyBytes) {
+      b.put("mg ".getBytes());
+      b.put(k);
+      b.put((" " + flags + " O" + i++ + " q").getBytes());
+      b.put(CRLF);
+    }
+    b.put(TERMINATOR.getBytes());
+    b.flip();
+    setBuffer(b);
+  }
+
+  @Override
+  protected final void handleLine(String[] parts) {
+    if (parts[0].equals("MN")) {
+      if (error != null) {
+        getCallback().receivedStatus(error);
+      } else {
+        getCallback().receivedStatus(hasValue ? END : NOT_FOUND);
+      }
+      transitionState(OperationState.COMPLETE);
+    } else if (parts[0].equals("VA")) {
+      currentKey = keyList.get(Integer.parseInt(getFlag(parts, 'O')));
+      String f = getFlag(parts, 'f');
+      currentFlags = f == null ? 0 : Integer.parseInt(f);
+      String c = getFlag(parts, 'c');
+      casValue = c == null ? 0 : Long.parseLong(c);
+      hasValue = true;
+      readValue(Integer.parseInt(parts[1]));
+    } else if (parts[0].equals("EN")) {
+      // A miss is not answered with the quiet flag, but is harmless.
+    } else {
+      assert false : "Unknown line type: "
+          + StringUtils.join(Arrays.asList(parts), " ");
+    }
+  }
+
+  @Override
+  protected final void handleValue(byte[] data) {
+    OperationCallback cb = getCallback();
+    if (cb instanceof GetOperation.Callback) {
+      ((GetOperation.Callback) cb).gotData(currentKey, currentFlags, data);
+    } else if (cb instanceof GetsOperation.Callback) {
+      ((GetsOperation.Callback) cb).gotData(currentKey, currentFlags,
+          casValue, data);
+    } else if (cb instanceof GetAndTouchOperation.Callback) {
+      ((GetAndTouchOperation.Callback) cb).gotData(currentKey, currentFlags,
+          casValue, data);
+    } else {
+      throw new ClassCastException("Couldn't convert " + cb
+          + "to a relevent op");
+    }
+    currentKey = null;
+  }
+
+  @Override
+  protected final void handleError(OperationErrorType eType, String line)
+    throws IOException {
+    // A refused mg is answered with an error line in place of its value,
+    // and the commands after it are still answered. The line doesn't tell
+    // the key, so the error becomes the status of the whole operation once
+    // MN is read. More errors than keys means the mn got refused as well,
+    // and MN will never come.
+    if (++errors > keyList.size()) {
+      super.handleError(eType, line);
+    } else {
+      getLogger().warn("Error for one of the keys of %s: %s", this, line);
+      error = new OperationStatus(false, line,
+          StatusCode.fromAsciiLine(line));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: mg Keys: " + StringUtils.join(keys, " ") + " Flags: "
+      + flags;
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Base class for meta store operations (add, set, replace, cas).
+ *
+ * <p>
+ * The new CAS value of the item is asked for and handed to the callback when
+ * the value is stored.
+ * </p>
+ */
+abstract class BaseMetaStoreOperationImpl extends MetaOperationImpl {
+
+  // "ms" + length(data) + flags + exp + mode + cas + spaces
+  private static final int OVERHEAD = 80;
+
+  protected final StoreType storeType;
+  protected final String key;
+  protected final long casValue;
+  protected final int flags;
+  protected final int exp;
+  protected final byte[] data;
+
+  public BaseMetaStoreOperationImpl(StoreType t, String k, long c, int f,
+      int e, byte[] d, OperationCallback cb) {
+    super(cb);
+    storeType = t;
+    key = k;
+    casValue = c;
+    flags = f;
+    exp = e;
+    data = d;
+  }
+
+  /**
+   * Get the status matching the code of the response line.
+   */
+  protected abstract OperationStatus getStatus(String code);
+
+  @Override
+  protected void handleLine(String[] parts) {
+    assert getState() == OperationState.READING : "Read " + parts[0]
+        + "'' when in " + getState() + " state";
+    String cas = getFlag(parts, 'c');
+    if (cas != null && getCallback() instanceof StoreOperation.Callback) {
+      ((StoreOperation.Callback) getCallback()).gotData(key,
+          Long.parseLong(cas));
+    }
+    getCallback().receivedStatus(getStatus(parts[0]));
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  public void initialize() {
+    ByteBuffer bb = ByteBuffer.allocate(data.length
+        + KeyUtil.getKeyBytes(key).length + OVERHEAD);
+    if (casValue == 0) {
+      setArguments(bb, "ms", key, data.length, "F" + flags, "T" + exp,
+          "M" + modeOf(storeType), "c");
+    } else {
+      setArguments(bb, "ms", key, data.length, "F" + flags, "T" + exp,
+          "M" + modeOf(storeType), "C" + casValue, "c");
+    }
+    assert bb.remaining() >= data.length + 2 : "Not enough room in buffer,"
+        + " need another " + (2 + data.length - bb.remaining());
+    bb.put(data);
+    bb.put(CRLF);
+    bb.flip();
+    setBuffer(bb);
+  }
+
+  private static char modeOf(StoreType t) {
+    switch (t) {
+    case set:
+      return 'S';
+    case add:
+      return 'E';
+    case replace:
+      return 'R';
+    default:
+      throw new IllegalArgumentException("Unhandled store type: " + t);
+    }
+  }
+
+  public Collection<String> getKeys() {
+    return Collections.singleton(key);
+  }
+
+  public StoreType getStoreType() {
+    return storeType;
+  }
+
+  public int getFlags() {
+    return flags;
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: ms Key: " + key + " Store Type: " + storeType + " Cas Value: "
+      + casValue + " Flags: " + flags + " Exp: " + exp + " Data Length: "
+      + data.length;
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import net.spy.memcached.CASResponse;
+import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.CASOperationStatus;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Operation to store data in a memcached server if its CAS value matches,
+ * with ms.
+ */
+final class MetaCASOperationImpl extends BaseMetaStoreOperationImpl implements
+    CASOperation {
+
+  private static final OperationStatus STORED = new CASOperationStatus(true,
+      "STORED", CASResponse.OK, StatusCode.SUCCESS);
+  private static final OperationStatus NOT_FOUND = new CASOperationStatus(
+      false, "NOT_FOUND", CASResponse.NOT_FOUND, StatusCode.ERR_NOT_FOUND);
+  private static final OperationStatus EXISTS = new CASOperationStatus(false,
+      "EXISTS", CASResponse.EXISTS, StatusCode.ERR_EXISTS);
+
+  public MetaCASOperationImpl(StoreType t, String k, long c, int f, int e,
+      byte[] d, OperationCallback cb) {
+    super(t, k, c, f, e, d, cb);
+  }
+
+  @Override
+  protected OperationStatus getStatus(String code) {
+    if (code.equals("HD")) {
+      return STORED;
+    } else if (code.equals("NF")) {
+      return NOT_FOUND;
+    } else if (code.equals("EX")) {
+      return EXISTS;
+    }
+    // The item was changed or removed between the check and the store.
+    return new CASOperationStatus(false, code, CASResponse.EXISTS,
+        StatusCode.ERR_NOT_STORED);
+  }
+
+  public long getCasValue() {
+    return casValue;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.DeleteOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Operation to delete an item from the cache with md, optionally only if its
+ * CAS value matches.
+ *
+ * <p>
+ * An invalidation keeps the item as a stale value until the given
+ * expiration, for one client to recompute it while the others still get it.
+ * </p>
+ */
+final class MetaDeleteOperationImpl extends MetaOperationImpl implements
+    DeleteOperation {
+
+  private static final int OVERHEAD = 32;
+
+  private static final OperationStatus DELETED = new OperationStatus(true,
+      "DELETED", StatusCode.SUCCESS);
+
+  private final String key;
+  private final long casValue;
+  private final boolean invalidate;
+  private final int exp;
+
+  public MetaDeleteOperationImpl(String k, long c, OperationCallback cb) {
+    this(k, c, false, 0, cb);
+  }
+
+  public MetaDeleteOperationImpl(String k, long c, boolean inv, int e,
+      OperationCallback cb) {
+    super(cb);
+    key = k;
+    casValue = c;
+    invalidate = inv;
+    exp = e;
+  }
+
+  @Override
+  protected void handleLine(String[] parts) {
+    getLogger().debug("Delete of %s returned %s", key, parts[0]);
+    OperationStatus status;
+    if (parts[0].equals("HD")) {
+      status = DELETED;
+    } else if (parts[0].equals("NF")) {
+      status = NOT_FOUND;
+    } else if (parts[0].equals("EX")) {
+      status = EXISTS;
+    } else {
+      status = new OperationStatus(false, parts[0], StatusCode.ERR_INTERNAL);
+    }
+    getCallback().receivedStatus(status);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  public void initialize() {
+    ByteBuffer b = ByteBuffer.allocate(KeyUtil.getKeyBytes(key).length
+        + OVERHEAD);
+    if (invalidate) {
+      setArguments(b, "md", key, "I", "T" + exp);
+    } else if (casValue == 0) {
+      setArguments(b, "md", key);
+    } else {
+      setArguments(b, "md", key, "C" + casValue);
+    }
+    b.flip();
+    setBuffer(b);
+  }
+
+  public Collection<String> getKeys() {
+    return Collections.singleton(key);
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: md Key: " + key + " Cas Value: " + casValue
+      + (invalidate ? " Invalidate Exp: " + exp : "");
+  }
+}
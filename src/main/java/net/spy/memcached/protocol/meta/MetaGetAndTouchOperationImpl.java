@@ -0,0 +1,27 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.util.Collections;
+
+import net.spy.memcached.ops.GetAndTouchOperation;
+
+/**
+ * Operation for retrieving data and updating its expiration with a single
+ * mg.
+ */
+class MetaGetAndTouchOperationImpl extends BaseMetaGetOpImpl implements
+    GetAndTouchOperation {
+
+  public MetaGetAndTouchOperationImpl(String k, int e,
+      GetAndTouchOperation.Callback cb) {
+    super("v f c T" + e, e, cb, Collections.singleton(k));
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+}
@@ -0,0 +1,26 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import net.spy.memcached.ops.GetOperation;
+
+/**
+ * Operation for retrieving data with mg.
+ */
+class MetaGetOperationImpl extends BaseMetaGetOpImpl implements GetOperation {
+
+  public MetaGetOperationImpl(String key, GetOperation.Callback c) {
+    super("v f", 0, c, Collections.singleton(key));
+  }
+
+  public MetaGetOperationImpl(Collection<String> k, GetOperation.Callback c) {
+    super("v f", 0, c, new HashSet<String>(k));
+  }
+}
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.util.Collections;
+
+import net.spy.memcached.ops.GetsOperation;
+
+/**
+ * Operation for retrieving data along with its CAS value with mg.
+ */
+class MetaGetsOperationImpl extends BaseMetaGetOpImpl implements
+    GetsOperation {
+
+  public MetaGetsOperationImpl(String key, GetsOperation.Callback cb) {
+    super("v f c", 0, cb, Collections.singleton(key));
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+
+import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.protocol.ProxyCallback;
+import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
+
+/**
+ * Memcached node for the meta protocol.
+ */
+public final class MetaMemcachedNodeImpl extends TCPMemcachedNodeImpl {
+
+  public MetaMemcachedNodeImpl(SocketAddress sa, SocketChannel c, int bufSize,
+      BlockingQueue<Operation> rq, BlockingQueue<Operation> wq,
+      BlockingQueue<Operation> iq, Long opQueueMaxBlockTimeNs, long dt,
+      long at, ConnectionFactory fa) {
+    // Like ASCII, meta never does auth
+    super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, false, dt, at, fa);
+  }
+
+  @Override
+  protected void optimize() {
+    // make sure there are at least two get operations in a row before
+    // attempting to optimize them into a single run of quiet mg commands.
+    if (writeQ.peek() instanceof GetOperation) {
+      optimizedOp = writeQ.remove();
+      if (writeQ.peek() instanceof GetOperation) {
+        OptimizedMetaGetImpl og =
+            new OptimizedMetaGetImpl((GetOperation) optimizedOp);
+        optimizedOp = og;
+
+        // Stop folding gets in once the command would grow too large.
+        int keys = og.getKeys().size();
+        int keyBytes = getKeyBytes(og);
+        while (writeQ.peek() instanceof GetOperation) {
+          GetOperation next = (GetOperation) writeQ.peek();
+          int nextBytes = getKeyBytes(next);
+          if (!fitsInGet(keys + next.getKeys().size(), keyBytes + nextBytes)) {
+            break;
+          }
+          MetaGetOperationImpl o = (MetaGetOperationImpl) writeQ.remove();
+          if (!o.isCancelled()) {
+            og.addOperation(o);
+            keys += o.getKeys().size();
+            keyBytes += nextBytes;
+          }
+        }
+
+        // Initialize the new mega get
+        optimizedOp.initialize();
+        assert optimizedOp.getState() == OperationState.WRITE_QUEUED;
+        ProxyCallback pcb = (ProxyCallback) og.getCallback();
+        getLogger().debug("Set up %s with %s keys and %s callbacks", this,
+            pcb.numKeys(), pcb.numCallbacks());
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.Mutator;
+import net.spy.memcached.ops.MutatorOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Operation for mutating integers inside of memcached with ma.
+ *
+ * <p>
+ * Unless the expiration is -1, a missing item is created with the default
+ * value in the same round trip.
+ * </p>
+ */
+final class MetaMutatorOperationImpl extends MetaOperationImpl implements
+    MutatorOperation {
+
+  // "ma" + mode + delta + exp + default + spaces
+  public static final int OVERHEAD = 80;
+
+  private final Mutator mutator;
+  private final String key;
+  private final long amount;
+  private final long def;
+  private final int exp;
+
+  public MetaMutatorOperationImpl(Mutator m, String k, long amt, long d,
+      int e, OperationCallback c) {
+    super(c);
+    mutator = m;
+    key = k;
+    amount = amt;
+    def = d;
+    exp = e;
+  }
+
+  @Override
+  protected void handleLine(String[] parts) {
+    if (parts[0].equals("VA")) {
+      readValue(Integer.parseInt(parts[1]));
+      return;
+    }
+    OperationStatus status;
+    if (parts[0].equals("NF")) {
+      status = NOT_FOUND;
+    } else {
+      status = new OperationStatus(false, parts[0], StatusCode.ERR_INTERNAL);
+    }
+    getCallback().receivedStatus(status);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  protected void handleValue(byte[] data) {
+    getCallback().receivedStatus(new OperationStatus(true, new String(data),
+        StatusCode.SUCCESS));
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  public void initialize() {
+    ByteBuffer b = ByteBuffer.allocate(KeyUtil.getKeyBytes(key).length
+        + OVERHEAD);
+    String mode = mutator == Mutator.incr ? "MI" : "MD";
+    if (exp == -1) {
+      setArguments(b, "ma", key, "v", mode, "D" + amount);
+    } else {
+      setArguments(b, "ma", key, "v", mode, "D" + amount, "N" + exp,
+          "J" + def);
+    }
+    b.flip();
+    setBuffer(b);
+  }
+
+  public Collection<String> getKeys() {
+    return Collections.singleton(key);
+  }
+
+  public long getBy() {
+    return amount;
+  }
+
+  public long getDefault() {
+    return def;
+  }
+
+  public int getExpiration() {
+    return exp;
+  }
+
+  public Mutator getType() {
+    return mutator;
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: ma Key: " + key + " Mutator: " + mutator + " Amount: "
+      + amount + " Default: " + def + " Exp: " + exp;
+  }
+}
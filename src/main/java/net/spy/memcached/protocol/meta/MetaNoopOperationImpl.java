@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+
+import net.spy.memcached.ops.NoopOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Operation doing nothing but waiting for the server to answer with mn.
+ */
+final class MetaNoopOperationImpl extends MetaOperationImpl implements
+    NoopOperation {
+
+  private static final OperationStatus OK = new OperationStatus(true, "MN",
+      StatusCode.SUCCESS);
+
+  public MetaNoopOperationImpl(OperationCallback cb) {
+    super(cb);
+  }
+
+  @Override
+  protected void handleLine(String[] parts) {
+    assert parts[0].equals("MN") : "Unexpected line: " + parts[0];
+    getCallback().receivedStatus(OK);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  public void initialize() {
+    setBuffer(ByteBuffer.wrap("mn\r\n".getBytes()));
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: mn";
+  }
+}
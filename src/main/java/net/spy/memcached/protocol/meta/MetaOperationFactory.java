@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.util.Collection;
+
+import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.DeleteOperation;
+import net.spy.memcached.ops.GetAndTouchOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.Mutator;
+import net.spy.memcached.ops.MutatorOperation;
+import net.spy.memcached.ops.NoopOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.RecacheGetOperation;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+/**
+ * Operation factory for the meta protocol of memcached 1.6 and later.
+ *
+ * <p>
+ * Gets, stores, deletes and arithmetic are done with meta commands, which
+ * also bring get and touch, delete with CAS and arithmetic creating missing
+ * counters in a single round trip. Recache gets and invalidations let a
+ * single client recompute a missing or stale value while the others keep
+ * getting the stale one. The other operations use the ascii
+ * commands, which a server speaking the meta protocol also understands.
+ * </p>
+ */
+public class MetaOperationFactory extends AsciiOperationFactory {
+
+  @Override
+  public DeleteOperation delete(String key, DeleteOperation.Callback cb) {
+    return new MetaDeleteOperationImpl(key, 0, cb);
+  }
+
+  @Override
+  public DeleteOperation delete(String key, long cas,
+      DeleteOperation.Callback cb) {
+    return new MetaDeleteOperationImpl(key, cas, cb);
+  }
+
+  @Override
+  public DeleteOperation invalidate(String key, int exp,
+      DeleteOperation.Callback cb) {
+    return new MetaDeleteOperationImpl(key, 0, true, exp, cb);
+  }
+
+  @Override
+  public RecacheGetOperation recacheGet(String key, int tokenExp,
+      int recacheThreshold, RecacheGetOperation.Callback cb) {
+    return new MetaRecacheGetOperationImpl(key, tokenExp, recacheThreshold,
+        cb);
+  }
+
+  @Override
+  public GetAndTouchOperation getAndTouch(String key, int expiration,
+      GetAndTouchOperation.Callback cb) {
+    return new MetaGetAndTouchOperationImpl(key, expiration, cb);
+  }
+
+  @Override
+  public GetOperation get(String key, GetOperation.Callback cb) {
+    return new MetaGetOperationImpl(key, cb);
+  }
+
+  @Override
+  public GetOperation get(Collection<String> keys, GetOperation.Callback cb) {
+    return new MetaGetOperationImpl(keys, cb);
+  }
+
+  @Override
+  public GetsOperation gets(String key, GetsOperation.Callback cb) {
+    return new MetaGetsOperationImpl(key, cb);
+  }
+
+  @Override
+  public MutatorOperation mutate(Mutator m, String key, long by, long def,
+      int exp, OperationCallback cb) {
+    return new MetaMutatorOperationImpl(m, key, by, def, exp, cb);
+  }
+
+  @Override
+  public StoreOperation store(StoreType storeType, String key, int flags,
+      int exp, byte[] data, StoreOperation.Callback cb) {
+    return new MetaStoreOperationImpl(storeType, key, flags, exp, data, cb);
+  }
+
+  @Override
+  public NoopOperation noop(OperationCallback cb) {
+    return new MetaNoopOperationImpl(cb);
+  }
+
+  @Override
+  public CASOperation cas(StoreType type, String key, long casId, int flags,
+      int exp, byte[] data, StoreOperation.Callback cb) {
+    return new MetaCASOperationImpl(type, key, casId, flags, exp, data, cb);
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationErrorType;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.protocol.BaseOperationImpl;
+
+/**
+ * Operations on a memcached connection speaking the meta protocol.
+ *
+ * <p>
+ * Every meta response starts with a line made of a two letter code followed
+ * by the returned flags, each flag being a single letter followed by its
+ * token. A <code>VA</code> response line is followed by a block of data.
+ * </p>
+ */
+abstract class MetaOperationImpl extends BaseOperationImpl {
+
+  protected static final byte[] CRLF = { '\r', '\n' };
+  private static final String CHARSET = "UTF-8";
+
+  protected static final OperationStatus NOT_STORED = new OperationStatus(
+      false, "NOT_STORED", StatusCode.ERR_NOT_STORED);
+  protected static final OperationStatus NOT_FOUND = new OperationStatus(
+      false, "NOT_FOUND", StatusCode.ERR_NOT_FOUND);
+  protected static final OperationStatus EXISTS = new OperationStatus(false,
+      "EXISTS", StatusCode.ERR_EXISTS);
+
+  private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+  private boolean foundCr;
+  private byte[] errorMsg;
+  private byte[] value;
+  private int readOffset;
+
+  protected MetaOperationImpl(OperationCallback cb) {
+    callback = cb;
+  }
+
+  /**
+   * Set some arguments for an operation into the given byte buffer.
+   */
+  protected final void setArguments(ByteBuffer bb, Object... args) {
+    boolean wasFirst = true;
+    for (Object o : args) {
+      if (wasFirst) {
+        wasFirst = false;
+      } else {
+        bb.put((byte) ' ');
+      }
+      bb.put(KeyUtil.getKeyBytes(String.valueOf(o)));
+    }
+    bb.put(CRLF);
+  }
+
+  /**
+   * Get the token of the given flag from a split response line.
+   *
+   * @param parts the response line, split on spaces
+   * @param flag the flag to look for
+   * @return the token of the flag, or null if the flag wasn't returned
+   */
+  protected static String getFlag(String[] parts, char flag) {
+    for (int i = 1; i < parts.length; i++) {
+      if (parts[i].length() > 0 && parts[i].charAt(0) == flag) {
+        return parts[i].substring(1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Read a block of data of the given length before the next line.
+   *
+   * <p>
+   * {@link #handleValue(byte[])} is called once the block and its
+   * terminating CRLF have been read.
+   * </p>
+   */
+  protected final void readValue(int length) {
+    value = new byte[length];
+    readOffset = 0;
+  }
+
+  OperationErrorType classifyError(String line) {
+    OperationErrorType rv = null;
+    if (line.startsWith("ERROR")) {
+      rv = OperationErrorType.GENERAL;
+    } else if (line.startsWith("CLIENT_ERROR")) {
+      rv = OperationErrorType.CLIENT;
+    } else if (line.startsWith("SERVER_ERROR")) {
+      rv = OperationErrorType.SERVER;
+    }
+    return rv;
+  }
+
+  @Override
+  public void readFromBuffer(ByteBuffer data) throws IOException {
+    // Loop while there's data remaining to get it all drained.
+    while (getState() != OperationState.COMPLETE && data.remaining() > 0) {
+      if (value != null) {
+        readValue(data);
+      } else {
+        int offset = -1;
+        for (int i = 0; data.remaining() > 0; i++) {
+          byte b = data.get();
+          if (b == '\r') {
+            foundCr = true;
+          } else if (b == '\n') {
+            assert foundCr : "got a \\n without a \\r";
+            offset = i;
+            foundCr = false;
+            break;
+          } else {
+            assert !foundCr : "got a \\r without a \\n";
+            byteBuffer.write(b);
+          }
+        }
+        if (offset >= 0) {
+          String line = new String(byteBuffer.toByteArray(), CHARSET);
+          byteBuffer.reset();
+          OperationErrorType eType = classifyError(line);
+          if (eType != null) {
+            errorMsg = line.getBytes();
+            handleError(eType, line);
+          } else {
+            getLogger().debug("Got line %s", line);
+            handleLine(line.split(" "));
+          }
+        }
+      }
+    }
+  }
+
+  private void readValue(ByteBuffer b) {
+    // The data block is followed by a CRLF, which is read and dropped.
+    int toRead = Math.min(value.length + CRLF.length - readOffset,
+        b.remaining());
+    for (int i = 0; i < toRead; i++, readOffset++) {
+      byte tmp = b.get();
+      if (readOffset < value.length) {
+        value[readOffset] = tmp;
+      } else {
+        assert tmp == CRLF[readOffset - value.length] : "Expecting CRLF, got "
+            + (char) tmp;
+      }
+    }
+    if (readOffset == value.length + CRLF.length) {
+      byte[] v = value;
+      value = null;
+      handleValue(v);
+    }
+  }
+
+  /**
+   * Handle a response line, split on spaces.
+   */
+  protected abstract void handleLine(String[] parts);
+
+  /**
+   * Handle the data block following a <code>VA</code> response line.
+   */
+  protected void handleValue(byte[] data) {
+    assert false : "Unexpected value for " + this;
+  }
+
+  @Override
+  protected void wasCancelled() {
+    getCallback().receivedStatus(CANCELLED);
+  }
+
+  @Override
+  public byte[] getErrorMsg() {
+    return errorMsg;
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.RecacheGetOperation;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Operation retrieving data with mg, handing out the right to recompute it.
+ *
+ * <p>
+ * A missing key is created as an empty placeholder living for the token
+ * expiration. The server hands a win token (W) to the first client getting a
+ * missing, stale (X) or soon expiring value, and tells the others that the
+ * token is already taken (Z).
+ * </p>
+ *
+ * <p>
+ * The placeholder is reported without data. It is told apart from a stored
+ * empty value by having no client flags and being handed out with one of
+ * the tokens, which a plain hit never is.
+ * </p>
+ */
+final class MetaRecacheGetOperationImpl extends MetaOperationImpl implements
+    RecacheGetOperation {
+
+  private static final int OVERHEAD = 64;
+  private static final OperationStatus END = new OperationStatus(true, "END",
+      StatusCode.SUCCESS);
+
+  private final String key;
+  private final int tokenExp;
+  private final int recacheThreshold;
+  private int currentFlags;
+  private long casValue;
+  private boolean won;
+  private boolean stale;
+  private boolean pending;
+
+  public MetaRecacheGetOperationImpl(String k, int t, int r,
+      RecacheGetOperation.Callback cb) {
+    super(cb);
+    key = k;
+    tokenExp = t;
+    recacheThreshold = r;
+  }
+
+  @Override
+  protected void handleLine(String[] parts) {
+    if (parts[0].equals("VA")) {
+      String f = getFlag(parts, 'f');
+      currentFlags = f == null ? 0 : Integer.parseInt(f);
+      String c = getFlag(parts, 'c');
+      casValue = c == null ? 0 : Long.parseLong(c);
+      won = getFlag(parts, 'W') != null;
+      stale = getFlag(parts, 'X') != null;
+      pending = getFlag(parts, 'Z') != null;
+      readValue(Integer.parseInt(parts[1]));
+    } else {
+      getCallback().receivedStatus(parts[0].equals("EN") ? NOT_FOUND
+          : new OperationStatus(false, parts[0], StatusCode.ERR_INTERNAL));
+      transitionState(OperationState.COMPLETE);
+    }
+  }
+
+  @Override
+  protected void handleValue(byte[] data) {
+    boolean placeholder = data.length == 0 && currentFlags == 0
+        && (won || pending);
+    ((RecacheGetOperation.Callback) getCallback()).gotData(key, currentFlags,
+        casValue, placeholder ? null : data, won, stale, pending);
+    getCallback().receivedStatus(END);
+    transitionState(OperationState.COMPLETE);
+  }
+
+  @Override
+  public void initialize() {
+    ByteBuffer b = ByteBuffer.allocate(KeyUtil.getKeyBytes(key).length
+        + OVERHEAD);
+    if (recacheThreshold > 0) {
+      setArguments(b, "mg", key, "v", "f", "c", "N" + tokenExp,
+          "R" + recacheThreshold);
+    } else {
+      setArguments(b, "mg", key, "v", "f", "c", "N" + tokenExp);
+    }
+    b.flip();
+    setBuffer(b);
+  }
+
+  public Collection<String> getKeys() {
+    return Collections.singleton(key);
+  }
+
+  public int getTokenExpiration() {
+    return tokenExp;
+  }
+
+  public int getRecacheThreshold() {
+    return recacheThreshold;
+  }
+
+  @Override
+  public String toString() {
+    return "Cmd: mg Key: " + key + " Token Exp: " + tokenExp
+      + " Recache Threshold: " + recacheThreshold;
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Operation to store data in a memcached server with ms.
+ */
+final class MetaStoreOperationImpl extends BaseMetaStoreOperationImpl
+    implements StoreOperation {
+
+  private static final OperationStatus STORED = new OperationStatus(true,
+      "STORED", StatusCode.SUCCESS);
+
+  public MetaStoreOperationImpl(StoreType t, String k, int f, int e, byte[] d,
+      OperationCallback cb) {
+    super(t, k, 0, f, e, d, cb);
+  }
+
+  @Override
+  protected OperationStatus getStatus(String code) {
+    if (code.equals("HD")) {
+      return STORED;
+    } else if (code.equals("NS")) {
+      return NOT_STORED;
+    }
+    return new OperationStatus(false, code, StatusCode.ERR_INTERNAL);
+  }
+}
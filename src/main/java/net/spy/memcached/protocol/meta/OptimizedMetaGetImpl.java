@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.util.HashSet;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.protocol.ProxyCallback;
+
+/**
+ * Optimized meta get operation for folding a bunch of gets together.
+ */
+final class OptimizedMetaGetImpl extends MetaGetOperationImpl {
+
+  private final ProxyCallback pcb;
+
+  /**
+   * Construct an optimized get starting with the given get operation.
+   */
+  public OptimizedMetaGetImpl(GetOperation firstGet) {
+    super(new HashSet<String>(), new ProxyCallback());
+    pcb = (ProxyCallback) getCallback();
+    addOperation(firstGet);
+  }
+
+  /**
+   * Add a new GetOperation to get.
+   */
+  public void addOperation(GetOperation o) {
+    getKeys().addAll(o.getKeys());
+    pcb.addCallbacks(o);
+    cancelExpiry(o);
+  }
+
+  @Override
+  public synchronized void timeOut() {
+    pcb.timeOutOperations();
+    timedOutSilently();
+  }
+}
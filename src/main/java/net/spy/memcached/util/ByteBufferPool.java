@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.metrics.MetricCollector;
+
+/**
+ * A bounded pool of direct {@link ByteBuffer}s.
+ *
+ * <p>
+ * Nodes lease their read and write buffers (and the buffers of their TLS
+ * handler) from the pool and return them once the node is shut down, so
+ * buffers survive cluster configuration changes instead of being left to the
+ * garbage collector. Buffers are pooled by capacity, at most
+ * {@link #getMaxIdle()} returned buffers are retained, the rest is dropped.
+ * </p>
+ */
+public class ByteBufferPool {
+
+  /**
+   * Counter for the number of buffers currently leased from the pool.
+   */
+  public static final String LEASED_BUFFERS_METRIC =
+    "[MEM] Buffer Pool: Leased Buffers";
+
+  /**
+   * Counter for the number of idle buffers retained by the pool.
+   */
+  public static final String IDLE_BUFFERS_METRIC =
+    "[MEM] Buffer Pool: Idle Buffers";
+
+  private final int maxIdle;
+  private final MetricCollector metrics;
+  private final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<ByteBuffer>>
+    idle = new ConcurrentHashMap<Integer, ConcurrentLinkedQueue<ByteBuffer>>();
+  private final AtomicInteger idleCount = new AtomicInteger(0);
+  private final AtomicInteger leasedCount = new AtomicInteger(0);
+  private final AtomicLong allocatedCount = new AtomicLong(0);
+
+  /**
+   * Create a pool without metrics.
+   *
+   * @param maxIdle the maximum number of idle buffers to retain.
+   */
+  public ByteBufferPool(int maxIdle) {
+    this(maxIdle, null);
+  }
+
+  /**
+   * Create a pool which reports its occupancy to the given collector.
+   *
+   * @param maxIdle the maximum number of idle buffers to retain.
+   * @param metrics the collector to report to, may be null.
+   */
+  public ByteBufferPool(int maxIdle, MetricCollector metrics) {
+    if (maxIdle < 0) {
+      throw new IllegalArgumentException("Invalid max idle buffers: "
+        + maxIdle);
+    }
+    this.maxIdle = maxIdle;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Lease a cleared direct buffer of the given capacity.
+   *
+   * @param capacity the capacity of the buffer.
+   * @return a buffer with exactly the requested capacity.
+   */
+  public ByteBuffer acquire(int capacity) {
+    ByteBuffer buf = null;
+    ConcurrentLinkedQueue<ByteBuffer> q = idle.get(capacity);
+    if (q != null) {
+      buf = q.poll();
+    }
+    if (buf == null) {
+      buf = ByteBuffer.allocateDirect(capacity);
+      allocatedCount.incrementAndGet();
+    } else {
+      idleCount.decrementAndGet();
+      decrementCounter(IDLE_BUFFERS_METRIC);
+      buf.clear();
+    }
+    leasedCount.incrementAndGet();
+    incrementCounter(LEASED_BUFFERS_METRIC);
+    return buf;
+  }
+
+  /**
+   * Return a buffer previously leased through {@link #acquire(int)}.
+   *
+   * <p>
+   * The caller must not touch the buffer afterwards.
+   * </p>
+   *
+   * @param buf the buffer to return, ignored if null.
+   */
+  public void release(ByteBuffer buf) {
+    if (buf == null) {
+      return;
+    }
+    leasedCount.decrementAndGet();
+    decrementCounter(LEASED_BUFFERS_METRIC);
+    if (!buf.isDirect()) {
+      return;
+    }
+    if (idleCount.incrementAndGet() > maxIdle) {
+      idleCount.decrementAndGet();
+      return;
+    }
+    buf.clear();
+    ConcurrentLinkedQueue<ByteBuffer> q = idle.get(buf.capacity());
+    if (q == null) {
+      ConcurrentLinkedQueue<ByteBuffer> created =
+        new ConcurrentLinkedQueue<ByteBuffer>();
+      q = idle.putIfAbsent(buf.capacity(), created);
+      if (q == null) {
+        q = created;
+      }
+    }
+    q.offer(buf);
+    incrementCounter(IDLE_BUFFERS_METRIC);
+  }
+
+  /**
+   * Get the maximum number of idle buffers retained by this pool.
+   */
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /**
+   * Get the number of idle buffers currently retained by this pool.
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  /**
+   * Get the number of buffers currently leased from this pool.
+   */
+  public int getLeasedCount() {
+    return leasedCount.get();
+  }
+
+  /**
+   * Get the number of buffers this pool had to allocate so far.
+   */
+  public long getAllocatedCount() {
+    return allocatedCount.get();
+  }
+
+  private void incrementCounter(String name) {
+    if (metrics != null) {
+      metrics.incrementCounter(name);
+    }
+  }
+
+  private void decrementCounter(String name) {
+    if (metrics != null) {
+      metrics.decrementCounter(name);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "{ByteBufferPool leased=" + getLeasedCount() + ", idle="
+      + getIdleCount() + ", maxIdle=" + maxIdle + "}";
+  }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.spy.memcached.compat.SpyObject;
+
+/**
+ * A hashed wheel timer which is driven by its owner rather than by a thread
+ * of its own.
+ *
+ * <p>
+ * Timeouts are hashed into the buckets of a wheel by their deadline.
+ * Scheduling and cancelling are O(1) and safe from any thread: both only
+ * enqueue the timeout, the owning thread moves it into (or out of) its
+ * bucket the next time it calls {@link #expireTimeouts(long)}. Expiration
+ * only visits the buckets of the ticks which passed since the last call, so
+ * the timer copes with millions of outstanding timeouts.
+ * </p>
+ *
+ * <p>
+ * Timeouts fire at the end of the tick their deadline falls into, so they
+ * may fire up to one tick late, but never early. Expired tasks run on the
+ * thread calling {@link #expireTimeouts(long)}, exceptions thrown by them are
+ * logged and do not affect other timeouts.
+ * </p>
+ */
+public class HashedWheelTimer extends SpyObject {
+
+  /**
+   * The maximum number of newly scheduled timeouts moved into the wheel per
+   * call, so a burst of schedules cannot stall the owning thread.
+   */
+  private static final int MAX_TRANSFERS = 100000;
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final long startNanos;
+  private final ConcurrentLinkedQueue<Timeout> pending =
+    new ConcurrentLinkedQueue<Timeout>();
+  private final ConcurrentLinkedQueue<Timeout> cancelled =
+    new ConcurrentLinkedQueue<Timeout>();
+  private final AtomicInteger size = new AtomicInteger(0);
+
+  /**
+   * The next tick to process, only touched by the owning thread.
+   */
+  private long tick = 0;
+
+  /**
+   * Create a new timer.
+   *
+   * @param tickDuration the duration of a tick.
+   * @param unit the unit of the tick duration.
+   * @param ticksPerWheel the number of buckets, rounded up to a power of two.
+   */
+  public HashedWheelTimer(long tickDuration, TimeUnit unit,
+    int ticksPerWheel) {
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("Invalid tick duration: "
+        + tickDuration);
+    }
+    if (ticksPerWheel < 1 || ticksPerWheel > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid ticks per wheel: "
+        + ticksPerWheel);
+    }
+    tickNanos = unit.toNanos(tickDuration);
+    int buckets = ticksPerWheel == 1 ? 1
+      : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+    wheel = new Bucket[buckets];
+    for (int i = 0; i < buckets; i++) {
+      wheel[i] = new Bucket();
+    }
+    mask = buckets - 1;
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Schedule the given task to run once the delay elapsed.
+   *
+   * @param task the task to run.
+   * @param delay the delay after which to run the task.
+   * @param unit the unit of the delay.
+   * @return a handle to cancel the timeout.
+   */
+  public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+    if (task == null) {
+      throw new NullPointerException("task");
+    }
+    Timeout timeout =
+      new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+    size.incrementAndGet();
+    pending.offer(timeout);
+    return timeout;
+  }
+
+  /**
+   * Run all tasks whose deadline passed at the given time.
+   *
+   * <p>
+   * This must only be called by the thread owning the timer.
+   * </p>
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the number of expired timeouts.
+   */
+  public int expireTimeouts(long now) {
+    removeCancelled();
+    long last = (now - startNanos) / tickNanos - 1;
+    if (tick > last) {
+      return 0;
+    }
+    transferPending();
+    int expired = 0;
+    while (tick <= last) {
+      expired += wheel[(int) tick & mask].expire();
+      tick++;
+    }
+    return expired;
+  }
+
+  /**
+   * Get the time until the next tick ends, which is the earliest point in
+   * time at which a timeout may fire.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the nanoseconds until the next tick, 0 if it already passed.
+   */
+  public long nanosUntilNextTick(long now) {
+    return Math.max(0, startNanos + (tick + 1) * tickNanos - now);
+  }
+
+  /**
+   * Get the number of timeouts which neither expired nor were cancelled.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * True if there are no timeouts waiting to expire.
+   */
+  public boolean isEmpty() {
+    return size.get() == 0;
+  }
+
+  private void transferPending() {
+    Timeout timeout;
+    for (int i = 0; i < MAX_TRANSFERS && (timeout = pending.poll()) != null;
+      i++) {
+      if (timeout.state.get() != Timeout.ST_INIT) {
+        continue;
+      }
+      long calculated = (timeout.deadline - startNanos) / tickNanos;
+      long ticks = Math.max(calculated, tick);
+      timeout.remainingRounds = (ticks - tick) / wheel.length;
+      wheel[(int) ticks & mask].add(timeout);
+    }
+  }
+
+  private void removeCancelled() {
+    Timeout timeout;
+    while ((timeout = cancelled.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "{HashedWheelTimer size=" + size() + ", tick="
+      + TimeUnit.NANOSECONDS.toMillis(tickNanos) + "ms, wheel=" + wheel.length
+      + "}";
+  }
+
+  /**
+   * A handle to a scheduled task.
+   */
+  public static final class Timeout {
+
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private final HashedWheelTimer timer;
+    private final Runnable task;
+    private final long deadline;
+    private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+    // Only touched by the thread owning the timer.
+    private long remainingRounds;
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+      this.timer = timer;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /**
+     * Cancel the timeout, so its task will not run.
+     *
+     * @return false if the timeout already expired or was cancelled.
+     */
+    public boolean cancel() {
+      if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+        return false;
+      }
+      timer.size.decrementAndGet();
+      timer.cancelled.offer(this);
+      return true;
+    }
+
+    /**
+     * True if the timeout has been cancelled.
+     */
+    public boolean isCancelled() {
+      return state.get() == ST_CANCELLED;
+    }
+
+    /**
+     * True if the timeout expired and its task was run.
+     */
+    public boolean isExpired() {
+      return state.get() == ST_EXPIRED;
+    }
+
+    private boolean expire() {
+      if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+        return false;
+      }
+      timer.size.decrementAndGet();
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        timer.getLogger().warn("Exception running timer task %s", task, e);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A doubly linked list of timeouts, so cancelled ones are unlinked in O(1).
+   */
+  private static final class Bucket {
+
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+
+    int expire() {
+      int expired = 0;
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          if (timeout.expire()) {
+            expired++;
+          }
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+      return expired;
+    }
+  }
+}
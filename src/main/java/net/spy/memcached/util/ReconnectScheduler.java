@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules reconnect attempts with a decorrelated jitter backoff.
+ *
+ * <p>
+ * Every attempt for an item is delayed by a random duration between the
+ * base delay and three times the previous delay, capped at the maximum
+ * delay. Compared to a plain exponential backoff this spreads the attempts
+ * of items which failed at the same time, so they do not reconnect in
+ * lockstep. The backoff of an item grows until it is {@link #reset(Object)}.
+ * </p>
+ *
+ * <p>
+ * Attempts are kept in a delay queue ordered by their {@link System#nanoTime()}
+ * deadline, so they are unaffected by wall clock changes. An item is
+ * scheduled at most once at a time.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe, it is meant to be owned by a single I/O
+ * thread.
+ * </p>
+ *
+ * @param <T> the type of the scheduled items.
+ */
+public class ReconnectScheduler<T> {
+
+  private final long baseNanos;
+  private final long maxNanos;
+  private final Random random;
+  private final PriorityQueue<Attempt<T>> queue =
+    new PriorityQueue<Attempt<T>>();
+  private final Map<T, Attempt<T>> scheduled =
+    new IdentityHashMap<T, Attempt<T>>();
+  private final Map<T, Long> lastDelays = new IdentityHashMap<T, Long>();
+  private long sequence = 0;
+
+  /**
+   * Create a new scheduler.
+   *
+   * @param baseDelay the minimum delay of an attempt.
+   * @param maxDelay the maximum delay of an attempt.
+   * @param unit the unit of the delays.
+   */
+  public ReconnectScheduler(long baseDelay, long maxDelay, TimeUnit unit) {
+    this(baseDelay, maxDelay, unit, new Random());
+  }
+
+  ReconnectScheduler(long baseDelay, long maxDelay, TimeUnit unit,
+    Random random) {
+    if (baseDelay <= 0) {
+      throw new IllegalArgumentException("Invalid base delay: " + baseDelay);
+    }
+    baseNanos = unit.toNanos(baseDelay);
+    maxNanos = Math.max(baseNanos, unit.toNanos(maxDelay));
+    this.random = random;
+  }
+
+  /**
+   * Schedule the next attempt for the given item, unless one is already
+   * scheduled.
+   *
+   * @param item the item to schedule an attempt for.
+   * @param now the current {@link System#nanoTime()}.
+   * @return true if a new attempt was scheduled.
+   */
+  public boolean schedule(T item, long now) {
+    if (scheduled.containsKey(item)) {
+      return false;
+    }
+    Long last = lastDelays.get(item);
+    long delay = nextDelay(last == null ? baseNanos : last);
+    lastDelays.put(item, delay);
+    Attempt<T> attempt = new Attempt<T>(item, now + delay, sequence++);
+    scheduled.put(item, attempt);
+    queue.offer(attempt);
+    return true;
+  }
+
+  private long nextDelay(long last) {
+    long upper = Math.min(maxNanos, last * 3);
+    if (upper <= baseNanos) {
+      return upper;
+    }
+    double jitter = random.nextDouble() * (upper - baseNanos);
+    return baseNanos + (long) jitter;
+  }
+
+  /**
+   * Remove and return an item whose attempt is due.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the item, or null if no attempt is due.
+   */
+  public T pollDue(long now) {
+    Attempt<T> head = queue.peek();
+    if (head == null || head.deadline - now > 0) {
+      return null;
+    }
+    queue.poll();
+    scheduled.remove(head.item);
+    return head.item;
+  }
+
+  /**
+   * Get the time until the next attempt is due.
+   *
+   * @param now the current {@link System#nanoTime()}.
+   * @return the nanoseconds until the next attempt, 0 if one is due and -1
+   *         if none is scheduled.
+   */
+  public long nanosUntilNext(long now) {
+    Attempt<T> head = queue.peek();
+    return head == null ? -1 : Math.max(0, head.deadline - now);
+  }
+
+  /**
+   * Get the {@link System#nanoTime()} at which the next attempt for the
+   * given item is due.
+   *
+   * @param item the item to look up.
+   * @return the deadline, or -1 if no attempt is scheduled.
+   */
+  public long getNextAttempt(T item) {
+    Attempt<T> attempt = scheduled.get(item);
+    return attempt == null ? -1 : attempt.deadline;
+  }
+
+  /**
+   * Get the delay the latest attempt for the given item was scheduled with.
+   *
+   * @param item the item to look up.
+   * @return the delay in nanoseconds, or 0 if it has no backoff.
+   */
+  public long getLastDelay(T item) {
+    Long last = lastDelays.get(item);
+    return last == null ? 0 : last;
+  }
+
+  /**
+   * Forget the backoff of the given item, typically after it reconnected.
+   * A scheduled attempt is not affected.
+   *
+   * @param item the item to reset.
+   */
+  public void reset(T item) {
+    lastDelays.remove(item);
+  }
+
+  /**
+   * Cancel the scheduled attempt of the given item and forget its backoff.
+   *
+   * @param item the item to remove.
+   * @return true if an attempt was scheduled.
+   */
+  public boolean remove(T item) {
+    lastDelays.remove(item);
+    Attempt<T> attempt = scheduled.remove(item);
+    return attempt != null && queue.remove(attempt);
+  }
+
+  /**
+   * Get the number of scheduled attempts.
+   */
+  public int size() {
+    return queue.size();
+  }
+
+  /**
+   * True if no attempt is scheduled.
+   */
+  public boolean isEmpty() {
+    return queue.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "{ReconnectScheduler size=" + size() + ", base="
+      + TimeUnit.NANOSECONDS.toMillis(baseNanos) + "ms, max="
+      + TimeUnit.NANOSECONDS.toMillis(maxNanos) + "ms}";
+  }
+
+  private static final class Attempt<T> implements Comparable<Attempt<T>> {
+
+    private final T item;
+    private final long deadline;
+    private final long sequence;
+
+    Attempt(T item, long deadline, long sequence) {
+      this.item = item;
+      this.deadline = deadline;
+      this.sequence = sequence;
+    }
+
+    public int compareTo(Attempt<T> other) {
+      long diff = deadline - other.deadline;
+      if (diff == 0) {
+        diff = sequence - other.sequence;
+      }
+      return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+    }
+  }
+}
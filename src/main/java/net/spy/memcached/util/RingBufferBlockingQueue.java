@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded {@link BlockingQueue} backed by a lock-free ring buffer.
+ *
+ * <p>
+ * Producers claim a slot with a single compare-and-set on the tail index and
+ * never take a lock, so many threads can enqueue concurrently without
+ * contending on a monitor. The queue is meant to be drained by a single
+ * consumer thread; consumer operations are still serialized on an internal
+ * monitor so an occasional second consumer (like a thread requeueing
+ * operations) is safe, but that monitor is uncontended in the common case.
+ * </p>
+ *
+ * <p>
+ * The blocking methods do not rely on signalling between producers and the
+ * consumer. They retry with an exponentially growing park interval instead,
+ * so the non-blocking {@link #offer(Object)} and {@link #poll()} paths stay
+ * free of any bookkeeping for waiters.
+ * </p>
+ *
+ * <p>
+ * Iterators are weakly consistent snapshots and do not support removal.
+ * </p>
+ *
+ * @param <E> the type of the elements held in this queue.
+ */
+public class RingBufferBlockingQueue<E> extends AbstractQueue<E>
+  implements BlockingQueue<E> {
+
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<E> buffer;
+  private final AtomicLong head = new AtomicLong(0);
+  private final AtomicLong tail = new AtomicLong(0);
+  private final Object consumerLock = new Object();
+
+  /**
+   * Create a queue holding at most the given number of elements.
+   *
+   * @param cap the capacity of the queue.
+   */
+  public RingBufferBlockingQueue(int cap) {
+    if (cap < 1 || cap > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity: " + cap);
+    }
+    capacity = cap;
+    int size = cap == 1 ? 1 : Integer.highestOneBit(cap - 1) << 1;
+    mask = size - 1;
+    buffer = new AtomicReferenceArray<E>(size);
+  }
+
+  @Override
+  public boolean offer(E e) {
+    if (e == null) {
+      throw new NullPointerException();
+    }
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() >= capacity) {
+        return false;
+      }
+    } while (!tail.compareAndSet(t, t + 1));
+    buffer.lazySet((int) t & mask, e);
+    return true;
+  }
+
+  public boolean offer(E e, long timeout, TimeUnit unit)
+    throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long park = MIN_PARK_NANOS;
+    while (!offer(e)) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      park = park(Math.min(park, remaining));
+    }
+    return true;
+  }
+
+  public void put(E e) throws InterruptedException {
+    long park = MIN_PARK_NANOS;
+    while (!offer(e)) {
+      park = park(park);
+    }
+  }
+
+  public E poll() {
+    synchronized (consumerLock) {
+      long h = head.get();
+      if (h == tail.get()) {
+        return null;
+      }
+      int i = (int) h & mask;
+      E e = awaitElement(i);
+      buffer.lazySet(i, null);
+      head.lazySet(h + 1);
+      return e;
+    }
+  }
+
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    long park = MIN_PARK_NANOS;
+    E e;
+    while ((e = poll()) == null) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      park = park(Math.min(park, remaining));
+    }
+    return e;
+  }
+
+  public E take() throws InterruptedException {
+    long park = MIN_PARK_NANOS;
+    E e;
+    while ((e = poll()) == null) {
+      park = park(park);
+    }
+    return e;
+  }
+
+  public E peek() {
+    synchronized (consumerLock) {
+      long h = head.get();
+      if (h == tail.get()) {
+        return null;
+      }
+      return awaitElement((int) h & mask);
+    }
+  }
+
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == null) {
+      throw new NullPointerException();
+    }
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    synchronized (consumerLock) {
+      long h = head.get();
+      long t = tail.get();
+      int n = 0;
+      while (h < t && n < maxElements) {
+        int i = (int) h & mask;
+        c.add(awaitElement(i));
+        buffer.lazySet(i, null);
+        h++;
+        n++;
+      }
+      // Publish the freed slots to the producers once for the whole batch.
+      head.lazySet(h);
+      return n;
+    }
+  }
+
+  @Override
+  public int size() {
+    long h = head.get();
+    long t = tail.get();
+    return (int) Math.max(0, Math.min(t - h, capacity));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return head.get() == tail.get();
+  }
+
+  public int remainingCapacity() {
+    return capacity - size();
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot;
+    synchronized (consumerLock) {
+      long h = head.get();
+      long t = tail.get();
+      snapshot = new ArrayList<E>((int) Math.min(t - h, capacity));
+      for (long i = h; i < t; i++) {
+        E e = buffer.get((int) i & mask);
+        if (e != null) {
+          snapshot.add(e);
+        }
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  /**
+   * Wait for the producer which claimed the given slot to publish its
+   * element. Must be called with the consumer lock held.
+   */
+  private E awaitElement(int i) {
+    E e;
+    while ((e = buffer.get(i)) == null) {
+      Thread.yield();
+    }
+    return e;
+  }
+
+  private static long park(long nanos) throws InterruptedException {
+    LockSupport.parkNanos(nanos);
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    return Math.min(nanos << 1, MAX_PARK_NANOS);
+  }
+
+  @Override
+  public String toString() {
+    return "{RingBufferBlockingQueue size=" + size() + ", capacity="
+      + capacity + "}";
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Test multi-gets being split into gets within the configured bounds.
+ */
+public class BulkGetSplitTest extends TestCase {
+
+  private ServerSocket server;
+  private MemcachedClient client;
+  private Socket socket;
+  private BufferedReader in;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new ServerSocket(0);
+    server.setSoTimeout(5000);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    if (socket != null) {
+      socket.close();
+    }
+    server.close();
+    super.tearDown();
+  }
+
+  private void connect(ConnectionFactoryBuilder builder) throws Exception {
+    client = new MemcachedClient(builder.setClientMode(ClientMode.Static)
+        .setOpTimeout(1000).build(),
+        Collections.singletonList(
+            new InetSocketAddress("127.0.0.1", server.getLocalPort())));
+    socket = server.accept();
+    socket.setSoTimeout(5000);
+    in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        "US-ASCII"));
+  }
+
+  private void respond(String response) throws Exception {
+    OutputStream out = socket.getOutputStream();
+    out.write(response.getBytes("US-ASCII"));
+    out.flush();
+  }
+
+  /**
+   * Read the given number of gets, and get the keys of each.
+   */
+  private List<Set<String>> readGets(int count) throws Exception {
+    List<Set<String>> rv = new ArrayList<Set<String>>();
+    for (int i = 0; i < count; i++) {
+      List<String> parts = Arrays.asList(in.readLine().split(" "));
+      assertEquals("get", parts.get(0));
+      rv.add(new HashSet<String>(parts.subList(1, parts.size())));
+    }
+    return rv;
+  }
+
+  private static Set<String> keys(String... k) {
+    return new HashSet<String>(Arrays.asList(k));
+  }
+
+  public void testSplitByKeyCount() throws Exception {
+    connect(new ConnectionFactoryBuilder().setMaxGetKeys(2));
+    BulkFuture<Map<String, Object>> f =
+        client.asyncGetBulk(Arrays.asList("a", "b", "c", "d", "e"));
+
+    assertEquals(Arrays.asList(keys("a", "b"), keys("c", "d"), keys("e")),
+        readGets(3));
+    respond("VALUE a 0 1\r\nx\r\nEND\r\nEND\r\nVALUE e 0 1\r\nz\r\nEND\r\n");
+
+    Map<String, Object> values = f.get(5, TimeUnit.SECONDS);
+    assertEquals(2, values.size());
+    assertEquals("x", values.get("a"));
+    assertEquals("z", values.get("e"));
+    assertTrue(f.getStatus().isSuccess());
+  }
+
+  public void testSplitByKeyBytes() throws Exception {
+    connect(new ConnectionFactoryBuilder().setMaxGetBytes(4));
+    BulkFuture<Map<String, Object>> f =
+        client.asyncGetBulk(Arrays.asList("aa", "bb", "cc", "toolong", "d"));
+
+    // A key longer than the limit still gets fetched, alone.
+    assertEquals(Arrays.asList(keys("aa", "bb"), keys("cc"), keys("toolong"),
+        keys("d")), readGets(4));
+    respond("END\r\nEND\r\nVALUE toolong 0 1\r\nx\r\nEND\r\nEND\r\n");
+
+    Map<String, Object> values = f.get(5, TimeUnit.SECONDS);
+    assertEquals(Collections.singletonMap("toolong", (Object) "x"), values);
+  }
+
+  public void testNoSplitByDefault() throws Exception {
+    connect(new ConnectionFactoryBuilder());
+    List<String> all = new ArrayList<String>();
+    for (int i = 0; i < 2000; i++) {
+      all.add("key" + i);
+    }
+    BulkFuture<Map<String, Object>> f = client.asyncGetBulk(all);
+
+    assertEquals(new HashSet<String>(all), readGets(1).get(0));
+    respond("END\r\n");
+    assertTrue(f.get(5, TimeUnit.SECONDS).isEmpty());
+  }
+
+  public void testStreamingGetCompletesNodeOnce() throws Exception {
+    connect(new ConnectionFactoryBuilder().setMaxGetKeys(2));
+    final Map<String, Object> values = new HashMap<String, Object>();
+    final List<OperationStatus> completions = new ArrayList<OperationStatus>();
+    OperationFuture<Boolean> f = client.asyncGetBulk(
+        Arrays.asList("a", "b", "c"), new BulkGetCallback<Object>() {
+          public void gotValue(String key, Object value) {
+            values.put(key, value);
+          }
+
+          public void nodeComplete(MemcachedNode node, OperationStatus s) {
+            completions.add(s);
+          }
+        });
+
+    assertEquals(Arrays.asList(keys("a", "b"), keys("c")), readGets(2));
+    // The second chunk misses its only key.
+    respond("VALUE b 0 1\r\ny\r\nEND\r\nEND\r\n");
+
+    assertTrue(f.get(5, TimeUnit.SECONDS));
+    assertTrue(f.getStatus().isSuccess());
+    assertEquals(Collections.singletonMap("b", (Object) "y"), values);
+    assertEquals(1, completions.size());
+    assertTrue(completions.get(0).isSuccess());
+  }
+}
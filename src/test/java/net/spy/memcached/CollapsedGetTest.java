@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Test gets of the same key collapsing into a single get on the wire.
+ */
+public class CollapsedGetTest extends TestCase {
+
+  private ServerSocket server;
+  private MemcachedClient client;
+  private Socket socket;
+  private BufferedReader in;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new ServerSocket(0);
+    server.setSoTimeout(5000);
+    client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static).setCollapseGets(true)
+        .setOpTimeout(1000).build(),
+        Collections.singletonList(
+            new InetSocketAddress("127.0.0.1", server.getLocalPort())));
+    socket = server.accept();
+    socket.setSoTimeout(5000);
+    in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        "US-ASCII"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    socket.close();
+    server.close();
+    super.tearDown();
+  }
+
+  private void respond(String response) throws Exception {
+    OutputStream out = socket.getOutputStream();
+    out.write(response.getBytes("US-ASCII"));
+    out.flush();
+  }
+
+  public void testGetsOfTheSameKeyAreSentOnce() throws Exception {
+    GetFuture<Object> first = client.asyncGet("k");
+    GetFuture<Object> second = client.asyncGet("k");
+    GetFuture<Object> third = client.asyncGet("k");
+
+    assertEquals("get k", in.readLine());
+    respond("VALUE k 0 1\r\nx\r\nEND\r\n");
+    assertEquals("x", first.get(5, TimeUnit.SECONDS));
+    assertEquals("x", second.get(5, TimeUnit.SECONDS));
+    assertEquals("x", third.get(5, TimeUnit.SECONDS));
+
+    // The next get on the wire is one for another key.
+    GetFuture<Object> other = client.asyncGet("other");
+    assertEquals("get other", in.readLine());
+    respond("END\r\n");
+    assertNull(other.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testFailureOfTheSharedGetReachesEveryCaller() throws Exception {
+    GetFuture<Object> first = client.asyncGet("k");
+    GetFuture<Object> second = client.asyncGet("k");
+
+    assertEquals("get k", in.readLine());
+    // No answer, the shared get expires at its deadline.
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!(first.isDone() && second.isDone())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(first.isDone());
+    assertTrue(second.isDone());
+    assertEquals(StatusCode.TIMEDOUT, first.getStatus().getStatusCode());
+    assertEquals(StatusCode.TIMEDOUT, second.getStatus().getStatusCode());
+  }
+
+  public void testCancellingOneCallerLeavesTheOthers() throws Exception {
+    GetFuture<Object> first = client.asyncGet("k");
+    GetFuture<Object> second = client.asyncGet("k");
+    GetFuture<Object> third = client.asyncGet("k");
+
+    assertEquals("get k", in.readLine());
+    first.cancel(true);
+    second.cancel(true);
+    assertTrue(first.isCancelled());
+    assertTrue(second.isDone());
+    assertFalse(third.isDone());
+
+    respond("VALUE k 0 1\r\nx\r\nEND\r\n");
+    assertEquals("x", third.get(5, TimeUnit.SECONDS));
+    assertFalse(third.isCancelled());
+    assertEquals(StatusCode.CANCELLED, second.getStatus().getStatusCode());
+  }
+}
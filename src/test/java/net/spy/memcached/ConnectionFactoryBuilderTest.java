@@ -38,12 +38,14 @@ import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.auth.PlainCallbackHandler;
 import net.spy.memcached.compat.BaseMockCase;
+import net.spy.memcached.nearcache.TinyLfuNearCache;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryMemcachedNodeImpl;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+import net.spy.memcached.protocol.meta.MetaOperationFactory;
 import net.spy.memcached.transcoders.SerializingTranscoder;
 import net.spy.memcached.transcoders.WhalinTranscoder;
 
@@ -101,11 +103,46 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
     assertFalse(f.isDaemon());
     assertFalse(f.shouldOptimize());
     assertFalse(f.useNagleAlgorithm());
+    assertFalse(f.useGatheringWrites());
     assertFalse(f.getKeepAlive());
     assertEquals(f.getOpQueueMaxBlockTime(),
         DefaultConnectionFactory.DEFAULT_OP_QUEUE_MAX_BLOCK_TIME);
     assertEquals(f.getAuthWaitTime(),
       DefaultConnectionFactory.DEFAULT_AUTH_WAIT_TIME);
+    assertEquals(DefaultConnectionFactory.DEFAULT_IO_LOOP_COUNT,
+        f.getIOLoopCount());
+    assertEquals(DefaultConnectionFactory.DEFAULT_CONNECTIONS_PER_NODE,
+        f.getConnectionsPerNode());
+    assertEquals(f.getReadBufSize(), f.getMinBufSize());
+    assertEquals(f.getReadBufSize(), f.getMaxBufSize());
+    assertEquals(DefaultConnectionFactory.DEFAULT_WRITE_CORK_TIME,
+        f.getWriteCorkTime());
+    assertEquals(DefaultConnectionFactory.DEFAULT_WRITE_CORK_THRESHOLD,
+        f.getWriteCorkThreshold());
+    assertEquals(DefaultConnectionFactory.DEFAULT_OP_QUEUE_HIGH_WATER_MARK,
+        f.getOpQueueHighWaterMark());
+    assertEquals(DefaultConnectionFactory.DEFAULT_MAX_CONCURRENT_RECONNECTS,
+        f.getMaxConcurrentReconnects());
+    assertEquals(DefaultConnectionFactory.DEFAULT_OUTLIER_EJECTION_FACTOR,
+        f.getOutlierEjectionFactor(), 0);
+    assertEquals(DefaultConnectionFactory.DEFAULT_OUTLIER_EJECTION_TIME,
+        f.getOutlierEjectionTime());
+    assertEquals(DefaultConnectionFactory.DEFAULT_SLOW_START_TIME,
+        f.getSlowStartTime());
+    assertEquals(DefaultConnectionFactory.DEFAULT_HEALTH_CHECK_INTERVAL,
+        f.getHealthCheckInterval());
+    assertEquals(DefaultConnectionFactory.DEFAULT_NO_REPLY_BARRIER_INTERVAL,
+        f.getNoReplyBarrierInterval());
+    assertEquals(DefaultConnectionFactory.DEFAULT_MAX_GET_KEYS,
+        f.getMaxGetKeys());
+    assertEquals(DefaultConnectionFactory.DEFAULT_MAX_GET_BYTES,
+        f.getMaxGetBytes());
+    assertEquals(DefaultConnectionFactory.DEFAULT_NEAR_CACHE_MAX_SIZE,
+        f.getNearCacheMaxSize());
+    assertEquals(DefaultConnectionFactory.DEFAULT_NEAR_CACHE_TTL,
+        f.getNearCacheTtl());
+    assertNull(f.getNearCache());
+    assertFalse(f.shouldCollapseGets());
   }
 
   public void testModifications() throws Exception {
@@ -138,10 +175,24 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
         .setReadOpQueueFactory(rQueueFactory)
         .setWriteOpQueueFactory(wQueueFactory).setReadBufferSize(19)
         .setTranscoder(new WhalinTranscoder()).setUseNagleAlgorithm(true)
+        .setUseGatheringWrites(true)
         .setLocatorType(Locator.CONSISTENT).setOpQueueMaxBlockTime(19)
         .setAuthDescriptor(anAuthDescriptor)
         .setAuthWaitTime(3000)
         .setKeepAlive(true)
+        .setIOLoopCount(4)
+        .setConnectionsPerNode(3)
+        .setMinBufferSize(8).setMaxBufferSize(64)
+        .setWriteCorkTime(200).setWriteCorkThreshold(75)
+        .setOpQueueHighWaterMark(500)
+        .setMaxConcurrentReconnects(4)
+        .setOutlierEjectionFactor(5).setOutlierEjectionTime(10000)
+        .setSlowStartTime(20000).setHealthCheckInterval(15000)
+        .setNoReplyBarrierInterval(250)
+        .setMaxGetKeys(100)
+        .setMaxGetBytes(4096)
+        .setNearCacheMaxSize(1 << 20).setNearCacheTtl(5000)
+        .setCollapseGets(true)
         .build();
 
     assertEquals(4225, f.getOperationTimeout());
@@ -158,10 +209,31 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
     assertTrue(f.isDaemon());
     assertFalse(f.shouldOptimize());
     assertTrue(f.useNagleAlgorithm());
+    assertTrue(f.useGatheringWrites());
     assertTrue(f.getKeepAlive());
     assertEquals(f.getOpQueueMaxBlockTime(), 19);
     assertSame(anAuthDescriptor, f.getAuthDescriptor());
     assertEquals(f.getAuthWaitTime(), 3000);
+    assertEquals(4, f.getIOLoopCount());
+    assertEquals(3, f.getConnectionsPerNode());
+    assertEquals(8, f.getMinBufSize());
+    assertEquals(64, f.getMaxBufSize());
+    assertEquals(200, f.getWriteCorkTime());
+    assertEquals(75, f.getWriteCorkThreshold());
+    assertEquals(500, f.getOpQueueHighWaterMark());
+    assertEquals(4, f.getMaxConcurrentReconnects());
+    assertEquals(5, f.getOutlierEjectionFactor(), 0);
+    assertEquals(10000, f.getOutlierEjectionTime());
+    assertEquals(20000, f.getSlowStartTime());
+    assertEquals(15000, f.getHealthCheckInterval());
+    assertEquals(250, f.getNoReplyBarrierInterval());
+    assertEquals(100, f.getMaxGetKeys());
+    assertEquals(4096, f.getMaxGetBytes());
+    assertEquals(1 << 20, f.getNearCacheMaxSize());
+    assertEquals(5000, f.getNearCacheTtl());
+    assertTrue(f.getNearCache() instanceof TinyLfuNearCache);
+    assertSame(f.getNearCache(), f.getNearCache());
+    assertTrue(f.shouldCollapseGets());
 
     MemcachedNode n = new MockMemcachedNode(
         InetSocketAddress.createUnresolved("localhost",
@@ -191,6 +263,11 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
 
   }
 
+  public void testProtocolSetterMeta() {
+    assertTrue(b.setProtocol(Protocol.META).build().getOperationFactory()
+        instanceof MetaOperationFactory);
+  }
+
   public void testOverridingExecutorService() {
     ConnectionFactory factory = b.build();
     assertTrue(factory.isDefaultExecutorService());
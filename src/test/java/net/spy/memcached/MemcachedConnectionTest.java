@@ -23,12 +23,23 @@
 package net.spy.memcached;
 
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import junit.framework.TestCase;
+import net.spy.memcached.config.ClusterConfiguration;
+import net.spy.memcached.config.NodeEndPoint;
+import net.spy.memcached.metrics.AbstractMetricCollector;
+import net.spy.memcached.metrics.MetricType;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 
 /**
@@ -73,4 +84,138 @@ public class MemcachedConnectionTest extends TestCase {
     assertTrue(conn.belongsToCluster(node));
     assertFalse(conn.belongsToCluster(node2));
   }
+
+  public void testNodeMetricsAreRemovedWithTheNode() throws Exception {
+    int[] ports = new int[2];
+    for (int i = 0; i < ports.length; i++) {
+      // Nothing listens on the ports, so the nodes keep reconnecting.
+      ServerSocket ss = new ServerSocket(0);
+      ports[i] = ss.getLocalPort();
+      ss.close();
+    }
+    CounterCollector collector = new CounterCollector();
+    ConnectionFactory factory = new ConnectionFactoryBuilder()
+      .setClientMode(ClientMode.Static).setEnableMetrics(MetricType.DEBUG)
+      .setMetricCollector(collector).build();
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    for (int port : ports) {
+      addresses.add(new InetSocketAddress("127.0.0.1", port));
+    }
+    MemcachedConnection conn = new MemcachedConnection(1024, factory,
+      addresses, Collections.<ConnectionObserver>emptyList(),
+      FailureMode.Retry, new BinaryOperationFactory());
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (collector.delayCounters() < 2
+        && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, collector.delayCounters());
+
+      conn.notifyUpdate(new ClusterConfiguration(2, Collections.singletonList(
+        new NodeEndPoint("127.0.0.1", "127.0.0.1", ports[0]))));
+      conn.waitForConfigChangeApplied();
+      assertEquals(1, collector.delayCounters());
+      assertTrue(collector.counters.toString(),
+        collector.counters.toString().contains(":" + ports[0]));
+    } finally {
+      conn.shutdown();
+    }
+  }
+
+  public void testReconnectedNodeIsRamped() throws Exception {
+    ServerSocket server = new ServerSocket(0);
+    ConnectionFactory factory = new ConnectionFactoryBuilder()
+      .setClientMode(ClientMode.Static).setSlowStartTime(60000)
+      .setMaxReconnectDelay(1).build();
+    MemcachedConnection conn = new MemcachedConnection(1024, factory,
+      Collections.singletonList(
+        new InetSocketAddress("127.0.0.1", server.getLocalPort())),
+      Collections.<ConnectionObserver>emptyList(), FailureMode.Retry,
+      new BinaryOperationFactory());
+    try {
+      server.setSoTimeout(5000);
+      Socket first = server.accept();
+      MemcachedNode node = conn.getLocator().getAll().iterator().next();
+      waitForActive(node);
+      assertEquals(1.0, node.getHealth().getWeight(System.nanoTime()), 0.0);
+
+      // Drop the connection once, the client notices on its next write
+      // and reconnects right away.
+      first.close();
+      conn.addOperation(node, new BinaryOperationFactory().noop(
+        new OperationCallback() {
+          public void receivedStatus(OperationStatus status) {
+          }
+
+          public void complete() {
+          }
+        }));
+      Socket second = server.accept();
+      try {
+        waitForActive(node);
+        assertTrue(node.getHealth().getWeight(System.nanoTime()) < 1.0);
+      } finally {
+        second.close();
+      }
+    } finally {
+      conn.shutdown();
+      server.close();
+    }
+  }
+
+  private static void waitForActive(MemcachedNode node) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!node.isActive() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(node.isActive());
+  }
+
+  static class CounterCollector extends AbstractMetricCollector {
+    private final Set<String> counters = Collections.newSetFromMap(
+      new ConcurrentHashMap<String, Boolean>());
+
+    int delayCounters() {
+      int rv = 0;
+      for (String name : counters) {
+        if (name.contains("Reconnect Delay")) {
+          rv++;
+        }
+      }
+      return rv;
+    }
+
+    public void addCounter(String name) {
+      counters.add(name);
+    }
+
+    public void removeCounter(String name) {
+      counters.remove(name);
+    }
+
+    public void incrementCounter(String name, int amount) {
+    }
+
+    public void decrementCounter(String name, int amount) {
+    }
+
+    public void addMeter(String name) {
+    }
+
+    public void removeMeter(String name) {
+    }
+
+    public void markMeter(String name) {
+    }
+
+    public void addHistogram(String name) {
+    }
+
+    public void removeHistogram(String name) {
+    }
+
+    public void updateHistogram(String name, int amount) {
+    }
+  }
 }
@@ -51,7 +51,10 @@ public class MemcachedNodeROImplTest extends MockObjectTestCase {
 
     Set<String> acceptable = new HashSet<String>(Arrays.asList("toString",
         "getSocketAddress", "getBytesRemainingToWrite", "getReconnectCount",
-        "getSelectionOps", "hasReadOp", "hasWriteOp", "isActive"));
+        "getSelectionOps", "hasReadOp", "hasWriteOp", "isActive",
+        "getRbufSize", "getWbufSize", "getOutstandingOpCount",
+        "getCorkDelay", "getOpQueueHighWaterMark",
+        "getHealth", "getInFlightLimit"));
 
     for (Method meth : MemcachedNode.class.getMethods()) {
       if (acceptable.contains(meth.getName())) {
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.ops.StatusCode;
+
+/**
+ * Test the meta protocol against a local stand-in server answering the
+ * commands the client sends.
+ */
+public class MetaProtocolTest extends TestCase {
+
+  private ServerSocket server;
+  private MemcachedClient client;
+  private Socket socket;
+  private BufferedReader in;
+  private ExecutorService executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new ServerSocket(0);
+    server.setSoTimeout(5000);
+    client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static)
+        .setProtocol(ConnectionFactoryBuilder.Protocol.META)
+        .setOpTimeout(1000).build(),
+        Collections.singletonList(
+            new InetSocketAddress("127.0.0.1", server.getLocalPort())));
+    socket = server.accept();
+    socket.setSoTimeout(5000);
+    in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        "US-ASCII"));
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    client.shutdown();
+    socket.close();
+    server.close();
+    super.tearDown();
+  }
+
+  private void respond(String response) throws Exception {
+    OutputStream out = socket.getOutputStream();
+    out.write(response.getBytes("US-ASCII"));
+    out.flush();
+  }
+
+  /**
+   * Read the quiet gets up to the terminating mn, and get the opaque of
+   * each key.
+   */
+  private Map<String, String> readGets() throws Exception {
+    Map<String, String> rv = new HashMap<String, String>();
+    for (String line = in.readLine(); !line.equals("mn");
+        line = in.readLine()) {
+      String[] parts = line.split(" ");
+      assertEquals("mg", parts[0]);
+      assertEquals("q", parts[parts.length - 1]);
+      rv.put(parts[1], parts[parts.length - 2]);
+    }
+    return rv;
+  }
+
+  public void testBulkGetOnlyHitsAreAnswered() throws Exception {
+    BulkFuture<Map<String, Object>> f =
+        client.asyncGetBulk(Arrays.asList("a", "b", "c"));
+
+    Map<String, String> opaques = readGets();
+    assertEquals(3, opaques.size());
+    respond("VA 1 f0 " + opaques.get("a") + "\r\nx\r\n"
+        + "VA 1 f0 " + opaques.get("c") + "\r\nz\r\nMN\r\n");
+
+    Map<String, Object> values = f.get(5, TimeUnit.SECONDS);
+    assertEquals(2, values.size());
+    assertEquals("x", values.get("a"));
+    assertEquals("z", values.get("c"));
+    assertTrue(f.getStatus().isSuccess());
+  }
+
+  public void testMissOfEveryKey() throws Exception {
+    GetFuture<Object> f = client.asyncGet("k");
+
+    assertEquals(1, readGets().size());
+    respond("MN\r\n");
+    assertNull(f.get(5, TimeUnit.SECONDS));
+    assertEquals(StatusCode.ERR_NOT_FOUND, f.getStatus().getStatusCode());
+  }
+
+  public void testRefusedGetIsReported() throws Exception {
+    GetFuture<Object> f = client.asyncGet("k");
+
+    assertEquals(1, readGets().size());
+    respond("SERVER_ERROR out of memory\r\nMN\r\n");
+    assertNull(f.get(5, TimeUnit.SECONDS));
+    assertFalse(f.getStatus().isSuccess());
+    assertEquals(StatusCode.ERR_INTERNAL, f.getStatus().getStatusCode());
+    assertEquals("SERVER_ERROR out of memory", f.getStatus().getMessage());
+
+    // The connection is still in step with the server.
+    f = client.asyncGet("k");
+    Map<String, String> opaques = readGets();
+    respond("VA 1 f0 " + opaques.get("k") + "\r\nx\r\nMN\r\n");
+    assertEquals("x", f.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testStoreAndDelete() throws Exception {
+    OperationFuture<Boolean> stored = client.set("k", 0, "x");
+
+    String[] parts = in.readLine().split(" ");
+    assertEquals("ms", parts[0]);
+    assertEquals("k", parts[1]);
+    assertEquals("1", parts[2]);
+    assertEquals("x", in.readLine());
+    respond("HD c7\r\n");
+    assertTrue(stored.get(5, TimeUnit.SECONDS));
+    assertEquals(7, stored.getCas().longValue());
+
+    Future<Boolean> deleted = client.delete("k");
+    assertTrue(in.readLine().startsWith("md k"));
+    respond("NF\r\n");
+    assertFalse(deleted.get(5, TimeUnit.SECONDS));
+  }
+
+  private Future<Object> getOrRecompute(final int tokenExp,
+      final Object newValue) {
+    final CASMutator<Object> mutator = new CASMutator<Object>(client,
+        client.getTranscoder());
+    return executor.submit(new Callable<Object>() {
+      public Object call() throws Exception {
+        return mutator.getOrRecompute("k", 60, tokenExp,
+            new CASMutation<Object>() {
+              public Object getNewValue(Object current) {
+                return newValue;
+              }
+            });
+      }
+    });
+  }
+
+  public void testRecomputeMissingValue() throws Exception {
+    Future<Object> f = getOrRecompute(30, "new");
+
+    assertEquals("mg k v f c N30", in.readLine());
+    respond("VA 0 W c5 f0\r\n\r\n");
+    assertTrue(in.readLine().startsWith("ms k 3 "));
+    assertEquals("new", in.readLine());
+    respond("HD\r\n");
+    assertEquals("new", f.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testEmptyValueIsNotRecomputed() throws Exception {
+    Future<Object> f = getOrRecompute(30, "new");
+
+    assertEquals("mg k v f c N30", in.readLine());
+    respond("VA 0 c5 f0\r\n\r\n");
+    assertEquals("", f.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testWaitForValueRecomputedElsewhere() throws Exception {
+    Future<Object> f = getOrRecompute(30, "new");
+
+    assertEquals("mg k v f c N30", in.readLine());
+    respond("VA 0 Z c5 f0\r\n\r\n");
+    assertEquals("mg k v f c N30", in.readLine());
+    respond("VA 1 c6 f0\r\nx\r\n");
+    assertEquals("x", f.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testWaitForRecomputedValueIsBounded() throws Exception {
+    Future<Object> f = getOrRecompute(0, "new");
+
+    // The placeholder never gets replaced.
+    while (true) {
+      assertEquals("mg k v f c N0", in.readLine());
+      respond("VA 0 Z c5 f0\r\n\r\n");
+      try {
+        f.get(100, TimeUnit.MILLISECONDS);
+        fail("Expected the wait to time out");
+      } catch (TimeoutException e) {
+        // Still waiting, the next get is on its way.
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof OperationTimeoutException);
+        break;
+      }
+    }
+  }
+}
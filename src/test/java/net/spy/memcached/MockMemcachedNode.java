@@ -44,6 +44,7 @@ import net.spy.memcached.ops.Operation;
 public class MockMemcachedNode implements MemcachedNode {
   private final InetSocketAddress socketAddress;
   private NodeEndPoint nodeEndPoint;
+  private final NodeHealth health = new NodeHealth();
   
   public SocketAddress getSocketAddress() {
     return socketAddress;
@@ -134,6 +135,18 @@ public class MockMemcachedNode implements MemcachedNode {
     // noop
   }
 
+  public boolean tryAddOp(Operation op) {
+    return true;
+  }
+
+  public int getOpQueueHighWaterMark() {
+    return -1;
+  }
+
+  public void setOpQueueHighWaterMark(int mark) {
+    // noop
+  }
+
   public void insertOp(Operation op) {
     // noop
   }
@@ -150,6 +163,22 @@ public class MockMemcachedNode implements MemcachedNode {
     return null;
   }
 
+  public int getRbufSize() {
+    return 0;
+  }
+
+  public int getWbufSize() {
+    return 0;
+  }
+
+  public void adaptRbuf(int bytesRead) {
+    // noop
+  }
+
+  public void releaseBuffers() {
+    // noop
+  }
+
   public boolean doTlsHandshake(long timeoutInMillis) throws IOException {
     return false;
   }
@@ -198,10 +227,22 @@ public class MockMemcachedNode implements MemcachedNode {
     return 0;
   }
 
+  public int getOutstandingOpCount() {
+    return 0;
+  }
+
   public int writeSome() throws IOException {
     return 0;
   }
 
+  public long getCorkDelay(long now) {
+    return 0;
+  }
+
+  public int takeFilledOpCount() {
+    return 0;
+  }
+
   public void fixupOps() {
     // noop
   }
@@ -222,6 +263,14 @@ public class MockMemcachedNode implements MemcachedNode {
     return 0;
   }
 
+  public NodeHealth getHealth() {
+    return health;
+  }
+
+  public int getInFlightLimit() {
+    return Integer.MAX_VALUE;
+  }
+
   public void setContinuousTimeout(boolean timedOut) {
     // noop
   }
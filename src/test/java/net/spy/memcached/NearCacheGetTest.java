@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.GetFuture;
+
+/**
+ * Test gets served from the near cache.
+ */
+public class NearCacheGetTest extends TestCase {
+
+  private ServerSocket server;
+  private MemcachedClient client;
+  private Socket socket;
+  private BufferedReader in;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new ServerSocket(0);
+    server.setSoTimeout(5000);
+    client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static)
+        .setNearCacheMaxSize(1024 * 1024)
+        .setOpTimeout(1000).build(),
+        Collections.singletonList(
+            new InetSocketAddress("127.0.0.1", server.getLocalPort())));
+    socket = server.accept();
+    socket.setSoTimeout(5000);
+    in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        "US-ASCII"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    socket.close();
+    server.close();
+    super.tearDown();
+  }
+
+  private void respond(String response) throws Exception {
+    OutputStream out = socket.getOutputStream();
+    out.write(response.getBytes("US-ASCII"));
+    out.flush();
+  }
+
+  private void load(String key, String value) throws Exception {
+    GetFuture<Object> f = client.asyncGet(key);
+    assertEquals("get " + key, in.readLine());
+    respond("VALUE " + key + " 0 " + value.length() + "\r\n" + value
+        + "\r\nEND\r\n");
+    assertEquals(value, f.get(5, TimeUnit.SECONDS));
+  }
+
+  public void testHitIsDoneWithoutOperation() throws Exception {
+    load("k", "x");
+
+    GetFuture<Object> f = client.asyncGet("k");
+    assertTrue(f.isDone());
+    assertFalse(f.isCancelled());
+    assertEquals("x", f.get(0, TimeUnit.MILLISECONDS));
+    assertTrue(f.getStatus().isSuccess());
+    assertFalse(f.cancel(true));
+    assertFalse(f.isCancelled());
+  }
+
+  public void testBulkGetOfHitsOnly() throws Exception {
+    load("a", "x");
+    load("b", "y");
+
+    BulkFuture<Map<String, Object>> f =
+        client.asyncGetBulk(Arrays.asList("a", "b"));
+    assertTrue(f.isDone());
+    Map<String, Object> values = f.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, values.size());
+    assertEquals("x", values.get("a"));
+    assertEquals("y", values.get("b"));
+    assertTrue(f.getStatus().isSuccess());
+
+    // Nothing was sent for the hits, the next get is the first one read.
+    GetFuture<Object> miss = client.asyncGet("c");
+    assertEquals("get c", in.readLine());
+    respond("END\r\n");
+    assertNull(miss.get(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the latency tracking and ejection of a {@link NodeHealth}.
+ */
+public class NodeHealthTest extends TestCase {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  public void testMovingAverages() {
+    NodeHealth health = new NodeHealth();
+    health.recordSuccess(10 * MS);
+    assertEquals(10 * MS, health.getLatency());
+    assertEquals(0, health.getErrorRate(), 0);
+
+    for (int i = 0; i < 100; i++) {
+      health.recordFailure(100 * MS);
+    }
+    assertEquals(101, health.getSamples());
+    assertTrue(health.getLatency() > 90 * MS);
+    assertTrue(health.getErrorRate() > 0.9);
+  }
+
+  public void testProbeLatency() {
+    NodeHealth health = new NodeHealth();
+    assertEquals(-1, health.getProbeLatency());
+    health.recordProbe(2 * MS);
+    assertEquals(2 * MS, health.getProbeLatency());
+    assertEquals(0, health.getSamples());
+  }
+
+  public void testNoReplyBarrier() {
+    NodeHealth health = new NodeHealth();
+    assertFalse(health.recordNoReply(3));
+    assertFalse(health.recordNoReply(3));
+    assertTrue(health.recordNoReply(3));
+    assertFalse(health.recordNoReply(3));
+  }
+
+  public void testFullWeightByDefault() {
+    NodeHealth health = new NodeHealth();
+    long now = System.nanoTime();
+    assertFalse(health.isEjected(now));
+    assertEquals(1, health.getWeight(now), 0);
+    assertTrue(health.admit(now));
+  }
+
+  public void testEjectAndRampUp() {
+    NodeHealth health = new NodeHealth();
+    health.recordSuccess(10 * MS);
+    long now = System.nanoTime();
+    health.eject(now, 100, 100, TimeUnit.MILLISECONDS);
+
+    assertEquals(0, health.getSamples());
+    assertTrue(health.isEjected(now + 50 * MS));
+    assertEquals(0, health.getWeight(now + 50 * MS), 0);
+    assertFalse(health.admit(now + 50 * MS));
+
+    assertFalse(health.isEjected(now + 150 * MS));
+    assertEquals(0.5, health.getWeight(now + 150 * MS), 0.01);
+
+    assertEquals(1, health.getWeight(now + 200 * MS), 0);
+    assertTrue(health.admit(now + 200 * MS));
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.TimedOutOperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+/**
+ * Test the expiry of operations at their deadline.
+ */
+public class OperationExpiryTest extends TestCase {
+
+  private static final byte[] LATE_RESPONSE =
+      "VALUE k1 0 1\r\nx\r\nVALUE k2 0 1\r\ny\r\nEND\r\n".getBytes();
+
+  private final OperationFactory opFact = new AsciiOperationFactory();
+  private ConnectionFactory cf;
+  private MemcachedConnection conn;
+  private ServerSocket listener;
+  private SocketChannel channel;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    // Nothing listens on the port, so nothing is ever written.
+    ServerSocket ss = new ServerSocket(0);
+    int port = ss.getLocalPort();
+    ss.close();
+    cf = new ConnectionFactoryBuilder().setOpTimeout(100)
+        .setClientMode(ClientMode.Static).build();
+    conn = new MemcachedConnection(1024, cf,
+        Collections.singletonList(new InetSocketAddress("127.0.0.1", port)),
+        Collections.<ConnectionObserver>emptyList(), FailureMode.Retry,
+        opFact);
+    // The test nodes are connected to a listener which never answers.
+    listener = new ServerSocket(0);
+    channel = SocketChannel.open(new InetSocketAddress("127.0.0.1",
+        listener.getLocalPort()));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    channel.close();
+    listener.close();
+    conn.shutdown();
+    super.tearDown();
+  }
+
+  private MemcachedNode createNode() {
+    MemcachedNode node = cf.createMemcachedNode(
+        InetSocketAddress.createUnresolved("localhost", 11211), channel,
+        cf.getReadBufSize());
+    node.setConnection(conn);
+    node.connected();
+    return node;
+  }
+
+  private Operation addGet(MemcachedNode node, String key,
+      RecordingCallback cb) {
+    Operation op = opFact.get(key, cb);
+    op.setHandlingNode(node);
+    op.initialize();
+    node.addOp(op);
+    return op;
+  }
+
+  public void testUnsentOperationDoesNotCountAsTimeout() throws Exception {
+    RecordingCallback cb = new RecordingCallback();
+    Operation op = opFact.get("k", cb);
+    conn.enqueueOperation("k", op);
+
+    assertTrue(cb.completed.await(5, TimeUnit.SECONDS));
+    assertTrue(cb.statuses.get(0) instanceof TimedOutOperationStatus);
+    assertTrue(op.isTimedOutUnsent());
+    assertEquals(0, op.getHandlingNode().getContinuousTimeout());
+  }
+
+  public void testOnlySentOperationsCountAsTimeouts() throws Exception {
+    MemcachedNode node = createNode();
+    Operation op = addGet(node, "k", new RecordingCallback());
+    node.copyInputQueue();
+
+    MemcachedConnection.opTimedOut(op);
+    assertEquals(0, node.getContinuousTimeout());
+
+    node.fillWriteBuffer(false);
+    assertNotSame(OperationState.WRITE_QUEUED, op.getState());
+    MemcachedConnection.opTimedOut(op);
+    assertEquals(1, node.getContinuousTimeout());
+  }
+
+  public void testLateResponseIsDiscarded() throws Exception {
+    MemcachedNode node = createNode();
+    RecordingCallback cb = new RecordingCallback();
+    Operation op = addGet(node, "k1", cb);
+    node.copyInputQueue();
+    node.fillWriteBuffer(false);
+
+    op.timeOut();
+    op.readFromBuffer(ByteBuffer.wrap("VALUE k1 0 1\r\nx\r\nEND\r\n"
+        .getBytes()));
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertEquals(0, cb.values);
+    assertEquals(1, cb.statuses.size());
+    assertTrue(cb.statuses.get(0) instanceof TimedOutOperationStatus);
+    assertEquals(1, cb.completions);
+  }
+
+  public void testOptimizedGetExpires() throws Exception {
+    MemcachedNode node = createNode();
+    addGet(node, "k0", new RecordingCallback());
+    List<RecordingCallback> cbs = new ArrayList<RecordingCallback>();
+    List<Operation> folded = new ArrayList<Operation>();
+    for (int i = 1; i <= 2; i++) {
+      RecordingCallback cb = new RecordingCallback();
+      cbs.add(cb);
+      folded.add(addGet(node, "k" + i, cb));
+    }
+    node.copyInputQueue();
+    node.fillWriteBuffer(true);
+
+    // The first get goes out on its own, the next ones are folded.
+    node.removeCurrentReadOp();
+    Operation optimized = node.getCurrentReadOp();
+    assertFalse(folded.contains(optimized));
+    assertNotNull(optimized.getExpiry());
+
+    for (RecordingCallback cb : cbs) {
+      assertTrue(cb.completed.await(5, TimeUnit.SECONDS));
+    }
+    assertTrue(optimized.isTimedOut());
+    for (Operation op : folded) {
+      assertTrue(op.isTimedOut());
+    }
+
+    // The response arriving after the deadline is read but not reported.
+    optimized.readFromBuffer(ByteBuffer.wrap(LATE_RESPONSE));
+    assertEquals(OperationState.COMPLETE, optimized.getState());
+    for (RecordingCallback cb : cbs) {
+      assertEquals(0, cb.values);
+      assertEquals(1, cb.statuses.size());
+      assertTrue(cb.statuses.get(0) instanceof TimedOutOperationStatus);
+      assertEquals(1, cb.completions);
+    }
+  }
+
+  static class RecordingCallback implements GetOperation.Callback {
+    private final List<OperationStatus> statuses =
+        Collections.synchronizedList(new ArrayList<OperationStatus>());
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile int values;
+    private volatile int completions;
+
+    public void gotData(String key, int flags, byte[] data) {
+      values++;
+    }
+
+    public void receivedStatus(OperationStatus status) {
+      statuses.add(status);
+    }
+
+    public void complete() {
+      completions++;
+      completed.countDown();
+    }
+  }
+}
@@ -26,11 +26,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import net.spy.memcached.ops.BulkDeleteOperation;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.BulkTouchOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.ConcatenationOperation;
 import net.spy.memcached.ops.ConcatenationType;
@@ -39,6 +45,7 @@ import net.spy.memcached.ops.GetAndTouchOperation;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.GetsOperation;
 import net.spy.memcached.ops.KeyedOperation;
+import net.spy.memcached.ops.MultiBulkOperationCallback;
 import net.spy.memcached.ops.Mutator;
 import net.spy.memcached.ops.MutatorOperation;
 import net.spy.memcached.ops.Operation;
@@ -280,6 +287,87 @@ public abstract class OperationFactoryTestBase extends MockObjectTestCase {
     }
   }
 
+  public void testBulkStoreOperationCloning() {
+    Map<String, CachedData> values = new LinkedHashMap<String, CachedData>();
+    values.put("k1", new CachedData(1, testData, CachedData.MAX_SIZE));
+    values.put("k2", new CachedData(2, testData, CachedData.MAX_SIZE));
+    BulkOperationCallback callback =
+        (BulkOperationCallback) mock(BulkOperationCallback.class).proxy();
+    BulkStoreOperation op = ofact.bulkStore(StoreType.add, values, 9284,
+        callback);
+    assertEquals(2, op.getKeys().size());
+
+    Collection<Operation> ops = ofact.clone(op);
+    assertEquals(2, ops.size());
+    for (Operation o : ops) {
+      BulkStoreOperation bo = (BulkStoreOperation) o;
+      String key = bo.getKeys().iterator().next();
+      assertEquals(1, bo.getValues().size());
+      assertSame(values.get(key), bo.getValues().get(key));
+      assertSame(StoreType.add, bo.getStoreType());
+      assertEquals(9284, bo.getExpiration());
+      assertTrue(bo.getCallback() instanceof MultiBulkOperationCallback);
+    }
+  }
+
+  public void testBulkDeleteOperationCloning() {
+    BulkOperationCallback callback =
+        (BulkOperationCallback) mock(BulkOperationCallback.class).proxy();
+    BulkDeleteOperation op = ofact.bulkDelete(Arrays.asList("k1", "k2"),
+        callback);
+    assertEquals(2, op.getKeys().size());
+
+    Collection<Operation> ops = ofact.clone(op);
+    assertEquals(2, ops.size());
+    for (Operation o : ops) {
+      BulkDeleteOperation bo = (BulkDeleteOperation) o;
+      assertEquals(1, bo.getKeys().size());
+      assertTrue(bo.getCallback() instanceof MultiBulkOperationCallback);
+    }
+  }
+
+  public void testBulkTouchOperationCloning() {
+    BulkOperationCallback callback =
+        (BulkOperationCallback) mock(BulkOperationCallback.class).proxy();
+    BulkTouchOperation op = ofact.bulkTouch(Arrays.asList("k1", "k2"), 9284,
+        callback);
+    assertEquals(2, op.getKeys().size());
+
+    Collection<Operation> ops = ofact.clone(op);
+    assertEquals(2, ops.size());
+    for (Operation o : ops) {
+      BulkTouchOperation bo = (BulkTouchOperation) o;
+      assertEquals(1, bo.getKeys().size());
+      assertEquals(9284, bo.getExpiration());
+      assertTrue(bo.getCallback() instanceof MultiBulkOperationCallback);
+    }
+  }
+
+  public void testBulkOperationFanout() {
+    Collection<String> keys = Arrays.asList("k1", "k2", "k3");
+    Mock m = mock(BulkOperationCallback.class);
+    OperationStatus st = new OperationStatus(true, "blah", StatusCode.SUCCESS);
+    OperationStatus failure = new OperationStatus(false, "NOT_FOUND",
+        StatusCode.ERR_NOT_FOUND);
+    m.expects(once()).method("complete");
+    m.expects(once()).method("receivedStatus").with(same(st));
+    m.expects(once()).method("gotFailure").with(eq("k2"), same(failure));
+
+    BulkOperationCallback callback = (BulkOperationCallback) m.proxy();
+    BulkDeleteOperation op = ofact.bulkDelete(keys, callback);
+
+    // Transition each operation callback into the complete state.
+    for (Operation o : ofact.clone(op)) {
+      BulkOperationCallback cb = (BulkOperationCallback) o.getCallback();
+      String key = ((BulkDeleteOperation) o).getKeys().iterator().next();
+      if (key.equals("k2")) {
+        cb.gotFailure(key, failure);
+      }
+      cb.receivedStatus(st);
+      cb.complete();
+    }
+  }
+
   public void testNotGrowingCallstack() throws Exception {
     final CountDownLatch latch = new CountDownLatch(1);
     GetOperation.Callback cb = new GetOperation.Callback() {
@@ -0,0 +1,156 @@
+package net.spy.memcached.nearcache;
+
+import net.spy.memcached.CachedData;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link OffHeapNearCache} class.
+ */
+public class OffHeapNearCacheTest {
+
+  private static final int PAGE_SIZE = 1024;
+
+  /**
+   * The number of 100 byte values fitting into a page.
+   */
+  private static final int PER_PAGE = 9;
+
+  private static OffHeapNearCache newCache(int pages) {
+    return new OffHeapNearCache(pages * PAGE_SIZE, PAGE_SIZE, 10,
+      TimeUnit.SECONDS, null, 1);
+  }
+
+  private static CachedData value(int length, int flags) {
+    byte[] data = new byte[length];
+    Arrays.fill(data, (byte) flags);
+    return new CachedData(flags, data, CachedData.MAX_SIZE);
+  }
+
+  private static boolean put(NearCache cache, String key, CachedData value) {
+    return cache.put(key, value, 0, cache.beginLoad(key));
+  }
+
+  @Test
+  public void shouldReturnCopiesOfCachedValues() {
+    OffHeapNearCache cache = newCache(1);
+    CachedData value = value(100, 7);
+    assertNull(cache.get("k0"));
+    assertTrue(put(cache, "k0", value));
+
+    CachedData hit = cache.get("k0");
+    assertEquals(7, hit.getFlags());
+    assertArrayEquals(value.getData(), hit.getData());
+    assertNotSame(hit.getData(), cache.get("k0").getData());
+    assertEquals(1, cache.size());
+    assertEquals(104, cache.weightedSize());
+    assertEquals(PAGE_SIZE, cache.allocatedSize());
+  }
+
+  @Test
+  public void shouldReplaceValues() {
+    OffHeapNearCache cache = newCache(2);
+    assertTrue(put(cache, "k0", value(100, 1)));
+    assertTrue(put(cache, "k0", value(300, 2)));
+    CachedData hit = cache.get("k0");
+    assertEquals(2, hit.getFlags());
+    assertEquals(300, hit.getData().length);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void shouldRejectValuesLargerThanAPage() {
+    OffHeapNearCache cache = newCache(4);
+    assertTrue(put(cache, "k0", value(PAGE_SIZE, 1)));
+    assertFalse(put(cache, "k1", value(PAGE_SIZE + 1, 1)));
+    assertNull(cache.get("k1"));
+  }
+
+  @Test
+  public void shouldDropLoadsOverlappingAnInvalidation() {
+    OffHeapNearCache cache = newCache(1);
+    long stamp = cache.beginLoad("k0");
+    cache.invalidate("k0");
+    assertFalse(cache.put("k0", value(100, 1), 0, stamp));
+
+    assertTrue(put(cache, "k0", value(100, 1)));
+    cache.invalidate("k0");
+    assertNull(cache.get("k0"));
+    assertEquals(0, cache.weightedSize());
+  }
+
+  @Test
+  public void shouldInvalidateAll() {
+    OffHeapNearCache cache = newCache(1);
+    for (int i = 0; i < PER_PAGE; i++) {
+      assertTrue(put(cache, "k" + i, value(100, i)));
+    }
+    long stamp = cache.beginLoad("k0");
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertFalse(cache.put("k0", value(100, 1), 0, stamp));
+
+    // The chunks are free again.
+    for (int i = 0; i < PER_PAGE; i++) {
+      assertTrue(put(cache, "k" + i, value(100, i)));
+    }
+    assertEquals(PER_PAGE, cache.size());
+  }
+
+  @Test
+  public void shouldGiveReadEntriesASecondChance() {
+    OffHeapNearCache cache = newCache(1);
+    for (int i = 0; i < PER_PAGE; i++) {
+      assertTrue(put(cache, "k" + i, value(100, i)));
+    }
+    assertNotNull(cache.get("k0"));
+
+    assertTrue(put(cache, "k" + PER_PAGE, value(100, PER_PAGE)));
+    assertEquals(PER_PAGE, cache.size());
+    assertNotNull(cache.get("k0"));
+    assertNull(cache.get("k1"));
+    assertEquals(PER_PAGE, cache.get("k" + PER_PAGE).getFlags());
+  }
+
+  @Test
+  public void shouldMovePagesToNewValueSizes() {
+    OffHeapNearCache cache = newCache(2);
+    for (int i = 0; i < 2 * PER_PAGE; i++) {
+      assertTrue(put(cache, "k" + i, value(100, i)));
+    }
+    assertEquals(2 * PAGE_SIZE, cache.allocatedSize());
+
+    assertTrue(put(cache, "large", value(500, 1)));
+    assertNotNull(cache.get("large"));
+    assertEquals(PER_PAGE + 1, cache.size());
+    assertEquals(2 * PAGE_SIZE, cache.allocatedSize());
+  }
+
+  @Test
+  public void shouldStayWithinTheMaximumSize() {
+    OffHeapNearCache cache = newCache(8);
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      put(cache, "k" + i, value(random.nextInt(PAGE_SIZE), 0));
+      assertTrue(cache.weightedSize() <= cache.allocatedSize());
+      assertTrue(cache.allocatedSize() <= 8 * PAGE_SIZE);
+    }
+    for (int i = 0; i < 1000; i++) {
+      CachedData hit = cache.get("k" + i);
+      if (hit != null) {
+        assertEquals(0, hit.getFlags());
+      }
+    }
+  }
+}
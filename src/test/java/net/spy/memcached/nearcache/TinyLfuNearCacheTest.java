@@ -0,0 +1,153 @@
+package net.spy.memcached.nearcache;
+
+import net.spy.memcached.CachedData;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link TinyLfuNearCache} class.
+ */
+public class TinyLfuNearCacheTest {
+
+  /**
+   * The weight of an entry with a four character key and an empty value.
+   */
+  private static final int ENTRY_WEIGHT = 104;
+
+  private static final CachedData EMPTY = new CachedData(0, new byte[0],
+    CachedData.MAX_SIZE);
+
+  private static TinyLfuNearCache newCache(int entries) {
+    return new TinyLfuNearCache(entries * ENTRY_WEIGHT, 10, TimeUnit.SECONDS,
+      null, 1);
+  }
+
+  private static String key(int i) {
+    return String.format("k%03d", i);
+  }
+
+  private static boolean load(NearCache cache, String key) {
+    return cache.get(key) == null
+      && cache.put(key, EMPTY, 0, cache.beginLoad(key));
+  }
+
+  @Test
+  public void shouldReturnCachedValues() {
+    TinyLfuNearCache cache = newCache(10);
+    assertNull(cache.get("k000"));
+    assertTrue(cache.put("k000", EMPTY, 0, cache.beginLoad("k000")));
+    assertSame(EMPTY, cache.get("k000"));
+    assertEquals(1, cache.size());
+    assertEquals(ENTRY_WEIGHT, cache.weightedSize());
+  }
+
+  @Test
+  public void shouldReplaceValues() {
+    TinyLfuNearCache cache = newCache(10);
+    CachedData larger = new CachedData(0, new byte[10], CachedData.MAX_SIZE);
+    assertTrue(load(cache, "k000"));
+    assertTrue(cache.put("k000", larger, 0, cache.beginLoad("k000")));
+    assertSame(larger, cache.get("k000"));
+    assertEquals(1, cache.size());
+    assertEquals(ENTRY_WEIGHT + 10, cache.weightedSize());
+  }
+
+  @Test
+  public void shouldRejectValuesLargerThanTheCache() {
+    TinyLfuNearCache cache = newCache(2);
+    CachedData huge = new CachedData(0, new byte[4 * ENTRY_WEIGHT],
+      CachedData.MAX_SIZE);
+    assertFalse(cache.put("k000", huge, 0, cache.beginLoad("k000")));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void shouldExpireAfterTheTimeToLive() throws Exception {
+    TinyLfuNearCache cache = new TinyLfuNearCache(1024, 20,
+      TimeUnit.MILLISECONDS, null);
+    assertTrue(load(cache, "k000"));
+    Thread.sleep(50);
+    assertNull(cache.get("k000"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void shouldCapTheTimeToLiveByTheExpiration() {
+    TinyLfuNearCache cache = newCache(10);
+    long now = System.nanoTime();
+    long ttl = TimeUnit.SECONDS.toNanos(10);
+    assertEquals(now + ttl, cache.expiresAt(0, now));
+    assertEquals(now + TimeUnit.SECONDS.toNanos(1), cache.expiresAt(1, now));
+    assertEquals(now + ttl, cache.expiresAt(60, now));
+    assertEquals(now, cache.expiresAt(-1, now));
+
+    int unixNow = (int) (System.currentTimeMillis() / 1000);
+    assertEquals(now, cache.expiresAt(unixNow - 60, now));
+    assertEquals(now + ttl, cache.expiresAt(unixNow + 3600, now));
+
+    assertFalse(cache.put("k000", EMPTY, -1, cache.beginLoad("k000")));
+    assertNull(cache.get("k000"));
+  }
+
+  @Test
+  public void shouldDropLoadsOverlappingAnInvalidation() {
+    TinyLfuNearCache cache = newCache(10);
+    long stamp = cache.beginLoad("k000");
+    cache.invalidate("k000");
+    assertFalse(cache.put("k000", EMPTY, 0, stamp));
+    assertNull(cache.get("k000"));
+
+    assertTrue(cache.put("k000", EMPTY, 0, cache.beginLoad("k000")));
+    cache.invalidate("k000");
+    assertNull(cache.get("k000"));
+  }
+
+  @Test
+  public void shouldInvalidateAll() {
+    TinyLfuNearCache cache = newCache(10);
+    assertTrue(load(cache, "k000"));
+    long stamp = cache.beginLoad("k001");
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weightedSize());
+    assertNull(cache.get("k000"));
+    assertFalse(cache.put("k001", EMPTY, 0, stamp));
+  }
+
+  @Test
+  public void shouldStayWithinTheMaximumSize() {
+    TinyLfuNearCache cache = newCache(10);
+    for (int i = 0; i < 100; i++) {
+      load(cache, key(i));
+      assertTrue(cache.weightedSize() <= 10 * ENTRY_WEIGHT);
+    }
+    assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  public void shouldKeepFrequentlyReadKeys() {
+    TinyLfuNearCache cache = newCache(10);
+    for (int i = 0; i < 9; i++) {
+      assertTrue(load(cache, key(i)));
+      for (int j = 0; j < 3; j++) {
+        assertNotNull(cache.get(key(i)));
+      }
+    }
+
+    // A scan of keys read once must not evict the frequently read ones.
+    for (int i = 100; i < 150; i++) {
+      load(cache, key(i));
+    }
+    for (int i = 0; i < 9; i++) {
+      assertNotNull(key(i), cache.get(key(i)));
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.auth.AuthDescriptor;
+import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.UnitTestConfig;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
+
+/**
+ * Test the buffer and write handling of the TCPMemcachedNodeImpl.
+ */
+public class TCPMemcachedNodeImplTest extends TestCase {
+
+  private SocketChannel channel;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    channel = SocketChannel.open();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    channel.close();
+    super.tearDown();
+  }
+
+  private MemcachedNode createNode(ConnectionFactory cf) {
+    return cf.createMemcachedNode(InetSocketAddress.createUnresolved(
+        "localhost", UnitTestConfig.PORT_NUMBER), channel, cf.getReadBufSize());
+  }
+
+  public void testFixedBufferSize() {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).build());
+
+    assertEquals(1024, node.getRbufSize());
+    assertEquals(1024, node.getWbufSize());
+    node.adaptRbuf(1024);
+    assertEquals(1024, node.getRbufSize());
+  }
+
+  public void testReadBufferGrowsToMax() {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMaxBufferSize(4096).build());
+
+    node.adaptRbuf(1024);
+    assertEquals(2048, node.getRbufSize());
+    assertEquals(2048, node.getRbuf().capacity());
+    node.adaptRbuf(2048);
+    assertEquals(4096, node.getRbufSize());
+    node.adaptRbuf(4096);
+    assertEquals(4096, node.getRbufSize());
+    assertEquals(1024, node.getWbufSize());
+  }
+
+  public void testReadBufferShrinksToMin() {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMinBufferSize(512).build());
+
+    for (int i = 0; i < 63; i++) {
+      node.adaptRbuf(10);
+    }
+    assertEquals(1024, node.getRbufSize());
+    node.adaptRbuf(10);
+    assertEquals(512, node.getRbufSize());
+
+    for (int i = 0; i < 256; i++) {
+      node.adaptRbuf(10);
+    }
+    assertEquals(512, node.getRbufSize());
+  }
+
+  public void testBuffersAreReturnedToThePool() {
+    ConnectionFactory cf = new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMaxBufferSize(4096).build();
+    MemcachedNode node = createNode(cf);
+
+    node.adaptRbuf(1024);
+    assertEquals(2, cf.getBufferPool().getLeasedCount());
+    node.releaseBuffers();
+    assertEquals(0, cf.getBufferPool().getLeasedCount());
+    assertEquals(0, node.getRbufSize());
+  }
+
+  public void testReleasedNodeHasEmptyBuffers() throws Exception {
+    ConnectionFactory cf = new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMaxBufferSize(4096).build();
+    MemcachedNode node = createNode(cf);
+
+    node.releaseBuffers();
+    node.releaseBuffers();
+    assertEquals(0, cf.getBufferPool().getLeasedCount());
+    assertEquals(0, node.getWbufSize());
+    assertEquals(0, node.getRbuf().remaining());
+
+    // Late users of the node neither fail nor lease buffers again.
+    node.adaptRbuf(1024);
+    node.setupResend();
+    addNoops(node, 1);
+    node.fillWriteBuffer(false);
+    assertEquals(0, node.getBytesRemainingToWrite());
+    assertEquals(0, cf.getBufferPool().getLeasedCount());
+  }
+
+  private void addNoops(MemcachedNode node, int count) {
+    AsciiOperationFactory opFact = new AsciiOperationFactory();
+    for (int i = 0; i < count; i++) {
+      Operation op = opFact.noop(null);
+      op.initialize();
+      node.addOp(op);
+    }
+    node.copyInputQueue();
+  }
+
+  public void testCorkedWritesAreAppended() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setWriteCorkTime(1000000).build());
+
+    addNoops(node, 2);
+    node.fillWriteBuffer(false);
+    int firstFill = node.getBytesRemainingToWrite();
+    assertTrue(firstFill > 0);
+    long now = System.nanoTime();
+    assertTrue(node.getCorkDelay(now) > 0);
+
+    addNoops(node, 3);
+    node.fillWriteBuffer(false);
+    assertTrue(node.getBytesRemainingToWrite() > firstFill);
+    assertEquals(node.getBytesRemainingToWrite(), node.getWbuf().remaining());
+    assertEquals(5, node.takeFilledOpCount());
+    assertEquals(0, node.takeFilledOpCount());
+    assertEquals(0, node.getCorkDelay(now + 1000000000L));
+  }
+
+  public void testCorkTimeIsRoundedUpToMillis() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setWriteCorkTime(200).build());
+
+    addNoops(node, 2);
+    long start = System.nanoTime();
+    node.fillWriteBuffer(false);
+    long delay = node.getCorkDelay(start);
+    assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  public void testCorkIsReleasedAtThreshold() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setWriteCorkTime(1000000)
+        .setWriteCorkThreshold(1).build());
+
+    addNoops(node, 2);
+    node.fillWriteBuffer(false);
+    assertEquals(0, node.getCorkDelay(System.nanoTime()));
+  }
+
+  public void testNoCorkByDefault() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).build());
+
+    addNoops(node, 1);
+    node.fillWriteBuffer(false);
+    assertTrue(node.getBytesRemainingToWrite() > 0);
+    assertEquals(0, node.getCorkDelay(System.nanoTime()));
+  }
+
+  public void testRampingNodeLimitsOpsInFlight() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).build());
+    node.getHealth().startRamp(System.nanoTime(), 1, TimeUnit.HOURS);
+
+    addNoops(node, 20);
+    node.fillWriteBuffer(false);
+    assertEquals(8, node.getInFlightLimit());
+    assertEquals(8, node.takeFilledOpCount());
+    assertTrue(node.hasWriteOp());
+  }
+
+  public void testNoInFlightLimitByDefault() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).build());
+
+    addNoops(node, 20);
+    node.fillWriteBuffer(false);
+    assertEquals(Integer.MAX_VALUE, node.getInFlightLimit());
+    assertEquals(20, node.takeFilledOpCount());
+  }
+
+  public void testTryAddOpRejectsOverHighWaterMark() {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setOpQueueHighWaterMark(2).build());
+    AsciiOperationFactory opFact = new AsciiOperationFactory();
+
+    assertEquals(2, node.getOpQueueHighWaterMark());
+    assertTrue(node.tryAddOp(opFact.noop(null)));
+    assertTrue(node.tryAddOp(opFact.noop(null)));
+    assertFalse(node.tryAddOp(opFact.noop(null)));
+
+    node.copyInputQueue();
+    assertTrue(node.tryAddOp(opFact.noop(null)));
+
+    node.setOpQueueHighWaterMark(1);
+    assertFalse(node.tryAddOp(opFact.noop(null)));
+    node.setOpQueueHighWaterMark(-1);
+    assertTrue(node.tryAddOp(opFact.noop(null)));
+  }
+
+  public void testTryAddOpLeavesOpAloneWhileAuthenticating() {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setProtocol(ConnectionFactoryBuilder.Protocol.BINARY)
+        .setOpQueueHighWaterMark(2)
+        .setAuthDescriptor(AuthDescriptor.typical("user", "pass")).build());
+    Operation op = new BinaryOperationFactory().noop(null);
+
+    node.setupForAuth();
+    assertFalse(node.tryAddOp(op));
+    assertFalse(op.isCancelled());
+    node.copyInputQueue();
+    assertFalse(node.hasWriteOp());
+
+    node.authComplete();
+    assertTrue(node.tryAddOp(op));
+  }
+
+  public void testFitsInGet() {
+    TCPMemcachedNodeImpl node = (TCPMemcachedNodeImpl) createNode(
+        new ConnectionFactoryBuilder().setMaxGetKeys(2).setMaxGetBytes(10)
+            .build());
+
+    assertTrue(node.fitsInGet(2, 10));
+    assertFalse(node.fitsInGet(3, 3));
+    assertFalse(node.fitsInGet(2, 11));
+    // A single key over the byte limit doesn't fit either, the optimizer
+    // sends it alone.
+    assertFalse(node.fitsInGet(1, 11));
+
+    node = (TCPMemcachedNodeImpl) createNode(new ConnectionFactoryBuilder()
+        .build());
+    assertTrue(node.fitsInGet(100000, 1 << 20));
+  }
+
+  public void testOptimizedGetsStayWithinKeyLimit() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMaxGetKeys(2).build());
+
+    // The first get goes out alone, the ones queued behind it get folded.
+    addGets(node, "a", "b", "c", "d");
+    node.fillWriteBuffer(true);
+    assertEquals("get a\r\nget b c\r\nget d\r\n", written(node));
+  }
+
+  public void testOptimizedGetsStayWithinByteLimit() throws Exception {
+    MemcachedNode node = createNode(new ConnectionFactoryBuilder()
+        .setReadBufferSize(1024).setMaxGetBytes(4).build());
+
+    addGets(node, "a", "bb", "cc", "toolong", "dd");
+    node.fillWriteBuffer(true);
+    assertEquals("get a\r\nget bb cc\r\nget toolong\r\nget dd\r\n",
+        written(node));
+  }
+
+  private void addGets(MemcachedNode node, String... keys) {
+    AsciiOperationFactory opFact = new AsciiOperationFactory();
+    for (String k : keys) {
+      Operation op = opFact.get(k, new GetOperation.Callback() {
+        public void gotData(String key, int flags, byte[] data) {
+        }
+
+        public void receivedStatus(OperationStatus status) {
+        }
+
+        public void complete() {
+        }
+      });
+      op.initialize();
+      node.addOp(op);
+    }
+    node.copyInputQueue();
+  }
+
+  private static String written(MemcachedNode node) {
+    ByteBuffer bb = node.getWbuf().duplicate();
+    byte[] b = new byte[bb.remaining()];
+    bb.get(b);
+    return new String(b);
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Test the decoding of the responses to bulk operations, which pipeline one
+ * command per key.
+ */
+public class BulkOperationTest extends TestCase {
+
+  private final AsciiOperationFactory ofact = new AsciiOperationFactory();
+  private RecordingCallback cb;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    cb = new RecordingCallback();
+  }
+
+  public void testStoreMatchesResponsesToKeysInOrder() throws Exception {
+    Map<String, CachedData> values = new LinkedHashMap<String, CachedData>();
+    for (String key : Arrays.asList("a", "b", "c", "d")) {
+      values.put(key, new CachedData(0, new byte[] { 'x' }, 1024));
+    }
+    Operation op = ofact.bulkStore(StoreType.add, values, 0, cb);
+    assertEquals("add a 0 0 1\r\nx\r\nadd b 0 0 1\r\nx\r\n"
+        + "add c 0 0 1\r\nx\r\nadd d 0 0 1\r\nx\r\n", send(op));
+
+    read(op, "STORED\r\nNOT_STORED\r\n"
+        + "SERVER_ERROR object too large for cache\r\nSTORED\r\n");
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertEquals(2, cb.failures.size());
+    assertEquals(StatusCode.ERR_NOT_STORED,
+        cb.failures.get("b").getStatusCode());
+    assertEquals(StatusCode.ERR_INTERNAL,
+        cb.failures.get("c").getStatusCode());
+    assertTrue(cb.status.isSuccess());
+    assertEquals(1, cb.completions);
+  }
+
+  public void testDeleteResponsesSplitAcrossReads() throws Exception {
+    Operation op = ofact.bulkDelete(Arrays.asList("a", "b", "c"), cb);
+    assertEquals("delete a\r\ndelete b\r\ndelete c\r\n", send(op));
+
+    read(op, "DELETED\r\nNOT_F");
+    assertEquals(OperationState.READING, op.getState());
+    read(op, "OUND\r\nDELETED\r\n");
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertEquals(1, cb.failures.size());
+    assertEquals(StatusCode.ERR_NOT_FOUND,
+        cb.failures.get("b").getStatusCode());
+    assertEquals(1, cb.completions);
+  }
+
+  public void testTouchWithoutFailures() throws Exception {
+    Operation op = ofact.bulkTouch(Arrays.asList("a", "b"), 10, cb);
+    assertEquals("touch a 10\r\ntouch b 10\r\n", send(op));
+
+    read(op, "TOUCHED\r\nTOUCHED\r\n");
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertTrue(cb.failures.isEmpty());
+    assertEquals(1, cb.completions);
+  }
+
+  private static String send(Operation op) {
+    op.initialize();
+    ByteBuffer bb = op.getBuffer();
+    byte[] b = new byte[bb.remaining()];
+    bb.duplicate().get(b);
+    op.writing();
+    op.writeComplete();
+    return new String(b);
+  }
+
+  private static void read(Operation op, String response) throws Exception {
+    op.readFromBuffer(ByteBuffer.wrap(response.getBytes()));
+  }
+
+  static class RecordingCallback implements BulkOperationCallback {
+    private final Map<String, OperationStatus> failures =
+        new HashMap<String, OperationStatus>();
+    private OperationStatus status;
+    private int completions;
+
+    public void gotFailure(String key, OperationStatus s) {
+      failures.put(key, s);
+    }
+
+    public void receivedStatus(OperationStatus s) {
+      status = s;
+    }
+
+    public void complete() {
+      completions++;
+    }
+  }
+}
@@ -22,10 +22,21 @@
 
 package net.spy.memcached.protocol.ascii;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
 import net.spy.memcached.OperationFactory;
 import net.spy.memcached.OperationFactoryTestBase;
+import net.spy.memcached.ops.DeleteOperation;
 import net.spy.memcached.ops.Mutator;
 import net.spy.memcached.ops.MutatorOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
 
 /**
  * An OperationFactoryTest.
@@ -70,4 +81,54 @@ public class OperationFactoryTest extends OperationFactoryTestBase {
     assertSame(Mutator.decr, op2.getType());
     assertCallback(op2);
   }
+
+  public void testNoReplyCloning() {
+    StoreOperation store = cloneOne(StoreOperation.class,
+        ofact.storeNoReply(StoreType.add, TEST_KEY, 8174, 9284, new byte[64],
+            genericCallback));
+    assertKey(store);
+    assertTrue(store.isNoReply());
+    assertSame(StoreType.add, store.getStoreType());
+    assertEquals(8174, store.getFlags());
+    assertEquals(9284, store.getExpiration());
+    assertCallback(store);
+
+    DeleteOperation delete = cloneOne(DeleteOperation.class,
+        ofact.deleteNoReply(TEST_KEY, genericCallback));
+    assertKey(delete);
+    assertTrue(delete.isNoReply());
+    assertCallback(delete);
+
+    MutatorOperation mutator = cloneOne(MutatorOperation.class,
+        ofact.mutateNoReply(Mutator.incr, TEST_KEY, 7735, genericCallback));
+    assertKey(mutator);
+    assertTrue(mutator.isNoReply());
+    assertEquals(7735, mutator.getBy());
+    assertCallback(mutator);
+  }
+
+  public void testNoReplyCompletesOnceWritten() {
+    final List<OperationStatus> statuses = new ArrayList<OperationStatus>();
+    Operation op = ofact.deleteNoReply(TEST_KEY, new OperationCallback() {
+      public void receivedStatus(OperationStatus status) {
+        statuses.add(status);
+      }
+
+      public void complete() {
+        statuses.add(null);
+      }
+    });
+    op.initialize();
+    ByteBuffer bb = op.getBuffer();
+    byte[] written = new byte[bb.remaining()];
+    bb.get(written);
+    assertEquals("delete " + TEST_KEY + " noreply\r\n", new String(written));
+
+    op.writing();
+    op.writeComplete();
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(2, statuses.size());
+    assertTrue(statuses.get(0).isSuccess());
+    assertNull(statuses.get(1));
+  }
 }
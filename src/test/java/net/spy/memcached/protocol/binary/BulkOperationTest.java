@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.binary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.BulkOperationCallback;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Test the decoding of the responses to bulk operations, which send quiet
+ * commands terminated by a noop.
+ */
+public class BulkOperationTest extends TestCase {
+
+  private static final int HEADER_LEN = 24;
+
+  private final BinaryOperationFactory ofact = new BinaryOperationFactory();
+  private RecordingCallback cb;
+  private List<Byte> sentCommands;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    cb = new RecordingCallback();
+    sentCommands = new ArrayList<Byte>();
+  }
+
+  public void testStoreReportsOnlyFailedKeys() throws Exception {
+    Map<String, CachedData> values = new LinkedHashMap<String, CachedData>();
+    for (String key : Arrays.asList("a", "b", "c")) {
+      values.put(key, new CachedData(0, new byte[] { 1 }, 1024));
+    }
+    Operation op = ofact.bulkStore(StoreType.set, values, 0, cb);
+    Map<String, Integer> opaques = send(op);
+    assertEquals(Arrays.asList(StoreOperationImpl.SETQ,
+        StoreOperationImpl.SETQ, StoreOperationImpl.SETQ,
+        NoopOperationImpl.CMD), sentCommands);
+
+    // Quiet stores are only answered when they fail.
+    ByteBuffer rb = ByteBuffer.allocate(256);
+    putResponse(rb, StoreOperationImpl.SETQ, 0x03, opaques.get("b"),
+        "Too large.");
+    putResponse(rb, NoopOperationImpl.CMD, 0, opaques.get(null), "");
+    rb.flip();
+    read(op, rb);
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertEquals(1, cb.failures.size());
+    assertEquals(StatusCode.ERR_2BIG, cb.failures.get("b").getStatusCode());
+    assertEquals("Too large.", cb.failures.get("b").getMessage());
+    assertTrue(cb.status.isSuccess());
+    assertEquals(1, cb.completions);
+  }
+
+  public void testTouchSkipsSuccessfulResponses() throws Exception {
+    Operation op = ofact.bulkTouch(Arrays.asList("a", "b", "c"), 10, cb);
+    Map<String, Integer> opaques = send(op);
+
+    // Touch has no quiet variant, so every key is answered. The responses
+    // arrive split across reads.
+    ByteBuffer rb = ByteBuffer.allocate(256);
+    putResponse(rb, TouchOperationImpl.CMD, 0, opaques.get("a"), "");
+    putResponse(rb, TouchOperationImpl.CMD, 0x01, opaques.get("b"),
+        "Not found");
+    putResponse(rb, TouchOperationImpl.CMD, 0x01, opaques.get("c"),
+        "Not found");
+    putResponse(rb, NoopOperationImpl.CMD, 0, opaques.get(null), "");
+    rb.flip();
+    while (rb.hasRemaining()) {
+      ByteBuffer chunk = rb.slice();
+      chunk.limit(Math.min(chunk.remaining(), 7));
+      op.readFromBuffer(chunk);
+      rb.position(rb.position() + chunk.position());
+    }
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertEquals(2, cb.failures.size());
+    assertEquals(StatusCode.ERR_NOT_FOUND,
+        cb.failures.get("b").getStatusCode());
+    assertEquals(StatusCode.ERR_NOT_FOUND,
+        cb.failures.get("c").getStatusCode());
+    assertEquals(1, cb.completions);
+  }
+
+  public void testDeleteWithoutFailures() throws Exception {
+    Operation op = ofact.bulkDelete(Arrays.asList("a", "b"), cb);
+    Map<String, Integer> opaques = send(op);
+
+    ByteBuffer rb = ByteBuffer.allocate(HEADER_LEN);
+    putResponse(rb, NoopOperationImpl.CMD, 0, opaques.get(null), "");
+    rb.flip();
+    read(op, rb);
+
+    assertEquals(OperationState.COMPLETE, op.getState());
+    assertTrue(cb.failures.isEmpty());
+    assertEquals(1, cb.completions);
+  }
+
+  /**
+   * Write the operation and get the opaques of its commands by key, the one
+   * of the terminating noop under null.
+   */
+  private Map<String, Integer> send(Operation op) {
+    op.initialize();
+    ByteBuffer bb = op.getBuffer().duplicate();
+    Map<String, Integer> rv = new HashMap<String, Integer>();
+    while (bb.hasRemaining()) {
+      int start = bb.position();
+      byte cmd = bb.get(start + 1);
+      sentCommands.add(cmd);
+      int keyLen = bb.getShort(start + 2);
+      int extraLen = bb.get(start + 4);
+      int bodyLen = bb.getInt(start + 8);
+      int opaque = bb.getInt(start + 12);
+      String key = null;
+      if (cmd != NoopOperationImpl.CMD) {
+        byte[] kb = new byte[keyLen];
+        bb.position(start + HEADER_LEN + extraLen);
+        bb.get(kb);
+        key = new String(kb);
+      }
+      rv.put(key, opaque);
+      bb.position(start + HEADER_LEN + bodyLen);
+    }
+    op.writing();
+    op.writeComplete();
+    return rv;
+  }
+
+  /**
+   * Read the responses like the connection does, one at a time.
+   */
+  private static void read(Operation op, ByteBuffer rb) throws Exception {
+    while (rb.hasRemaining() && op.getState() != OperationState.COMPLETE) {
+      op.readFromBuffer(rb);
+    }
+  }
+
+  private static void putResponse(ByteBuffer bb, byte cmd, int status,
+      int opaque, String body) {
+    byte[] b = body.getBytes();
+    bb.put((byte) 0x81);
+    bb.put(cmd);
+    bb.putShort((short) 0); // key length
+    bb.put((byte) 0); // extra length
+    bb.put((byte) 0); // data type
+    bb.putShort((short) status);
+    bb.putInt(b.length);
+    bb.putInt(opaque);
+    bb.putLong(0); // cas
+    bb.put(b);
+  }
+
+  static class RecordingCallback implements BulkOperationCallback {
+    private final Map<String, OperationStatus> failures =
+        new HashMap<String, OperationStatus>();
+    private OperationStatus status;
+    private int completions;
+
+    public void gotFailure(String key, OperationStatus s) {
+      failures.put(key, s);
+    }
+
+    public void receivedStatus(OperationStatus s) {
+      status = s;
+    }
+
+    public void complete() {
+      completions++;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.protocol.meta;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.spy.memcached.OperationFactory;
+import net.spy.memcached.OperationFactoryTestBase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Mutator;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.RecacheGetOperation;
+
+/**
+ * An OperationFactoryTest for the meta protocol.
+ */
+public class OperationFactoryTest extends OperationFactoryTestBase {
+
+  @Override
+  protected OperationFactory getOperationFactory() {
+    return new MetaOperationFactory();
+  }
+
+  public void testMultiGetPipelinesQuietGets() throws Exception {
+    final Map<String, String> values = new HashMap<String, String>();
+    final OperationStatus[] status = new OperationStatus[1];
+    Operation op = ofact.get(Arrays.asList("k1", "k2"),
+        new GetOperation.Callback() {
+          public void gotData(String key, int flags, byte[] data) {
+            values.put(key, flags + ":" + new String(data));
+          }
+
+          public void receivedStatus(OperationStatus s) {
+            status[0] = s;
+          }
+
+          public void complete() {
+          }
+        });
+    op.initialize();
+    String[] lines = new String(written(op)).split("\r\n");
+    assertEquals(3, lines.length);
+    assertEquals("mn", lines[2]);
+    String first = lines[0].split(" ")[1];
+    assertEquals("mg " + first + " v f O0 q", lines[0]);
+
+    op.writing();
+    op.writeComplete();
+    // Only the first key is a hit, the miss is not answered.
+    op.readFromBuffer(ByteBuffer.wrap("VA 2 f5 O0\r\nhi\r\nMN\r\n".getBytes()));
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertTrue(status[0].isSuccess());
+    assertEquals(1, values.size());
+    assertEquals("5:hi", values.get(first));
+  }
+
+  public void testMutateCreatesMissingCounter() {
+    Operation op = ofact.mutate(Mutator.incr, TEST_KEY, 3, 10, 60,
+        genericCallback);
+    op.initialize();
+    assertEquals("ma " + TEST_KEY + " v MI D3 N60 J10\r\n",
+        new String(written(op)));
+
+    op = ofact.mutate(Mutator.decr, TEST_KEY, 3, 0, -1, genericCallback);
+    op.initialize();
+    assertEquals("ma " + TEST_KEY + " v MD D3\r\n", new String(written(op)));
+  }
+
+  public void testRecacheGetCloning() {
+    RecacheGetOperation op = cloneOne(RecacheGetOperation.class,
+        ofact.recacheGet(TEST_KEY, 30, 5, recacheCallback(null)));
+    assertKey(op);
+    assertEquals(30, op.getTokenExpiration());
+    assertEquals(5, op.getRecacheThreshold());
+  }
+
+  public void testRecacheGetReportsWinAndStale() throws Exception {
+    final List<String> got = new ArrayList<String>();
+    Operation op = ofact.recacheGet(TEST_KEY, 30, 0, recacheCallback(got));
+    op.initialize();
+    assertEquals("mg " + TEST_KEY + " v f c N30\r\n", new String(written(op)));
+
+    op.writing();
+    op.writeComplete();
+    op.readFromBuffer(ByteBuffer.wrap("VA 2 X W c12 f3\r\nhi\r\n".getBytes()));
+    assertSame(OperationState.COMPLETE, op.getState());
+    assertEquals(Arrays.asList("3/12/hi/true/true/false", "END"), got);
+  }
+
+  public void testRecacheGetTellsPlaceholderFromEmptyValue() throws Exception {
+    final List<String> got = new ArrayList<String>();
+    Operation op = ofact.recacheGet(TEST_KEY, 30, 0, recacheCallback(got));
+    op.initialize();
+    op.writing();
+    op.writeComplete();
+    // Another client is recomputing a missing value.
+    op.readFromBuffer(ByteBuffer.wrap("VA 0 Z c12 f0\r\n\r\n".getBytes()));
+    assertSame(OperationState.COMPLETE, op.getState());
+
+    op = ofact.recacheGet(TEST_KEY, 30, 0, recacheCallback(got));
+    op.initialize();
+    op.writing();
+    op.writeComplete();
+    op.readFromBuffer(ByteBuffer.wrap("VA 0 c13 f0\r\n\r\n".getBytes()));
+    assertSame(OperationState.COMPLETE, op.getState());
+
+    assertEquals(Arrays.asList("0/12/placeholder/false/false/true", "END",
+        "0/13//false/false/false", "END"), got);
+  }
+
+  public void testInvalidate() {
+    Operation op = ofact.invalidate(TEST_KEY, 30, deleteCallback);
+    op.initialize();
+    assertEquals("md " + TEST_KEY + " I T30\r\n", new String(written(op)));
+  }
+
+  private static RecacheGetOperation.Callback recacheCallback(
+      final List<String> got) {
+    return new RecacheGetOperation.Callback() {
+      public void gotData(String key, int flags, long cas, byte[] data,
+          boolean won, boolean stale, boolean pending) {
+        got.add(flags + "/" + cas + "/"
+            + (data == null ? "placeholder" : new String(data)) + "/" + won
+            + "/" + stale + "/" + pending);
+      }
+
+      public void receivedStatus(OperationStatus s) {
+        got.add(s.getMessage());
+      }
+
+      public void complete() {
+      }
+    };
+  }
+
+  private static byte[] written(Operation op) {
+    ByteBuffer bb = op.getBuffer();
+    byte[] rv = new byte[bb.remaining()];
+    bb.get(rv);
+    return rv;
+  }
+}
@@ -0,0 +1,78 @@
+package net.spy.memcached.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link ByteBufferPool} class.
+ */
+public class ByteBufferPoolTest {
+
+  @Test
+  public void shouldAllocateDirectBuffers() {
+    ByteBufferPool pool = new ByteBufferPool(4);
+    ByteBuffer buf = pool.acquire(128);
+
+    assertTrue(buf.isDirect());
+    assertEquals(128, buf.capacity());
+    assertEquals(1, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+    assertEquals(1, pool.getAllocatedCount());
+  }
+
+  @Test
+  public void shouldReuseReleasedBuffers() {
+    ByteBufferPool pool = new ByteBufferPool(4);
+    ByteBuffer buf = pool.acquire(128);
+    buf.put((byte) 1).flip();
+    pool.release(buf);
+
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(1, pool.getIdleCount());
+
+    ByteBuffer again = pool.acquire(128);
+    assertSame(buf, again);
+    assertEquals(0, again.position());
+    assertEquals(128, again.limit());
+    assertEquals(1, pool.getAllocatedCount());
+  }
+
+  @Test
+  public void shouldPoolByCapacity() {
+    ByteBufferPool pool = new ByteBufferPool(4);
+    ByteBuffer small = pool.acquire(64);
+    pool.release(small);
+
+    ByteBuffer large = pool.acquire(256);
+    assertNotSame(small, large);
+    assertEquals(256, large.capacity());
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void shouldDropBuffersBeyondMaxIdle() {
+    ByteBufferPool pool = new ByteBufferPool(1);
+    ByteBuffer first = pool.acquire(64);
+    ByteBuffer second = pool.acquire(64);
+    pool.release(first);
+    pool.release(second);
+
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void shouldIgnoreNullBuffers() {
+    ByteBufferPool pool = new ByteBufferPool(1);
+    pool.release(null);
+
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+  }
+}
@@ -0,0 +1,112 @@
+package net.spy.memcached.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link HashedWheelTimer} class.
+ */
+public class HashedWheelTimerTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static Runnable record(final List<Integer> fired, final int id) {
+    return new Runnable() {
+      public void run() {
+        fired.add(id);
+      }
+    };
+  }
+
+  @Test
+  public void shouldExpireAtDeadline() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+    List<Integer> fired = new ArrayList<Integer>();
+    long now = System.nanoTime();
+    HashedWheelTimer.Timeout t = timer.newTimeout(record(fired, 1), 50,
+        TimeUnit.MILLISECONDS);
+
+    assertEquals(0, timer.expireTimeouts(now + 30 * MS));
+    assertTrue(fired.isEmpty());
+    assertEquals(1, timer.size());
+
+    assertEquals(1, timer.expireTimeouts(now + 80 * MS));
+    assertEquals(1, fired.size());
+    assertTrue(t.isExpired());
+    assertTrue(timer.isEmpty());
+  }
+
+  @Test
+  public void shouldHandleDeadlinesBeyondOneRotation() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 4);
+    List<Integer> fired = new ArrayList<Integer>();
+    long now = System.nanoTime();
+    timer.newTimeout(record(fired, 1), 20, TimeUnit.MILLISECONDS);
+    timer.newTimeout(record(fired, 2), 130, TimeUnit.MILLISECONDS);
+
+    timer.expireTimeouts(now + 50 * MS);
+    assertEquals(1, fired.size());
+    timer.expireTimeouts(now + 100 * MS);
+    assertEquals(1, fired.size());
+    timer.expireTimeouts(now + 160 * MS);
+    assertEquals(2, fired.size());
+    assertEquals(Integer.valueOf(2), fired.get(1));
+  }
+
+  @Test
+  public void shouldNotRunCancelledTimeouts() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+    List<Integer> fired = new ArrayList<Integer>();
+    long now = System.nanoTime();
+    HashedWheelTimer.Timeout pending = timer.newTimeout(record(fired, 1), 20,
+        TimeUnit.MILLISECONDS);
+    HashedWheelTimer.Timeout bucketed = timer.newTimeout(record(fired, 2),
+        100, TimeUnit.MILLISECONDS);
+    timer.newTimeout(record(fired, 3), 100, TimeUnit.MILLISECONDS);
+
+    assertTrue(pending.cancel());
+    assertFalse(pending.cancel());
+    timer.expireTimeouts(now + 50 * MS);
+    assertTrue(bucketed.cancel());
+    assertEquals(1, timer.size());
+
+    assertEquals(1, timer.expireTimeouts(now + 150 * MS));
+    assertEquals(1, fired.size());
+    assertEquals(Integer.valueOf(3), fired.get(0));
+    assertTrue(pending.isCancelled());
+    assertFalse(bucketed.isExpired());
+  }
+
+  @Test
+  public void shouldKeepExpiringWhenTaskFails() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+    List<Integer> fired = new ArrayList<Integer>();
+    long now = System.nanoTime();
+    timer.newTimeout(new Runnable() {
+      public void run() {
+        throw new IllegalStateException("expected");
+      }
+    }, 10, TimeUnit.MILLISECONDS);
+    timer.newTimeout(record(fired, 1), 10, TimeUnit.MILLISECONDS);
+
+    assertEquals(2, timer.expireTimeouts(now + 50 * MS));
+    assertEquals(1, fired.size());
+  }
+
+  @Test
+  public void shouldReportTimeUntilNextTick() {
+    HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8);
+    long now = System.nanoTime();
+    assertTrue(timer.nanosUntilNextTick(now) <= 10 * MS);
+    assertEquals(0, timer.nanosUntilNextTick(now + 20 * MS));
+    timer.expireTimeouts(now + 20 * MS);
+    assertTrue(timer.nanosUntilNextTick(now + 20 * MS) > 0);
+  }
+}
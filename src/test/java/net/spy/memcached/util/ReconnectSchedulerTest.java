@@ -0,0 +1,118 @@
+package net.spy.memcached.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link ReconnectScheduler}
+ * class.
+ */
+public class ReconnectSchedulerTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static ReconnectScheduler<String> scheduler(long seed) {
+    return new ReconnectScheduler<String>(100, 1000, TimeUnit.MILLISECONDS,
+        new Random(seed));
+  }
+
+  @Test
+  public void shouldPollOnlyDueAttempts() {
+    ReconnectScheduler<String> s = scheduler(42);
+    long now = 0;
+    assertTrue(s.schedule("a", now));
+    long deadline = s.getNextAttempt("a");
+    assertTrue(deadline >= now + 100 * MS);
+    assertTrue(deadline <= now + 300 * MS);
+
+    assertNull(s.pollDue(deadline - 1));
+    assertEquals(1, s.nanosUntilNext(deadline - 1));
+    assertEquals("a", s.pollDue(deadline));
+    assertTrue(s.isEmpty());
+    assertEquals(-1, s.nanosUntilNext(deadline));
+    assertEquals(-1, s.getNextAttempt("a"));
+  }
+
+  @Test
+  public void shouldScheduleItemOnlyOnce() {
+    ReconnectScheduler<String> s = scheduler(42);
+    assertTrue(s.schedule("a", 0));
+    long deadline = s.getNextAttempt("a");
+    assertFalse(s.schedule("a", 50 * MS));
+    assertEquals(deadline, s.getNextAttempt("a"));
+    assertEquals(1, s.size());
+  }
+
+  @Test
+  public void shouldBackOffWithinBounds() {
+    ReconnectScheduler<String> s = scheduler(7);
+    long now = 0;
+    long max = 0;
+    for (int i = 0; i < 50; i++) {
+      s.schedule("a", now);
+      long delay = s.getLastDelay("a");
+      assertTrue(delay >= 100 * MS);
+      assertTrue(delay <= 1000 * MS);
+      max = Math.max(max, delay);
+      now = s.getNextAttempt("a");
+      assertSame("a", s.pollDue(now));
+    }
+    assertTrue(max > 500 * MS);
+
+    s.reset("a");
+    s.schedule("a", now);
+    assertTrue(s.getLastDelay("a") <= 300 * MS);
+  }
+
+  @Test
+  public void shouldSpreadSimultaneousAttempts() {
+    ReconnectScheduler<Integer> s = new ReconnectScheduler<Integer>(100,
+        30000, TimeUnit.MILLISECONDS, new Random(3));
+    long now = 0;
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 30; i++) {
+        s.schedule(i, now);
+      }
+      now += 30000 * MS;
+      while (s.pollDue(now) != null) {
+        // Drain the round.
+      }
+    }
+    for (int i = 0; i < 30; i++) {
+      s.schedule(i, now);
+    }
+    long first = s.nanosUntilNext(now);
+    int distinct = 0;
+    long last = -1;
+    Integer n;
+    while ((n = s.pollDue(now + 30000 * MS)) != null) {
+      long delay = s.getLastDelay(n);
+      if (delay != last) {
+        distinct++;
+      }
+      last = delay;
+    }
+    assertTrue(first >= 100 * MS);
+    assertEquals(30, distinct);
+  }
+
+  @Test
+  public void shouldRemoveScheduledAttempt() {
+    ReconnectScheduler<String> s = scheduler(42);
+    s.schedule("a", 0);
+    s.schedule("b", 0);
+    assertTrue(s.remove("a"));
+    assertFalse(s.remove("a"));
+    assertEquals(0, s.getLastDelay("a"));
+    assertEquals("b", s.pollDue(1000 * MS));
+    assertNull(s.pollDue(1000 * MS));
+  }
+}
@@ -0,0 +1,121 @@
+package net.spy.memcached.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies the correct functionality of the {@link RingBufferBlockingQueue}
+ * class.
+ */
+public class RingBufferBlockingQueueTest {
+
+  @Test
+  public void shouldBeFirstInFirstOut() {
+    RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(4);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(q.offer(i));
+      assertTrue(q.offer(i + 100));
+      assertEquals(Integer.valueOf(i), q.peek());
+      assertEquals(Integer.valueOf(i), q.poll());
+      assertEquals(Integer.valueOf(i + 100), q.poll());
+    }
+    assertTrue(q.isEmpty());
+    assertNull(q.poll());
+    assertNull(q.peek());
+  }
+
+  @Test
+  public void shouldHonorExactCapacity() {
+    RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(3);
+    assertTrue(q.offer(1));
+    assertTrue(q.offer(2));
+    assertTrue(q.offer(3));
+    assertFalse(q.offer(4));
+    assertEquals(3, q.size());
+    assertEquals(0, q.remainingCapacity());
+    q.poll();
+    assertEquals(1, q.remainingCapacity());
+    assertTrue(q.offer(4));
+  }
+
+  @Test
+  public void shouldTimeOutOfferWhenFull() throws Exception {
+    RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(1);
+    q.put(1);
+    long start = System.nanoTime();
+    assertFalse(q.offer(2, 20, TimeUnit.MILLISECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    assertNull(new RingBufferBlockingQueue<Integer>(1).poll(1,
+        TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void shouldDrainInOrder() {
+    RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(8);
+    for (int i = 0; i < 5; i++) {
+      q.add(i);
+    }
+    List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(2, q.drainTo(drained, 2));
+    assertEquals(3, q.drainTo(drained));
+    assertEquals(5, drained.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), drained.get(i));
+    }
+    assertEquals(0, q.size());
+  }
+
+  @Test
+  public void shouldIterateOverSnapshot() {
+    RingBufferBlockingQueue<Integer> q = new RingBufferBlockingQueue<Integer>(4);
+    q.add(1);
+    q.add(2);
+    assertTrue(q.contains(2));
+    assertEquals("[1, 2]", new ArrayList<Integer>(q).toString());
+    assertEquals(2, q.size());
+  }
+
+  @Test
+  public void shouldKeepProducerOrderUnderContention() throws Exception {
+    final int producers = 8;
+    final int perProducer = 20000;
+    final RingBufferBlockingQueue<long[]> q =
+        new RingBufferBlockingQueue<long[]>(64);
+    final CountDownLatch start = new CountDownLatch(1);
+    for (int p = 0; p < producers; p++) {
+      final int id = p;
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < perProducer; i++) {
+              q.put(new long[] { id, i });
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+      t.setDaemon(true);
+      t.start();
+    }
+    start.countDown();
+
+    long[] next = new long[producers];
+    for (int n = 0; n < producers * perProducer; n++) {
+      long[] e = q.poll(10, TimeUnit.SECONDS);
+      assertEquals(next[(int) e[0]]++, e[1]);
+    }
+    assertTrue(q.isEmpty());
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2009-2011 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package net.spy.memcached.test;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.ClientMode;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
+import net.spy.memcached.MemcachedClient;
+
+/**
+ * Compares set throughput with and without gathering writes.
+ */
+public final class GatheringWriteBench {
+
+  private GatheringWriteBench() {
+    // Empty
+  }
+
+  private static long run(String servers, Protocol protocol, boolean gather,
+      int count, byte[] value) throws Exception {
+    MemcachedClient client = new MemcachedClient(new ConnectionFactoryBuilder()
+        .setClientMode(ClientMode.Static).setProtocol(protocol)
+        .setUseGatheringWrites(gather).setOpQueueMaxBlockTime(10000)
+        .setOpTimeout(10000).build(), AddrUtil.getAddresses(servers));
+    try {
+      long start = System.nanoTime();
+      Future<Boolean> f = null;
+      for (int i = 0; i < count; i++) {
+        f = client.set("gwb" + i, 0, value);
+      }
+      if (f != null) {
+        f.get(1, TimeUnit.MINUTES);
+      }
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    } finally {
+      client.shutdown();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 4) {
+      args = new String[] { "localhost:11211", "ascii", "100000", "4096" };
+      System.out.println("Usage: java " + GatheringWriteBench.class.getName()
+          + " <servers> <ascii|binary> <count> <valueSize>");
+    }
+
+    String servers = args[0];
+    Protocol protocol = "binary".equals(args[1]) ? Protocol.BINARY
+        : Protocol.TEXT;
+    int count = Integer.parseInt(args[2]);
+    byte[] value = new byte[Integer.parseInt(args[3])];
+
+    // Warm up both paths before measuring.
+    run(servers, protocol, false, count / 10, value);
+    run(servers, protocol, true, count / 10, value);
+
+    for (boolean gather : new boolean[] { false, true }) {
+      long ms = Math.max(1, run(servers, protocol, gather, count, value));
+      System.out.println((gather ? "gathering" : "copying") + "\t" + count
+          + " sets of " + value.length + " bytes in " + ms + "ms\t"
+          + (1000L * count / ms) + " ops/s\t"
+          + (1000L * count / ms * value.length / (1024 * 1024)) + " MB/s");
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package net.spy.memcached.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ops.ArrayOperationQueueFactory;
+import net.spy.memcached.ops.LinkedOperationQueueFactory;
+import net.spy.memcached.ops.LockFreeOperationQueueFactory;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationQueueFactory;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+/**
+ * Compares the operation queue factories with many producers and a single
+ * consumer, the way node input queues are used.
+ */
+public final class OperationQueueBench {
+
+  private static final int[] PRODUCERS = { 1, 16, 128 };
+
+  private OperationQueueBench() {
+    // Empty
+  }
+
+  private static long run(OperationQueueFactory factory, int producers,
+      final int perProducer, final Operation op) throws Exception {
+    final BlockingQueue<Operation> q = factory.create();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int p = 0; p < producers; p++) {
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < perProducer; i++) {
+              if (!q.offer(op, 10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out adding");
+              }
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+      t.start();
+      threads.add(t);
+    }
+
+    long total = (long) producers * perProducer;
+    List<Operation> drained = new ArrayList<Operation>(1024);
+    long begin = System.nanoTime();
+    start.countDown();
+    for (long n = 0; n < total;) {
+      int got = q.drainTo(drained, 1024);
+      if (got == 0) {
+        Thread.yield();
+      }
+      n += got;
+      drained.clear();
+    }
+    long elapsed = System.nanoTime() - begin;
+    for (Thread t : threads) {
+      t.join();
+    }
+    return elapsed;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      args = new String[] { "2000000", "16384" };
+      System.out.println("Usage: java " + OperationQueueBench.class.getName()
+          + " <opsPerRun> <capacity>");
+    }
+
+    int ops = Integer.parseInt(args[0]);
+    int capacity = Integer.parseInt(args[1]);
+    Operation op = new AsciiOperationFactory().noop(null);
+    OperationQueueFactory[] factories = {
+      new ArrayOperationQueueFactory(capacity),
+      new LinkedOperationQueueFactory(),
+      new LockFreeOperationQueueFactory(capacity),
+    };
+
+    for (int producers : PRODUCERS) {
+      int perProducer = Math.max(1, ops / producers);
+      for (OperationQueueFactory f : factories) {
+        // Warm up before measuring.
+        run(f, producers, perProducer / 10 + 1, op);
+        long ns = Math.max(1, run(f, producers, perProducer, op));
+        long total = (long) producers * perProducer;
+        System.out.println(f.getClass().getSimpleName() + "\t" + producers
+            + " producers\t" + TimeUnit.NANOSECONDS.toMillis(ns) + "ms\t"
+            + (total * 1000000000L / ns) + " ops/s");
+      }
+    }
+  }
+}